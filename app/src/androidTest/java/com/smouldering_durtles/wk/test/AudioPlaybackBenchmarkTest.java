@@ -0,0 +1,189 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import com.smouldering_durtles.wk.WkApplication;
+import com.smouldering_durtles.wk.api.model.ApiSubject;
+import com.smouldering_durtles.wk.api.model.PronunciationAudio;
+import com.smouldering_durtles.wk.api.model.PronunciationAudioMeta;
+import com.smouldering_durtles.wk.api.model.Reading;
+import com.smouldering_durtles.wk.db.AppDatabase;
+import com.smouldering_durtles.wk.db.model.Subject;
+import com.smouldering_durtles.wk.model.GenderedFile;
+import com.smouldering_durtles.wk.util.AudioUtil;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Benchmark for the time from a call to AudioUtil.playAudio until playback has started, with and
+ * without a player prepared ahead of time by AudioUtil.prefetchAudio, measured through the
+ * playback listener. The audio is a short generated tone in a local file, so the numbers show
+ * the shape of the difference, not real pronunciation audio timings. Timings are written to
+ * logcat under the tag AudioPlaybackBenchmark.
+ */
+@SuppressWarnings("JavaDoc")
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public final class AudioPlaybackBenchmarkTest {
+    private static final String TAG = "AudioPlaybackBenchmark";
+    private static final long SUBJECT_ID = 1;
+    private static final long SOURCE_ID = 990001;
+    private static final int ROUNDS = 10;
+    private static final int SAMPLE_RATE = 16000;
+    private static final int TONE_MILLIS = 150;
+    private static final long SETTLE_MILLIS = 500;
+
+    private final List<String> sources = new ArrayList<>();
+    private final List<Long> latencies = new ArrayList<>();
+    private AppDatabase db;
+    private Subject subject;
+    private GenderedFile audioFile;
+    private boolean wasMuted;
+
+    private static byte[] createTone() {
+        final int numSamples = SAMPLE_RATE * TONE_MILLIS / 1000;
+        final int dataSize = numSamples * 2;
+        final byte[] wav = new byte[44 + dataSize];
+        final int[] header = {
+                0x46464952, 36 + dataSize, 0x45564157, 0x20746d66, 16, 0x00010001,
+                SAMPLE_RATE, SAMPLE_RATE * 2, 0x00100002, 0x61746164, dataSize
+        };
+        for (int i=0; i<header.length; i++) {
+            for (int j=0; j<4; j++) {
+                wav[i * 4 + j] = (byte) (header[i] >> (j * 8));
+            }
+        }
+        for (int i=0; i<numSamples; i++) {
+            final int sample = (int) (Math.sin(2 * Math.PI * 440 * i / SAMPLE_RATE) * 8000);
+            wav[44 + i * 2] = (byte) sample;
+            wav[45 + i * 2] = (byte) (sample >> 8);
+        }
+        return wav;
+    }
+
+    @Before
+    public void createSubject() throws Exception {
+        final PronunciationAudioMeta meta = new PronunciationAudioMeta();
+        meta.setGender("female");
+        meta.setPronunciation("おと");
+        meta.setSourceId(SOURCE_ID);
+        final PronunciationAudio audio = new PronunciationAudio();
+        audio.setUrl("https://example.invalid/" + SOURCE_ID + ".mp3");
+        audio.setContentType("audio/mpeg");
+        audio.setMetadata(meta);
+
+        final Reading reading = new Reading();
+        reading.setReading("おと");
+        reading.setPrimary(true);
+        reading.setAcceptedAnswer(true);
+
+        final ApiSubject apiSubject = new ApiSubject();
+        apiSubject.setId(SUBJECT_ID);
+        apiSubject.setObject("vocabulary");
+        apiSubject.setCharacters("音");
+        apiSubject.setSlug("音");
+        apiSubject.setLevel(1);
+        apiSubject.setSrsSystemId(1);
+        apiSubject.setReadings(Collections.singletonList(reading));
+        apiSubject.setPronunciationAudios(Collections.singletonList(audio));
+
+        db = Room.inMemoryDatabaseBuilder(ApplicationProvider.getApplicationContext(), AppDatabase.class).build();
+        db.subjectSyncDao().insertOrUpdateBatch(Collections.singletonList(apiSubject));
+        subject = db.subjectDao().getById(SUBJECT_ID);
+        assertNotNull(subject);
+
+        // MediaPlayer sniffs the content, so a WAV tone under the .mp3 name plays fine
+        audioFile = AudioUtil.getNewFileForAudio(1, audio);
+        assertNotNull(audioFile);
+        try (final OutputStream os = new FileOutputStream(audioFile)) {
+            os.write(createTone());
+        }
+        AudioUtil.recordNewAudioFile(audioFile);
+
+        wasMuted = WkApplication.getDatabase().propertiesDao().getIsMuted();
+        WkApplication.getDatabase().propertiesDao().setIsMuted(false);
+        AudioUtil.setPlaybackListener((source, latency) -> {
+            synchronized (latencies) {
+                sources.add(source);
+                latencies.add(latency);
+            }
+        });
+    }
+
+    @After
+    public void removeSubject() throws Exception {
+        AudioUtil.setPlaybackListener(null);
+        AudioUtil.prefetchAudio(Collections.emptyList());
+        Thread.sleep(SETTLE_MILLIS);
+        WkApplication.getDatabase().propertiesDao().setIsMuted(wasMuted);
+        if (audioFile != null && audioFile.exists() && !audioFile.delete()) {
+            Log.w(TAG, "Could not delete " + audioFile);
+        }
+        AudioUtil.rescanAudioFiles();
+        db.close();
+    }
+
+    private long play(final String expectedSource) throws Exception {
+        synchronized (latencies) {
+            sources.clear();
+            latencies.clear();
+        }
+        AudioUtil.playAudio(subject, null);
+        Thread.sleep(TONE_MILLIS + SETTLE_MILLIS);
+        synchronized (latencies) {
+            assertEquals(Collections.singletonList(expectedSource), sources);
+            return latencies.get(0);
+        }
+    }
+
+    @Test
+    public void testPlaybackLatency() throws Exception {
+        long coldTotal = 0;
+        long preparedTotal = 0;
+        for (int i=0; i<ROUNDS; i++) {
+            AudioUtil.prefetchAudio(Collections.emptyList());
+            Thread.sleep(SETTLE_MILLIS);
+            coldTotal += play("local");
+
+            // The time the user spends on the question is when the player gets prepared
+            AudioUtil.prefetchAudio(Collections.singletonList(subject));
+            Thread.sleep(SETTLE_MILLIS);
+            preparedTotal += play("prepared");
+        }
+        Log.i(TAG, String.format("Time to playback start over %d rounds: without pool %d ms, prepared by pool %d ms",
+                ROUNDS, coldTotal / ROUNDS, preparedTotal / ROUNDS));
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.smouldering_durtles.wk.test;
+
+import static org.junit.Assert.assertEquals;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import com.smouldering_durtles.wk.api.model.ApiAssignment;
+import com.smouldering_durtles.wk.api.model.ApiSubject;
+import com.smouldering_durtles.wk.db.AppDatabase;
+import com.smouldering_durtles.wk.model.JlptProgressItem;
+import com.smouldering_durtles.wk.model.JoyoProgressItem;
+import com.smouldering_durtles.wk.model.LevelProgressItem;
+import com.smouldering_durtles.wk.model.SrsBreakDownItem;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Test class to verify that the incrementally maintained dashboard aggregates always agree with
+ * the full-scan queries, after randomised sequences of subject writes.
+ */
+@SuppressWarnings("JavaDoc")
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public final class DashboardAggregateTest {
+    private static final int NUM_SUBJECTS = 300;
+    private static final int NUM_ROUNDS = 20;
+    private static final String[] TYPES = {"radical", "kanji", "vocabulary", "kana_vocabulary"};
+
+    private final Random random = new Random(42);
+    private AppDatabase db;
+
+    @Before
+    public void createDatabase() {
+        db = Room.inMemoryDatabaseBuilder(ApplicationProvider.getApplicationContext(), AppDatabase.class)
+                .addCallback(AppDatabase.CALLBACK)
+                .build();
+    }
+
+    @After
+    public void closeDatabase() {
+        db.close();
+    }
+
+    private ApiSubject randomSubject(final long id) {
+        final ApiSubject subject = new ApiSubject();
+        subject.setId(id);
+        subject.setObject(TYPES[random.nextInt(TYPES.length)]);
+        subject.setCharacters("字" + id);
+        subject.setSlug("slug" + id);
+        subject.setLevel(1 + random.nextInt(5));
+        subject.setSrsSystemId(1 + random.nextInt(2));
+        subject.setHiddenAt(random.nextInt(10) == 0 ? 1_600_000_000_000L : 0);
+        return subject;
+    }
+
+    private ApiAssignment randomAssignment(final long subjectId) {
+        final ApiAssignment assignment = new ApiAssignment();
+        assignment.setId(100000 + subjectId);
+        assignment.setSubjectId(subjectId);
+        assignment.setSrsStageId(random.nextInt(10));
+        assignment.setUnlockedAt(random.nextBoolean() ? 1_600_000_000_000L : 0);
+        assignment.setStartedAt(random.nextBoolean() ? 1_600_000_100_000L : 0);
+        assignment.setPassedAt(random.nextBoolean() ? 1_600_000_200_000L : 0);
+        assignment.setAvailableAt(1_700_000_000_000L + subjectId);
+        return assignment;
+    }
+
+    private void randomWrites() {
+        final List<ApiSubject> subjects = new ArrayList<>();
+        final List<ApiAssignment> assignments = new ArrayList<>();
+        for (int i=0; i<50; i++) {
+            final long id = 1 + random.nextInt(NUM_SUBJECTS);
+            if (random.nextBoolean()) {
+                subjects.add(randomSubject(id));
+            }
+            else {
+                assignments.add(randomAssignment(id));
+            }
+        }
+        db.subjectSyncDao().insertOrUpdateBatch(subjects);
+        db.subjectSyncDao().insertOrUpdateAssignmentBatch(assignments);
+
+        for (int i=0; i<10; i++) {
+            final long id = 1 + random.nextInt(NUM_SUBJECTS);
+            db.subjectSyncDao().patchAssignment(id, random.nextInt(10), random.nextBoolean() ? 1_600_000_000_000L : 0,
+                    0, 0, random.nextBoolean() ? 1_600_000_200_000L : 0, 0, 0);
+        }
+
+        final SupportSQLiteDatabase sqlDb = db.getOpenHelper().getWritableDatabase();
+        for (int i=0; i<10; i++) {
+            sqlDb.execSQL("UPDATE subject SET jlptLevel = ?, joyoGrade = ? WHERE id = ?",
+                    new Object[] {random.nextInt(6), random.nextInt(7), 1 + random.nextInt(NUM_SUBJECTS)});
+        }
+        if (random.nextInt(4) == 0) {
+            sqlDb.execSQL("DELETE FROM subject WHERE id = ?", new Object[] {1 + random.nextInt(NUM_SUBJECTS)});
+        }
+    }
+
+    private static List<String> describeSrs(final Collection<SrsBreakDownItem> items) {
+        final List<String> result = new ArrayList<>();
+        for (final SrsBreakDownItem item: items) {
+            result.add(String.format(Locale.ROOT, "%d/%d: %d", item.getSystemId(), item.getStageId(), item.getCount()));
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    private static List<String> describeLevels(final Collection<LevelProgressItem> items) {
+        final List<String> result = new ArrayList<>();
+        for (final LevelProgressItem item: items) {
+            result.add(String.format(Locale.ROOT, "%d/%s: %d", item.getLevel(), item.getType(), item.getCount()));
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    private static List<String> describeJlpt(final Collection<JlptProgressItem> items) {
+        final List<String> result = new ArrayList<>();
+        for (final JlptProgressItem item: items) {
+            result.add(String.format(Locale.ROOT, "%d/%d/%d: %d", item.srsSystemId, item.srsStage, item.jlptLevel, item.count));
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    private static List<String> describeJoyo(final Collection<JoyoProgressItem> items) {
+        final List<String> result = new ArrayList<>();
+        for (final JoyoProgressItem item: items) {
+            result.add(String.format(Locale.ROOT, "%d/%d/%d: %d", item.srsSystemId, item.srsStage, item.joyoGrade, item.count));
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    private void assertConsistent() {
+        assertEquals(describeSrs(db.subjectViewsDao().getSrsBreakDownItems()),
+                describeSrs(db.dashboardAggregateDao().getSrsBreakDownItems()));
+        assertEquals(describeLevels(db.subjectViewsDao().getLevelProgressTotalItems()),
+                describeLevels(db.dashboardAggregateDao().getLevelProgressTotalItems()));
+        assertEquals(describeLevels(db.subjectViewsDao().getLevelProgressPassedItems()),
+                describeLevels(db.dashboardAggregateDao().getLevelProgressPassedItems()));
+        assertEquals(describeLevels(db.subjectViewsDao().getLevelProgressLockedItems()),
+                describeLevels(db.dashboardAggregateDao().getLevelProgressLockedItems()));
+        assertEquals(describeJlpt(db.subjectAggregatesDao().getJlptProgress()),
+                describeJlpt(db.dashboardAggregateDao().getJlptProgress()));
+        assertEquals(describeJoyo(db.subjectAggregatesDao().getJoyoProgress()),
+                describeJoyo(db.dashboardAggregateDao().getJoyoProgress()));
+    }
+
+    @Test
+    public void testIncrementalMatchesFullScan() {
+        for (int i=0; i<NUM_ROUNDS; i++) {
+            randomWrites();
+            assertConsistent();
+        }
+        db.dashboardAggregateDao().recompute();
+        assertConsistent();
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import com.smouldering_durtles.wk.api.model.ApiSubject;
+import com.smouldering_durtles.wk.api.model.Meaning;
+import com.smouldering_durtles.wk.api.model.Reading;
+import com.smouldering_durtles.wk.db.AppDatabase;
+import com.smouldering_durtles.wk.db.model.Subject;
+import com.smouldering_durtles.wk.util.SearchUtil;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Benchmark comparing the full-text index search in SearchUtil with the LIKE scan over the subject
+ * table that it replaced, on an in-memory Room database. Timings are written to logcat under the
+ * tag SubjectSearchBenchmark. The LIKE timings don't include the Java ranking pass the old search
+ * did on top of the scan, so they are a lower bound for the old path.
+ */
+@SuppressWarnings("JavaDoc")
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public final class SubjectSearchBenchmarkTest {
+    private static final String TAG = "SubjectSearchBenchmark";
+    private static final int NUM_SUBJECTS = 9000;
+    private static final int PAGE_SIZE = 1000;
+    private static final int ROUNDS = 20;
+    private static final String[] QUERIES = {"meaning 42", "mnemonic", "sentence 1234", "reading"};
+
+    private AppDatabase db;
+
+    @Before
+    public void createDatabase() {
+        db = Room.inMemoryDatabaseBuilder(ApplicationProvider.getApplicationContext(), AppDatabase.class).build();
+        final List<ApiSubject> subjects = new ArrayList<>();
+        for (int i=1; i<=NUM_SUBJECTS; i++) {
+            final ApiSubject subject = new ApiSubject();
+            subject.setId(i);
+            subject.setObject("vocabulary");
+            subject.setCharacters("語" + i);
+            subject.setSlug("slug" + i);
+            subject.setLevel(1 + i % 60);
+            subject.setSrsSystemId(1);
+            subject.setMeaningMnemonic("A fairly long mnemonic for subject number " + i + " to make the row a realistic size.");
+            subject.setReadingMnemonic("And a reading mnemonic with a sentence " + i + " that goes on for a bit longer still.");
+            final Meaning meaning = new Meaning();
+            meaning.setMeaning("meaning " + i);
+            meaning.setPrimary(true);
+            meaning.setAcceptedAnswer(true);
+            subject.setMeanings(Collections.singletonList(meaning));
+            final Reading reading = new Reading();
+            reading.setReading("ご" + i);
+            reading.setPrimary(true);
+            reading.setAcceptedAnswer(true);
+            subject.setReadings(Collections.singletonList(reading));
+            subjects.add(subject);
+        }
+        for (int i=0; i<subjects.size(); i+=PAGE_SIZE) {
+            db.subjectSyncDao().insertOrUpdateBatch(subjects.subList(i, Math.min(i + PAGE_SIZE, subjects.size())));
+        }
+    }
+
+    @After
+    public void closeDatabase() {
+        db.close();
+    }
+
+    private List<Subject> searchWithLike(final String query) {
+        final String[] terms = query.split(" ");
+        final StringBuilder sb = new StringBuilder("SELECT * FROM subject WHERE hiddenAt=0 AND object IS NOT NULL");
+        final String[] args = new String[terms.length];
+        for (int i=0; i<terms.length; i++) {
+            sb.append(" AND searchTarget LIKE ?");
+            args[i] = "%" + terms[i] + "%";
+        }
+        return db.subjectCollectionsDao().getSubjectsWithRawQuery(new SimpleSQLiteQuery(sb.toString(), args));
+    }
+
+    @Test
+    public void testSearch() {
+        for (final String query: QUERIES) {
+            final long likeStart = System.nanoTime();
+            int likeHits = 0;
+            for (int i=0; i<ROUNDS; i++) {
+                likeHits = searchWithLike(query).size();
+            }
+            final long likeTime = (System.nanoTime() - likeStart) / ROUNDS;
+
+            final long ftsStart = System.nanoTime();
+            int ftsHits = 0;
+            for (int i=0; i<ROUNDS; i++) {
+                ftsHits = SearchUtil.searchSubjects(db, query, 250).size();
+            }
+            final long ftsTime = (System.nanoTime() - ftsStart) / ROUNDS;
+
+            Log.i(TAG, String.format("Query '%s' over %d subjects: LIKE %d us (%d hits), FTS %d us (%d hits, top 250)",
+                    query, NUM_SUBJECTS, likeTime / 1000, likeHits, ftsTime / 1000, ftsHits));
+        }
+    }
+
+    @Test
+    public void testRanking() {
+        final List<Subject> subjects = SearchUtil.searchSubjects(db, "meaning 42", 250);
+        assertFalse(subjects.isEmpty());
+        assertEquals(42, subjects.get(0).getId());
+
+        final List<Subject> byCharacters = SearchUtil.searchSubjects(db, "語123", 250);
+        assertFalse(byCharacters.isEmpty());
+        assertEquals(123, byCharacters.get(0).getId());
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.test;
+
+import static org.junit.Assert.assertEquals;
+
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import com.smouldering_durtles.wk.api.model.ApiAssignment;
+import com.smouldering_durtles.wk.api.model.ApiSubject;
+import com.smouldering_durtles.wk.api.model.ContextSentence;
+import com.smouldering_durtles.wk.api.model.Meaning;
+import com.smouldering_durtles.wk.db.AppDatabase;
+import com.smouldering_durtles.wk.db.model.Subject;
+import com.smouldering_durtles.wk.db.model.SubjectSummary;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Benchmark comparing loading the dashboard timeline as subject summaries against loading the full subjects, on an
+ * in-memory Room database. Timings and the heap retained by the result are written to logcat under the tag
+ * SubjectSummaryBenchmark.
+ */
+@SuppressWarnings("JavaDoc")
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public final class SubjectSummaryBenchmarkTest {
+    private static final String TAG = "SubjectSummaryBenchmark";
+    private static final int NUM_SUBJECTS = 2000;
+    private static final int NUM_ROUNDS = 10;
+
+    private AppDatabase db;
+
+    @Before
+    public void createDatabase() {
+        db = Room.inMemoryDatabaseBuilder(ApplicationProvider.getApplicationContext(), AppDatabase.class).build();
+        final String mnemonic = String.join(" ", Collections.nCopies(60, "A mnemonic of realistic length."));
+        final List<ApiSubject> subjects = new ArrayList<>();
+        final List<ApiAssignment> assignments = new ArrayList<>();
+        for (int i=1; i<=NUM_SUBJECTS; i++) {
+            final ApiSubject subject = new ApiSubject();
+            subject.setId(i);
+            subject.setObject("vocabulary");
+            subject.setCharacters("語" + i);
+            subject.setSlug("slug" + i);
+            subject.setLevel(1 + i % 60);
+            subject.setLessonPosition(i % 100);
+            subject.setSrsSystemId(1);
+            subject.setMeaningMnemonic(mnemonic);
+            subject.setReadingMnemonic(mnemonic);
+            final Meaning meaning = new Meaning();
+            meaning.setMeaning("meaning " + i);
+            meaning.setPrimary(true);
+            meaning.setAcceptedAnswer(true);
+            subject.setMeanings(Collections.singletonList(meaning));
+            final List<ContextSentence> sentences = new ArrayList<>();
+            for (int j=0; j<3; j++) {
+                final ContextSentence sentence = new ContextSentence();
+                sentence.setEnglish("An example sentence that uses subject number " + i + " in context.");
+                sentence.setJapanese("これは語" + i + "を使った例文です。");
+                sentences.add(sentence);
+            }
+            subject.setContextSentences(sentences);
+            subjects.add(subject);
+
+            final ApiAssignment assignment = new ApiAssignment();
+            assignment.setId(100000 + i);
+            assignment.setSubjectId(i);
+            assignment.setSrsStageId(1 + i % 8);
+            assignment.setUnlockedAt(1_600_000_000_000L);
+            assignment.setStartedAt(1_600_000_100_000L);
+            assignment.setAvailableAt(1_700_000_000_000L + i);
+            assignments.add(assignment);
+        }
+        db.subjectSyncDao().insertOrUpdateBatch(subjects);
+        db.subjectSyncDao().insertOrUpdateAssignmentBatch(assignments);
+    }
+
+    @After
+    public void closeDatabase() {
+        db.close();
+    }
+
+    private static long getUsedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i=0; i<3; i++) {
+            runtime.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @Test
+    public void testSummaries() {
+        final List<SubjectSummary> summaries = db.subjectCollectionsDao().getUpcomingReviewSummaries(60, Long.MAX_VALUE);
+        final List<Subject> subjects = db.subjectCollectionsDao().hydrate(summaries);
+        assertEquals(NUM_SUBJECTS, summaries.size());
+        assertEquals(NUM_SUBJECTS, subjects.size());
+        for (int i=0; i<NUM_SUBJECTS; i++) {
+            final SubjectSummary summary = summaries.get(i);
+            final Subject subject = subjects.get(i);
+            assertEquals(subject.getId(), summary.getId());
+            assertEquals(subject.getType(), summary.getType());
+            assertEquals(subject.getLevel(), summary.getLevel());
+            assertEquals(subject.getSrsStage(), summary.getSrsStage());
+            assertEquals(subject.getAvailableAt(), summary.getAvailableAt());
+            assertEquals(subject.isPassed(), summary.isPassed());
+            assertEquals(subject.isLocked(), summary.isLocked());
+        }
+
+        final long summaryStart = System.nanoTime();
+        for (int i=0; i<NUM_ROUNDS; i++) {
+            db.subjectCollectionsDao().getUpcomingReviewSummaries(60, Long.MAX_VALUE);
+        }
+        final long summaryTime = (System.nanoTime() - summaryStart) / NUM_ROUNDS;
+
+        final long fullStart = System.nanoTime();
+        for (int i=0; i<NUM_ROUNDS; i++) {
+            db.subjectCollectionsDao().hydrate(summaries);
+        }
+        final long fullTime = (System.nanoTime() - fullStart) / NUM_ROUNDS;
+
+        final long baseHeap = getUsedHeap();
+        final List<SubjectSummary> retainedSummaries = db.subjectCollectionsDao().getUpcomingReviewSummaries(60, Long.MAX_VALUE);
+        final long summaryHeap = getUsedHeap() - baseHeap;
+        final List<Subject> retainedSubjects = db.subjectCollectionsDao().hydrate(retainedSummaries);
+        final long fullHeap = getUsedHeap() - baseHeap - summaryHeap;
+
+        Log.i(TAG, String.format("Load %d timeline subjects: summaries %d us / %d kB retained, full subjects %d us / %d kB retained",
+                retainedSubjects.size(), summaryTime / 1000, summaryHeap / 1024, fullTime / 1000, fullHeap / 1024));
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import com.smouldering_durtles.wk.api.model.ApiAssignment;
+import com.smouldering_durtles.wk.api.model.ApiSubject;
+import com.smouldering_durtles.wk.api.model.Meaning;
+import com.smouldering_durtles.wk.db.AppDatabase;
+import com.smouldering_durtles.wk.db.model.Subject;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Benchmark comparing the per-row and the batched transactional sync paths in SubjectSyncDao,
+ * on an in-memory Room database. Timings are written to logcat under the tag SubjectSyncBenchmark.
+ */
+@SuppressWarnings("JavaDoc")
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public final class SubjectSyncBenchmarkTest {
+    private static final String TAG = "SubjectSyncBenchmark";
+    private static final int NUM_SUBJECTS = 3000;
+    private static final int PAGE_SIZE = 1000;
+
+    private AppDatabase perRowDb;
+    private AppDatabase batchDb;
+
+    @Before
+    public void createDatabases() {
+        perRowDb = Room.inMemoryDatabaseBuilder(ApplicationProvider.getApplicationContext(), AppDatabase.class).build();
+        batchDb = Room.inMemoryDatabaseBuilder(ApplicationProvider.getApplicationContext(), AppDatabase.class).build();
+    }
+
+    @After
+    public void closeDatabases() {
+        perRowDb.close();
+        batchDb.close();
+    }
+
+    private static List<ApiSubject> createSubjects() {
+        final List<ApiSubject> result = new ArrayList<>();
+        for (int i=1; i<=NUM_SUBJECTS; i++) {
+            final ApiSubject subject = new ApiSubject();
+            subject.setId(i);
+            subject.setObject("vocabulary");
+            subject.setCharacters("語" + i);
+            subject.setSlug("slug" + i);
+            subject.setLevel(1 + i % 60);
+            subject.setLessonPosition(i % 100);
+            subject.setSrsSystemId(1);
+            subject.setMeaningMnemonic("A fairly long mnemonic for subject number " + i + " to make the row a realistic size.");
+            final Meaning meaning = new Meaning();
+            meaning.setMeaning("meaning " + i);
+            meaning.setPrimary(true);
+            meaning.setAcceptedAnswer(true);
+            subject.setMeanings(Collections.singletonList(meaning));
+            result.add(subject);
+        }
+        return result;
+    }
+
+    private static List<ApiAssignment> createAssignments() {
+        final List<ApiAssignment> result = new ArrayList<>();
+        for (int i=1; i<=NUM_SUBJECTS; i++) {
+            final ApiAssignment assignment = new ApiAssignment();
+            assignment.setId(100000 + i);
+            assignment.setSubjectId(i);
+            assignment.setSrsStageId(1 + i % 9);
+            assignment.setUnlockedAt(1_600_000_000_000L);
+            assignment.setStartedAt(1_600_000_100_000L);
+            assignment.setAvailableAt(1_700_000_000_000L + i);
+            result.add(assignment);
+        }
+        return result;
+    }
+
+    @Test
+    public void testBatchSync() {
+        final List<ApiSubject> subjects = createSubjects();
+        final List<ApiAssignment> assignments = createAssignments();
+
+        final long perRowStart = System.nanoTime();
+        final HashSet<Long> existingIds = new HashSet<>();
+        for (final ApiSubject subject: subjects) {
+            perRowDb.subjectSyncDao().insertOrUpdate(subject, existingIds);
+        }
+        for (final ApiAssignment assignment: assignments) {
+            perRowDb.subjectSyncDao().insertOrUpdateAssignment(assignment);
+        }
+        final long perRowTime = System.nanoTime() - perRowStart;
+
+        final long batchStart = System.nanoTime();
+        for (int i=0; i<subjects.size(); i+=PAGE_SIZE) {
+            batchDb.subjectSyncDao().insertOrUpdateBatch(subjects.subList(i, Math.min(i + PAGE_SIZE, subjects.size())));
+        }
+        for (int i=0; i<assignments.size(); i+=PAGE_SIZE) {
+            batchDb.subjectSyncDao().insertOrUpdateAssignmentBatch(assignments.subList(i, Math.min(i + PAGE_SIZE, assignments.size())));
+        }
+        final long batchTime = System.nanoTime() - batchStart;
+
+        Log.i(TAG, String.format("Full sync of %d subjects + assignments: per-row %d ms, batched %d ms",
+                NUM_SUBJECTS, perRowTime / 1_000_000, batchTime / 1_000_000));
+
+        // Second pass: everything exists now, so the batch path only updates
+        final long resyncStart = System.nanoTime();
+        for (int i=0; i<subjects.size(); i+=PAGE_SIZE) {
+            batchDb.subjectSyncDao().insertOrUpdateBatch(subjects.subList(i, Math.min(i + PAGE_SIZE, subjects.size())));
+        }
+        Log.i(TAG, String.format("Batched resync of %d subjects: %d ms", NUM_SUBJECTS, (System.nanoTime() - resyncStart) / 1_000_000));
+
+        assertEquals(NUM_SUBJECTS, batchDb.subjectViewsDao().getAllSubjectIds().size());
+        for (final long id: new long[] {1, PAGE_SIZE, PAGE_SIZE + 1, NUM_SUBJECTS}) {
+            final Subject expected = perRowDb.subjectDao().getById(id);
+            final Subject actual = batchDb.subjectDao().getById(id);
+            assertNotNull(expected);
+            assertNotNull(actual);
+            assertEquals(expected.getCharacters(), actual.getCharacters());
+            assertEquals(expected.getLevel(), actual.getLevel());
+            assertEquals(expected.getAssignmentId(), actual.getAssignmentId());
+            assertEquals(expected.getAvailableAt(), actual.getAvailableAt());
+        }
+    }
+}
@@ -91,6 +91,11 @@ public final class Constants {
      */
     public static final int MAX_SEARCH_HITS = 250;
 
+    /**
+     * Cap for number of keyword search results.
+     */
+    public static final int MAX_KEYWORD_SEARCH_HITS = 1000;
+
     /**
      * Maximum size of the debug log.
      */
@@ -101,6 +106,11 @@ public final class Constants {
      */
     public static final int REFERENCE_DATA_VERSION = 9;
 
+    /**
+     * Number of subjects per chunk when reference data is reloaded. Each chunk's changes are written in one transaction.
+     */
+    public static final int REFERENCE_DATA_CHUNK_SIZE = 250;
+
     /**
      * API version.
      */
@@ -126,6 +136,62 @@ public final class Constants {
      */
     public static final long API_RETRY_DELAY = 5 * SECOND;
 
+    /**
+     * Number of threads that fetch collection pages ahead of the task that processes them.
+     */
+    public static final int NUM_PAGE_PREFETCH_THREADS = 2;
+
+    /**
+     * The maximum age of a page that was fetched ahead for a task that hadn't started yet. Older pages
+     * are discarded and fetched again.
+     */
+    public static final long MAX_PREFETCHED_PAGE_AGE = 2 * MINUTE;
+
+    /**
+     * The maximum number of queued session item reports that are submitted before their results are
+     * written to the database in one go. This is also the most that can be submitted twice if the app
+     * dies before the write.
+     */
+    public static final int MAX_REPORTS_PER_COMMIT = 10;
+
+    /**
+     * Number of audio files that are downloaded at the same time.
+     */
+    public static final int NUM_AUDIO_DOWNLOAD_THREADS = 4;
+
+    /**
+     * The maximum number of pending audio download tasks that are picked up in one round. Within a
+     * round, the subjects are grouped by level and each level is downloaded as a single batch.
+     */
+    public static final int MAX_AUDIO_DOWNLOAD_TASKS_PER_ROUND = 500;
+
+    /**
+     * The maximum number of media players kept prepared for the audio of upcoming session questions.
+     */
+    public static final int AUDIO_PREFETCH_POOL_SIZE = 4;
+
+    /**
+     * The number of upcoming session subjects to prepare audio for, including the current one.
+     */
+    public static final int AUDIO_PREFETCH_SUBJECTS = 3;
+
+    /**
+     * The number of times in a row the oldest task in a lane that isn't ordered can be passed over
+     * by higher priority tasks before it is run anyway.
+     */
+    public static final int LANE_STARVATION_LIMIT = 8;
+
+    /**
+     * The maximum number of subjects kept in the in-memory subject cache.
+     */
+    public static final int SUBJECT_CACHE_SIZE = 500;
+
+    /**
+     * The delay in milliseconds between the first reported data change of a burst and the refresh of
+     * the LiveData instances that depend on it.
+     */
+    public static final long LIVE_DATA_REFRESH_DELAY = 250;
+
     /**
      * The default threshold for when to consider an item to be overdue (i.e. it's been too long since the item's next review became available).
      */
@@ -141,6 +207,12 @@ public final class Constants {
      */
     public static final String FONTS_DIRECTORY_NAME = "fonts";
 
+    /**
+     * Subdirectory name for the glyph coverage indexes of fonts. This is kept apart from the fonts
+     * directory, because every file in there is listed as an imported font.
+     */
+    public static final String FONT_COVERAGE_DIRECTORY_NAME = "font-coverage";
+
     /**
      * Document to show when the user has not yet provided an API key.
      */
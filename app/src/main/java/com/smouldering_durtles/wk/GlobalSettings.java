@@ -25,6 +25,7 @@ import android.util.Log;
 import androidx.preference.PreferenceManager;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.smouldering_durtles.wk.api.ApiAuthInterceptor;
 import com.smouldering_durtles.wk.db.model.Subject;
 import com.smouldering_durtles.wk.enums.ActiveTheme;
 import com.smouldering_durtles.wk.enums.CloseEnoughAction;
@@ -684,6 +685,7 @@ public final class GlobalSettings {
          */
         public static void setApiKey(final @Nullable String apiKey) {
             WkApplication.getEncryptedPreferenceDataStore().putString("api_key", apiKey);
+            ApiAuthInterceptor.getInstance().invalidate();
         }
 
         /**
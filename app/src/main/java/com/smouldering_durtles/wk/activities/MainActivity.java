@@ -23,6 +23,7 @@ import android.os.Bundle;
 
 import com.smouldering_durtles.wk.GlobalSettings;
 import com.smouldering_durtles.wk.R;
+import com.smouldering_durtles.wk.WkApplication;
 import com.smouldering_durtles.wk.api.ApiState;
 import com.smouldering_durtles.wk.jobs.RetryApiErrorJob;
 import com.smouldering_durtles.wk.livedata.LiveAlertContext;
@@ -285,7 +286,8 @@ public final class MainActivity extends AbstractActivity {
             final TimeLine timeLine = LiveTimeLine.getInstance().get();
             if (timeLine.hasAvailableLessons()) {
                 runAsync(this, () -> {
-                    Session.getInstance().startNewLessonSession(timeLine.getAvailableLessons());
+                    Session.getInstance().startNewLessonSession(
+                            WkApplication.getDatabase().subjectCollectionsDao().hydrate(timeLine.getAvailableLessons()));
                     return null;
                 }, result -> goToActivity(SessionActivity.class));
             }
@@ -307,7 +309,8 @@ public final class MainActivity extends AbstractActivity {
             final TimeLine timeLine = LiveTimeLine.getInstance().get();
             if (timeLine.hasAvailableReviews()) {
                 runAsync(this, () -> {
-                    Session.getInstance().startNewReviewSession(timeLine.getAvailableReviews());
+                    Session.getInstance().startNewReviewSession(
+                            WkApplication.getDatabase().subjectCollectionsDao().hydrate(timeLine.getAvailableReviews()));
                     return null;
                 }, result -> goToActivity(SessionActivity.class));
             }
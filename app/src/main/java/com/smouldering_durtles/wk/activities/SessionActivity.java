@@ -52,8 +52,11 @@ import com.smouldering_durtles.wk.util.AudioUtil;
 import com.smouldering_durtles.wk.util.Logger;
 import com.smouldering_durtles.wk.util.TextUtil;
 
+import java.util.Collections;
+
 import javax.annotation.Nullable;
 
+import static com.smouldering_durtles.wk.Constants.AUDIO_PREFETCH_SUBJECTS;
 import static com.smouldering_durtles.wk.Constants.LANDSCAPE_ACTION_BAR_HEIGHT;
 import static com.smouldering_durtles.wk.util.ObjectSupport.safe;
 
@@ -120,7 +123,7 @@ public final class SessionActivity extends AbstractActivity {
 
     @Override
     protected void onPauseLocal() {
-        //
+        AudioUtil.prefetchAudio(Collections.emptyList());
     }
 
     @Override
@@ -155,6 +158,20 @@ public final class SessionActivity extends AbstractActivity {
         }
     }
 
+    /**
+     * Get the audio for the upcoming questions ready to play, or release it if autoplay is off or
+     * the session is over. This must come after any autoplay for the current question, so the
+     * prepared player for it isn't released before it has been taken.
+     */
+    private void prefetchAudio() {
+        if (session.isInactive() || !GlobalSettings.getAutoPlay(session.getType())) {
+            AudioUtil.prefetchAudio(Collections.emptyList());
+        }
+        else {
+            AudioUtil.prefetchAudio(session.getUpcomingAudioSubjects(AUDIO_PREFETCH_SUBJECTS));
+        }
+    }
+
     private void updateFragment() {
         session.chooseQuestion();
 
@@ -166,6 +183,7 @@ public final class SessionActivity extends AbstractActivity {
         final @Nullable Subject subject = (item == null) ? null : item.getSubject();
 
         if (session.isInactive()) {
+            prefetchAudio();
             if (!finished) {
                 finished = true;
                 goToMainActivity();
@@ -191,6 +209,8 @@ public final class SessionActivity extends AbstractActivity {
             }
         }
 
+        prefetchAudio();
+
         final AbstractSessionFragment newFragment = session.getNewFragment(currentSessionFragment, ankiMode);
         final FragmentTransitionAnimation animation = (currentSessionFragment == null || currentFragment == newFragment)
                 ? FragmentTransitionAnimation.NONE
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smouldering_durtles.wk.api;
+
+import com.smouldering_durtles.wk.GlobalSettings;
+
+import java.io.IOException;
+
+import javax.annotation.Nullable;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import static java.net.HttpURLConnection.HTTP_UNAUTHORIZED;
+
+/**
+ * OkHttp interceptor that adds the user's API token to API requests.
+ *
+ * <p>
+ *     Getting the token from the settings means decrypting it from the encrypted preferences,
+ *     which is much too expensive to do for every request in a sync. So the token is cached
+ *     here until the setting changes, or until the API rejects it.
+ * </p>
+ */
+public final class ApiAuthInterceptor implements Interceptor {
+    private static final ApiAuthInterceptor instance = new ApiAuthInterceptor();
+
+    private volatile @Nullable String token = null;
+
+    /**
+     * Get the singleton instance.
+     *
+     * @return the instance
+     */
+    public static ApiAuthInterceptor getInstance() {
+        return instance;
+    }
+
+    private ApiAuthInterceptor() {
+        //
+    }
+
+    /**
+     * Forget the cached token, so the next request reads it from the settings again.
+     */
+    public void invalidate() {
+        token = null;
+    }
+
+    /**
+     * Get the token, from the cache if possible.
+     *
+     * @return the token, or an empty string if there is none
+     */
+    private String getToken() {
+        @Nullable String value = token;
+        if (value == null) {
+            value = GlobalSettings.Api.getApiKey();
+            if (value == null) {
+                value = "";
+            }
+            token = value;
+        }
+        return value;
+    }
+
+    @Override
+    public Response intercept(final Chain chain) throws IOException {
+        final Request request = chain.request().newBuilder()
+                .header("Authorization", "Bearer " + getToken())
+                .build();
+        final Response response = chain.proceed(request);
+        if (response.code() == HTTP_UNAUTHORIZED) {
+            invalidate();
+        }
+        return response;
+    }
+}
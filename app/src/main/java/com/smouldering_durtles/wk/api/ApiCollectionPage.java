@@ -0,0 +1,250 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.api;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smouldering_durtles.wk.api.model.WaniKaniEntity;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+/**
+ * One page of a collection response from the API, parsed in a single streaming pass.
+ *
+ * <p>
+ *     The response body is walked token by token, and each element of the "data" array is
+ *     bound directly to the entity class. No intermediate JSON tree is built, so the memory
+ *     needed to process a page is roughly the size of the resulting entities, and the
+ *     response body itself is never held in memory as a whole.
+ * </p>
+ *
+ * @param <T> the type of the entities in this page
+ */
+public final class ApiCollectionPage<T extends WaniKaniEntity> {
+    private final List<T> entities = new ArrayList<>();
+    private @Nullable String object = null;
+    private @Nullable String nextUrl = null;
+    private int totalCount = -1;
+    private boolean hasData = false;
+    private int numMalformed = 0;
+    private boolean notModified = false;
+
+    /**
+     * Private constructor, use parse() to get an instance.
+     */
+    private ApiCollectionPage() {
+        //
+    }
+
+    /**
+     * Get an empty page that represents a 304 Not Modified response to a conditional request.
+     *
+     * @param <T> the type of the entities
+     * @return the page
+     */
+    public static <T extends WaniKaniEntity> ApiCollectionPage<T> notModified() {
+        final ApiCollectionPage<T> page = new ApiCollectionPage<>();
+        page.notModified = true;
+        return page;
+    }
+
+    /**
+     * Parse a collection page from a response body stream. The stream is consumed fully
+     * but not closed.
+     *
+     * @param is the response body
+     * @param mapper the object mapper to bind the entities with
+     * @param cls the class to map the entities to
+     * @param <T> the type of the entities
+     * @return the parsed page
+     * @throws IOException if the body could not be read or is not a JSON object
+     */
+    public static <T extends WaniKaniEntity> ApiCollectionPage<T> parse(final InputStream is, final ObjectMapper mapper,
+                                                                       final Class<? extends T> cls) throws IOException {
+        final ApiCollectionPage<T> page = new ApiCollectionPage<>();
+        try (final JsonParser parser = mapper.getFactory().createParser(is)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Response body is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String name = parser.getCurrentName();
+                final JsonToken token = parser.nextToken();
+                if (name.equals("object")) {
+                    page.object = parser.getValueAsString();
+                }
+                else if (name.equals("total_count")) {
+                    page.totalCount = parser.getValueAsInt(-1);
+                }
+                else if (name.equals("pages") && token == JsonToken.START_OBJECT) {
+                    page.parsePages(parser);
+                }
+                else if (name.equals("data") && token == JsonToken.START_ARRAY) {
+                    page.hasData = true;
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        page.parseElement(parser, mapper, cls);
+                    }
+                }
+                else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Parse the "pages" object, positioned at its start token.
+     *
+     * @param parser the parser
+     * @throws IOException on parse errors
+     */
+    private void parsePages(final JsonParser parser) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.getCurrentName();
+            final JsonToken token = parser.nextToken();
+            if (name.equals("next_url")) {
+                nextUrl = token == JsonToken.VALUE_STRING ? parser.getText() : null;
+            }
+            else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * Parse a single element of the "data" array, positioned at its start token. The ID and object
+     * attributes live outside of the entity data object, so they are applied after binding.
+     * Elements that don't have the required attributes are counted as malformed and dropped.
+     *
+     * @param parser the parser
+     * @param mapper the object mapper to bind the entity with
+     * @param cls the class to map the entity to
+     * @throws IOException on parse errors
+     */
+    private void parseElement(final JsonParser parser, final ObjectMapper mapper, final Class<? extends T> cls) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            numMalformed++;
+            return;
+        }
+        long id = 0;
+        boolean hasId = false;
+        @Nullable String elementObject = null;
+        boolean hasUpdatedAt = false;
+        @Nullable T value = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.getCurrentName();
+            final JsonToken token = parser.nextToken();
+            if (name.equals("id")) {
+                id = parser.getValueAsLong();
+                hasId = true;
+            }
+            else if (name.equals("object")) {
+                elementObject = parser.getValueAsString();
+            }
+            else if (name.equals("data_updated_at")) {
+                hasUpdatedAt = true;
+            }
+            else if (name.equals("data") && token == JsonToken.START_OBJECT) {
+                value = mapper.readValue(parser, cls);
+            }
+            else {
+                parser.skipChildren();
+            }
+        }
+        if (value == null || !hasId || elementObject == null || !hasUpdatedAt) {
+            numMalformed++;
+            return;
+        }
+        value.setId(id);
+        value.setObject(elementObject);
+        entities.add(value);
+    }
+
+    /**
+     * The entities in this page, in response order.
+     *
+     * @return the list
+     */
+    public List<T> getEntities() {
+        return Collections.unmodifiableList(entities);
+    }
+
+    /**
+     * The URL of the next page, or null if this is the last page.
+     *
+     * @return the URL
+     */
+    public @Nullable String getNextUrl() {
+        return nextUrl;
+    }
+
+    /**
+     * The total number of entities in the collection across all pages, as reported by the API,
+     * or -1 if not reported.
+     *
+     * @return the value
+     */
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Did the response contain a "data" array?.
+     *
+     * @return true if it did
+     */
+    public boolean hasData() {
+        return hasData;
+    }
+
+    /**
+     * Is this a placeholder for a 304 Not Modified response?.
+     *
+     * @return true if it is
+     */
+    public boolean isNotModified() {
+        return notModified;
+    }
+
+    /**
+     * The number of elements in the "data" array that could not be mapped to an entity.
+     *
+     * @return the value
+     */
+    public int getNumMalformed() {
+        return numMalformed;
+    }
+
+    /**
+     * A short, bounded summary of this page for logging, instead of the full response body.
+     *
+     * @return the summary
+     */
+    public String getSummary() {
+        return String.format("%s, total_count %d, %d entities, %d malformed, next_url %s",
+                object, totalCount, entities.size(), numMalformed, nextUrl);
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.smouldering_durtles.wk.api;
+
+import com.smouldering_durtles.wk.api.model.WaniKaniEntity;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nullable;
+
+/**
+ * Iterates over the pages of a collection response, fetching each next page in the background
+ * while the caller is still busy with the current one. With the network and the database each
+ * taking a comparable share of the time per page, this takes the network time mostly off the
+ * critical path of a sync.
+ *
+ * <p>
+ *     Pages are always handed out in collection order, and at most one page is fetched ahead, so
+ *     memory use is at most two pages. If the caller stops early, close() cancels the fetch
+ *     that is in flight.
+ * </p>
+ *
+ * @param <T> the type of the entities in the pages
+ */
+public final class PagePipeline<T extends WaniKaniEntity> implements Closeable {
+    private final ExecutorService executor;
+    private final PageSource<T> source;
+    private @Nullable Future<ApiCollectionPage<T>> pending;
+
+    /**
+     * The source that fetches and parses a single page.
+     *
+     * @param <T> the type of the entities in the pages
+     */
+    public interface PageSource<T extends WaniKaniEntity> {
+        /**
+         * Fetch and parse one page.
+         *
+         * @param url the page URL
+         * @return the page, or null if it could not be retrieved
+         * @throws Exception on any error
+         */
+        @Nullable ApiCollectionPage<T> fetch(String url) throws Exception;
+    }
+
+    /**
+     * The constructor. The first page is requested right away.
+     *
+     * @param executor the executor that runs the fetches
+     * @param source the source for the pages
+     * @param url the URL of the first page
+     */
+    public PagePipeline(final ExecutorService executor, final PageSource<T> source, final String url) {
+        this(executor, source, executor.submit(() -> source.fetch(url)));
+    }
+
+    /**
+     * The constructor, for when the first page has already been requested.
+     *
+     * @param executor the executor that runs the fetches
+     * @param source the source for the pages after the first
+     * @param firstPage the pending first page
+     */
+    public PagePipeline(final ExecutorService executor, final PageSource<T> source, final Future<ApiCollectionPage<T>> firstPage) {
+        this.executor = executor;
+        this.source = source;
+        pending = firstPage;
+    }
+
+    /**
+     * Are there more pages to get?.
+     *
+     * @return true if there are
+     */
+    public boolean hasNext() {
+        return pending != null;
+    }
+
+    /**
+     * Wait for the next page, and start fetching the one after it.
+     *
+     * @return the page, or null if it could not be retrieved or there are no more pages
+     * @throws IOException if the fetch failed with an exception, or if the wait was interrupted
+     */
+    public @Nullable ApiCollectionPage<T> next() throws IOException {
+        if (pending == null) {
+            return null;
+        }
+        final @Nullable ApiCollectionPage<T> page;
+        try {
+            page = pending.get();
+        } catch (final InterruptedException e) {
+            close();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a page");
+        } catch (final ExecutionException e) {
+            pending = null;
+            throw new IOException("Page fetch failed", e.getCause());
+        }
+        pending = null;
+        if (page != null && !page.isNotModified()) {
+            final @Nullable String nextUrl = page.getNextUrl();
+            if (nextUrl != null) {
+                pending = executor.submit(() -> source.fetch(nextUrl));
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public void close() {
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+    }
+}
@@ -16,17 +16,111 @@
 
 package com.smouldering_durtles.wk.api;
 
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+import javax.annotation.Nullable;
+
+import okhttp3.Response;
+
+import static com.smouldering_durtles.wk.Constants.HTTP_TOO_MANY_REQUESTS;
+
 /**
- * A simple burst-capable rate limiter for the WaniKani API. To be a good API
- * citizen, the request rate is set to an average of one call per 1.1 seconds,
- * with a burst of 1.
+ * A token-bucket rate limiter for the WaniKani API.
+ *
+ * <p>
+ *     The bucket holds a small burst of tokens and refills at the rate the API allows, which is
+ *     60 requests per minute unless the server advertises something else in the RateLimit-Limit
+ *     header. Each response's RateLimit-Remaining and RateLimit-Reset headers correct the local
+ *     estimate, and a 429 response blocks all callers until the time given by Retry-After or
+ *     the reset header.
+ * </p>
+ *
+ * <p>
+ *     All methods are thread-safe. Callers that have to wait do so outside of the lock, so a
+ *     waiting caller never blocks response updates from other threads.
+ * </p>
  */
 public final class RateLimiter {
-    private static final RateLimiter instance = new RateLimiter();
-    private static final int BURST = 1;
-    private final long delay;
-    private int load = 0;
-    private long lastUpdate = System.currentTimeMillis();
+    private static final RateLimiter instance = new RateLimiter(Clock.SYSTEM);
+
+    /**
+     * The length of the API's rate limit window.
+     */
+    private static final long WINDOW = 60_000L;
+
+    /**
+     * The default number of requests per window, until the server tells us otherwise.
+     */
+    private static final int DEFAULT_LIMIT = 60;
+
+    /**
+     * The maximum burst size.
+     */
+    private static final int BURST = 5;
+
+    /**
+     * The number of tokens background callers leave in the bucket, so a call the user is waiting
+     * for doesn't have to queue behind a sync.
+     */
+    private static final int BACKGROUND_RESERVE = 1;
+
+    /**
+     * How long to back off after a 429 that doesn't say how long to wait.
+     */
+    private static final long DEFAULT_BACKOFF = 5_000L;
+
+    /**
+     * Upper bound for any server-requested block, to guard against clock skew.
+     */
+    private static final long MAX_BLOCK = WINDOW + 5_000L;
+
+    private final Clock clock;
+    private int limit = DEFAULT_LIMIT;
+    private double tokens = BURST;
+    private long lastRefill;
+    private long blockedUntil = 0;
+
+    private long numAcquired = 0;
+    private long numDelayed = 0;
+    private long totalWaitTime = 0;
+    private long maxWaitTime = 0;
+
+    /**
+     * Source of time for the limiter, replaceable for testing.
+     */
+    public interface Clock {
+        /**
+         * The system clock.
+         */
+        Clock SYSTEM = new Clock() {
+            @Override
+            public long now() {
+                return System.currentTimeMillis();
+            }
+
+            @Override
+            public void sleep(final long millis) throws InterruptedException {
+                Thread.sleep(millis);
+            }
+        };
+
+        /**
+         * The current wall-clock time.
+         *
+         * @return the time in milliseconds since the epoch
+         */
+        long now();
+
+        /**
+         * Sleep for a while.
+         *
+         * @param millis the time to sleep in milliseconds
+         * @throws InterruptedException if the sleep was interrupted
+         */
+        void sleep(long millis) throws InterruptedException;
+    }
 
     /**
      * Get the singleton instance.
@@ -37,45 +131,257 @@ public final class RateLimiter {
         return instance;
     }
 
-    private RateLimiter() {
-        delay = 1100;
+    /**
+     * The constructor. Only use this directly for testing, the app uses the singleton instance.
+     *
+     * @param clock the source of time
+     */
+    public RateLimiter(final Clock clock) {
+        this.clock = clock;
+        lastRefill = clock.now();
+    }
+
+    /**
+     * Add tokens for the time that has passed since the last refill.
+     *
+     * @param now the current time
+     */
+    private void refill(final long now) {
+        if (now > lastRefill) {
+            tokens = Math.min(getCapacity(), tokens + (now - lastRefill) * (double) limit / WINDOW);
+        }
+        lastRefill = now;
+    }
+
+    /**
+     * The size of the bucket.
+     *
+     * @return the number of tokens
+     */
+    private int getCapacity() {
+        return Math.max(1, Math.min(BURST, limit));
     }
 
     /**
-     * If the API reports an HTTP 429 indicating we're talking too fast, back off
-     * for a moment by simulating we've gone over the burst by a few requests.
-     * This forces the app to back off for a few seconds before trying again.
+     * The number of tokens that must be in the bucket before a caller can take one.
+     *
+     * @param background true for a background caller
+     * @return the number of tokens
      */
-    public void pause() {
-        load = BURST + 3;
+    private int getNeeded(final boolean background) {
+        return background ? Math.min(1 + BACKGROUND_RESERVE, getCapacity()) : 1;
     }
 
     /**
-     * Prepare for an API call by waiting for a burst slot to become available,
-     * if necessary.
+     * Prepare for an API call by taking a token from the bucket, waiting for one to become
+     * available if necessary.
      */
     public void prepare() {
+        prepare(false);
+    }
+
+    /**
+     * Prepare for an API call by taking a token from the bucket, waiting for one to become
+     * available if necessary. Background callers leave a small reserve in the bucket for
+     * foreground calls. Since they wait for more tokens than a foreground caller, a waiting
+     * foreground caller is also always the first to get the next token.
+     *
+     * @param background true if this call is not something the user is waiting for
+     */
+    public void prepare(final boolean background) {
+        final long start = clock.now();
         while (true) {
-            if (load < BURST) {
-                if (load == 0) {
-                    lastUpdate = System.currentTimeMillis();
+            final long waitTime;
+            synchronized (this) {
+                final long now = clock.now();
+                refill(now);
+                if (now < blockedUntil) {
+                    waitTime = blockedUntil - now;
+                }
+                else if (tokens >= getNeeded(background)) {
+                    tokens -= 1;
+                    final long waited = Math.max(0, now - start);
+                    numAcquired++;
+                    if (waited > 0) {
+                        numDelayed++;
+                        totalWaitTime += waited;
+                        maxWaitTime = Math.max(maxWaitTime, waited);
+                    }
+                    return;
+                }
+                else {
+                    waitTime = (long) Math.ceil((getNeeded(background) - tokens) * WINDOW / limit);
                 }
-                load++;
-                return;
             }
             try {
-                final long waitTime = Math.min(delay - (System.currentTimeMillis() - lastUpdate), delay);
-                if (waitTime > 0) {
-                    //noinspection BusyWait
-                    Thread.sleep(waitTime);
-                }
+                clock.sleep(Math.max(1, waitTime));
             } catch (final InterruptedException e) {
                 //
             }
-            while (load > 0 && lastUpdate + delay <= System.currentTimeMillis()) {
-                load--;
-                lastUpdate += delay;
+        }
+    }
+
+    /**
+     * Update the limiter with the rate limit information from an API response.
+     *
+     * @param response the response
+     */
+    public void update(final Response response) {
+        update(response.code(), response.header("RateLimit-Limit"), response.header("RateLimit-Remaining"),
+                response.header("RateLimit-Reset"), response.header("Retry-After"));
+    }
+
+    /**
+     * Update the limiter with the rate limit information from an API response. Any of the
+     * header values may be missing or malformed, in which case they are ignored.
+     *
+     * @param code the HTTP status code of the response
+     * @param limitHeader the RateLimit-Limit header: the number of requests allowed per minute
+     * @param remainingHeader the RateLimit-Remaining header: the number of requests left in the current window
+     * @param resetHeader the RateLimit-Reset header: the time the current window ends, in seconds since the epoch
+     * @param retryAfterHeader the Retry-After header: a number of seconds or an HTTP date
+     */
+    public synchronized void update(final int code, final @Nullable String limitHeader, final @Nullable String remainingHeader,
+                                    final @Nullable String resetHeader, final @Nullable String retryAfterHeader) {
+        final long now = clock.now();
+        refill(now);
+
+        final long newLimit = parseLong(limitHeader);
+        if (newLimit > 0 && newLimit != limit) {
+            limit = (int) Math.min(newLimit, Integer.MAX_VALUE);
+            tokens = Math.min(tokens, getCapacity());
+        }
+
+        final long remaining = parseLong(remainingHeader);
+        final long reset = parseLong(resetHeader);
+        if (remaining >= 0) {
+            tokens = Math.min(tokens, remaining);
+            if (remaining == 0 && reset > 0) {
+                blockUntil(now, reset * 1000);
+            }
+        }
+
+        if (code == HTTP_TOO_MANY_REQUESTS) {
+            tokens = 0;
+            final long retryAfter = parseRetryAfter(retryAfterHeader, now);
+            if (retryAfter > 0) {
+                blockUntil(now, retryAfter);
+            }
+            else if (reset > 0) {
+                blockUntil(now, reset * 1000);
             }
+            else {
+                blockUntil(now, now + DEFAULT_BACKOFF);
+            }
+        }
+    }
+
+    /**
+     * Block all callers until a given time, bounded to guard against clock skew.
+     *
+     * @param now the current time
+     * @param until the time to block until
+     */
+    private void blockUntil(final long now, final long until) {
+        if (until > now) {
+            blockedUntil = Math.max(blockedUntil, Math.min(until, now + MAX_BLOCK));
+        }
+    }
+
+    /**
+     * Parse a non-negative integer header value.
+     *
+     * @param value the header value
+     * @return the value, or -1 if missing or malformed
+     */
+    private static long parseLong(final @Nullable String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            final long result = Long.parseLong(value.trim());
+            return result < 0 ? -1 : result;
+        } catch (final NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Parse a Retry-After header, which is either a number of seconds or an HTTP date.
+     *
+     * @param value the header value
+     * @param now the current time
+     * @return the time to retry after, or -1 if missing or malformed
+     */
+    private static long parseRetryAfter(final @Nullable String value, final long now) {
+        if (value == null) {
+            return -1;
         }
+        final long seconds = parseLong(value);
+        if (seconds >= 0) {
+            return now + seconds * 1000;
+        }
+        try {
+            final SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+            final @Nullable Date date = format.parse(value.trim());
+            return date == null ? -1 : date.getTime();
+        } catch (final Exception e) {
+            return -1;
+        }
+    }
+
+    /**
+     * The number of requests allowed per minute, as currently assumed.
+     *
+     * @return the value
+     */
+    public synchronized int getLimit() {
+        return limit;
+    }
+
+    /**
+     * The total number of calls to prepare() that have completed.
+     *
+     * @return the value
+     */
+    public synchronized long getNumAcquired() {
+        return numAcquired;
+    }
+
+    /**
+     * The number of calls to prepare() that had to wait.
+     *
+     * @return the value
+     */
+    public synchronized long getNumDelayed() {
+        return numDelayed;
+    }
+
+    /**
+     * The total time spent waiting in prepare(), in milliseconds.
+     *
+     * @return the value
+     */
+    public synchronized long getTotalWaitTime() {
+        return totalWaitTime;
+    }
+
+    /**
+     * The longest single wait in prepare(), in milliseconds.
+     *
+     * @return the value
+     */
+    public synchronized long getMaxWaitTime() {
+        return maxWaitTime;
+    }
+
+    /**
+     * A short summary of the wait metrics for logging.
+     *
+     * @return the summary
+     */
+    public synchronized String getMetricsSummary() {
+        return String.format(Locale.ROOT, "limit %d/min, %d requests, %d delayed, total wait %d ms, max wait %d ms",
+                limit, numAcquired, numDelayed, totalWaitTime, maxWaitTime);
     }
 }
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.api;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import okhttp3.Request;
+import okhttp3.Response;
+
+import static com.smouldering_durtles.wk.util.ObjectSupport.isEmpty;
+import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
+
+/**
+ * A cache of HTTP response validators (ETag and Last-Modified), keyed by request URL.
+ *
+ * <p>
+ *     For endpoints that rarely change, the validators of the last successfully processed
+ *     response are sent along with the next request as If-None-Match and If-Modified-Since.
+ *     If the server answers 304 Not Modified, the caller can skip parsing the (empty) body
+ *     and skip all database work, since nothing has changed since the last time.
+ * </p>
+ *
+ * <p>
+ *     The validators of a response are only held in memory until the caller has finished
+ *     processing it and commits them. If they were stored before that and the processing failed
+ *     or the app was stopped halfway, the next request would be answered with a 304 and the
+ *     update would never be retried.
+ * </p>
+ */
+public final class ResponseValidatorCache {
+    private final Store store;
+    private final Map<String, String> pending = new HashMap<>();
+
+    /**
+     * Persistent storage for the encoded validators.
+     */
+    public interface Store {
+        /**
+         * Get the stored value for a URL.
+         *
+         * @param url the request URL
+         * @return the value or null if not present
+         */
+        @Nullable String get(String url);
+
+        /**
+         * Store the value for a URL.
+         *
+         * @param url the request URL
+         * @param value the value
+         */
+        void put(String url, String value);
+
+        /**
+         * Remove the stored value for a URL, if present.
+         *
+         * @param url the request URL
+         */
+        void remove(String url);
+    }
+
+    /**
+     * The constructor.
+     *
+     * @param store the storage for the validators
+     */
+    public ResponseValidatorCache(final Store store) {
+        this.store = store;
+    }
+
+    /**
+     * Add conditional request headers to a request that is being built, if
+     * validators are known for the URL.
+     *
+     * @param url the request URL, used as the cache key
+     * @param builder the request builder
+     */
+    public void prepare(final String url, final Request.Builder builder) {
+        final @Nullable String value = store.get(url);
+        if (value == null) {
+            return;
+        }
+        final int pos = value.indexOf('\n');
+        if (pos < 0) {
+            return;
+        }
+        final String etag = value.substring(0, pos);
+        final String lastModified = value.substring(pos + 1);
+        if (!etag.isEmpty()) {
+            builder.header("If-None-Match", etag);
+        }
+        if (!lastModified.isEmpty()) {
+            builder.header("If-Modified-Since", lastModified);
+        }
+    }
+
+    /**
+     * Check if the server answered a conditional request with 304 Not Modified.
+     *
+     * @param response the response
+     * @return true if the response was 304
+     */
+    public static boolean isNotModified(final Response response) {
+        return response.code() == HTTP_NOT_MODIFIED;
+    }
+
+    /**
+     * Remember the validators from a successful response. They are not used for requests until
+     * commit() has been called for the same URL.
+     *
+     * @param url the request URL, used as the cache key
+     * @param response the response
+     */
+    public void update(final String url, final Response response) {
+        final @Nullable String etag = response.header("ETag");
+        final @Nullable String lastModified = response.header("Last-Modified");
+        final String value = isEmpty(etag) && isEmpty(lastModified) ? ""
+                : (etag == null ? "" : etag.trim()) + "\n" + (lastModified == null ? "" : lastModified.trim());
+        synchronized (pending) {
+            pending.put(url, value);
+        }
+    }
+
+    /**
+     * Store the validators remembered by the last update() for a URL, after the response has been
+     * processed completely. If that response had no validators, any stored ones are removed.
+     *
+     * @param url the request URL, used as the cache key
+     */
+    public void commit(final String url) {
+        final @Nullable String value;
+        synchronized (pending) {
+            value = pending.remove(url);
+        }
+        if (value == null) {
+            return;
+        }
+        if (value.isEmpty()) {
+            store.remove(url);
+        }
+        else {
+            store.put(url, value);
+        }
+    }
+
+    /**
+     * Forget the validators for a URL, so the next request for it is unconditional.
+     *
+     * @param url the request URL, used as the cache key
+     */
+    public void invalidate(final String url) {
+        synchronized (pending) {
+            pending.remove(url);
+        }
+        store.remove(url);
+    }
+}
@@ -21,10 +21,9 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.smouldering_durtles.wk.model.DigraphMatch;
 import com.smouldering_durtles.wk.util.PseudoIme;
 
-import javax.annotation.Nullable;
+import java.util.Objects;
 
-import static com.smouldering_durtles.wk.util.ObjectSupport.isEmpty;
-import static com.smouldering_durtles.wk.util.ObjectSupport.isEqual;
+import javax.annotation.Nullable;
 
 /**
  * Model class for a reading registered for a subject.
@@ -46,7 +45,7 @@ public final class Reading {
      */
     @JsonIgnore
     public boolean isOnYomi() {
-        return isEqual(type, "onyomi");
+        return Objects.equals(type, "onyomi");
     }
 
     /**
@@ -56,7 +55,7 @@ public final class Reading {
      */
     @JsonIgnore
     public boolean isKunYomi() {
-        return isEqual(type, "kunyomi");
+        return Objects.equals(type, "kunyomi");
     }
 
     /**
@@ -66,7 +65,7 @@ public final class Reading {
      */
     @JsonIgnore
     public boolean isNanori() {
-        return isEqual(type, "nanori");
+        return Objects.equals(type, "nanori");
     }
 
     /**
@@ -95,12 +94,12 @@ public final class Reading {
     public boolean matches(final String answer, final boolean requireOnInKatakana) {
         if (isOnYomi()) {
             if (requireOnInKatakana) {
-                return isEqual(PseudoIme.toKatakana(reading), answer);
+                return Objects.equals(PseudoIme.toKatakana(reading), answer);
             }
-            return isEqual(reading, answer) || isEqual(PseudoIme.toKatakana(reading), answer);
+            return Objects.equals(reading, answer) || Objects.equals(PseudoIme.toKatakana(reading), answer);
         }
         else {
-            return isEqual(reading, answer);
+            return Objects.equals(reading, answer);
         }
     }
 
@@ -164,7 +163,7 @@ public final class Reading {
      */
     @JsonIgnore
     public boolean isEmptyOrNone() {
-        return isEmpty(reading) || reading.equals("None");
+        return reading == null || reading.isEmpty() || reading.equals("None");
     }
 
     /**
@@ -16,6 +16,8 @@
 
 package com.smouldering_durtles.wk.db;
 
+import android.database.Cursor;
+
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
@@ -26,6 +28,7 @@ import androidx.sqlite.db.SupportSQLiteDatabase;
 import com.smouldering_durtles.wk.GlobalSettings;
 import com.smouldering_durtles.wk.WkApplication;
 import com.smouldering_durtles.wk.db.dao.AudioDownloadStatusDao;
+import com.smouldering_durtles.wk.db.dao.DashboardAggregateDao;
 import com.smouldering_durtles.wk.db.dao.LevelProgressionDao;
 import com.smouldering_durtles.wk.db.dao.LogRecordDao;
 import com.smouldering_durtles.wk.db.dao.PropertiesDao;
@@ -39,6 +42,7 @@ import com.smouldering_durtles.wk.db.dao.SubjectSyncDao;
 import com.smouldering_durtles.wk.db.dao.SubjectViewsDao;
 import com.smouldering_durtles.wk.db.dao.TaskDefinitionDao;
 import com.smouldering_durtles.wk.db.model.AudioDownloadStatus;
+import com.smouldering_durtles.wk.db.model.DashboardAggregate;
 import com.smouldering_durtles.wk.db.model.LevelProgressionEntityDefinition;
 import com.smouldering_durtles.wk.db.model.LogRecordEntityDefinition;
 import com.smouldering_durtles.wk.db.model.PronunciationAudioOwner;
@@ -46,7 +50,10 @@ import com.smouldering_durtles.wk.db.model.Property;
 import com.smouldering_durtles.wk.db.model.SearchPreset;
 import com.smouldering_durtles.wk.db.model.SessionItem;
 import com.smouldering_durtles.wk.db.model.SrsSystemDefinition;
+import com.smouldering_durtles.wk.db.model.Subject;
+import com.smouldering_durtles.wk.db.model.SubjectEntity;
 import com.smouldering_durtles.wk.db.model.SubjectEntityDefinition;
+import com.smouldering_durtles.wk.db.model.SubjectSearchEntry;
 import com.smouldering_durtles.wk.db.model.TaskDefinition;
 import com.smouldering_durtles.wk.enums.SessionType;
 import com.smouldering_durtles.wk.jobs.TickJob;
@@ -70,7 +77,9 @@ import com.smouldering_durtles.wk.tasks.LoadReferenceDataTask;
 import com.smouldering_durtles.wk.tasks.ReportSessionItemTask;
 import com.smouldering_durtles.wk.tasks.ScanAudioDownloadStatusTask;
 import com.smouldering_durtles.wk.tasks.SubmitStudyMaterialTask;
+import com.smouldering_durtles.wk.util.SearchUtil;
 
+import java.util.Arrays;
 import java.util.Locale;
 
 import javax.annotation.Nullable;
@@ -91,8 +100,10 @@ import static com.smouldering_durtles.wk.util.ObjectSupport.join;
         SessionItem.class,
         LogRecordEntityDefinition.class,
         AudioDownloadStatus.class,
-        SearchPreset.class
-}, version = 68)
+        SearchPreset.class,
+        SubjectSearchEntry.class,
+        DashboardAggregate.class
+}, version = 73)
 @TypeConverters(Converters.class)
 public abstract class AppDatabase extends RoomDatabase {
     /**
@@ -335,6 +346,245 @@ public abstract class AppDatabase extends RoomDatabase {
         }
     };
 
+    /**
+     * Migration from 68 to 69: add the subject_search full-text index, and fill it from the existing subjects.
+     */
+    public static final Migration MIGRATION_68_69 = new Migration(68, 69) {
+        @Override
+        public void migrate(final SupportSQLiteDatabase database) {
+            database.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `subject_search` USING FTS4("
+                    + "`characters` TEXT NOT NULL, `slug` TEXT NOT NULL, `primaryMeaning` TEXT NOT NULL, `meanings` TEXT NOT NULL,"
+                    + " `readings` TEXT NOT NULL, `body` TEXT NOT NULL, `notes` TEXT NOT NULL, `synonyms` TEXT NOT NULL,"
+                    + " tokenize=unicode61)");
+            try (final Cursor cursor = database.query("SELECT id, characters, slug, meanings, auxiliaryMeanings, readings,"
+                    + " meaningMnemonic, meaningHint, readingMnemonic, readingHint, partsOfSpeech, contextSentences,"
+                    + " meaningNote, readingNote, meaningSynonyms FROM subject")) {
+                while (cursor.moveToNext()) {
+                    final SubjectEntity entity = new SubjectEntity();
+                    entity.id = cursor.getLong(0);
+                    entity.characters = cursor.getString(1);
+                    entity.slug = cursor.getString(2);
+                    entity.meanings = cursor.getString(3);
+                    entity.auxiliaryMeanings = cursor.getString(4);
+                    entity.readings = cursor.getString(5);
+                    entity.meaningMnemonic = cursor.getString(6);
+                    entity.meaningHint = cursor.getString(7);
+                    entity.readingMnemonic = cursor.getString(8);
+                    entity.readingHint = cursor.getString(9);
+                    entity.partsOfSpeech = cursor.getString(10);
+                    entity.contextSentences = cursor.getString(11);
+                    entity.meaningNote = cursor.getString(12);
+                    entity.readingNote = cursor.getString(13);
+                    entity.meaningSynonyms = cursor.getString(14);
+                    final SubjectSearchEntry entry = SearchUtil.createSearchEntry(new Subject(entity));
+                    database.execSQL("INSERT INTO subject_search"
+                            + " (rowid, characters, slug, primaryMeaning, meanings, readings, body, notes, synonyms)"
+                            + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                            new Object[] {entry.id, entry.characters, entry.slug, entry.primaryMeaning, entry.meanings,
+                                    entry.readings, entry.body, entry.notes, entry.synonyms});
+                }
+            }
+        }
+    };
+
+    /**
+     * For each kind of dashboard aggregate: the condition for a subject row X to be counted, followed by the
+     * values of the key columns kind, srsSystemId, srsStage, level, type, passed, locked and grade for it.
+     */
+    private static final String[][] DASHBOARD_AGGREGATE_RULES = {
+            {"X.hiddenAt = 0 AND X.object IS NOT NULL",
+                    "0", "X.srsSystemId", "X.srsStage", "0", "''", "0", "0", "0"},
+            {"X.hiddenAt = 0 AND X.object IS NOT NULL",
+                    "1", "0", "0", "X.level", "X.object", "(IFNULL(X.passedAt, 0) != 0)", "(IFNULL(X.unlockedAt, 0) = 0)", "0"},
+            {"X.object = 'kanji' AND X.jlptLevel > 0",
+                    "2", "X.srsSystemId", "X.srsStage", "0", "''", "0", "0", "X.jlptLevel"},
+            {"X.object = 'kanji' AND X.joyoGrade > 0",
+                    "3", "X.srsSystemId", "X.srsStage", "0", "''", "0", "0", "X.joyoGrade"}
+    };
+
+    private static final String[] DASHBOARD_AGGREGATE_KEYS = {"kind", "srsSystemId", "srsStage", "level", "type", "passed", "locked", "grade"};
+
+    /**
+     * The subject columns the dashboard aggregates depend on.
+     */
+    private static final String[] DASHBOARD_AGGREGATE_COLUMNS = {
+            "hiddenAt", "object", "srsSystemId", "srsStage", "level", "passedAt", "unlockedAt", "jlptLevel", "joyoGrade"};
+
+    /**
+     * Build the trigger body statements that add a subject row to, or remove it from, the dashboard aggregates.
+     *
+     * @param row the row alias, NEW or OLD
+     * @param add true to add the row, false to remove it
+     * @return the statements, each terminated by a semicolon
+     */
+    private static String getDashboardAggregateStatements(final String row, final boolean add) {
+        final StringBuilder sb = new StringBuilder();
+        for (final String[] rule: DASHBOARD_AGGREGATE_RULES) {
+            final String condition = rule[0].replace("X.", row + ".");
+            if (add) {
+                sb.append("INSERT OR IGNORE INTO dashboard_aggregate (").append(join(", ", "", "", Arrays.asList(DASHBOARD_AGGREGATE_KEYS)))
+                        .append(", count) SELECT ");
+                for (int i=1; i<rule.length; i++) {
+                    sb.append(rule[i].replace("X.", row + ".")).append(", ");
+                }
+                sb.append("0 WHERE ").append(condition).append("; ");
+            }
+            sb.append("UPDATE dashboard_aggregate SET count = count ").append(add ? '+' : '-').append(" 1 WHERE ");
+            for (int i=1; i<rule.length; i++) {
+                sb.append(DASHBOARD_AGGREGATE_KEYS[i-1]).append(" = ").append(rule[i].replace("X.", row + ".")).append(" AND ");
+            }
+            sb.append(condition).append("; ");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Create the triggers that keep the dashboard aggregates up to date with every write to the subject table.
+     * The triggers run as part of the statement that fires them, so the aggregates are always updated in the
+     * same transaction as the subjects.
+     *
+     * @param database the database
+     */
+    public static void createDashboardAggregateTriggers(final SupportSQLiteDatabase database) {
+        database.execSQL("CREATE TRIGGER IF NOT EXISTS dashboard_aggregate_insert AFTER INSERT ON subject BEGIN "
+                + getDashboardAggregateStatements("NEW", true) + "END");
+        database.execSQL("CREATE TRIGGER IF NOT EXISTS dashboard_aggregate_delete AFTER DELETE ON subject BEGIN "
+                + getDashboardAggregateStatements("OLD", false) + "END");
+        final StringBuilder changed = new StringBuilder();
+        for (final String column: DASHBOARD_AGGREGATE_COLUMNS) {
+            if (changed.length() > 0) {
+                changed.append(" OR ");
+            }
+            changed.append("OLD.").append(column).append(" IS NOT NEW.").append(column);
+        }
+        database.execSQL("CREATE TRIGGER IF NOT EXISTS dashboard_aggregate_update AFTER UPDATE OF "
+                + join(", ", "", "", Arrays.asList(DASHBOARD_AGGREGATE_COLUMNS)) + " ON subject WHEN " + changed + " BEGIN "
+                + getDashboardAggregateStatements("OLD", false) + getDashboardAggregateStatements("NEW", true) + "END");
+    }
+
+    /**
+     * Migration from 69 to 70: add the dashboard aggregates table and its triggers, and fill it from the existing subjects.
+     */
+    public static final Migration MIGRATION_69_70 = new Migration(69, 70) {
+        @Override
+        public void migrate(final SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `dashboard_aggregate` (`kind` INTEGER NOT NULL, `srsSystemId` INTEGER NOT NULL,"
+                    + " `srsStage` INTEGER NOT NULL, `level` INTEGER NOT NULL, `type` TEXT NOT NULL, `passed` INTEGER NOT NULL,"
+                    + " `locked` INTEGER NOT NULL, `grade` INTEGER NOT NULL, `count` INTEGER NOT NULL,"
+                    + " PRIMARY KEY(`kind`, `srsSystemId`, `srsStage`, `level`, `type`, `passed`, `locked`, `grade`))");
+            database.execSQL("DELETE FROM dashboard_aggregate");
+            database.execSQL(DashboardAggregateDao.RECOMPUTE_SRS);
+            database.execSQL(DashboardAggregateDao.RECOMPUTE_LEVEL);
+            database.execSQL(DashboardAggregateDao.RECOMPUTE_JLPT);
+            database.execSQL(DashboardAggregateDao.RECOMPUTE_JOYO);
+            createDashboardAggregateTriggers(database);
+        }
+    };
+
+    /**
+     * Make sure the composite and partial indexes on the subject table exist with their full definitions,
+     * replacing the plain versions Room creates for a new database. See SubjectIndexes.
+     *
+     * @param database the database
+     */
+    public static void createSubjectIndexes(final SupportSQLiteDatabase database) {
+        for (final String name: SubjectIndexes.OBSOLETE_INDEXES) {
+            database.execSQL("DROP INDEX IF EXISTS " + name);
+        }
+        for (final String[] index: SubjectIndexes.INDEXES) {
+            @Nullable String sql = null;
+            try (final Cursor cursor = database.query("SELECT sql FROM sqlite_master WHERE type = 'index' AND name = ?",
+                    new Object[] {index[0]})) {
+                if (cursor.moveToFirst()) {
+                    sql = cursor.getString(0);
+                }
+            }
+            if (!index[1].equals(sql)) {
+                database.execSQL("DROP INDEX IF EXISTS " + index[0]);
+                database.execSQL(index[1]);
+            }
+        }
+    }
+
+    /**
+     * Migration from 70 to 71: replace the level index by composite and partial indexes for the hot subject queries.
+     */
+    public static final Migration MIGRATION_70_71 = new Migration(70, 71) {
+        @Override
+        public void migrate(final SupportSQLiteDatabase database) {
+            createSubjectIndexes(database);
+        }
+    };
+
+    /**
+     * Migration from 71 to 72: add the packedLists column, and convert the JSON list columns of existing subjects to it.
+     */
+    public static final Migration MIGRATION_71_72 = new Migration(71, 72) {
+        @Override
+        public void migrate(final SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE subject ADD COLUMN packedLists BLOB");
+            try (final Cursor cursor = database.query("SELECT id, meanings, auxiliaryMeanings, readings, componentSubjectIds,"
+                    + " amalgamationSubjectIds, visuallySimilarSubjectIds, partsOfSpeech, contextSentences, pronunciationAudios"
+                    + " FROM subject")) {
+                while (cursor.moveToNext()) {
+                    final SubjectEntity entity = new SubjectEntity();
+                    entity.id = cursor.getLong(0);
+                    entity.meanings = cursor.getString(1);
+                    entity.auxiliaryMeanings = cursor.getString(2);
+                    entity.readings = cursor.getString(3);
+                    entity.componentSubjectIds = cursor.getString(4);
+                    entity.amalgamationSubjectIds = cursor.getString(5);
+                    entity.visuallySimilarSubjectIds = cursor.getString(6);
+                    entity.partsOfSpeech = cursor.getString(7);
+                    entity.contextSentences = cursor.getString(8);
+                    entity.pronunciationAudios = cursor.getString(9);
+                    final Subject subject = new Subject(entity);
+                    final byte[] packedLists = new PackedSubjectLists.Writer()
+                            .meanings(subject.getMeanings())
+                            .auxiliaryMeanings(subject.getAuxiliaryMeanings())
+                            .readings(subject.getReadings())
+                            .componentSubjectIds(subject.getComponentSubjectIds())
+                            .amalgamationSubjectIds(subject.getAmalgamationSubjectIds())
+                            .visuallySimilarSubjectIds(subject.getVisuallySimilarSubjectIds())
+                            .partsOfSpeech(subject.getPartsOfSpeech())
+                            .contextSentences(subject.getContextSentences())
+                            .pronunciationAudios(subject.getParsedPronunciationAudios())
+                            .toByteArray();
+                    database.execSQL("UPDATE subject SET packedLists = ?, meanings = NULL, auxiliaryMeanings = NULL,"
+                            + " readings = NULL, componentSubjectIds = NULL, amalgamationSubjectIds = NULL,"
+                            + " visuallySimilarSubjectIds = NULL, partsOfSpeech = NULL, contextSentences = NULL,"
+                            + " pronunciationAudios = NULL WHERE id = ?",
+                            new Object[] {packedLists, entity.id});
+                }
+            }
+        }
+    };
+
+    /**
+     * Migration from 72 to 73: add the referenceDataHash column. Existing subjects start out with an unknown hash.
+     */
+    public static final Migration MIGRATION_72_73 = new Migration(72, 73) {
+        @Override
+        public void migrate(final SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE subject ADD COLUMN referenceDataHash INTEGER NOT NULL DEFAULT 0");
+        }
+    };
+
+    /**
+     * Callback that adds what Room can't declare itself to a database whose tables have just been created
+     * from scratch: the dashboard aggregate triggers and the partial subject indexes. Databases that are
+     * migrated get them from the migrations already. This is done on open, because after a destructive
+     * migration Room recreates the tables only after the onDestructiveMigration callback has run. Both
+     * steps are cheap no-ops if everything is in place already.
+     */
+    public static final Callback CALLBACK = new Callback() {
+        @Override
+        public void onOpen(final SupportSQLiteDatabase db) {
+            createDashboardAggregateTriggers(db);
+            createSubjectIndexes(db);
+        }
+    };
+
     /**
      * Get the singleton instance.
      *
@@ -364,22 +614,19 @@ public abstract class AppDatabase extends RoomDatabase {
                             MIGRATION_64_65,
                             MIGRATION_65_66,
                             MIGRATION_66_67,
-                            MIGRATION_67_68)
+                            MIGRATION_67_68,
+                            MIGRATION_68_69,
+                            MIGRATION_69_70,
+                            MIGRATION_70_71,
+                            MIGRATION_71_72,
+                            MIGRATION_72_73)
+                    .addCallback(CALLBACK)
                     .fallbackToDestructiveMigration()
                     .build();
         }
         return instance;
     }
 
-    /**
-     * Are there any API tasks pending?.
-     *
-     * @return true if there are
-     */
-    public final boolean hasPendingApiTasks() {
-        return taskDefinitionDao().getCount() > 0;
-    }
-
     /**
      * Add a task for fetching the user endpoint if it doesn't exist already.
      */
@@ -678,12 +925,15 @@ public abstract class AppDatabase extends RoomDatabase {
         propertiesDao().setLastStudyMaterialSyncSuccessDate(0);
         propertiesDao().setLastSrsSystemSyncSuccessDate(0);
         propertiesDao().setLastLevelProgressionSyncSuccessDate(0);
+        propertiesDao().setLevelProgressionCheckpoint(0);
         propertiesDao().setLastSummarySyncSuccessDate(0);
+        propertiesDao().deleteAllResponseValidators();
         propertiesDao().setSessionType(SessionType.NONE);
         propertiesDao().setSessionOnkun(false);
         Session.getInstance().reset();
         taskDefinitionDao().deleteAll();
         subjectDao().deleteAll();
+        subjectDao().deleteSearchIndex();
         srsSystemDao().deleteAll();
         sessionItemDao().deleteAll();
         levelProgressionDao().deleteAll();
@@ -782,4 +1032,11 @@ public abstract class AppDatabase extends RoomDatabase {
      * @return the DAO
      */
     public abstract SearchPresetDao searchPresetDao();
+
+    /**
+     * Get the DAO instance for the dashboard aggregates.
+     *
+     * @return the DAO
+     */
+    public abstract DashboardAggregateDao dashboardAggregateDao();
 }
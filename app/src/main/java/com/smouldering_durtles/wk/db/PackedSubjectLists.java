@@ -0,0 +1,610 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.db;
+
+import com.smouldering_durtles.wk.api.model.AuxiliaryMeaning;
+import com.smouldering_durtles.wk.api.model.ContextSentence;
+import com.smouldering_durtles.wk.api.model.Meaning;
+import com.smouldering_durtles.wk.api.model.PronunciationAudio;
+import com.smouldering_durtles.wk.api.model.PronunciationAudioMeta;
+import com.smouldering_durtles.wk.api.model.Reading;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+import javax.annotation.Nullable;
+
+/**
+ * Compact binary encoding of the list fields of a subject: meanings, readings, related subject IDs, context
+ * sentences and so on. These used to be stored as JSON strings, and parsing those with Jackson was a large
+ * part of the cost of loading a subject. All lists of a subject are packed into a single BLOB column.
+ *
+ * <p>
+ *     The layout is a version byte, followed by one section per list in a fixed order. Each section starts
+ *     with its length in bytes, so a reader can skip to the list it needs without decoding the others.
+ *     Inside a section, the list starts with its element count, and every element is a fixed sequence of
+ *     fields. Integers are written as unsigned LEB128 varints, subject IDs as zigzag-encoded deltas from
+ *     the previous ID, strings as their UTF-8 length plus one (0 means null) followed by the bytes, and
+ *     booleans as bit flags.
+ * </p>
+ *
+ * <p>
+ *     Any change to the layout must bump VERSION. A reader returns null for a version it doesn't know,
+ *     and callers then fall back to the JSON columns.
+ * </p>
+ */
+public final class PackedSubjectLists {
+    /**
+     * The version of the layout written by this class.
+     */
+    public static final int VERSION = 1;
+
+    private static final int MEANINGS = 0;
+    private static final int AUXILIARY_MEANINGS = 1;
+    private static final int READINGS = 2;
+    private static final int COMPONENT_SUBJECT_IDS = 3;
+    private static final int AMALGAMATION_SUBJECT_IDS = 4;
+    private static final int VISUALLY_SIMILAR_SUBJECT_IDS = 5;
+    private static final int PARTS_OF_SPEECH = 6;
+    private static final int CONTEXT_SENTENCES = 7;
+    private static final int PRONUNCIATION_AUDIOS = 8;
+    private static final int NUM_SECTIONS = 9;
+
+    private static final int FLAG_PRIMARY = 1;
+    private static final int FLAG_ACCEPTED_ANSWER = 2;
+
+    private static final long[] NO_IDS = new long[0];
+
+    private PackedSubjectLists() {
+        //
+    }
+
+    /**
+     * Builder for the packed representation of a subject's lists. Lists that are not set are written as empty.
+     */
+    public static final class Writer {
+        private final byte[][] sections = new byte[NUM_SECTIONS][];
+
+        /**
+         * The meanings.
+         *
+         * @param meanings the value
+         * @return this writer
+         */
+        public Writer meanings(final @Nullable List<Meaning> meanings) {
+            final Output out = new Output();
+            final int size = meanings == null ? 0 : meanings.size();
+            out.writeVarint(size);
+            for (int i=0; i<size; i++) {
+                final Meaning meaning = meanings.get(i);
+                out.writeString(meaning.getMeaning());
+                out.writeVarint((meaning.isPrimary() ? FLAG_PRIMARY : 0) | (meaning.isAcceptedAnswer() ? FLAG_ACCEPTED_ANSWER : 0));
+            }
+            sections[MEANINGS] = out.toByteArray();
+            return this;
+        }
+
+        /**
+         * The auxiliary meanings.
+         *
+         * @param auxiliaryMeanings the value
+         * @return this writer
+         */
+        public Writer auxiliaryMeanings(final @Nullable List<AuxiliaryMeaning> auxiliaryMeanings) {
+            final Output out = new Output();
+            final int size = auxiliaryMeanings == null ? 0 : auxiliaryMeanings.size();
+            out.writeVarint(size);
+            for (int i=0; i<size; i++) {
+                final AuxiliaryMeaning meaning = auxiliaryMeanings.get(i);
+                out.writeString(meaning.getMeaning());
+                out.writeString(meaning.getType());
+            }
+            sections[AUXILIARY_MEANINGS] = out.toByteArray();
+            return this;
+        }
+
+        /**
+         * The readings.
+         *
+         * @param readings the value
+         * @return this writer
+         */
+        public Writer readings(final @Nullable List<Reading> readings) {
+            final Output out = new Output();
+            final int size = readings == null ? 0 : readings.size();
+            out.writeVarint(size);
+            for (int i=0; i<size; i++) {
+                final Reading reading = readings.get(i);
+                out.writeString(reading.getReading());
+                out.writeString(reading.getType());
+                out.writeVarint((reading.isPrimary() ? FLAG_PRIMARY : 0) | (reading.isAcceptedAnswer() ? FLAG_ACCEPTED_ANSWER : 0));
+            }
+            sections[READINGS] = out.toByteArray();
+            return this;
+        }
+
+        /**
+         * The IDs of the component subjects. Duplicates are dropped.
+         *
+         * @param ids the value
+         * @return this writer
+         */
+        public Writer componentSubjectIds(final @Nullable List<Long> ids) {
+            sections[COMPONENT_SUBJECT_IDS] = encodeIds(ids);
+            return this;
+        }
+
+        /**
+         * The IDs of the amalgamation subjects. Duplicates are dropped.
+         *
+         * @param ids the value
+         * @return this writer
+         */
+        public Writer amalgamationSubjectIds(final @Nullable List<Long> ids) {
+            sections[AMALGAMATION_SUBJECT_IDS] = encodeIds(ids);
+            return this;
+        }
+
+        /**
+         * The IDs of the visually similar subjects. Duplicates are dropped.
+         *
+         * @param ids the value
+         * @return this writer
+         */
+        public Writer visuallySimilarSubjectIds(final @Nullable List<Long> ids) {
+            sections[VISUALLY_SIMILAR_SUBJECT_IDS] = encodeIds(ids);
+            return this;
+        }
+
+        /**
+         * The parts of speech.
+         *
+         * @param partsOfSpeech the value
+         * @return this writer
+         */
+        public Writer partsOfSpeech(final @Nullable List<String> partsOfSpeech) {
+            final Output out = new Output();
+            final int size = partsOfSpeech == null ? 0 : partsOfSpeech.size();
+            out.writeVarint(size);
+            for (int i=0; i<size; i++) {
+                out.writeString(partsOfSpeech.get(i));
+            }
+            sections[PARTS_OF_SPEECH] = out.toByteArray();
+            return this;
+        }
+
+        /**
+         * The context sentences.
+         *
+         * @param contextSentences the value
+         * @return this writer
+         */
+        public Writer contextSentences(final @Nullable List<ContextSentence> contextSentences) {
+            final Output out = new Output();
+            final int size = contextSentences == null ? 0 : contextSentences.size();
+            out.writeVarint(size);
+            for (int i=0; i<size; i++) {
+                final ContextSentence sentence = contextSentences.get(i);
+                out.writeString(sentence.getEnglish());
+                out.writeString(sentence.getJapanese());
+            }
+            sections[CONTEXT_SENTENCES] = out.toByteArray();
+            return this;
+        }
+
+        /**
+         * The pronunciation audios.
+         *
+         * @param pronunciationAudios the value
+         * @return this writer
+         */
+        public Writer pronunciationAudios(final @Nullable List<PronunciationAudio> pronunciationAudios) {
+            final Output out = new Output();
+            final int size = pronunciationAudios == null ? 0 : pronunciationAudios.size();
+            out.writeVarint(size);
+            for (int i=0; i<size; i++) {
+                final PronunciationAudio audio = pronunciationAudios.get(i);
+                final PronunciationAudioMeta metadata = audio.getMetadata();
+                out.writeString(audio.getUrl());
+                out.writeString(audio.getContentType());
+                out.writeString(metadata.getGender());
+                out.writeString(metadata.getPronunciation());
+                out.writeZigzag(metadata.getSourceId());
+                out.writeZigzag(metadata.getVoiceActorId());
+                out.writeString(metadata.getVoiceActorName());
+                out.writeString(metadata.getVoiceDescription());
+            }
+            sections[PRONUNCIATION_AUDIOS] = out.toByteArray();
+            return this;
+        }
+
+        /**
+         * Encode the lists.
+         *
+         * @return the packed representation
+         */
+        public byte[] toByteArray() {
+            final Output out = new Output();
+            out.write(VERSION);
+            for (final @Nullable byte[] section: sections) {
+                if (section == null) {
+                    out.writeVarint(1);
+                    out.writeVarint(0);
+                }
+                else {
+                    out.writeVarint(section.length);
+                    out.write(section, 0, section.length);
+                }
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private static byte[] encodeIds(final @Nullable List<Long> ids) {
+        final Output out = new Output();
+        if (ids == null) {
+            out.writeVarint(0);
+            return out.toByteArray();
+        }
+        final long[] unique = new long[ids.size()];
+        int size = 0;
+        for (final Long id: ids) {
+            boolean duplicate = false;
+            for (int i=0; i<size; i++) {
+                if (unique[i] == id) {
+                    duplicate = true;
+                    break;
+                }
+            }
+            if (!duplicate) {
+                unique[size++] = id;
+            }
+        }
+        out.writeVarint(size);
+        long prev = 0;
+        for (int i=0; i<size; i++) {
+            out.writeZigzag(unique[i] - prev);
+            prev = unique[i];
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * The meanings.
+     *
+     * @param packed the packed lists
+     * @return the meanings, or null if the packed lists are absent or of an unknown version
+     */
+    public static @Nullable List<Meaning> getMeanings(final @Nullable byte[] packed) {
+        final @Nullable Input in = Input.forSection(packed, MEANINGS);
+        if (in == null) {
+            return null;
+        }
+        final int size = in.readVarint();
+        final List<Meaning> result = new ArrayList<>(size);
+        for (int i=0; i<size; i++) {
+            final Meaning meaning = new Meaning();
+            meaning.setMeaning(in.readString());
+            final int flags = in.readVarint();
+            meaning.setPrimary((flags & FLAG_PRIMARY) != 0);
+            meaning.setAcceptedAnswer((flags & FLAG_ACCEPTED_ANSWER) != 0);
+            result.add(meaning);
+        }
+        return result;
+    }
+
+    /**
+     * The auxiliary meanings.
+     *
+     * @param packed the packed lists
+     * @return the auxiliary meanings, or null if the packed lists are absent or of an unknown version
+     */
+    public static @Nullable List<AuxiliaryMeaning> getAuxiliaryMeanings(final @Nullable byte[] packed) {
+        final @Nullable Input in = Input.forSection(packed, AUXILIARY_MEANINGS);
+        if (in == null) {
+            return null;
+        }
+        final int size = in.readVarint();
+        final List<AuxiliaryMeaning> result = new ArrayList<>(size);
+        for (int i=0; i<size; i++) {
+            final AuxiliaryMeaning meaning = new AuxiliaryMeaning();
+            meaning.setMeaning(in.readString());
+            meaning.setType(in.readString());
+            result.add(meaning);
+        }
+        return result;
+    }
+
+    /**
+     * The readings.
+     *
+     * @param packed the packed lists
+     * @return the readings, or null if the packed lists are absent or of an unknown version
+     */
+    public static @Nullable List<Reading> getReadings(final @Nullable byte[] packed) {
+        final @Nullable Input in = Input.forSection(packed, READINGS);
+        if (in == null) {
+            return null;
+        }
+        final int size = in.readVarint();
+        final List<Reading> result = new ArrayList<>(size);
+        for (int i=0; i<size; i++) {
+            final Reading reading = new Reading();
+            reading.setReading(in.readString());
+            reading.setType(in.readString());
+            final int flags = in.readVarint();
+            reading.setPrimary((flags & FLAG_PRIMARY) != 0);
+            reading.setAcceptedAnswer((flags & FLAG_ACCEPTED_ANSWER) != 0);
+            result.add(reading);
+        }
+        return result;
+    }
+
+    /**
+     * The IDs of the component subjects.
+     *
+     * @param packed the packed lists
+     * @return the IDs, or null if the packed lists are absent or of an unknown version
+     */
+    public static @Nullable long[] getComponentSubjectIds(final @Nullable byte[] packed) {
+        return decodeIds(Input.forSection(packed, COMPONENT_SUBJECT_IDS));
+    }
+
+    /**
+     * The IDs of the amalgamation subjects.
+     *
+     * @param packed the packed lists
+     * @return the IDs, or null if the packed lists are absent or of an unknown version
+     */
+    public static @Nullable long[] getAmalgamationSubjectIds(final @Nullable byte[] packed) {
+        return decodeIds(Input.forSection(packed, AMALGAMATION_SUBJECT_IDS));
+    }
+
+    /**
+     * The IDs of the visually similar subjects.
+     *
+     * @param packed the packed lists
+     * @return the IDs, or null if the packed lists are absent or of an unknown version
+     */
+    public static @Nullable long[] getVisuallySimilarSubjectIds(final @Nullable byte[] packed) {
+        return decodeIds(Input.forSection(packed, VISUALLY_SIMILAR_SUBJECT_IDS));
+    }
+
+    private static @Nullable long[] decodeIds(final @Nullable Input in) {
+        if (in == null) {
+            return null;
+        }
+        final int size = in.readVarint();
+        if (size == 0) {
+            return NO_IDS;
+        }
+        final long[] result = new long[size];
+        long prev = 0;
+        for (int i=0; i<size; i++) {
+            prev += in.readZigzag();
+            result[i] = prev;
+        }
+        return result;
+    }
+
+    /**
+     * The parts of speech.
+     *
+     * @param packed the packed lists
+     * @return the parts of speech, or null if the packed lists are absent or of an unknown version
+     */
+    public static @Nullable List<String> getPartsOfSpeech(final @Nullable byte[] packed) {
+        final @Nullable Input in = Input.forSection(packed, PARTS_OF_SPEECH);
+        if (in == null) {
+            return null;
+        }
+        final int size = in.readVarint();
+        final List<String> result = new ArrayList<>(size);
+        for (int i=0; i<size; i++) {
+            final @Nullable String value = in.readString();
+            if (value != null) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The context sentences.
+     *
+     * @param packed the packed lists
+     * @return the context sentences, or null if the packed lists are absent or of an unknown version
+     */
+    public static @Nullable List<ContextSentence> getContextSentences(final @Nullable byte[] packed) {
+        final @Nullable Input in = Input.forSection(packed, CONTEXT_SENTENCES);
+        if (in == null) {
+            return null;
+        }
+        final int size = in.readVarint();
+        final List<ContextSentence> result = new ArrayList<>(size);
+        for (int i=0; i<size; i++) {
+            final ContextSentence sentence = new ContextSentence();
+            sentence.setEnglish(in.readString());
+            sentence.setJapanese(in.readString());
+            result.add(sentence);
+        }
+        return result;
+    }
+
+    /**
+     * The pronunciation audios.
+     *
+     * @param packed the packed lists
+     * @return the pronunciation audios, or null if the packed lists are absent or of an unknown version
+     */
+    public static @Nullable List<PronunciationAudio> getPronunciationAudios(final @Nullable byte[] packed) {
+        final @Nullable Input in = Input.forSection(packed, PRONUNCIATION_AUDIOS);
+        if (in == null) {
+            return null;
+        }
+        final int size = in.readVarint();
+        final List<PronunciationAudio> result = new ArrayList<>(size);
+        for (int i=0; i<size; i++) {
+            final PronunciationAudio audio = new PronunciationAudio();
+            final PronunciationAudioMeta metadata = new PronunciationAudioMeta();
+            audio.setUrl(in.readString());
+            audio.setContentType(in.readString());
+            metadata.setGender(in.readString());
+            metadata.setPronunciation(in.readString());
+            metadata.setSourceId(in.readZigzag());
+            metadata.setVoiceActorId(in.readZigzag());
+            metadata.setVoiceActorName(in.readString());
+            metadata.setVoiceDescription(in.readString());
+            audio.setMetadata(metadata);
+            result.add(audio);
+        }
+        return result;
+    }
+
+    /**
+     * Get a read-only list view of an array of IDs, without boxing them all up front.
+     *
+     * @param ids the IDs
+     * @return the list
+     */
+    public static List<Long> asList(final long[] ids) {
+        if (ids.length == 0) {
+            return Collections.emptyList();
+        }
+        return new IdList(ids);
+    }
+
+    private static final class IdList extends AbstractList<Long> implements RandomAccess {
+        private final long[] ids;
+
+        private IdList(final long[] ids) {
+            this.ids = ids;
+        }
+
+        @Override
+        public Long get(final int index) {
+            return ids[index];
+        }
+
+        @Override
+        public int size() {
+            return ids.length;
+        }
+    }
+
+    /**
+     * Growable output buffer with the primitive encodings.
+     */
+    private static final class Output extends ByteArrayOutputStream {
+        private Output() {
+            super(64);
+        }
+
+        private void writeVarint(final long value) {
+            long v = value;
+            while ((v & ~0x7FL) != 0) {
+                write((int) ((v & 0x7F) | 0x80));
+                v >>>= 7;
+            }
+            write((int) v);
+        }
+
+        private void writeZigzag(final long value) {
+            writeVarint((value << 1) ^ (value >> 63));
+        }
+
+        private void writeString(final @Nullable String value) {
+            if (value == null) {
+                writeVarint(0);
+                return;
+            }
+            final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length + 1);
+            write(bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * Reader for one section of a packed array, decoding in place without copying.
+     */
+    private static final class Input {
+        private final byte[] data;
+        private int pos;
+
+        private Input(final byte[] data, final int pos) {
+            this.data = data;
+            this.pos = pos;
+        }
+
+        /**
+         * Get a reader positioned at the start of a section.
+         *
+         * @param packed the packed lists
+         * @param section the section index
+         * @return the reader, or null if the data is absent or of an unknown version
+         */
+        private static @Nullable Input forSection(final @Nullable byte[] packed, final int section) {
+            if (packed == null || packed.length == 0 || packed[0] != VERSION) {
+                return null;
+            }
+            final Input in = new Input(packed, 1);
+            for (int i=0; i<section; i++) {
+                final int length = in.readVarint();
+                in.pos += length;
+            }
+            in.readVarint();
+            return in;
+        }
+
+        private long readLong() {
+            long result = 0;
+            int shift = 0;
+            while (true) {
+                final int b = data[pos++];
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+                shift += 7;
+            }
+        }
+
+        private int readVarint() {
+            return (int) readLong();
+        }
+
+        private long readZigzag() {
+            final long v = readLong();
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        private @Nullable String readString() {
+            final int length = readVarint();
+            if (length == 0) {
+                return null;
+            }
+            final String result = new String(data, pos, length - 1, StandardCharsets.UTF_8);
+            pos += length - 1;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.db;
+
+import com.smouldering_durtles.wk.model.ReferenceDataValues;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * The apply stage of a reference data reload. The new values for all subjects are computed in
+ * chunks on an executor, each chunk is diffed against the content hashes stored with the subjects,
+ * and only the subjects whose reference data actually changed are handed to the writer, one chunk
+ * at a time so each chunk can be written in a single transaction.
+ *
+ * <p>
+ *     Chunks are handed out in the order of the input, so the caller's thread writes chunk n while
+ *     the executor is still computing the chunks after it.
+ * </p>
+ *
+ * @param <T> the type of the subjects
+ */
+public final class ReferenceDataApplier<T extends ReferenceDataApplier.StoredSubject> {
+    private final ExecutorService executor;
+    private final Calculator<T> calculator;
+    private final int chunkSize;
+
+    /**
+     * A subject as it is stored, with the hash of the reference data that was last written for it.
+     */
+    public interface StoredSubject {
+        /**
+         * The content hash of the stored reference data, see ReferenceDataValues.getHash().
+         *
+         * @return the hash, or 0 if unknown
+         */
+        long getReferenceDataHash();
+    }
+
+    /**
+     * Computes the reference data for one subject.
+     *
+     * @param <T> the type of the subjects
+     */
+    public interface Calculator<T> {
+        /**
+         * Compute the reference data for a subject. This is called from the executor's threads.
+         *
+         * @param subject the subject
+         * @return the reference data
+         */
+        ReferenceDataValues compute(T subject);
+    }
+
+    /**
+     * Receives the results, on the thread that called apply().
+     */
+    public interface Target {
+        /**
+         * Write a chunk of changed reference data.
+         *
+         * @param changes the changes, never empty
+         */
+        void write(List<ReferenceDataValues> changes);
+
+        /**
+         * Report that a number of subjects has been processed, whether they changed or not.
+         *
+         * @param count the number of subjects
+         */
+        void processed(int count);
+    }
+
+    /**
+     * The constructor.
+     *
+     * @param executor the executor that computes the chunks
+     * @param calculator the calculator for the reference data
+     * @param chunkSize the number of subjects per chunk
+     */
+    public ReferenceDataApplier(final ExecutorService executor, final Calculator<T> calculator, final int chunkSize) {
+        this.executor = executor;
+        this.calculator = calculator;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Compute and diff one chunk.
+     *
+     * @param chunk the subjects in the chunk
+     * @return the changed reference data
+     */
+    private List<ReferenceDataValues> diff(final Iterable<T> chunk) {
+        final List<ReferenceDataValues> changes = new ArrayList<>();
+        for (final T subject: chunk) {
+            final ReferenceDataValues values = calculator.compute(subject);
+            if (values.getHash() != subject.getReferenceDataHash()) {
+                changes.add(values);
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Apply the reference data to a list of subjects. If computing any chunk fails, the chunks
+     * that haven't been written yet are cancelled and the failure is rethrown.
+     *
+     * @param subjects the subjects with their stored hashes
+     * @param target the target for the changes and progress
+     * @return the number of subjects that were changed
+     */
+    public int apply(final List<T> subjects, final Target target) {
+        final List<Future<List<ReferenceDataValues>>> futures = new ArrayList<>();
+        final List<Integer> sizes = new ArrayList<>();
+        for (int i=0; i<subjects.size(); i+=chunkSize) {
+            final List<T> chunk = subjects.subList(i, Math.min(i + chunkSize, subjects.size()));
+            futures.add(executor.submit(() -> diff(chunk)));
+            sizes.add(chunk.size());
+        }
+
+        int numChanged = 0;
+        try {
+            for (int i=0; i<futures.size(); i++) {
+                final List<ReferenceDataValues> changes = futures.get(i).get();
+                if (!changes.isEmpty()) {
+                    target.write(changes);
+                    numChanged += changes.size();
+                }
+                target.processed(sizes.get(i));
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while applying reference data", e);
+        } catch (final ExecutionException e) {
+            throw new IllegalStateException("Computing reference data failed", e.getCause());
+        } finally {
+            for (final Future<?> future: futures) {
+                future.cancel(true);
+            }
+        }
+        return numChanged;
+    }
+}
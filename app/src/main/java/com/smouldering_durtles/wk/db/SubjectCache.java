@@ -0,0 +1,146 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.db;
+
+import com.smouldering_durtles.wk.db.model.Subject;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import static com.smouldering_durtles.wk.Constants.SUBJECT_CACHE_SIZE;
+
+/**
+ * Process-wide LRU cache of Subject instances, so repeated lookups of the same subject share one instance
+ * and its lazily parsed fields, instead of reading and parsing the row again every time.
+ *
+ * <p>
+ *     Every write to a subject row must invalidate the cached instance after the write has been done.
+ *     Writes that report the change to SubjectChangeWatcher get this for free, the few others call
+ *     invalidate() directly.
+ * </p>
+ *
+ * <p>
+ *     To prevent a load that overlaps with a write from putting a stale instance in the cache, each
+ *     invalidation records a version stamp for the subject. A loader takes a stamp with getStamp() before
+ *     reading from the database, and put() drops the loaded instance if the subject was invalidated since.
+ * </p>
+ *
+ * <p>
+ *     Cached instances are shared between all callers, so they must be treated as read-only.
+ * </p>
+ */
+public final class SubjectCache {
+    private static final SubjectCache instance = new SubjectCache();
+
+    private final Map<Long, Subject> cache = new LinkedHashMap<Long, Subject>(SUBJECT_CACHE_SIZE, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Long, Subject> eldest) {
+            return size() > SUBJECT_CACHE_SIZE;
+        }
+    };
+    private final Map<Long, Long> invalidatedAt = new HashMap<>();
+    private long clock = 0;
+    private long clearedAt = 0;
+
+    /**
+     * Get the singleton instance.
+     *
+     * @return the instance
+     */
+    public static SubjectCache getInstance() {
+        return instance;
+    }
+
+    private SubjectCache() {
+        //
+    }
+
+    /**
+     * Get the current version stamp, to pass to put() after loading a subject.
+     *
+     * @return the stamp
+     */
+    public synchronized long getStamp() {
+        return clock;
+    }
+
+    /**
+     * Get a cached subject.
+     *
+     * @param id the subject ID
+     * @return the subject, or null if it's not in the cache
+     */
+    public synchronized @Nullable Subject get(final long id) {
+        return cache.get(id);
+    }
+
+    /**
+     * Add a freshly loaded subject to the cache, unless it has been invalidated since the stamp was taken.
+     *
+     * @param subject the subject
+     * @param stamp the version stamp taken before the subject was loaded
+     */
+    public synchronized void put(final Subject subject, final long stamp) {
+        if (stamp < clearedAt) {
+            return;
+        }
+        final @Nullable Long invalidated = invalidatedAt.get(subject.getId());
+        if (invalidated != null && stamp < invalidated) {
+            return;
+        }
+        cache.put(subject.getId(), subject);
+    }
+
+    /**
+     * Drop a subject from the cache, because its row has been changed.
+     *
+     * @param id the subject ID
+     */
+    public synchronized void invalidate(final long id) {
+        clock++;
+        cache.remove(id);
+        invalidatedAt.put(id, clock);
+    }
+
+    /**
+     * Drop a number of subjects from the cache, because their rows have been changed.
+     *
+     * @param ids the subject IDs
+     */
+    public synchronized void invalidate(final Iterable<Long> ids) {
+        clock++;
+        for (final long id: ids) {
+            cache.remove(id);
+            invalidatedAt.put(id, clock);
+        }
+    }
+
+    /**
+     * Drop all subjects from the cache.
+     */
+    public synchronized void invalidateAll() {
+        clock++;
+        clearedAt = clock;
+        cache.clear();
+        invalidatedAt.clear();
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.db;
+
+/**
+ * The composite and partial indexes on the subject table that serve the dashboard, lesson and review queries.
+ *
+ * <p>
+ *     Room can only declare plain indexes. So these are declared on SubjectEntityDefinition with the same names
+ *     and columns, which is all Room's schema validation looks at, and then recreated from the definitions here
+ *     with the WHERE clause that makes them partial. A partial index only holds the rows the query can ever
+ *     return: the lesson queue index only has unlocked subjects that haven't been started, and the review queue
+ *     index only has subjects that have a review scheduled. That keeps them small and cheap to maintain, and
+ *     since the rows come out of them in the order the queries want, no sorting step is needed either.
+ * </p>
+ *
+ * <p>
+ *     SQLite only uses a partial index for a query whose WHERE clause contains the terms of the index's WHERE
+ *     clause, so the queries in SubjectCollectionsDao and SubjectAggregatesDao that these are meant for must keep
+ *     those terms. QueryPlanTest checks that they do.
+ * </p>
+ */
+public final class SubjectIndexes {
+    /**
+     * Indexes that have been made redundant by the ones below.
+     */
+    public static final String[] OBSOLETE_INDEXES = {"index_subject_level"};
+
+    /**
+     * For each index: the name, and the full definition written exactly the way SQLite stores it in
+     * sqlite_master. That is how an index that is already up to date is recognized.
+     */
+    public static final String[][] INDEXES = {
+            {"index_subject_level_object",
+                    "CREATE INDEX index_subject_level_object ON subject (level, object, lessonPosition)"},
+            {"index_subject_lesson_queue",
+                    "CREATE INDEX index_subject_lesson_queue ON subject (startedAt, level, lessonPosition)"
+                            + " WHERE hiddenAt = 0 AND object IS NOT NULL AND unlockedAt != 0 AND startedAt = 0"},
+            {"index_subject_review_queue",
+                    "CREATE INDEX index_subject_review_queue ON subject (availableAt, level)"
+                            + " WHERE hiddenAt = 0 AND object IS NOT NULL AND availableAt != 0"}
+    };
+
+    private SubjectIndexes() {
+        //
+    }
+}
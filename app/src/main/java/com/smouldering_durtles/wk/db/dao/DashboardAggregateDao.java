@@ -0,0 +1,172 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.smouldering_durtles.wk.db.dao;
+
+import androidx.room.Dao;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import com.smouldering_durtles.wk.model.JlptProgressItem;
+import com.smouldering_durtles.wk.model.JoyoProgressItem;
+import com.smouldering_durtles.wk.model.LevelProgressItem;
+import com.smouldering_durtles.wk.model.SrsBreakDownItem;
+
+import java.util.List;
+
+/**
+ * DAO for the dashboard aggregates, the subject counts that are kept up to date incrementally
+ * by triggers on the subject table. Each getter here has a full-scan counterpart in SubjectViewsDao
+ * or SubjectAggregatesDao that returns the same counts, for verification.
+ */
+@Dao
+public abstract class DashboardAggregateDao {
+    /**
+     * Recompute the SRS aggregates from the subject table.
+     */
+    public static final String RECOMPUTE_SRS = "INSERT INTO dashboard_aggregate"
+            + " (kind, srsSystemId, srsStage, level, type, passed, locked, grade, count)"
+            + " SELECT 0, srsSystemId, srsStage, 0, '', 0, 0, 0, COUNT(id) FROM subject"
+            + " WHERE hiddenAt = 0 AND object IS NOT NULL"
+            + " GROUP BY srsSystemId, srsStage";
+
+    /**
+     * Recompute the level aggregates from the subject table.
+     */
+    public static final String RECOMPUTE_LEVEL = "INSERT INTO dashboard_aggregate"
+            + " (kind, srsSystemId, srsStage, level, type, passed, locked, grade, count)"
+            + " SELECT 1, 0, 0, level, object, IFNULL(passedAt, 0) != 0, IFNULL(unlockedAt, 0) = 0, 0, COUNT(id) FROM subject"
+            + " WHERE hiddenAt = 0 AND object IS NOT NULL"
+            + " GROUP BY level, object, IFNULL(passedAt, 0) != 0, IFNULL(unlockedAt, 0) = 0";
+
+    /**
+     * Recompute the JLPT aggregates from the subject table.
+     */
+    public static final String RECOMPUTE_JLPT = "INSERT INTO dashboard_aggregate"
+            + " (kind, srsSystemId, srsStage, level, type, passed, locked, grade, count)"
+            + " SELECT 2, srsSystemId, srsStage, 0, '', 0, 0, jlptLevel, COUNT(id) FROM subject"
+            + " WHERE object = 'kanji' AND jlptLevel > 0"
+            + " GROUP BY srsSystemId, srsStage, jlptLevel";
+
+    /**
+     * Recompute the Joyo aggregates from the subject table.
+     */
+    public static final String RECOMPUTE_JOYO = "INSERT INTO dashboard_aggregate"
+            + " (kind, srsSystemId, srsStage, level, type, passed, locked, grade, count)"
+            + " SELECT 3, srsSystemId, srsStage, 0, '', 0, 0, joyoGrade, COUNT(id) FROM subject"
+            + " WHERE object = 'kanji' AND joyoGrade > 0"
+            + " GROUP BY srsSystemId, srsStage, joyoGrade";
+
+    /**
+     * Room-generated method: get summary records describing the number of subjects per SRS system/stage.
+     *
+     * @return the list of breakdown items
+     */
+    @Query("SELECT srsSystemId AS systemId, srsStage AS stageId, count FROM dashboard_aggregate"
+            + " WHERE kind = 0 AND count > 0")
+    public abstract List<SrsBreakDownItem> getSrsBreakDownItems();
+
+    /**
+     * Room-generated method: get summary records describing the number of subjects per level/type pair.
+     *
+     * @return the list of overview items
+     */
+    @Query("SELECT level, type, SUM(count) AS count FROM dashboard_aggregate"
+            + " WHERE kind = 1"
+            + " GROUP BY level, type HAVING SUM(count) > 0")
+    public abstract List<LevelProgressItem> getLevelProgressTotalItems();
+
+    /**
+     * Room-generated method: get summary records describing the number of passed subjects per level/type pair.
+     *
+     * @return the list of overview items
+     */
+    @Query("SELECT level, type, SUM(count) AS count FROM dashboard_aggregate"
+            + " WHERE kind = 1 AND passed = 1"
+            + " GROUP BY level, type HAVING SUM(count) > 0")
+    public abstract List<LevelProgressItem> getLevelProgressPassedItems();
+
+    /**
+     * Room-generated method: get summary records describing the number of locked subjects per level/type pair.
+     *
+     * @return the list of overview items
+     */
+    @Query("SELECT level, type, SUM(count) AS count FROM dashboard_aggregate"
+            + " WHERE kind = 1 AND locked = 1"
+            + " GROUP BY level, type HAVING SUM(count) > 0")
+    public abstract List<LevelProgressItem> getLevelProgressLockedItems();
+
+    /**
+     * Room-generated method: get the JLPT progress detail.
+     *
+     * @return the list of items
+     */
+    @Query("SELECT srsSystemId, srsStage, grade AS jlptLevel, count FROM dashboard_aggregate"
+            + " WHERE kind = 2 AND count > 0")
+    public abstract List<JlptProgressItem> getJlptProgress();
+
+    /**
+     * Room-generated method: get the Joyo progress detail.
+     *
+     * @return the list of items
+     */
+    @Query("SELECT srsSystemId, srsStage, grade AS joyoGrade, count FROM dashboard_aggregate"
+            + " WHERE kind = 3 AND count > 0")
+    public abstract List<JoyoProgressItem> getJoyoProgress();
+
+    /**
+     * Room-generated method: delete all records.
+     */
+    @Query("DELETE FROM dashboard_aggregate")
+    protected abstract void deleteAll();
+
+    /**
+     * Room-generated method: recompute the SRS aggregates.
+     */
+    @Query(RECOMPUTE_SRS)
+    protected abstract void recomputeSrs();
+
+    /**
+     * Room-generated method: recompute the level aggregates.
+     */
+    @Query(RECOMPUTE_LEVEL)
+    protected abstract void recomputeLevel();
+
+    /**
+     * Room-generated method: recompute the JLPT aggregates.
+     */
+    @Query(RECOMPUTE_JLPT)
+    protected abstract void recomputeJlpt();
+
+    /**
+     * Room-generated method: recompute the Joyo aggregates.
+     */
+    @Query(RECOMPUTE_JOYO)
+    protected abstract void recomputeJoyo();
+
+    /**
+     * Throw away all aggregates and recompute them from the subject table with a full scan.
+     */
+    @Transaction
+    public void recompute() {
+        deleteAll();
+        recomputeSrs();
+        recomputeLevel();
+        recomputeJlpt();
+        recomputeJoyo();
+    }
+}
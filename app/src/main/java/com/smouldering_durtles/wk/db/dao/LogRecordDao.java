@@ -20,6 +20,7 @@ import android.util.Log;
 
 import androidx.room.Dao;
 import androidx.room.Query;
+import androidx.room.Transaction;
 
 import com.smouldering_durtles.wk.db.model.LogRecord;
 import com.smouldering_durtles.wk.db.model.LogRecordSummary;
@@ -140,4 +141,25 @@ public abstract class LogRecordDao {
     public final void insert(final LogRecord record) {
         insertHelper(record.timestamp, record.tag, record.length, record.message);
     }
+
+    /**
+     * Insert a batch of records in a single transaction.
+     *
+     * @param records the records to insert
+     */
+    @Transaction
+    protected void insertBatchHelper(final List<LogRecord> records) {
+        for (final LogRecord record: records) {
+            insertHelper(record.timestamp, record.tag, record.length, record.message);
+        }
+    }
+
+    /**
+     * Insert a batch of records in a single transaction.
+     *
+     * @param records the records to insert
+     */
+    public final void insertBatch(final List<LogRecord> records) {
+        insertBatchHelper(records);
+    }
 }
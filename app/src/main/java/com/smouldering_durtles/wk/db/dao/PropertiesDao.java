@@ -122,6 +122,53 @@ public abstract class PropertiesDao {
         runAsync(() -> deletePropertyHelper(name));
     }
 
+    /**
+     * Room-generated method: delete all stored HTTP response validators.
+     */
+    @Query("DELETE FROM properties WHERE name LIKE 'validator:%'")
+    protected abstract void deleteAllResponseValidatorsHelper();
+
+    /**
+     * Get the stored HTTP response validators for a URL.
+     *
+     * @param url the request URL
+     * @return the encoded validators, or null if not present
+     */
+    public final @Nullable String getResponseValidators(final String url) {
+        return getProperty("validator:" + url);
+    }
+
+    /**
+     * Store the HTTP response validators for a URL.
+     *
+     * @param url the request URL
+     * @param value the encoded validators
+     */
+    public final void setResponseValidators(final String url, final String value) {
+        setProperty("validator:" + url, value);
+    }
+
+    /**
+     * Delete the stored HTTP response validators for a URL, if present.
+     *
+     * @param url the request URL
+     */
+    public final void deleteResponseValidators(final String url) {
+        deleteProperty("validator:" + url);
+    }
+
+    /**
+     * Delete all stored HTTP response validators, so all following requests are unconditional.
+     */
+    @SuppressLint("NewApi")
+    public final void deleteAllResponseValidators() {
+        if (properties == null) {
+            preload();
+        }
+        properties.keySet().removeIf(name -> name.startsWith("validator:"));
+        runAsync(this::deleteAllResponseValidatorsHelper);
+    }
+
     private boolean getBooleanProperty(final String name) {
         final @Nullable String value = getProperty(name);
 
@@ -354,6 +401,26 @@ public abstract class PropertiesDao {
         setLongProperty("last_level_progression_sync_success", value);
     }
 
+    /**
+     * The updated_after checkpoint for the level progression sync. Unlike the last sync success date,
+     * this only moves when a sync has actually received changed records.
+     *
+     * @param delta a number of ms to subtract from the value
+     * @return the timestamp, or 0 if not known
+     */
+    public final long getLevelProgressionCheckpoint(final long delta) {
+        return getLongProperty("level_progression_checkpoint", delta);
+    }
+
+    /**
+     * The updated_after checkpoint for the level progression sync.
+     *
+     * @param value the timestamp, or 0 if not known
+     */
+    public final void setLevelProgressionCheckpoint(final long value) {
+        setLongProperty("level_progression_checkpoint", value);
+    }
+
     /**
      * When was the last successful summary sync?.
      *
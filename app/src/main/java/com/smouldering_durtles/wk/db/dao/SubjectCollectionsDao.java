@@ -24,8 +24,11 @@ import androidx.room.RawQuery;
 import androidx.sqlite.db.SimpleSQLiteQuery;
 import androidx.sqlite.db.SupportSQLiteQuery;
 
+import com.smouldering_durtles.wk.db.SubjectCache;
 import com.smouldering_durtles.wk.db.model.Subject;
 import com.smouldering_durtles.wk.db.model.SubjectEntity;
+import com.smouldering_durtles.wk.db.model.SubjectSearchHit;
+import com.smouldering_durtles.wk.db.model.SubjectSummary;
 import com.smouldering_durtles.wk.enums.SubjectType;
 
 import java.util.ArrayList;
@@ -37,6 +40,8 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+import javax.annotation.Nullable;
+
 /**
  * DAO for subjects.
  */
@@ -124,54 +129,32 @@ public abstract class SubjectCollectionsDao {
     }
 
     /**
-     * Room-generated method: get a list of all subjects available for lesson.
+     * Room-generated method: get summaries of all subjects available for lesson.
      *
      * @param maxLevel the maximum level available on the user's subscription
      * @return the list
      */
-    @Query("SELECT * FROM subject"
+    @Query("SELECT id, object, level, lessonPosition, srsSystemId, srsStage, availableAt, passedAt, unlockedAt FROM subject"
             + " WHERE hiddenAt = 0 AND object IS NOT NULL"
             + " AND level <= :maxLevel"
             + " AND (resurrectedAt != 0 OR burnedAt = 0)"
             + " AND unlockedAt != 0 AND startedAt = 0"
             + " ORDER BY level, lessonPosition, id")
-    protected abstract List<SubjectEntity> getAvailableLessonItemsHelper(final int maxLevel);
-
-    /**
-     * Get a list of all subjects available for lesson.
-     *
-     * @param maxLevel the maximum level available on the user's subscription
-     * @return the list
-     */
-    public final List<Subject> getAvailableLessonItems(final int maxLevel) {
-        return buildList(getAvailableLessonItemsHelper(maxLevel));
-    }
+    public abstract List<SubjectSummary> getAvailableLessonSummaries(final int maxLevel);
 
     /**
-     * Room-generated method: get a list of all subjects available for review, where the review
+     * Room-generated method: get summaries of all subjects available for review, where the review
      * becomes/became available before the given cutoff date.
      *
      * @param maxLevel the maximum level available on the user's subscription
      * @param cutoff the cutoff date
      * @return the list
      */
-    @Query("SELECT * FROM subject"
+    @Query("SELECT id, object, level, lessonPosition, srsSystemId, srsStage, availableAt, passedAt, unlockedAt FROM subject"
             + " WHERE hiddenAt = 0 AND object IS NOT NULL"
             + " AND level <= :maxLevel"
             + " AND availableAt != 0 AND availableAt < :cutoff")
-    protected abstract List<SubjectEntity> getUpcomingReviewItemsHelper(final int maxLevel, final long cutoff);
-
-    /**
-     * Get a list of all subjects available for review, where the review
-     * becomes/became available before the given cutoff date.
-     *
-     * @param maxLevel the maximum level available on the user's subscription
-     * @param cutoff the cutoff date
-     * @return the list
-     */
-    public final List<Subject> getUpcomingReviewItems(final int maxLevel, final long cutoff) {
-        return buildList(getUpcomingReviewItemsHelper(maxLevel, cutoff));
-    }
+    public abstract List<SubjectSummary> getUpcomingReviewSummaries(final int maxLevel, final long cutoff);
 
     /**
      * Room-generated method: get all kanji for a given level.
@@ -225,22 +208,61 @@ public abstract class SubjectCollectionsDao {
     protected abstract List<SubjectEntity> getByIdsHelper(Collection<Long> ids);
 
     /**
-     * Get the subjects for the given collection of IDs. Fetch in batches of 100 to avoid SQL queries that are too long.
+     * Get the subjects for the given collection of IDs. Subjects in the subject cache are served from there,
+     * the rest is fetched in batches of 100 to avoid SQL queries that are too long, and added to the cache.
+     * The order of the result is unspecified.
      *
      * @param ids the subject IDs to fetch
      * @return the list of subjects
      */
     public final List<Subject> getByIds(final Collection<Long> ids) {
-        final List<Long> worklist = new ArrayList<>(ids);
+        final SubjectCache cache = SubjectCache.getInstance();
+        final List<Long> worklist = new ArrayList<>(ids.size());
         final List<Subject> result = new ArrayList<>();
+        for (final long id: new HashSet<>(ids)) {
+            final @Nullable Subject cached = cache.get(id);
+            if (cached == null) {
+                worklist.add(id);
+            }
+            else if (cached.isVisible()) {
+                result.add(cached);
+            }
+        }
+        final long stamp = cache.getStamp();
         while (!worklist.isEmpty()) {
             final int num = Math.min(worklist.size(), 100);
-            result.addAll(buildList(getByIdsHelper(worklist.subList(0, num))));
+            for (final Subject subject: buildList(getByIdsHelper(worklist.subList(0, num)))) {
+                cache.put(subject, stamp);
+                result.add(subject);
+            }
             worklist.subList(0, num).clear();
         }
         return result;
     }
 
+    /**
+     * Load the full subjects for a list of summaries, in the same order. Subjects that have been hidden or
+     * deleted since the summaries were loaded are left out.
+     *
+     * @param summaries the summaries
+     * @return the list of subjects
+     */
+    @SuppressLint("NewApi")
+    public final List<Subject> hydrate(final Collection<SubjectSummary> summaries) {
+        final Map<Long, Subject> subjects = new HashMap<>();
+        for (final Subject subject: getByIds(summaries.stream().map(SubjectSummary::getId).collect(Collectors.toList()))) {
+            subjects.put(subject.getId(), subject);
+        }
+        final List<Subject> result = new ArrayList<>(subjects.size());
+        for (final SubjectSummary summary: summaries) {
+            final @Nullable Subject subject = subjects.get(summary.getId());
+            if (subject != null) {
+                result.add(subject);
+            }
+        }
+        return result;
+    }
+
     /**
      * Room-generated method: get a list of all subjects in a given range of levels.
      *
@@ -264,26 +286,15 @@ public abstract class SubjectCollectionsDao {
     }
 
     /**
-     * Room-generated method: get a list of all subjects for a given level/type pair.
+     * Room-generated method: get summaries of all subjects for a given level/type pair.
      *
      * @param level the level for the subjects
      * @param type the type for the subjects
-     * @return the list of subjects
+     * @return the list of summaries
      */
-    @Query("SELECT * FROM subject"
+    @Query("SELECT id, object, level, lessonPosition, srsSystemId, srsStage, availableAt, passedAt, unlockedAt FROM subject"
             + " WHERE level = :level AND object = :type AND hiddenAt = 0")
-    protected abstract List<SubjectEntity> getLevelProgressSubjectsHelper(int level, SubjectType type);
-
-    /**
-     * Get a list of all subjects for a given level/type pair.
-     *
-     * @param level the level for the subjects
-     * @param type the type for the subjects
-     * @return the list of subjects
-     */
-    public final List<Subject> getLevelProgressSubjects(final int level, final SubjectType type) {
-        return buildList(getLevelProgressSubjectsHelper(level, type));
-    }
+    public abstract List<SubjectSummary> getLevelProgressSummaries(int level, SubjectType type);
 
     /**
      * Room-generated method: get a list of subjects from a dynamically generated SQL query string.
@@ -304,6 +315,27 @@ public abstract class SubjectCollectionsDao {
         return buildList(getSubjectsWithRawQueryHelper(query));
     }
 
+    /**
+     * Room-generated method: get a list of search hits from a dynamically generated SQL query string
+     * against the subject_search full-text index.
+     *
+     * @param query the query to run
+     * @return the list of hits
+     */
+    @RawQuery
+    protected abstract List<SubjectSearchHit> getSearchHitsWithRawQueryHelper(final SupportSQLiteQuery query);
+
+    /**
+     * Get a list of search hits from a dynamically generated SQL query string against the
+     * subject_search full-text index. The query must produce an id and a ranking column.
+     *
+     * @param query the query to run
+     * @return the list of hits
+     */
+    public final List<SubjectSearchHit> getSearchHitsWithRawQuery(final SupportSQLiteQuery query) {
+        return getSearchHitsWithRawQueryHelper(query);
+    }
+
     /**
      * Get a collection of subject IDs that are on the level-up track: current-level kanji
      * and radicals that are locking away current-level kanji. Empty list if the user is
@@ -318,7 +350,9 @@ public abstract class SubjectCollectionsDao {
         if (userLevel < maxLevel) {
             for (final Subject subject: getKanjiForLevel(userLevel)) {
                 result.add(subject.getId());
-                result.addAll(subject.getComponentSubjectIds());
+                for (final long id: subject.getComponentSubjectIdArray()) {
+                    result.add(id);
+                }
             }
         }
         return result;
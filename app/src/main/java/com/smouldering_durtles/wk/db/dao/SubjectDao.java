@@ -18,11 +18,15 @@ package com.smouldering_durtles.wk.db.dao;
 
 import androidx.room.Dao;
 import androidx.room.Query;
+import androidx.room.Transaction;
 
+import com.smouldering_durtles.wk.db.SubjectCache;
 import com.smouldering_durtles.wk.db.model.Subject;
 import com.smouldering_durtles.wk.db.model.SubjectEntity;
 import com.smouldering_durtles.wk.livedata.SubjectChangeWatcher;
+import com.smouldering_durtles.wk.model.ReferenceDataValues;
 
+import java.util.ArrayList;
 import java.util.Collection;
 
 import javax.annotation.Nullable;
@@ -36,7 +40,21 @@ public abstract class SubjectDao {
      * Room-generated method: delete all subjects.
      */
     @Query("DELETE FROM Subject")
-    public abstract void deleteAll();
+    protected abstract void deleteAllHelper();
+
+    /**
+     * Delete all subjects.
+     */
+    public final void deleteAll() {
+        deleteAllHelper();
+        SubjectCache.getInstance().invalidateAll();
+    }
+
+    /**
+     * Room-generated method: delete all entries from the subject search index.
+     */
+    @Query("DELETE FROM subject_search")
+    public abstract void deleteSearchIndex();
 
     /**
      * Room-generated method: get a single kanji subject by the characters column.
@@ -68,18 +86,47 @@ public abstract class SubjectDao {
     protected abstract @Nullable SubjectEntity getByIdHelper(long id);
 
     /**
-     * Get a single subject by ID.
+     * Get a single subject by ID. The subject is served from the subject cache if possible.
      *
      * @param id the subject's ID
      * @return the subject or null if not found
      */
     public final @Nullable Subject getById(final long id) {
+        final SubjectCache cache = SubjectCache.getInstance();
+        final @Nullable Subject cached = cache.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        final long stamp = cache.getStamp();
         final @Nullable SubjectEntity entity = getByIdHelper(id);
-        return entity == null ? null : new Subject(entity);
+        if (entity == null) {
+            return null;
+        }
+        final Subject subject = new Subject(entity);
+        cache.put(subject, stamp);
+        return subject;
+    }
+
+    /**
+     * Update the reference data for a subject. The content hash is recorded with it, so the next reload
+     * only rewrites this subject if the reference data pack gives different values.
+     *
+     * @param id the subject ID
+     * @param frequency the frequency
+     * @param joyoGrade the Joyo grade
+     * @param jlptLevel the JLPT level
+     * @param pitchInfo the pitch info, encoded as a JSON string
+     * @param strokeData the stroke data, encoded as a JSON string
+     */
+    public final void updateReferenceData(final long id, final int frequency, final int joyoGrade, final int jlptLevel,
+                                          final @Nullable String pitchInfo, final @Nullable String strokeData) {
+        final ReferenceDataValues values = new ReferenceDataValues(id, frequency, joyoGrade, jlptLevel, pitchInfo, strokeData);
+        applyReferenceDataHelper(id, frequency, joyoGrade, jlptLevel, pitchInfo, strokeData, values.getHash());
+        SubjectCache.getInstance().invalidate(id);
     }
 
     /**
-     * Room-generated methiod: update the reference data for a subject.
+     * Room-generated method: apply freshly computed reference data to a subject, and record its content hash.
      *
      * @param id the subject ID
      * @param frequency the frequency
@@ -87,11 +134,44 @@ public abstract class SubjectDao {
      * @param jlptLevel the JLPT level
      * @param pitchInfo the pitch info, encoded as a JSON string
      * @param strokeData the stroke data, encoded as a JSON string
+     * @param referenceDataHash the content hash of the values
      */
     @Query("UPDATE subject SET frequency = :frequency, joyoGrade = :joyoGrade, jlptLevel = :jlptLevel, pitchInfo = :pitchInfo,"
-            + " strokeData = :strokeData WHERE id = :id")
-    public abstract void updateReferenceData(final long id, final int frequency, final int joyoGrade, final int jlptLevel,
-                                             @androidx.annotation.Nullable final String pitchInfo, @androidx.annotation.Nullable final String strokeData);
+            + " strokeData = :strokeData, referenceDataHash = :referenceDataHash WHERE id = :id")
+    protected abstract void applyReferenceDataHelper(final long id, final int frequency, final int joyoGrade, final int jlptLevel,
+                                                     @androidx.annotation.Nullable final String pitchInfo,
+                                                     @androidx.annotation.Nullable final String strokeData,
+                                                     final long referenceDataHash);
+
+    /**
+     * Apply a batch of computed reference data in a single transaction.
+     *
+     * @param batch the reference data
+     */
+    @Transaction
+    protected void applyReferenceDataBatchHelper(final Iterable<ReferenceDataValues> batch) {
+        for (final ReferenceDataValues values: batch) {
+            applyReferenceDataHelper(values.getId(), values.getFrequency(), values.getJoyoGrade(), values.getJlptLevel(),
+                    values.getPitchInfo(), values.getStrokeData(), values.getHash());
+        }
+    }
+
+    /**
+     * Apply a batch of computed reference data in a single transaction.
+     *
+     * @param batch the reference data
+     */
+    public final void applyReferenceDataBatch(final Collection<ReferenceDataValues> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        applyReferenceDataBatchHelper(batch);
+        final Collection<Long> ids = new ArrayList<>(batch.size());
+        for (final ReferenceDataValues values: batch) {
+            ids.add(values.getId());
+        }
+        SubjectCache.getInstance().invalidate(ids);
+    }
 
     /**
      * Room-generated method: update the last incorrect answer timestamp.
@@ -102,7 +182,19 @@ public abstract class SubjectDao {
      */
     @Query("UPDATE subject SET lastIncorrectAnswer = :lastIncorrectAnswer "
             + "WHERE id = :id AND lastIncorrectAnswer < :lastIncorrectAnswer")
-    public abstract void updateLastIncorrectAnswer(final long id, final long lastIncorrectAnswer);
+    protected abstract void updateLastIncorrectAnswerHelper(final long id, final long lastIncorrectAnswer);
+
+    /**
+     * Update the last incorrect answer timestamp.
+     * Only update if the new value is later than the previous value.
+     *
+     * @param id the subject ID
+     * @param lastIncorrectAnswer the new timestamp
+     */
+    public final void updateLastIncorrectAnswer(final long id, final long lastIncorrectAnswer) {
+        updateLastIncorrectAnswerHelper(id, lastIncorrectAnswer);
+        SubjectCache.getInstance().invalidate(id);
+    }
 
     /**
      * Room-generated method: update the star rating.
@@ -130,7 +222,17 @@ public abstract class SubjectDao {
      * @param subjectIds the subject IDs
      */
     @Query("UPDATE subject SET statisticPatched = 0 WHERE statisticPatched AND id in (:subjectIds)")
-    public abstract void resolvePatchedReviewStatistics(Collection<Long> subjectIds);
+    protected abstract void resolvePatchedReviewStatisticsHelper(Collection<Long> subjectIds);
+
+    /**
+     * Clear the statisticPatched flag from a collection of subjects.
+     *
+     * @param subjectIds the subject IDs
+     */
+    public final void resolvePatchedReviewStatistics(final Collection<Long> subjectIds) {
+        resolvePatchedReviewStatisticsHelper(subjectIds);
+        SubjectCache.getInstance().invalidate(subjectIds);
+    }
 
     /**
      * Room-generated method: clear the assignmentPatched flag from a collection of subjects.
@@ -138,7 +240,17 @@ public abstract class SubjectDao {
      * @param subjectIds the subject IDs
      */
     @Query("UPDATE subject SET assignmentPatched = 0 WHERE assignmentPatched AND id in (:subjectIds)")
-    public abstract void resolvePatchedAssignments(Collection<Long> subjectIds);
+    protected abstract void resolvePatchedAssignmentsHelper(Collection<Long> subjectIds);
+
+    /**
+     * Clear the assignmentPatched flag from a collection of subjects.
+     *
+     * @param subjectIds the subject IDs
+     */
+    public final void resolvePatchedAssignments(final Collection<Long> subjectIds) {
+        resolvePatchedAssignmentsHelper(subjectIds);
+        SubjectCache.getInstance().invalidate(subjectIds);
+    }
 
     /**
      * Room-generated method: clear the studyMaterialPatched flag from a collection of subjects.
@@ -146,5 +258,15 @@ public abstract class SubjectDao {
      * @param subjectIds the subject IDs
      */
     @Query("UPDATE subject SET studyMaterialPatched = 0 WHERE studyMaterialPatched AND id in (:subjectIds)")
-    public abstract void resolvePatchedStudyMaterials(Collection<Long> subjectIds);
+    protected abstract void resolvePatchedStudyMaterialsHelper(Collection<Long> subjectIds);
+
+    /**
+     * Clear the studyMaterialPatched flag from a collection of subjects.
+     *
+     * @param subjectIds the subject IDs
+     */
+    public final void resolvePatchedStudyMaterials(final Collection<Long> subjectIds) {
+        resolvePatchedStudyMaterialsHelper(subjectIds);
+        SubjectCache.getInstance().invalidate(subjectIds);
+    }
 }
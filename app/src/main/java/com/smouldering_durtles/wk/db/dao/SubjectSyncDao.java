@@ -19,7 +19,9 @@ package com.smouldering_durtles.wk.db.dao;
 import android.database.sqlite.SQLiteConstraintException;
 
 import androidx.room.Dao;
+import androidx.room.Insert;
 import androidx.room.Query;
+import androidx.room.Transaction;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.smouldering_durtles.wk.Constants;
@@ -28,17 +30,24 @@ import com.smouldering_durtles.wk.api.model.ApiReviewStatistic;
 import com.smouldering_durtles.wk.api.model.ApiStudyMaterial;
 import com.smouldering_durtles.wk.api.model.ApiSubject;
 import com.smouldering_durtles.wk.db.Converters;
+import com.smouldering_durtles.wk.db.PackedSubjectLists;
 import com.smouldering_durtles.wk.db.model.Subject;
 import com.smouldering_durtles.wk.db.model.SubjectEntity;
+import com.smouldering_durtles.wk.db.model.SubjectSearchEntry;
 import com.smouldering_durtles.wk.enums.SubjectType;
 import com.smouldering_durtles.wk.livedata.SubjectChangeWatcher;
+import com.smouldering_durtles.wk.model.ReferenceDataValues;
 import com.smouldering_durtles.wk.model.SrsSystem;
 import com.smouldering_durtles.wk.util.Logger;
 import com.smouldering_durtles.wk.util.ReferenceDataUtil;
 import com.smouldering_durtles.wk.util.SearchUtil;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import javax.annotation.Nullable;
 
@@ -49,6 +58,12 @@ import javax.annotation.Nullable;
 public abstract class SubjectSyncDao {
     private static final Logger LOGGER = Logger.get(SubjectSyncDao.class);
 
+    /**
+     * The maximum number of IDs in a single IN (...) probe. Older SQLite versions on Android
+     * limit the number of bound parameters in a statement to 999.
+     */
+    private static final int MAX_PROBE_SIZE = 500;
+
     /**
      * Room-generated method: get a single subject by ID.
      *
@@ -95,6 +110,28 @@ public abstract class SubjectSyncDao {
         }
     }
 
+    /**
+     * Helper method: encode the list fields of an API subject in the compact binary format of
+     * PackedSubjectLists. This replaces the separate JSON columns for these fields, which were
+     * expensive to parse every time a subject was loaded.
+     *
+     * @param apiSubject the API subject to pull data from
+     * @return the encoded lists
+     */
+    private static byte[] packLists(final ApiSubject apiSubject) {
+        return new PackedSubjectLists.Writer()
+                .meanings(apiSubject.getMeanings())
+                .auxiliaryMeanings(apiSubject.getAuxiliaryMeanings())
+                .readings(apiSubject.getReadings())
+                .componentSubjectIds(apiSubject.getComponentSubjectIds())
+                .amalgamationSubjectIds(apiSubject.getAmalgamationSubjectIds())
+                .visuallySimilarSubjectIds(apiSubject.getVisuallySimilarSubjectIds())
+                .partsOfSpeech(apiSubject.getPartsOfSpeech())
+                .contextSentences(apiSubject.getContextSentences())
+                .pronunciationAudios(apiSubject.getPronunciationAudios())
+                .toByteArray();
+    }
+
     /**
      * Room-generated method: try to update a subject record. This covers the core subject data
      * from the API, and the static reference data that is not user-specific.
@@ -110,15 +147,7 @@ public abstract class SubjectSyncDao {
      * @param readingHint subject field
      * @param searchTarget subject field
      * @param smallSearchTarget subject field
-     * @param meanings subject field
-     * @param auxiliaryMeanings subject field
-     * @param readings subject field
-     * @param componentSubjectIds subject field
-     * @param amalgamationSubjectIds subject field
-     * @param visuallySimilarSubjectIds subject field
-     * @param partsOfSpeech subject field
-     * @param contextSentences subject field
-     * @param pronunciationAudios subject field
+     * @param packedLists subject field
      * @param lessonPosition subject field
      * @param level subject field
      * @param hiddenAt subject field
@@ -127,6 +156,7 @@ public abstract class SubjectSyncDao {
      * @param jlptLevel subject field
      * @param pitchInfo subject field
      * @param strokeData subject field
+     * @param referenceDataHash subject field
      * @param srsSystemId subject field
      * @return true if there was a record to update
      */
@@ -141,15 +171,16 @@ public abstract class SubjectSyncDao {
             + " readingHint = :readingHint,"
             + " searchTarget = :searchTarget,"
             + " smallSearchTarget = :smallSearchTarget,"
-            + " meanings = :meanings,"
-            + " auxiliaryMeanings = :auxiliaryMeanings,"
-            + " readings = :readings,"
-            + " componentSubjectIds = :componentSubjectIds,"
-            + " amalgamationSubjectIds = :amalgamationSubjectIds,"
-            + " visuallySimilarSubjectIds = :visuallySimilarSubjectIds,"
-            + " partsOfSpeech = :partsOfSpeech,"
-            + " contextSentences = :contextSentences,"
-            + " pronunciationAudios = :pronunciationAudios,"
+            + " packedLists = :packedLists,"
+            + " meanings = NULL,"
+            + " auxiliaryMeanings = NULL,"
+            + " readings = NULL,"
+            + " componentSubjectIds = NULL,"
+            + " amalgamationSubjectIds = NULL,"
+            + " visuallySimilarSubjectIds = NULL,"
+            + " partsOfSpeech = NULL,"
+            + " contextSentences = NULL,"
+            + " pronunciationAudios = NULL,"
             + " lessonPosition = :lessonPosition,"
             + " level = :level,"
             + " hiddenAt = :hiddenAt,"
@@ -158,6 +189,7 @@ public abstract class SubjectSyncDao {
             + " jlptLevel = :jlptLevel,"
             + " pitchInfo = :pitchInfo,"
             + " strokeData = :strokeData,"
+            + " referenceDataHash = :referenceDataHash,"
             + " srsSystemId = :srsSystemId"
             + " WHERE id = :subjectId")
     protected abstract int tryUpdateHelper(final long subjectId,
@@ -171,15 +203,7 @@ public abstract class SubjectSyncDao {
                                            @androidx.annotation.Nullable final String readingHint,
                                            final String searchTarget,
                                            final String smallSearchTarget,
-                                           final String meanings,
-                                           final String auxiliaryMeanings,
-                                           final String readings,
-                                           final String componentSubjectIds,
-                                           final String amalgamationSubjectIds,
-                                           final String visuallySimilarSubjectIds,
-                                           final String partsOfSpeech,
-                                           final String contextSentences,
-                                           final String pronunciationAudios,
+                                           final byte[] packedLists,
                                            final int lessonPosition,
                                            final int level,
                                            final long hiddenAt,
@@ -188,6 +212,7 @@ public abstract class SubjectSyncDao {
                                            final int jlptLevel,
                                            @androidx.annotation.Nullable final String pitchInfo,
                                            @androidx.annotation.Nullable final String strokeData,
+                                           final long referenceDataHash,
                                            final long srsSystemId);
 
     /**
@@ -198,6 +223,7 @@ public abstract class SubjectSyncDao {
      */
     private boolean tryUpdate(final ApiSubject apiSubject) {
         final @Nullable SubjectType type = Converters.stringToSubjectType(apiSubject.getObject());
+        final ReferenceDataValues referenceData = ReferenceDataUtil.getValues(type, apiSubject.getId(), apiSubject.getCharacters());
         final int count = tryUpdateHelper(
                 apiSubject.getId(),
                 apiSubject.getObject(),
@@ -210,23 +236,16 @@ public abstract class SubjectSyncDao {
                 apiSubject.getReadingHint(),
                 SearchUtil.findSearchTarget(apiSubject),
                 SearchUtil.findSmallSearchTarget(apiSubject),
-                serializeToJsonString(apiSubject.getMeanings()),
-                serializeToJsonString(apiSubject.getAuxiliaryMeanings()),
-                serializeToJsonString(apiSubject.getReadings()),
-                serializeToJsonString(apiSubject.getComponentSubjectIds()),
-                serializeToJsonString(apiSubject.getAmalgamationSubjectIds()),
-                serializeToJsonString(apiSubject.getVisuallySimilarSubjectIds()),
-                serializeToJsonString(apiSubject.getPartsOfSpeech()),
-                serializeToJsonString(apiSubject.getContextSentences()),
-                serializeToJsonString(apiSubject.getPronunciationAudios()),
+                packLists(apiSubject),
                 apiSubject.getLessonPosition(),
                 apiSubject.getLevel(),
                 apiSubject.getHiddenAt(),
-                ReferenceDataUtil.getFrequency(type, apiSubject.getCharacters()),
-                ReferenceDataUtil.getJoyoGrade(type, apiSubject.getCharacters()),
-                ReferenceDataUtil.getJlptLevel(type, apiSubject.getCharacters()),
-                ReferenceDataUtil.getPitchInfo(type, apiSubject.getCharacters()),
-                ReferenceDataUtil.getStrokeData(type, apiSubject.getId(), apiSubject.getCharacters()),
+                referenceData.getFrequency(),
+                referenceData.getJoyoGrade(),
+                referenceData.getJlptLevel(),
+                referenceData.getPitchInfo(),
+                referenceData.getStrokeData(),
+                referenceData.getHash(),
                 apiSubject.getSrsSystemId()
         );
         return count > 0;
@@ -247,15 +266,7 @@ public abstract class SubjectSyncDao {
      * @param readingHint subject field
      * @param searchTarget subject field
      * @param smallSearchTarget subject field
-     * @param meanings subject field
-     * @param auxiliaryMeanings subject field
-     * @param readings subject field
-     * @param componentSubjectIds subject field
-     * @param amalgamationSubjectIds subject field
-     * @param visuallySimilarSubjectIds subject field
-     * @param partsOfSpeech subject field
-     * @param contextSentences subject field
-     * @param pronunciationAudios subject field
+     * @param packedLists subject field
      * @param lessonPosition subject field
      * @param level subject field
      * @param hiddenAt subject field
@@ -264,13 +275,13 @@ public abstract class SubjectSyncDao {
      * @param jlptLevel subject field
      * @param pitchInfo subject field
      * @param strokeData subject field
+     * @param referenceDataHash subject field
      * @param srsSystemId subject field
      */
     @Query("INSERT INTO subject"
             + " (id, object, characters, slug, documentUrl, meaningMnemonic, meaningHint, readingMnemonic, readingHint, searchTarget, smallSearchTarget,"
-            + " meanings, auxiliaryMeanings, readings, componentSubjectIds, amalgamationSubjectIds, visuallySimilarSubjectIds,"
-            + " partsOfSpeech, contextSentences, pronunciationAudios,"
-            + " typeCode, lessonPosition, level, hiddenAt, frequency, joyoGrade, jlptLevel, pitchInfo, strokeData, srsSystemId,"
+            + " packedLists,"
+            + " typeCode, lessonPosition, level, hiddenAt, frequency, joyoGrade, jlptLevel, pitchInfo, strokeData, referenceDataHash, srsSystemId,"
             + " assignmentId, passed, resurrected, srsStage, assignmentPatched, studyMaterialId, studyMaterialPatched,"
             + " reviewStatisticId, meaningCorrect, meaningIncorrect, meaningMaxStreak, meaningCurrentStreak,"
             + " readingCorrect, readingIncorrect, readingMaxStreak, readingCurrentStreak, percentageCorrect,"
@@ -279,10 +290,9 @@ public abstract class SubjectSyncDao {
             + " )"
             + " VALUES (:subjectId, :object, :characters, :slug, :documentUrl, :meaningMnemonic, :meaningHint, :readingMnemonic, :readingHint,"
             + " :searchTarget, :smallSearchTarget,"
-            + " :meanings, :auxiliaryMeanings, :readings, :componentSubjectIds, :amalgamationSubjectIds, :visuallySimilarSubjectIds,"
-            + " :partsOfSpeech, :contextSentences, :pronunciationAudios,"
+            + " :packedLists,"
             + " 0, :lessonPosition, :level, :hiddenAt,"
-            + " :frequency, :joyoGrade, :jlptLevel, :pitchInfo, :strokeData, :srsSystemId,"
+            + " :frequency, :joyoGrade, :jlptLevel, :pitchInfo, :strokeData, :referenceDataHash, :srsSystemId,"
             + " 0, 0, 0, -999, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,"
             + " 0, 0, 0, 0, 0, 0, 0"
             + ")")
@@ -297,15 +307,7 @@ public abstract class SubjectSyncDao {
                                             @androidx.annotation.Nullable final String readingHint,
                                             final String searchTarget,
                                             final String smallSearchTarget,
-                                            final String meanings,
-                                            final String auxiliaryMeanings,
-                                            final String readings,
-                                            final String componentSubjectIds,
-                                            final String amalgamationSubjectIds,
-                                            final String visuallySimilarSubjectIds,
-                                            final String partsOfSpeech,
-                                            final String contextSentences,
-                                            final String pronunciationAudios,
+                                            final byte[] packedLists,
                                             final int lessonPosition,
                                             final int level,
                                             final long hiddenAt,
@@ -314,6 +316,7 @@ public abstract class SubjectSyncDao {
                                             final int jlptLevel,
                                             @androidx.annotation.Nullable final String pitchInfo,
                                             @androidx.annotation.Nullable final String strokeData,
+                                            final long referenceDataHash,
                                             final long srsSystemId);
 
     /**
@@ -325,6 +328,7 @@ public abstract class SubjectSyncDao {
     private boolean tryInsert(final ApiSubject apiSubject) {
         try {
             final @Nullable SubjectType type = Converters.stringToSubjectType(apiSubject.getObject());
+            final ReferenceDataValues referenceData = ReferenceDataUtil.getValues(type, apiSubject.getId(), apiSubject.getCharacters());
             tryInsertHelper(
                     apiSubject.getId(),
                     apiSubject.getObject(),
@@ -337,23 +341,16 @@ public abstract class SubjectSyncDao {
                     apiSubject.getReadingHint(),
                     SearchUtil.findSearchTarget(apiSubject),
                     SearchUtil.findSmallSearchTarget(apiSubject),
-                    serializeToJsonString(apiSubject.getMeanings()),
-                    serializeToJsonString(apiSubject.getAuxiliaryMeanings()),
-                    serializeToJsonString(apiSubject.getReadings()),
-                    serializeToJsonString(apiSubject.getComponentSubjectIds()),
-                    serializeToJsonString(apiSubject.getAmalgamationSubjectIds()),
-                    serializeToJsonString(apiSubject.getVisuallySimilarSubjectIds()),
-                    serializeToJsonString(apiSubject.getPartsOfSpeech()),
-                    serializeToJsonString(apiSubject.getContextSentences()),
-                    serializeToJsonString(apiSubject.getPronunciationAudios()),
+                    packLists(apiSubject),
                     apiSubject.getLessonPosition(),
                     apiSubject.getLevel(),
                     apiSubject.getHiddenAt(),
-                    ReferenceDataUtil.getFrequency(type, apiSubject.getCharacters()),
-                    ReferenceDataUtil.getJoyoGrade(type, apiSubject.getCharacters()),
-                    ReferenceDataUtil.getJlptLevel(type, apiSubject.getCharacters()),
-                    ReferenceDataUtil.getPitchInfo(type, apiSubject.getCharacters()),
-                    ReferenceDataUtil.getStrokeData(type, apiSubject.getId(), apiSubject.getCharacters()),
+                    referenceData.getFrequency(),
+                    referenceData.getJoyoGrade(),
+                    referenceData.getJlptLevel(),
+                    referenceData.getPitchInfo(),
+                    referenceData.getStrokeData(),
+                    referenceData.getHash(),
                     apiSubject.getSrsSystemId()
             );
         }
@@ -363,6 +360,85 @@ public abstract class SubjectSyncDao {
         return true;
     }
 
+    /**
+     * Room-generated method: update the subject columns of a search index entry.
+     *
+     * @param subjectId the subject ID
+     * @param characters search index field
+     * @param slug search index field
+     * @param primaryMeaning search index field
+     * @param meanings search index field
+     * @param readings search index field
+     * @param body search index field
+     * @return 0 if the entry doesn't exist yet
+     */
+    @Query("UPDATE subject_search SET"
+            + " characters = :characters,"
+            + " slug = :slug,"
+            + " primaryMeaning = :primaryMeaning,"
+            + " meanings = :meanings,"
+            + " readings = :readings,"
+            + " body = :body"
+            + " WHERE rowid = :subjectId")
+    protected abstract int tryUpdateSearchEntryHelper(final long subjectId,
+                                                      final String characters,
+                                                      final String slug,
+                                                      final String primaryMeaning,
+                                                      final String meanings,
+                                                      final String readings,
+                                                      final String body);
+
+    /**
+     * Room-generated method: update the study material columns of a search index entry.
+     *
+     * @param subjectId the subject ID
+     * @param notes search index field
+     * @param synonyms search index field
+     * @return 0 if the entry doesn't exist yet
+     */
+    @Query("UPDATE subject_search SET notes = :notes, synonyms = :synonyms WHERE rowid = :subjectId")
+    protected abstract int tryUpdateSearchEntryHelperStudyMaterial(final long subjectId, final String notes, final String synonyms);
+
+    /**
+     * Room-generated method: insert a search index entry.
+     *
+     * @param entry the entry
+     */
+    @Insert
+    protected abstract void insertSearchEntryHelper(final SubjectSearchEntry entry);
+
+    /**
+     * Write the subject columns of the search index entry for an API subject, creating the entry if needed.
+     *
+     * @param apiSubject the API subject
+     */
+    private void writeSearchEntry(final ApiSubject apiSubject) {
+        final SubjectSearchEntry entry = SearchUtil.createSearchEntry(apiSubject);
+        final int count = tryUpdateSearchEntryHelper(entry.id, entry.characters, entry.slug, entry.primaryMeaning,
+                entry.meanings, entry.readings, entry.body);
+        if (count == 0) {
+            insertSearchEntryHelper(entry);
+        }
+    }
+
+    /**
+     * Write the study material columns of the search index entry for an API study material, creating the entry if needed.
+     *
+     * @param apiStudyMaterial the API study material
+     */
+    private void writeSearchEntry(final ApiStudyMaterial apiStudyMaterial) {
+        final String notes = SearchUtil.findSearchNotes(apiStudyMaterial.getMeaningNote(), apiStudyMaterial.getReadingNote());
+        final String synonyms = SearchUtil.findSearchSynonyms(apiStudyMaterial.getMeaningSynonyms());
+        final int count = tryUpdateSearchEntryHelperStudyMaterial(apiStudyMaterial.getSubjectId(), notes, synonyms);
+        if (count == 0) {
+            final SubjectSearchEntry entry = new SubjectSearchEntry();
+            entry.id = apiStudyMaterial.getSubjectId();
+            entry.notes = notes;
+            entry.synonyms = synonyms;
+            insertSearchEntryHelper(entry);
+        }
+    }
+
     /**
      * Room-generated method: insert an empty subject into the database. This is used to prepare an update with
      * an assignment or something like that for which the subject doesn't exist yet. The subject will be
@@ -416,9 +492,75 @@ public abstract class SubjectSyncDao {
                 tryUpdate(apiSubject);
             }
         }
+        writeSearchEntry(apiSubject);
         SubjectChangeWatcher.getInstance().reportChange(apiSubject.getId());
     }
 
+    /**
+     * Room-generated method: get the IDs of the subjects that already exist, out of a set of IDs.
+     *
+     * @param ids the subject IDs to check
+     * @return the IDs that exist in the database
+     */
+    @Query("SELECT id FROM subject WHERE id IN (:ids)")
+    protected abstract List<Long> getExistingIdsHelper(final Collection<Long> ids);
+
+    /**
+     * Get the IDs of the subjects that already exist, out of a set of IDs. The check is done in
+     * chunks to keep the number of parameters per statement within SQLite's limits.
+     *
+     * @param ids the subject IDs to check
+     * @return the IDs that exist in the database
+     */
+    private Set<Long> getExistingIds(final List<Long> ids) {
+        final Set<Long> result = new HashSet<>();
+        for (int i=0; i<ids.size(); i+=MAX_PROBE_SIZE) {
+            result.addAll(getExistingIdsHelper(ids.subList(i, Math.min(i + MAX_PROBE_SIZE, ids.size()))));
+        }
+        return result;
+    }
+
+    /**
+     * Insert or update a batch of API subjects in a single transaction. Whether to insert or update is decided
+     * up front for the whole batch, and Room reuses the compiled statements for every row.
+     *
+     * @param apiSubjects the API subjects
+     * @return the IDs of the subjects in the batch
+     */
+    @Transaction
+    protected List<Long> insertOrUpdateBatchHelper(final Collection<ApiSubject> apiSubjects) {
+        final List<Long> ids = new ArrayList<>(apiSubjects.size());
+        for (final ApiSubject apiSubject: apiSubjects) {
+            ids.add(apiSubject.getId());
+        }
+        final Set<Long> existingIds = getExistingIds(ids);
+        for (final ApiSubject apiSubject: apiSubjects) {
+            if (existingIds.contains(apiSubject.getId())) {
+                if (!tryUpdate(apiSubject)) {
+                    tryInsert(apiSubject);
+                }
+            }
+            else if (!tryInsert(apiSubject)) {
+                tryUpdate(apiSubject);
+            }
+            writeSearchEntry(apiSubject);
+        }
+        return ids;
+    }
+
+    /**
+     * Insert or update a batch of API subjects, typically a full page from the API, in a single
+     * transaction. Listeners are notified once for the whole batch, after the transaction has been committed.
+     *
+     * @param apiSubjects the API subjects
+     */
+    public final void insertOrUpdateBatch(final Collection<ApiSubject> apiSubjects) {
+        if (apiSubjects.isEmpty()) {
+            return;
+        }
+        SubjectChangeWatcher.getInstance().reportChanges(insertOrUpdateBatchHelper(apiSubjects));
+    }
+
     /**
      * Room-generated method: update a subject with data from an assignment.
      *
@@ -489,6 +631,43 @@ public abstract class SubjectSyncDao {
         SubjectChangeWatcher.getInstance().reportChange(apiAssignment.getSubjectId());
     }
 
+    /**
+     * Apply a batch of API assignments in a single transaction. Subjects that don't exist yet are
+     * created as empty placeholders first, so every assignment takes exactly one update.
+     *
+     * @param apiAssignments the API assignments
+     * @return the IDs of the subjects in the batch
+     */
+    @Transaction
+    protected List<Long> insertOrUpdateAssignmentBatchHelper(final Collection<ApiAssignment> apiAssignments) {
+        final List<Long> ids = new ArrayList<>(apiAssignments.size());
+        for (final ApiAssignment apiAssignment: apiAssignments) {
+            ids.add(apiAssignment.getSubjectId());
+        }
+        final Set<Long> existingIds = getExistingIds(ids);
+        for (final ApiAssignment apiAssignment: apiAssignments) {
+            if (!existingIds.contains(apiAssignment.getSubjectId())) {
+                tryInsertIdOnly(apiAssignment.getSubjectId());
+                existingIds.add(apiAssignment.getSubjectId());
+            }
+            tryUpdateAssignment(apiAssignment);
+        }
+        return ids;
+    }
+
+    /**
+     * Insert or update a batch of API assignments, typically a full page from the API, in a single
+     * transaction. Listeners are notified once for the whole batch, after the transaction has been committed.
+     *
+     * @param apiAssignments the API assignments
+     */
+    public final void insertOrUpdateAssignmentBatch(final Collection<ApiAssignment> apiAssignments) {
+        if (apiAssignments.isEmpty()) {
+            return;
+        }
+        SubjectChangeWatcher.getInstance().reportChanges(insertOrUpdateAssignmentBatchHelper(apiAssignments));
+    }
+
     /**
      * Room-generated method: update a subject with data from a study material.
      *
@@ -567,6 +746,7 @@ public abstract class SubjectSyncDao {
             tryInsertIdOnly(apiStudyMaterial.getSubjectId());
             tryUpdateStudyMaterial(apiStudyMaterial, patched);
         }
+        writeSearchEntry(apiStudyMaterial);
         SubjectChangeWatcher.getInstance().reportChange(apiStudyMaterial.getSubjectId());
     }
 
@@ -663,6 +843,50 @@ public abstract class SubjectSyncDao {
         SubjectChangeWatcher.getInstance().reportChange(apiReviewStatistic.getSubjectId());
     }
 
+    /**
+     * Apply the assignments and review statistics returned by a batch of session item reports in a
+     * single transaction.
+     *
+     * @param apiAssignments the API assignments
+     * @param apiReviewStatistics the API review statistics
+     * @return the IDs of the affected subjects
+     */
+    @Transaction
+    protected Set<Long> insertOrUpdateReportResultsHelper(final Collection<ApiAssignment> apiAssignments,
+                                                          final Collection<ApiReviewStatistic> apiReviewStatistics) {
+        final Set<Long> ids = new LinkedHashSet<>();
+        for (final ApiAssignment apiAssignment: apiAssignments) {
+            if (!tryUpdateAssignment(apiAssignment)) {
+                tryInsertIdOnly(apiAssignment.getSubjectId());
+                tryUpdateAssignment(apiAssignment);
+            }
+            ids.add(apiAssignment.getSubjectId());
+        }
+        for (final ApiReviewStatistic apiReviewStatistic: apiReviewStatistics) {
+            if (!tryUpdateReviewStatistic(apiReviewStatistic)) {
+                tryInsertIdOnly(apiReviewStatistic.getSubjectId());
+                tryUpdateReviewStatistic(apiReviewStatistic);
+            }
+            ids.add(apiReviewStatistic.getSubjectId());
+        }
+        return ids;
+    }
+
+    /**
+     * Insert or update the assignments and review statistics returned by a batch of session item reports,
+     * in a single transaction. Listeners are notified once for the whole batch, after the transaction has been committed.
+     *
+     * @param apiAssignments the API assignments
+     * @param apiReviewStatistics the API review statistics
+     */
+    public final void insertOrUpdateReportResults(final Collection<ApiAssignment> apiAssignments,
+                                                  final Collection<ApiReviewStatistic> apiReviewStatistics) {
+        if (apiAssignments.isEmpty() && apiReviewStatistics.isEmpty()) {
+            return;
+        }
+        SubjectChangeWatcher.getInstance().reportChanges(insertOrUpdateReportResultsHelper(apiAssignments, apiReviewStatistics));
+    }
+
     /**
      * Room-generated method: locally patch the assignment data for a record.
      *
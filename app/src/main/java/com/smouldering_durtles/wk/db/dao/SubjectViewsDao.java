@@ -127,7 +127,7 @@ public abstract class SubjectViewsDao {
      *
      * @return the list of reference data
      */
-    @Query("SELECT id, object AS type, characters, frequency, joyoGrade, jlptLevel, pitchInfo, strokeData FROM subject")
+    @Query("SELECT id, object AS type, characters, referenceDataHash FROM subject")
     public abstract List<SubjectReferenceData> getReferenceData();
 
     /**
@@ -136,6 +136,6 @@ public abstract class SubjectViewsDao {
      * @param level the level
      * @return the list of audio records
      */
-    @Query("SELECT id, level, pronunciationAudios FROM subject WHERE hiddenAt = 0 AND level = :level")
+    @Query("SELECT id, level, pronunciationAudios, packedLists FROM subject WHERE hiddenAt = 0 AND level = :level")
     public abstract List<SubjectPronunciationAudio> getAudioByLevel(int level);
 }
@@ -25,6 +25,9 @@ import com.smouldering_durtles.wk.db.model.TaskDefinition;
 import com.smouldering_durtles.wk.model.TaskCounts;
 import com.smouldering_durtles.wk.tasks.ApiTask;
 
+import java.util.Collection;
+import java.util.List;
+
 import javax.annotation.Nullable;
 
 /**
@@ -76,12 +79,63 @@ public abstract class TaskDefinitionDao {
     public abstract LiveData<TaskCounts> getLiveCounts();
 
     /**
-     * Room-generated method: get the next task to execute.
+     * Room-generated method: get a task by its ID.
+     *
+     * @param id the ID
+     * @return the task or null if it doesn't exist
+     */
+    @Query("SELECT * FROM task_definition WHERE id = :id")
+    public abstract @Nullable TaskDefinition getById(long id);
+
+    /**
+     * Room-generated method: get the IDs of the next tasks to execute among a number of task classes, in priority order.
+     *
+     * @param taskClasses the classes to look for
+     * @param maxCount the maximum number of IDs to return
+     * @return the IDs
+     */
+    @Query("SELECT id FROM task_definition WHERE taskClass IN (:taskClasses) ORDER BY priority, id LIMIT :maxCount")
+    public abstract List<Long> getNextIdsIn(Collection<Class<? extends ApiTask>> taskClasses, int maxCount);
+
+    /**
+     * Room-generated method: get the IDs of the next tasks to execute, except for a number of task classes, in priority order.
      *
-     * @return the task or null if none are pending
+     * @param taskClasses the classes to skip
+     * @param maxCount the maximum number of IDs to return
+     * @return the IDs
      */
-    @Query("SELECT * FROM task_definition ORDER BY priority, id LIMIT 1")
-    public abstract @Nullable TaskDefinition getNextTaskDefinition();
+    @Query("SELECT id FROM task_definition WHERE taskClass NOT IN (:taskClasses) ORDER BY priority, id LIMIT :maxCount")
+    public abstract List<Long> getNextIdsNotIn(Collection<Class<? extends ApiTask>> taskClasses, int maxCount);
+
+    /**
+     * Room-generated method: get the IDs of the oldest tasks among a number of task classes, oldest first.
+     *
+     * @param taskClasses the classes to look for
+     * @param maxCount the maximum number of IDs to return
+     * @return the IDs
+     */
+    @Query("SELECT id FROM task_definition WHERE taskClass IN (:taskClasses) ORDER BY id LIMIT :maxCount")
+    public abstract List<Long> getOldestIdsIn(Collection<Class<? extends ApiTask>> taskClasses, int maxCount);
+
+    /**
+     * Room-generated method: get the IDs of the oldest tasks, except for a number of task classes, oldest first.
+     *
+     * @param taskClasses the classes to skip
+     * @param maxCount the maximum number of IDs to return
+     * @return the IDs
+     */
+    @Query("SELECT id FROM task_definition WHERE taskClass NOT IN (:taskClasses) ORDER BY id LIMIT :maxCount")
+    public abstract List<Long> getOldestIdsNotIn(Collection<Class<? extends ApiTask>> taskClasses, int maxCount);
+
+    /**
+     * Room-generated method: get the oldest pending tasks for a certain task class, in the order they were created.
+     *
+     * @param taskClass the class to look for
+     * @param maxCount the maximum number of tasks to return
+     * @return the tasks
+     */
+    @Query("SELECT * FROM task_definition WHERE taskClass = :taskClass ORDER BY id LIMIT :maxCount")
+    public abstract List<TaskDefinition> getTaskDefinitionsByType(Class<? extends ApiTask> taskClass, int maxCount);
 
     /**
      * Room-generated method: get the number of tasks for a certain task class.
@@ -107,4 +161,12 @@ public abstract class TaskDefinitionDao {
      */
     @Delete
     public abstract void deleteTaskDefinition(TaskDefinition taskDefinition);
+
+    /**
+     * Room-generated method: delete a number of tasks.
+     *
+     * @param taskDefinitions the tasks to delete
+     */
+    @Delete
+    public abstract void deleteTaskDefinitions(Collection<TaskDefinition> taskDefinitions);
 }
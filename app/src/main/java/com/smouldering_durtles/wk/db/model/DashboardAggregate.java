@@ -0,0 +1,103 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.smouldering_durtles.wk.db.model;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+
+/**
+ * Room entity for the dashboard_aggregate table. This holds subject counts grouped the way the
+ * dashboard needs them, so the dashboard doesn't have to scan the subject table for every refresh.
+ *
+ * <p>
+ *     The table is kept up to date by triggers on the subject table, so every write to a subject
+ *     adjusts the counts in the same transaction. Each row belongs to one kind of aggregate, and
+ *     the key columns a kind doesn't use are 0 or empty. Rows whose count drops to 0 are kept.
+ *     Writes to the subject table must not use INSERT OR REPLACE, because the implicit delete of the
+ *     replaced row doesn't fire the delete trigger.
+ * </p>
+ */
+@Entity(tableName = "dashboard_aggregate",
+        primaryKeys = {"kind", "srsSystemId", "srsStage", "level", "type", "passed", "locked", "grade"})
+public final class DashboardAggregate {
+    /**
+     * Kind: counts by SRS system and stage, for visible subjects.
+     */
+    public static final int KIND_SRS = 0;
+
+    /**
+     * Kind: counts by level, type, passed and locked status, for visible subjects.
+     */
+    public static final int KIND_LEVEL = 1;
+
+    /**
+     * Kind: counts by SRS system, stage and JLPT level, for kanji.
+     */
+    public static final int KIND_JLPT = 2;
+
+    /**
+     * Kind: counts by SRS system, stage and Joyo grade, for kanji.
+     */
+    public static final int KIND_JOYO = 3;
+
+    /**
+     * The kind of aggregate.
+     */
+    public int kind = 0;
+
+    /**
+     * The SRS system ID.
+     */
+    public long srsSystemId = 0L;
+
+    /**
+     * The SRS stage.
+     */
+    public long srsStage = 0L;
+
+    /**
+     * The level.
+     */
+    public int level = 0;
+
+    /**
+     * The subject type, as stored in the object column of the subject table.
+     */
+    @NonNull
+    public String type = "";
+
+    /**
+     * 1 if the subjects have been passed.
+     */
+    public int passed = 0;
+
+    /**
+     * 1 if the subjects haven't been unlocked.
+     */
+    public int locked = 0;
+
+    /**
+     * The JLPT level or Joyo grade.
+     */
+    public int grade = 0;
+
+    /**
+     * The number of subjects.
+     */
+    public int count = 0;
+}
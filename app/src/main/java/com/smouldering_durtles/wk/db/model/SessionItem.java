@@ -26,6 +26,7 @@ import com.smouldering_durtles.wk.jobs.ReportSessionItemJob;
 import com.smouldering_durtles.wk.jobs.UpdateSessionItemJob;
 import com.smouldering_durtles.wk.enums.KanjiAcceptedReadingType;
 import com.smouldering_durtles.wk.model.Question;
+import com.smouldering_durtles.wk.model.QuestionScheduler;
 import com.smouldering_durtles.wk.model.Session;
 import com.smouldering_durtles.wk.enums.SessionItemState;
 import com.smouldering_durtles.wk.model.SrsSystem;
@@ -84,6 +85,7 @@ public final class SessionItem {
     @Ignore private @Nullable Subject subject = null;
     @Ignore private int choiceDelay = 0;
     @Ignore private final Collection<Question> questions = new ArrayList<>();
+    @Ignore private @Nullable QuestionScheduler scheduler = null;
 
     /**
      * Is this item active?.
@@ -187,7 +189,10 @@ public final class SessionItem {
      * @param state the value
      */
     public void setState(final SessionItemState state) {
+        final SessionItemState oldState = this.state;
+        final boolean oldStarted = isStarted();
         this.state = state;
+        notifyScheduler(oldState, oldStarted, choiceDelay);
     }
 
     /**
@@ -299,7 +304,9 @@ public final class SessionItem {
      * @param choiceDelay the value
      */
     public void setChoiceDelay(final int choiceDelay) {
+        final int oldChoiceDelay = this.choiceDelay;
         this.choiceDelay = choiceDelay;
+        notifyScheduler(state, isStarted(), oldChoiceDelay);
     }
 
     /**
@@ -525,7 +532,9 @@ public final class SessionItem {
      * @param numAnswers the value
      */
     public void setNumAnswers(final int numAnswers) {
+        final boolean oldStarted = isStarted();
         this.numAnswers = numAnswers;
+        notifyScheduler(state, oldStarted, choiceDelay);
     }
 
     /**
@@ -576,6 +585,28 @@ public final class SessionItem {
         this.subject = subject;
     }
 
+    /**
+     * Not stored in the database; the scheduler of the session this item is part of, which is
+     * told about every change that affects the choice of questions and the session counters.
+     * @param scheduler the value
+     */
+    public void setScheduler(final @Nullable QuestionScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Tell the scheduler, if any, that the state, the started status or the choice delay of this item may have changed.
+     *
+     * @param oldState the state before the change
+     * @param oldStarted the started status before the change
+     * @param oldChoiceDelay the choice delay before the change
+     */
+    private void notifyScheduler(final SessionItemState oldState, final boolean oldStarted, final int oldChoiceDelay) {
+        if (scheduler != null) {
+            scheduler.onItemChange(this, oldState, oldStarted, oldChoiceDelay);
+        }
+    }
+
     /**
      * Get the starting SRS stage for this item, i.e. the stage it had before the session started.
      *
@@ -649,7 +680,7 @@ public final class SessionItem {
                 question2Incorrect + question3Incorrect + question4Incorrect,
                 lastAnswer);
         JobRunnerService.schedule(ReportSessionItemJob.class, data);
-        state = REPORTED;
+        setState(REPORTED);
     }
 
     /**
@@ -19,7 +19,6 @@ package com.smouldering_durtles.wk.db.model;
 import android.annotation.SuppressLint;
 import android.os.Build;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.smouldering_durtles.wk.GlobalSettings;
 import com.smouldering_durtles.wk.LegacyRadicals;
@@ -30,6 +29,7 @@ import com.smouldering_durtles.wk.api.model.Meaning;
 import com.smouldering_durtles.wk.api.model.PronunciationAudio;
 import com.smouldering_durtles.wk.api.model.Reading;
 import com.smouldering_durtles.wk.db.Converters;
+import com.smouldering_durtles.wk.db.PackedSubjectLists;
 import com.smouldering_durtles.wk.enums.KanjiAcceptedReadingType;
 import com.smouldering_durtles.wk.enums.SessionType;
 import com.smouldering_durtles.wk.enums.SubjectSource;
@@ -40,7 +40,6 @@ import com.smouldering_durtles.wk.model.SrsSystemRepository;
 import com.smouldering_durtles.wk.util.PseudoIme;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
@@ -70,7 +69,6 @@ public final class Subject implements PronunciationAudioOwner {
      * The backing entity for this subject.
      */
     private final SubjectEntity entity;
-    private int ranking = 0;
 
     /**
      * The constructor.
@@ -88,23 +86,6 @@ public final class Subject implements PronunciationAudioOwner {
         return value == null ? null : value.intern();
     }
 
-    /**
-     * Temporary storage for search result ranking.
-     *
-     * @return the ranking
-     */
-    public int getRanking() {
-        return ranking;
-    }
-
-    /**
-     * Temporary storage for search result ranking.
-     *
-     * @param ranking the ranking
-     */
-    public void setRanking(final int ranking) {
-        this.ranking = ranking;
-    }
     /*
      *************************************************************************************************************************************************
      * Identification
@@ -134,6 +115,15 @@ public final class Subject implements PronunciationAudioOwner {
         return type;
     }
 
+    /**
+     * Is this subject visible in collections, i.e. not hidden and not an empty placeholder row?.
+     *
+     * @return true if it is
+     */
+    public boolean isVisible() {
+        return entity.hiddenAt == 0 && entity.type != null;
+    }
+
     /**
      * The subject's type order.
      *
@@ -311,10 +301,13 @@ public final class Subject implements PronunciationAudioOwner {
     }
 
     /**
-     * The meanings for this subject, lazily parsed from JSON.
+     * The meanings for this subject, lazily decoded from the packed lists or JSON.
      * @return the value
      */
     public List<Meaning> getMeanings() {
+        if (entity.parsedMeanings == null) {
+            entity.parsedMeanings = PackedSubjectLists.getMeanings(entity.packedLists);
+        }
         if (entity.parsedMeanings == null) {
             if (isEmpty(entity.meanings)) {
                 entity.parsedMeanings = Collections.emptyList();
@@ -336,10 +329,13 @@ public final class Subject implements PronunciationAudioOwner {
     }
 
     /**
-     * The auxiliary meanings for this subject, lazily parsed from JSON.
+     * The auxiliary meanings for this subject, lazily decoded from the packed lists or JSON.
      * @return the value
      */
     public List<AuxiliaryMeaning> getAuxiliaryMeanings() {
+        if (entity.parsedAuxiliaryMeanings == null) {
+            entity.parsedAuxiliaryMeanings = PackedSubjectLists.getAuxiliaryMeanings(entity.packedLists);
+        }
         if (entity.parsedAuxiliaryMeanings == null) {
             if (isEmpty(entity.auxiliaryMeanings)) {
                 entity.parsedAuxiliaryMeanings = Collections.emptyList();
@@ -361,10 +357,13 @@ public final class Subject implements PronunciationAudioOwner {
     }
 
     /**
-     * The readings for this subject, lazily parsed from JSON.
+     * The readings for this subject, lazily decoded from the packed lists or JSON.
      * @return the value
      */
     public List<Reading> getReadings() {
+        if (entity.parsedReadings == null) {
+            entity.parsedReadings = PackedSubjectLists.getReadings(entity.packedLists);
+        }
         if (entity.parsedReadings == null) {
             if (isEmpty(entity.readings)) {
                 entity.parsedReadings = Collections.emptyList();
@@ -388,26 +387,23 @@ public final class Subject implements PronunciationAudioOwner {
     /**
      /**
      * The IDs of subjects that are components of this subject. For kanji, these are the used radicals.
-     * For vocab, these are the used kanji. Lazily parsed from JSON.
+     * For vocab, these are the used kanji. Lazily decoded from the packed lists or JSON.
      * @return the value
      */
     public List<Long> getComponentSubjectIds() {
+        return PackedSubjectLists.asList(getComponentSubjectIdArray());
+    }
+
+    /**
+     * The same as getComponentSubjectIds(), as an array that is shared with this subject and must not be modified.
+     * @return the value
+     */
+    public long[] getComponentSubjectIdArray() {
         if (entity.parsedComponentSubjectIds == null) {
-            if (isEmpty(entity.componentSubjectIds)) {
-                entity.parsedComponentSubjectIds = Collections.emptyList();
-            }
-            else {
-                try {
-                    entity.parsedComponentSubjectIds = Converters.getObjectMapper().readValue(
-                            entity.componentSubjectIds, new TypeReference<List<Long>>() {});
-                    removeDuplicates(entity.parsedComponentSubjectIds);
-                } catch (final IOException e) {
-                    entity.parsedComponentSubjectIds = Collections.emptyList();
-                }
-            }
+            entity.parsedComponentSubjectIds = PackedSubjectLists.getComponentSubjectIds(entity.packedLists);
         }
         if (entity.parsedComponentSubjectIds == null) {
-            return Collections.emptyList();
+            entity.parsedComponentSubjectIds = parseIds(entity.componentSubjectIds);
         }
         //noinspection AssignmentOrReturnOfFieldWithMutableType
         return entity.parsedComponentSubjectIds;
@@ -415,62 +411,81 @@ public final class Subject implements PronunciationAudioOwner {
 
     /**
      * The IDs of subjects that this subject is a component of. For radicals, these are the kanji it's used in.
-     * For kanji, these are the vocab it's used in. Lazily parsed from JSON.
+     * For kanji, these are the vocab it's used in. Lazily decoded from the packed lists or JSON.
      * @return the value
      */
     public List<Long> getAmalgamationSubjectIds() {
+        return PackedSubjectLists.asList(getAmalgamationSubjectIdArray());
+    }
+
+    /**
+     * The same as getAmalgamationSubjectIds(), as an array that is shared with this subject and must not be modified.
+     * @return the value
+     */
+    public long[] getAmalgamationSubjectIdArray() {
         if (entity.parsedAmalgamationSubjectIds == null) {
-            if (isEmpty(entity.amalgamationSubjectIds)) {
-                entity.parsedAmalgamationSubjectIds = Collections.emptyList();
-            }
-            else {
-                try {
-                    entity.parsedAmalgamationSubjectIds = Converters.getObjectMapper().readValue(
-                            entity.amalgamationSubjectIds, new TypeReference<List<Long>>() {});
-                    removeDuplicates(entity.parsedAmalgamationSubjectIds);
-                } catch (final IOException e) {
-                    entity.parsedAmalgamationSubjectIds = Collections.emptyList();
-                }
-            }
+            entity.parsedAmalgamationSubjectIds = PackedSubjectLists.getAmalgamationSubjectIds(entity.packedLists);
         }
         if (entity.parsedAmalgamationSubjectIds == null) {
-            return Collections.emptyList();
+            entity.parsedAmalgamationSubjectIds = parseIds(entity.amalgamationSubjectIds);
         }
         //noinspection AssignmentOrReturnOfFieldWithMutableType
         return entity.parsedAmalgamationSubjectIds;
     }
 
     /**
-     * The IDs of kanji that are visually similar to this kanji. Empty for radicals and vocab. Lazily parsed from JSON.
+     * The IDs of kanji that are visually similar to this kanji. Empty for radicals and vocab. Lazily decoded from the packed lists or JSON.
      * @return the value
      */
     public List<Long> getVisuallySimilarSubjectIds() {
+        return PackedSubjectLists.asList(getVisuallySimilarSubjectIdArray());
+    }
+
+    /**
+     * The same as getVisuallySimilarSubjectIds(), as an array that is shared with this subject and must not be modified.
+     * @return the value
+     */
+    public long[] getVisuallySimilarSubjectIdArray() {
         if (entity.parsedVisuallySimilarSubjectIds == null) {
-            if (isEmpty(entity.visuallySimilarSubjectIds)) {
-                entity.parsedVisuallySimilarSubjectIds = Collections.emptyList();
-            }
-            else {
-                try {
-                    entity.parsedVisuallySimilarSubjectIds = Converters.getObjectMapper().readValue(
-                            entity.visuallySimilarSubjectIds, new TypeReference<List<Long>>() {});
-                    removeDuplicates(entity.parsedVisuallySimilarSubjectIds);
-                } catch (final IOException e) {
-                    entity.parsedVisuallySimilarSubjectIds = Collections.emptyList();
-                }
-            }
+            entity.parsedVisuallySimilarSubjectIds = PackedSubjectLists.getVisuallySimilarSubjectIds(entity.packedLists);
         }
         if (entity.parsedVisuallySimilarSubjectIds == null) {
-            return Collections.emptyList();
+            entity.parsedVisuallySimilarSubjectIds = parseIds(entity.visuallySimilarSubjectIds);
         }
         //noinspection AssignmentOrReturnOfFieldWithMutableType
         return entity.parsedVisuallySimilarSubjectIds;
     }
 
     /**
-     * This subject's parts of speech. Lazily parsed from JSON.
+     * Parse a JSON list of subject IDs, dropping duplicates.
+     * @param json the JSON string
+     * @return the IDs
+     */
+    private static long[] parseIds(final @Nullable String json) {
+        if (isEmpty(json)) {
+            return new long[0];
+        }
+        try {
+            final List<Long> ids = Converters.getObjectMapper().readValue(json, new TypeReference<List<Long>>() {});
+            removeDuplicates(ids);
+            final long[] result = new long[ids.size()];
+            for (int i=0; i<result.length; i++) {
+                result[i] = ids.get(i);
+            }
+            return result;
+        } catch (final IOException e) {
+            return new long[0];
+        }
+    }
+
+    /**
+     * This subject's parts of speech. Lazily decoded from the packed lists or JSON.
      * @return the value
      */
     public List<String> getPartsOfSpeech() {
+        if (entity.parsedPartsOfSpeech == null) {
+            entity.parsedPartsOfSpeech = PackedSubjectLists.getPartsOfSpeech(entity.packedLists);
+        }
         if (entity.parsedPartsOfSpeech == null) {
             if (isEmpty(entity.partsOfSpeech)) {
                 entity.parsedPartsOfSpeech = Collections.emptyList();
@@ -492,10 +507,13 @@ public final class Subject implements PronunciationAudioOwner {
     }
 
     /**
-     * The context sentences for this subject. Lazily parsed from JSON.
+     * The context sentences for this subject. Lazily decoded from the packed lists or JSON.
      * @return the value
      */
     public List<ContextSentence> getContextSentences() {
+        if (entity.parsedContextSentences == null) {
+            entity.parsedContextSentences = PackedSubjectLists.getContextSentences(entity.packedLists);
+        }
         if (entity.parsedContextSentences == null) {
             if (isEmpty(entity.contextSentences)) {
                 entity.parsedContextSentences = Collections.emptyList();
@@ -517,11 +535,14 @@ public final class Subject implements PronunciationAudioOwner {
     }
 
     /**
-     * The audio for this vocab, empty for radicals and kanji. Lazily parsed from JSON.
+     * The audio for this vocab, empty for radicals and kanji. Lazily decoded from the packed lists or JSON.
      * @return the value
      */
     @Override
     public List<PronunciationAudio> getParsedPronunciationAudios() {
+        if (entity.parsedPronunciationAudios == null) {
+            entity.parsedPronunciationAudios = PackedSubjectLists.getPronunciationAudios(entity.packedLists);
+        }
         if (entity.parsedPronunciationAudios == null) {
             if (isEmpty(entity.pronunciationAudios)) {
                 entity.parsedPronunciationAudios = Collections.emptyList();
@@ -1414,19 +1435,6 @@ public final class Subject implements PronunciationAudioOwner {
         return entity.parsedMeaningSynonyms;
     }
 
-    /**
-     * The user's meaning synonyms, lazily parsed from JSON.
-     * @param meaningSynonyms the value
-     */
-    public void setMeaningSynonyms(final List<String> meaningSynonyms) {
-        try {
-            entity.meaningSynonyms = Converters.getObjectMapper().writeValueAsString(meaningSynonyms);
-            entity.parsedMeaningSynonyms = new ArrayList<>(meaningSynonyms);
-        } catch (final JsonProcessingException e) {
-            // This can't realistically happen.
-        }
-    }
-
     /**
      * Does this subject have a non-empty meaning note?.
      *
@@ -1712,7 +1720,17 @@ public final class Subject implements PronunciationAudioOwner {
      * @return the text
      */
     public CharSequence getMeaningSynonymsRichText() {
-        final String s = "<b>My synonyms</b>: " + escapeHtml(join(", ", "", "", getMeaningSynonyms()));
+        return getMeaningSynonymsRichText(getMeaningSynonyms());
+    }
+
+    /**
+     * Get a list of user synonyms formatted as a piece of rich text, the same way as the synonyms of a subject.
+     *
+     * @param meaningSynonyms the synonyms
+     * @return the text
+     */
+    public static CharSequence getMeaningSynonymsRichText(final List<String> meaningSynonyms) {
+        final String s = "<b>My synonyms</b>: " + escapeHtml(join(", ", "", "", meaningSynonyms));
         return renderHtml(s);
     }
 
@@ -36,6 +36,7 @@ import javax.annotation.Nullable;
 // - Remove audioDownloadStatus int
 // - Remove levelProgressScore int
 // - Reuse typeCode int for numStars
+// - Remove the JSON list columns (meanings ... pronunciationAudios) that are superseded by packedLists
 
 /**
  * Room entity for the subject table. This class combines all information about a subject in
@@ -167,6 +168,17 @@ public final class SubjectEntity {
      */
     public @Nullable String pronunciationAudios;
 
+    /**
+     * All of the lists above in the compact binary encoding of PackedSubjectLists. If this is present,
+     * it takes precedence over the JSON columns, which are then left empty.
+     */
+    public @Nullable byte[] packedLists;
+
+    /**
+     * The content hash of the reference data as last written to this subject, 0 if unknown.
+     */
+    public long referenceDataHash = 0L;
+
     /**
      * Unused - to be removed in a future DB change.
      */
@@ -388,17 +400,17 @@ public final class SubjectEntity {
     /**
      * Parsed version of componentSubjectIds, inflated on demand.
      */
-    @Ignore public @Nullable List<Long> parsedComponentSubjectIds;
+    @Ignore public @Nullable long[] parsedComponentSubjectIds;
 
     /**
      * Parsed version of amalgamationSubjectIds, inflated on demand.
      */
-    @Ignore public @Nullable List<Long> parsedAmalgamationSubjectIds;
+    @Ignore public @Nullable long[] parsedAmalgamationSubjectIds;
 
     /**
      * Parsed version of visuallySimilarSubjectIds, inflated on demand.
      */
-    @Ignore public @Nullable List<Long> parsedVisuallySimilarSubjectIds;
+    @Ignore public @Nullable long[] parsedVisuallySimilarSubjectIds;
 
     /**
      * Parsed version of partsOfSpeech, inflated on demand.
@@ -18,6 +18,7 @@ package com.smouldering_durtles.wk.db.model;
 
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
 import com.smouldering_durtles.wk.enums.SubjectType;
@@ -26,9 +27,14 @@ import javax.annotation.Nullable;
 
 /**
  * Room entity for the subject table. See LogRecordEntityDefinition for an explanation of why this class exists.
+ * The composite indexes are declared here without their WHERE clauses, see SubjectIndexes.
  */
 @SuppressWarnings("unused")
-@Entity(tableName = "subject")
+@Entity(tableName = "subject", indices = {
+        @Index(name = "index_subject_level_object", value = {"level", "object", "lessonPosition"}),
+        @Index(name = "index_subject_lesson_queue", value = {"startedAt", "level", "lessonPosition"}),
+        @Index(name = "index_subject_review_queue", value = {"availableAt", "level"})
+})
 public final class SubjectEntityDefinition {
     @PrimaryKey public long id = 0L;
     @ColumnInfo(name = "object")
@@ -38,7 +44,7 @@ public final class SubjectEntityDefinition {
     public @Nullable Long hiddenAt;
     public int lessonPosition = 0;
     public long srsSystemId = 0L;
-    @ColumnInfo(index = true) public int level = 0;
+    public int level = 0;
     @ColumnInfo(index = true) public @Nullable String characters;
     public @Nullable String slug;
     public @Nullable String documentUrl;
@@ -97,4 +103,7 @@ public final class SubjectEntityDefinition {
     public int jlptLevel = 0;
     public @Nullable String pitchInfo;
     public @Nullable String strokeData;
+    public @Nullable byte[] packedLists;
+    @ColumnInfo(defaultValue = "0")
+    public long referenceDataHash = 0L;
 }
@@ -19,6 +19,7 @@ package com.smouldering_durtles.wk.db.model;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.smouldering_durtles.wk.api.model.PronunciationAudio;
 import com.smouldering_durtles.wk.db.Converters;
+import com.smouldering_durtles.wk.db.PackedSubjectLists;
 
 import java.io.IOException;
 import java.util.Collections;
@@ -35,6 +36,7 @@ public final class SubjectPronunciationAudio implements PronunciationAudioOwner
     private long id = 0L;
     private int level = 0;
     private @Nullable String pronunciationAudios;
+    private @Nullable byte[] packedLists;
 
     @Override
     public long getId() {
@@ -66,6 +68,25 @@ public final class SubjectPronunciationAudio implements PronunciationAudioOwner
         this.pronunciationAudios = pronunciationAudios;
     }
 
+    /**
+     * The list fields of this subject in the compact binary encoding, see PackedSubjectLists.
+     * @return the value
+     */
+    @SuppressWarnings("unused")
+    public @Nullable byte[] getPackedLists() {
+        //noinspection AssignmentOrReturnOfFieldWithMutableType
+        return packedLists;
+    }
+
+    /**
+     * The list fields of this subject in the compact binary encoding, see PackedSubjectLists.
+     * @param packedLists the value
+     */
+    public void setPackedLists(final @Nullable byte[] packedLists) {
+        //noinspection AssignmentOrReturnOfFieldWithMutableType
+        this.packedLists = packedLists;
+    }
+
     @Override
     public int getLevel() {
         return level;
@@ -81,6 +102,10 @@ public final class SubjectPronunciationAudio implements PronunciationAudioOwner
 
     @Override
     public List<PronunciationAudio> getParsedPronunciationAudios() {
+        final @Nullable List<PronunciationAudio> packed = PackedSubjectLists.getPronunciationAudios(packedLists);
+        if (packed != null) {
+            return packed;
+        }
         if (isEmpty(pronunciationAudios)) {
             return Collections.emptyList();
         }
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.db.model;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.FtsOptions;
+import androidx.room.PrimaryKey;
+
+/**
+ * Room entity for the subject_search table, an FTS4 full-text index over the searchable text of subjects.
+ * The rowid is the subject ID. The text is split over several columns, so hits can be weighted by the
+ * field they occur in: a hit in the characters counts for a lot more than a hit in a context sentence.
+ *
+ * <p>
+ *     The table is maintained by SubjectSyncDao alongside the subject table. The subject fields and the
+ *     study material fields are written separately, since they come from different API endpoints.
+ * </p>
+ */
+@Fts4(tokenizer = FtsOptions.TOKENIZER_UNICODE61)
+@Entity(tableName = "subject_search")
+public final class SubjectSearchEntry {
+    /**
+     * The subject ID.
+     */
+    @PrimaryKey
+    @ColumnInfo(name = "rowid")
+    public long id = 0L;
+
+    /**
+     * The subject's characters.
+     */
+    @NonNull
+    public String characters = "";
+
+    /**
+     * The subject's slug.
+     */
+    @NonNull
+    public String slug = "";
+
+    /**
+     * The subject's primary meaning.
+     */
+    @NonNull
+    public String primaryMeaning = "";
+
+    /**
+     * All meanings and auxiliary meanings, space separated.
+     */
+    @NonNull
+    public String meanings = "";
+
+    /**
+     * All readings, space separated.
+     */
+    @NonNull
+    public String readings = "";
+
+    /**
+     * Mnemonics, hints, parts of speech and context sentences, space separated.
+     */
+    @NonNull
+    public String body = "";
+
+    /**
+     * The user's meaning and reading notes.
+     */
+    @NonNull
+    public String notes = "";
+
+    /**
+     * The user's meaning synonyms, space separated.
+     */
+    @NonNull
+    public String synonyms = "";
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.db.model;
+
+/**
+ * Room entity for a search hit from the subject_search table. Only contains the subject ID and the ranking
+ * that was calculated in the query, the subject itself is loaded separately.
+ */
+public final class SubjectSearchHit {
+    private long id = 0L;
+    private int ranking = 0;
+
+    /**
+     * The subject ID.
+     * @return the value
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * The subject ID.
+     * @param id the value
+     */
+    public void setId(final long id) {
+        this.id = id;
+    }
+
+    /**
+     * The ranking of this hit, higher means a better match.
+     * @return the value
+     */
+    public int getRanking() {
+        return ranking;
+    }
+
+    /**
+     * The ranking of this hit, higher means a better match.
+     * @param ranking the value
+     */
+    public void setRanking(final int ranking) {
+        this.ranking = ranking;
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.db.model;
+
+import androidx.room.ColumnInfo;
+
+import com.smouldering_durtles.wk.enums.SubjectType;
+import com.smouldering_durtles.wk.model.SrsSystem;
+import com.smouldering_durtles.wk.model.SrsSystemRepository;
+
+import javax.annotation.Nullable;
+
+/**
+ * Room entity for a subset of the subject table: only the small columns needed to place a subject on the
+ * timeline and the level progression bars. Loading a full subject row drags along all mnemonics, hints,
+ * context sentences and pitch info, which those paths never look at. When the full subject is needed after all,
+ * SubjectCollectionsDao.hydrate() loads the full subjects for a list of summaries in batches.
+ */
+public final class SubjectSummary {
+    private long id = 0L;
+    @ColumnInfo(name = "object")
+    private @Nullable SubjectType type;
+    private int level = 0;
+    private int lessonPosition = 0;
+    private long srsSystemId = 0L;
+    @ColumnInfo(name = "srsStage")
+    private long srsStageId = 0L;
+    private long availableAt = 0L;
+    private long passedAt = 0L;
+    private long unlockedAt = 0L;
+
+    /**
+     * The unique ID.
+     * @return the value
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * The unique ID.
+     * @param id the value
+     */
+    public void setId(final long id) {
+        this.id = id;
+    }
+
+    /**
+     * The type of subject.
+     * @return the value
+     */
+    public SubjectType getType() {
+        if (type == null) {
+            return SubjectType.WANIKANI_RADICAL;
+        }
+        return type;
+    }
+
+    /**
+     * The type of subject.
+     * @param type the value
+     */
+    public void setType(final @Nullable SubjectType type) {
+        this.type = type;
+    }
+
+    /**
+     * The level this subject belongs to.
+     * @return the value
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * The level this subject belongs to.
+     * @param level the value
+     */
+    public void setLevel(final int level) {
+        this.level = level;
+    }
+
+    /**
+     * The ordinal position within the level of this subject.
+     * @return the value
+     */
+    public int getLessonPosition() {
+        return lessonPosition;
+    }
+
+    /**
+     * The ordinal position within the level of this subject.
+     * @param lessonPosition the value
+     */
+    public void setLessonPosition(final int lessonPosition) {
+        this.lessonPosition = lessonPosition;
+    }
+
+    /**
+     * The ID of the SRS system this subject uses.
+     * @return the value
+     */
+    public long getSrsSystemId() {
+        return srsSystemId;
+    }
+
+    /**
+     * The ID of the SRS system this subject uses.
+     * @param srsSystemId the value
+     */
+    public void setSrsSystemId(final long srsSystemId) {
+        this.srsSystemId = srsSystemId;
+    }
+
+    /**
+     * The ID of the SRS stage for this subject within its SRS system.
+     * @return the value
+     */
+    public long getSrsStageId() {
+        return srsStageId;
+    }
+
+    /**
+     * The ID of the SRS stage for this subject within its SRS system.
+     * @param srsStageId the value
+     */
+    public void setSrsStageId(final long srsStageId) {
+        this.srsStageId = srsStageId;
+    }
+
+    /**
+     * The timestamp when the next available review becomes available for this subject,
+     * or 0 if no review is scheduled yet.
+     * @return the value
+     */
+    public long getAvailableAt() {
+        return availableAt;
+    }
+
+    /**
+     * The timestamp when the next available review becomes available for this subject,
+     * or 0 if no review is scheduled yet.
+     * @param availableAt the value
+     */
+    public void setAvailableAt(final long availableAt) {
+        this.availableAt = availableAt;
+    }
+
+    /**
+     * The timestamp when this subject was passed, or 0 if it hasn't been passed yet.
+     * @return the value
+     */
+    public long getPassedAt() {
+        return passedAt;
+    }
+
+    /**
+     * The timestamp when this subject was passed, or 0 if it hasn't been passed yet.
+     * @param passedAt the value
+     */
+    public void setPassedAt(final long passedAt) {
+        this.passedAt = passedAt;
+    }
+
+    /**
+     * The timestamp when this subject was unlocked, or 0 if it is still locked.
+     * @return the value
+     */
+    public long getUnlockedAt() {
+        return unlockedAt;
+    }
+
+    /**
+     * The timestamp when this subject was unlocked, or 0 if it is still locked.
+     * @param unlockedAt the value
+     */
+    public void setUnlockedAt(final long unlockedAt) {
+        this.unlockedAt = unlockedAt;
+    }
+
+    /**
+     * The SRS stage for this subject.
+     * @return the value
+     */
+    public SrsSystem.Stage getSrsStage() {
+        return SrsSystemRepository.getSrsSystem(srsSystemId).getStage(srsStageId);
+    }
+
+    /**
+     * Has this subject been passed?.
+     * @return true if it has
+     */
+    public boolean isPassed() {
+        return passedAt != 0;
+    }
+
+    /**
+     * Is this subject still locked?.
+     * @return true if it is
+     */
+    public boolean isLocked() {
+        return unlockedAt == 0;
+    }
+}
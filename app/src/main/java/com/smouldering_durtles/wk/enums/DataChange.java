@@ -0,0 +1,48 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.smouldering_durtles.wk.enums;
+
+/**
+ * The kinds of data a writer can report as changed, to have the LiveData instances that depend on it refreshed.
+ */
+public enum DataChange {
+    /**
+     * Assignment data in subjects: SRS stages and the dates of unlocking, starting, passing and burning.
+     */
+    ASSIGNMENT,
+
+    /**
+     * Review statistics in subjects.
+     */
+    REVIEW_STATISTIC,
+
+    /**
+     * The subjects themselves: levels, hidden status and the set of subjects.
+     */
+    SUBJECT,
+
+    /**
+     * Level progression records.
+     */
+    LEVEL_PROGRESSION,
+
+    /**
+     * User properties and settings that affect the dashboard, such as vacation mode and the summary.
+     */
+    PROPERTIES
+}
@@ -24,7 +24,7 @@ import com.smouldering_durtles.wk.api.model.Reading;
 import com.smouldering_durtles.wk.db.model.Subject;
 import com.smouldering_durtles.wk.model.AnswerVerdict;
 import com.smouldering_durtles.wk.model.DigraphMatch;
-import com.smouldering_durtles.wk.util.FuzzyMatching;
+import com.smouldering_durtles.wk.util.AnswerMatcher;
 import com.smouldering_durtles.wk.util.PseudoIme;
 import com.smouldering_durtles.wk.util.ThemeUtil;
 
@@ -84,7 +84,7 @@ public enum QuestionType {
             }
             accepted.addAll(subject.getMeaningSynonyms());
 
-            final AnswerVerdict verdict = FuzzyMatching.matches(answer, accepted, rejected, closeEnoughAction);
+            final AnswerVerdict verdict = AnswerMatcher.get(subject.getId(), accepted, rejected).matches(answer, closeEnoughAction);
             if (!verdict.isOk() && !verdict.isRetry()) {
                 final String kanaAnswer = PseudoIme.simulateInput(answer);
                 for (final Reading r: subject.getReadings()) {
@@ -150,7 +150,7 @@ public enum QuestionType {
             }
             accepted.addAll(subject.getMeaningSynonyms());
 
-            final AnswerVerdict verdict = FuzzyMatching.matches(answer, accepted, rejected, closeEnoughAction);
+            final AnswerVerdict verdict = AnswerMatcher.get(subject.getId(), accepted, rejected).matches(answer, closeEnoughAction);
             if (!verdict.isOk() && !verdict.isRetry()) {
                 final String kanaAnswer = PseudoIme.simulateInput(answer);
                 for (final Reading r: subject.getReadings()) {
@@ -216,7 +216,7 @@ public enum QuestionType {
             }
             accepted.addAll(subject.getMeaningSynonyms());
 
-            final AnswerVerdict verdict = FuzzyMatching.matches(answer, accepted, rejected, closeEnoughAction);
+            final AnswerVerdict verdict = AnswerMatcher.get(subject.getId(), accepted, rejected).matches(answer, closeEnoughAction);
             if (!verdict.isOk() && !verdict.isRetry()) {
                 final String kanaAnswer = PseudoIme.simulateInput(answer);
                 for (final Reading r: subject.getReadings()) {
@@ -282,7 +282,7 @@ public enum QuestionType {
             }
             accepted.addAll(subject.getMeaningSynonyms());
 
-            final AnswerVerdict verdict = FuzzyMatching.matches(answer, accepted, rejected, closeEnoughAction);
+            final AnswerVerdict verdict = AnswerMatcher.get(subject.getId(), accepted, rejected).matches(answer, closeEnoughAction);
             if (!verdict.isOk() && !verdict.isRetry()) {
                 final String kanaAnswer = PseudoIme.simulateInput(answer);
                 for (final Reading r: subject.getReadings()) {
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.enums;
+
+/**
+ * The lanes that background tasks are scheduled in. Each lane works through its own tasks in
+ * priority order, independently of the other lanes, so a long or blocked task in one lane
+ * doesn't hold up the tasks in another.
+ */
+public enum TaskLane {
+    /**
+     * Tasks the user is waiting for: session reports, study material updates and the summary.
+     */
+    INTERACTIVE(1, false, false),
+
+    /**
+     * Refreshes of the API collections and the user, and the reference data load. These run one
+     * at a time in strict priority order, because the later collections depend on the earlier
+     * ones and the reference data load writes the same subject rows as the subject sync. They
+     * don't start while the interactive lane has tasks, so a model refresh doesn't record data
+     * that a pending report is about to change.
+     */
+    SYNC(1, true, true),
+
+    /**
+     * Long-running work that doesn't hold anything up: pitch info and the audio download status
+     * scan. Up to two of these run at the same time, for tasks that allow it.
+     */
+    BULK(2, false, false);
+
+    private final int maxConcurrency;
+    private final boolean yieldsToInteractive;
+    private final boolean ordered;
+
+    TaskLane(final int maxConcurrency, final boolean yieldsToInteractive, final boolean ordered) {
+        this.maxConcurrency = maxConcurrency;
+        this.yieldsToInteractive = yieldsToInteractive;
+        this.ordered = ordered;
+    }
+
+    /**
+     * The maximum number of tasks in this lane that can run at the same time. Only tasks that
+     * declare themselves independent of each other are ever run side by side.
+     *
+     * @return the value
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Does this lane hold off starting new tasks while the interactive lane has tasks?.
+     *
+     * @return true if it does
+     */
+    public boolean yieldsToInteractive() {
+        return yieldsToInteractive;
+    }
+
+    /**
+     * Does this lane always run its tasks in priority order? If not, a task that has been passed
+     * over too often can run ahead of its turn.
+     *
+     * @return true if it does
+     */
+    public boolean isOrdered() {
+        return ordered;
+    }
+}
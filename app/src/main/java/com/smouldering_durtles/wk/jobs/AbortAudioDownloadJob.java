@@ -17,6 +17,7 @@
 package com.smouldering_durtles.wk.jobs;
 
 import com.smouldering_durtles.wk.WkApplication;
+import com.smouldering_durtles.wk.services.AudioDownloadLane;
 
 /**
  * Job to cancel all pending audio download tasks.
@@ -34,6 +35,7 @@ public final class AbortAudioDownloadJob extends Job {
     @Override
     public void runLocal() {
         WkApplication.getDatabase().taskDefinitionDao().deleteAudioDownloads();
+        AudioDownloadLane.getInstance().abort();
         houseKeeping();
     }
 }
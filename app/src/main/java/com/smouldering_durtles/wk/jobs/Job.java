@@ -35,6 +35,7 @@ import com.smouldering_durtles.wk.livedata.LiveFirstTimeSetup;
 import com.smouldering_durtles.wk.livedata.LiveTimeLine;
 import com.smouldering_durtles.wk.model.TimeLine;
 import com.smouldering_durtles.wk.services.ApiTaskService;
+import com.smouldering_durtles.wk.services.AudioDownloadLane;
 import com.smouldering_durtles.wk.util.DbLogger;
 import com.smouldering_durtles.wk.util.Logger;
 
@@ -142,6 +143,10 @@ public abstract class Job {
         if (canTriggerApiTasks) {
             ApiTaskService.schedule();
         }
+
+        if (onlineStatus.canDownloadAudio()) {
+            AudioDownloadLane.getInstance().schedule();
+        }
     }
 
     /**
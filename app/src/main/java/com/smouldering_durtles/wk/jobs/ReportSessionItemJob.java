@@ -26,13 +26,9 @@ import com.smouldering_durtles.wk.WkApplication;
 import com.smouldering_durtles.wk.db.AppDatabase;
 import com.smouldering_durtles.wk.db.model.SessionItem;
 import com.smouldering_durtles.wk.db.model.Subject;
+import com.smouldering_durtles.wk.enums.DataChange;
 import com.smouldering_durtles.wk.enums.SessionType;
-import com.smouldering_durtles.wk.livedata.LiveAlertContext;
-import com.smouldering_durtles.wk.livedata.LiveBurnedItems;
-import com.smouldering_durtles.wk.livedata.LiveCriticalCondition;
-import com.smouldering_durtles.wk.livedata.LiveLevelProgress;
-import com.smouldering_durtles.wk.livedata.LiveSrsBreakDown;
-import com.smouldering_durtles.wk.livedata.LiveTimeLine;
+import com.smouldering_durtles.wk.livedata.LiveDataInvalidationBus;
 import com.smouldering_durtles.wk.model.SrsSystem;
 
 import javax.annotation.Nullable;
@@ -219,10 +215,7 @@ public final class ReportSessionItemJob extends Job {
             processLessonFinished(ts);
 
             if (updateLiveData) {
-                LiveTimeLine.getInstance().update();
-                LiveSrsBreakDown.getInstance().update();
-                LiveLevelProgress.getInstance().update();
-                LiveAlertContext.getInstance().update();
+                LiveDataInvalidationBus.getInstance().invalidate(DataChange.ASSIGNMENT);
             }
         }
 
@@ -230,12 +223,7 @@ public final class ReportSessionItemJob extends Job {
             justPassed = processReviewFinished(ts);
 
             if (updateLiveData) {
-                LiveTimeLine.getInstance().update();
-                LiveSrsBreakDown.getInstance().update();
-                LiveLevelProgress.getInstance().update();
-                LiveCriticalCondition.getInstance().update();
-                LiveBurnedItems.getInstance().update();
-                LiveAlertContext.getInstance().update();
+                LiveDataInvalidationBus.getInstance().invalidate(DataChange.ASSIGNMENT, DataChange.REVIEW_STATISTIC);
             }
         }
 
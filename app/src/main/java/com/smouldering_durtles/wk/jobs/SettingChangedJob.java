@@ -17,6 +17,7 @@
 package com.smouldering_durtles.wk.jobs;
 
 import com.smouldering_durtles.wk.WkApplication;
+import com.smouldering_durtles.wk.api.ApiAuthInterceptor;
 import com.smouldering_durtles.wk.db.AppDatabase;
 import com.smouldering_durtles.wk.livedata.LiveApiState;
 import com.smouldering_durtles.wk.livedata.LiveBurnedItems;
@@ -49,6 +50,7 @@ public final class SettingChangedJob extends Job {
         final AppDatabase db = WkApplication.getDatabase();
         switch (data) {
             case "api_key":
+                ApiAuthInterceptor.getInstance().invalidate();
                 db.propertiesDao().setApiKeyRejected(false);
                 db.propertiesDao().setApiInError(false);
                 db.propertiesDao().setLastApiSuccessDate(0);
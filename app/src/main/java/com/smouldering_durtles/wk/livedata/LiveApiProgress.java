@@ -16,6 +16,8 @@
 
 package com.smouldering_durtles.wk.livedata;
 
+import javax.annotation.Nullable;
+
 /**
  * LiveData for progress in background tasks.
  *
@@ -25,6 +27,13 @@ package com.smouldering_durtles.wk.livedata;
  *     The LiveData is just used to trigger observers to examine and update their
  *     display.
  * </p>
+ *
+ * <p>
+ *     Tasks in different lanes can run at the same time, but there is only one
+ *     progress display. The thread of the task that asked for its progress to be
+ *     shown owns the display until that task resets it, and other threads can't
+ *     change it in the meantime.
+ * </p>
  */
 public final class LiveApiProgress extends ConservativeLiveData<Object> {
     /**
@@ -38,6 +47,7 @@ public final class LiveApiProgress extends ConservativeLiveData<Object> {
     private int numProcessedEntities = 0;
     private int lastReportedCount = 0;
     private boolean syncReminder = false;
+    private volatile @Nullable Thread owner = null;
 
     /**
      * Get the singleton instance.
@@ -65,12 +75,26 @@ public final class LiveApiProgress extends ConservativeLiveData<Object> {
         return new Object();
     }
 
+    /**
+     * Check if the current thread may update the progress: nobody else has claimed the display,
+     * or the thread that did has died without releasing it.
+     *
+     * @return true if it may
+     */
+    private static boolean isOwner() {
+        final @Nullable Thread owner = instance.owner;
+        return owner == null || owner == Thread.currentThread() || !owner.isAlive();
+    }
+
     /**
      * Report that new entities have been added for the current task to process.
      *
      * @param num the number of additional entities
      */
     public static void addEntities(final int num) {
+        if (!isOwner()) {
+            return;
+        }
         instance.numEntities += num;
         instance.postValue(new Object());
     }
@@ -79,6 +103,9 @@ public final class LiveApiProgress extends ConservativeLiveData<Object> {
      * Report that one more entity has been processed by the current task.
      */
     public static void addProcessedEntity() {
+        if (!isOwner()) {
+            return;
+        }
         instance.numProcessedEntities++;
         if (instance.numProcessedEntities - instance.lastReportedCount >= 100
                 || instance.numProcessedEntities >= instance.numEntities
@@ -88,13 +115,31 @@ public final class LiveApiProgress extends ConservativeLiveData<Object> {
         }
     }
 
+    /**
+     * Report that a number of entities have been processed by the current task in one go.
+     *
+     * @param num the number of processed entities
+     */
+    public static void addProcessedEntities(final int num) {
+        if (!isOwner()) {
+            return;
+        }
+        instance.numProcessedEntities += num;
+        instance.postValue(new Object());
+        instance.lastReportedCount = instance.numProcessedEntities;
+    }
+
     /**
      * Reset the state for a new task.
      *
      * @param show true if the progress for this task must be shown
      * @param entityName the display name of the entity being synced right now, such as "subjects"
      */
-    public static void reset(final boolean show, final String entityName) {
+    public static synchronized void reset(final boolean show, final String entityName) {
+        if (!isOwner()) {
+            return;
+        }
+        instance.owner = show ? Thread.currentThread() : null;
         instance.show = show;
         instance.entityName = entityName;
         instance.numEntities = 0;
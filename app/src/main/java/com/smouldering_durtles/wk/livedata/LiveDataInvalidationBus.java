@@ -0,0 +1,155 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.smouldering_durtles.wk.livedata;
+
+import static com.smouldering_durtles.wk.Constants.LIVE_DATA_REFRESH_DELAY;
+import static com.smouldering_durtles.wk.util.ObjectSupport.safe;
+
+import com.smouldering_durtles.wk.enums.DataChange;
+import com.smouldering_durtles.wk.util.Debouncer;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+import javax.annotation.Nullable;
+
+/**
+ * Central place for writers to report data changes. The LiveData instances that depend on the
+ * changed data are refreshed once per burst of changes, on a single background thread.
+ *
+ * <p>
+ *     A sync or a session can report the same change many times in quick succession. Each report
+ *     used to refresh every dependent LiveData right away, each with its own heavy query. Now the
+ *     reports are collected for a short while, and each affected LiveData is refreshed only once.
+ *     The usual ConservativeLiveData rules still apply: instances without active observers only
+ *     record a pending update.
+ * </p>
+ */
+public final class LiveDataInvalidationBus {
+    /**
+     * The LiveData instances that can be refreshed through the bus.
+     */
+    private enum Target {
+        TIME_LINE, SRS_BREAK_DOWN, LEVEL_PROGRESS, JOYO_PROGRESS, JLPT_PROGRESS,
+        RECENT_UNLOCKS, CRITICAL_CONDITION, BURNED_ITEMS, LEVEL_DURATION, ALERT_CONTEXT
+    }
+
+    /**
+     * For each kind of change, the LiveData instances whose value depends on it.
+     */
+    private static final Map<DataChange, Collection<Target>> DEPENDENTS = new EnumMap<>(DataChange.class);
+
+    static {
+        DEPENDENTS.put(DataChange.ASSIGNMENT, EnumSet.allOf(Target.class));
+        DEPENDENTS.put(DataChange.REVIEW_STATISTIC, EnumSet.of(Target.CRITICAL_CONDITION));
+        DEPENDENTS.put(DataChange.SUBJECT, EnumSet.of(Target.TIME_LINE, Target.LEVEL_PROGRESS, Target.JOYO_PROGRESS,
+                Target.JLPT_PROGRESS, Target.RECENT_UNLOCKS, Target.CRITICAL_CONDITION, Target.BURNED_ITEMS, Target.LEVEL_DURATION));
+        DEPENDENTS.put(DataChange.LEVEL_PROGRESSION, EnumSet.of(Target.LEVEL_DURATION));
+        DEPENDENTS.put(DataChange.PROPERTIES, EnumSet.of(Target.TIME_LINE, Target.ALERT_CONTEXT));
+    }
+
+    /**
+     * The singleton instance.
+     */
+    private static final LiveDataInvalidationBus instance = new LiveDataInvalidationBus();
+
+    /**
+     * Get the singleton instance.
+     *
+     * @return the instance
+     */
+    public static LiveDataInvalidationBus getInstance() {
+        return instance;
+    }
+
+    private final Debouncer<Target> debouncer = new Debouncer<>(Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "LiveDataRefresh");
+        thread.setDaemon(true);
+        return thread;
+    }), LIVE_DATA_REFRESH_DELAY, LiveDataInvalidationBus::refresh);
+
+    /**
+     * Private constructor.
+     */
+    private LiveDataInvalidationBus() {
+        //
+    }
+
+    /**
+     * Report that data has changed. The dependent LiveData instances will be refreshed shortly.
+     *
+     * @param changes the kinds of data that have changed
+     */
+    public void invalidate(final DataChange... changes) {
+        final Collection<Target> targets = EnumSet.noneOf(Target.class);
+        for (final DataChange change: changes) {
+            final @Nullable Collection<Target> dependents = DEPENDENTS.get(change);
+            if (dependents != null) {
+                targets.addAll(dependents);
+            }
+        }
+        debouncer.submit(targets);
+    }
+
+    /**
+     * Refresh a batch of LiveData instances, each one separately protected against errors.
+     *
+     * @param targets the instances to refresh
+     */
+    private static void refresh(final Iterable<Target> targets) {
+        for (final Target target: targets) {
+            safe(() -> {
+                switch (target) {
+                    case TIME_LINE:
+                        LiveTimeLine.getInstance().update();
+                        break;
+                    case SRS_BREAK_DOWN:
+                        LiveSrsBreakDown.getInstance().update();
+                        break;
+                    case LEVEL_PROGRESS:
+                        LiveLevelProgress.getInstance().update();
+                        break;
+                    case JOYO_PROGRESS:
+                        LiveJoyoProgress.getInstance().update();
+                        break;
+                    case JLPT_PROGRESS:
+                        LiveJlptProgress.getInstance().update();
+                        break;
+                    case RECENT_UNLOCKS:
+                        LiveRecentUnlocks.getInstance().update();
+                        break;
+                    case CRITICAL_CONDITION:
+                        LiveCriticalCondition.getInstance().update();
+                        break;
+                    case BURNED_ITEMS:
+                        LiveBurnedItems.getInstance().update();
+                        break;
+                    case LEVEL_DURATION:
+                        LiveLevelDuration.getInstance().forceUpdate();
+                        break;
+                    case ALERT_CONTEXT:
+                        LiveAlertContext.getInstance().update();
+                        break;
+                }
+            });
+        }
+    }
+}
@@ -54,7 +54,7 @@ public final class LiveJlptProgress extends ConservativeLiveData<JlptProgress> {
         if (GlobalSettings.Dashboard.getShowJlptProgress() || hasNullValue()) {
             final AppDatabase db = WkApplication.getDatabase();
             final JlptProgress progress = new JlptProgress();
-            db.subjectAggregatesDao().getJlptProgress().forEach(progress::addItem);
+            db.dashboardAggregateDao().getJlptProgress().forEach(progress::addItem);
             instance.postValue(progress);
         }
         else {
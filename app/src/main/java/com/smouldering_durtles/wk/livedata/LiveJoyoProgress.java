@@ -54,7 +54,7 @@ public final class LiveJoyoProgress extends ConservativeLiveData<JoyoProgress> {
         if (GlobalSettings.Dashboard.getShowJoyoProgress() || hasNullValue()) {
             final AppDatabase db = WkApplication.getDatabase();
             final JoyoProgress progress = new JoyoProgress();
-            db.subjectAggregatesDao().getJoyoProgress().forEach(progress::addItem);
+            db.dashboardAggregateDao().getJoyoProgress().forEach(progress::addItem);
             instance.postValue(progress);
         }
         else {
@@ -82,7 +82,7 @@ public final class LiveLevelProgress extends ConservativeLiveData<LevelProgress>
         }
         final LevelProgress levelProgress = new LevelProgress(maxLevel);
 
-        for (final LevelProgressItem item : db.subjectViewsDao().getLevelProgressTotalItems()) {
+        for (final LevelProgressItem item : db.dashboardAggregateDao().getLevelProgressTotalItems()) {
             if (item.getType() == SubjectType.WANIKANI_KANA_VOCAB) {
                 LevelProgressItem combinedItem = new LevelProgressItem();
                 combinedItem.setType(SubjectType.WANIKANI_VOCAB);
@@ -94,7 +94,7 @@ public final class LiveLevelProgress extends ConservativeLiveData<LevelProgress>
             }
         }
 
-        for (final LevelProgressItem item : db.subjectViewsDao().getLevelProgressPassedItems()) {
+        for (final LevelProgressItem item : db.dashboardAggregateDao().getLevelProgressPassedItems()) {
             if (item.getType() == SubjectType.WANIKANI_KANA_VOCAB) {
                 LevelProgressItem combinedItem = new LevelProgressItem();
                 combinedItem.setType(SubjectType.WANIKANI_VOCAB);
@@ -114,7 +114,7 @@ public final class LiveLevelProgress extends ConservativeLiveData<LevelProgress>
         }
 
         levelProgress.getEntries().forEach(
-                entry -> db.subjectCollectionsDao().getLevelProgressSubjects(entry.getLevel(), entry.getType())
+                entry -> db.subjectCollectionsDao().getLevelProgressSummaries(entry.getLevel(), entry.getType())
                         .forEach(entry::addSubject));
 
         instance.postValue(levelProgress);
@@ -54,7 +54,7 @@ public final class LiveSrsBreakDown extends ConservativeLiveData<SrsBreakDown> {
     protected void updateLocal() {
         final AppDatabase db = WkApplication.getDatabase();
         final SrsBreakDown breakDown = new SrsBreakDown();
-        db.subjectViewsDao().getSrsBreakDownItems().forEach(item -> {
+        db.dashboardAggregateDao().getSrsBreakDownItems().forEach(item -> {
             final SrsSystem.Stage stage = SrsSystemRepository.getSrsSystem(item.getSystemId()).getStage(item.getStageId());
             breakDown.addCount(stage, item.getCount());
         });
@@ -26,6 +26,7 @@ import com.smouldering_durtles.wk.GlobalSettings;
 import com.smouldering_durtles.wk.WkApplication;
 import com.smouldering_durtles.wk.db.AppDatabase;
 import com.smouldering_durtles.wk.db.model.Subject;
+import com.smouldering_durtles.wk.db.model.SubjectSummary;
 import com.smouldering_durtles.wk.model.TimeLine;
 import com.smouldering_durtles.wk.util.AudioUtil;
 import com.smouldering_durtles.wk.util.PitchInfoUtil;
@@ -34,7 +35,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 
 /**
- * LiveData that tracks available and uncoming lessons and reviews, for the dashboard.
+ * LiveData that tracks available and uncoming lessons and reviews, for the dashboard. The timeline only holds
+ * subject summaries, the full subjects are only loaded when a session is started or audio needs to be scanned.
  */
 public final class LiveTimeLine extends ConservativeLiveData<TimeLine> {
     /**
@@ -70,17 +72,17 @@ public final class LiveTimeLine extends ConservativeLiveData<TimeLine> {
 
         final int size = GlobalSettings.Dashboard.getTimeLineChartSize();
         final TimeLine timeLine = new TimeLine(size);
-        final Collection<Subject> scanSubjects = new ArrayList<>();
+        final Collection<SubjectSummary> scanSubjects = new ArrayList<>();
 
         if (!vacationMode) {
-            db.subjectCollectionsDao().getAvailableLessonItems(maxLevel).forEach(subject -> {
+            db.subjectCollectionsDao().getAvailableLessonSummaries(maxLevel).forEach(subject -> {
                 timeLine.addLesson(subject);
                 scanSubjects.add(subject);
             });
 
             final long ahead = size * HOUR;
             final long cutoff = System.currentTimeMillis() + ahead;
-            db.subjectCollectionsDao().getUpcomingReviewItems(maxLevel, cutoff).forEach(subject -> {
+            db.subjectCollectionsDao().getUpcomingReviewSummaries(maxLevel, cutoff).forEach(subject -> {
                 timeLine.addReview(subject, !subject.isPassed() && levelUpIds.contains(subject.getId()));
                 scanSubjects.add(subject);
             });
@@ -100,8 +102,9 @@ public final class LiveTimeLine extends ConservativeLiveData<TimeLine> {
         if (GlobalSettings.Api.getAutoDownloadAudio()) {
             final long lastAudioScanDate = db.propertiesDao().getLastAudioScanDate();
             if (lastAudioScanDate == 0 || System.currentTimeMillis() - lastAudioScanDate > DAY/2) {
-                scanSubjects.addAll(db.subjectCollectionsDao().getByLevelRange(userLevel, userLevel));
-                AudioUtil.scheduleDownloadTasks(scanSubjects, 100);
+                final Collection<Subject> subjects = db.subjectCollectionsDao().hydrate(scanSubjects);
+                subjects.addAll(db.subjectCollectionsDao().getByLevelRange(userLevel, userLevel));
+                AudioUtil.scheduleDownloadTasks(subjects, 100);
                 db.propertiesDao().setLastAudioScanDate(System.currentTimeMillis());
             }
         }
@@ -21,10 +21,15 @@ import android.os.Looper;
 
 import com.smouldering_durtles.wk.WkApplication;
 import com.smouldering_durtles.wk.db.AppDatabase;
+import com.smouldering_durtles.wk.db.SubjectCache;
 import com.smouldering_durtles.wk.db.model.Subject;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.WeakHashMap;
 
@@ -38,6 +43,11 @@ import static com.smouldering_durtles.wk.util.ObjectSupport.safe;
  * <p>
  *     Listeners are asked ahead of time if they are interested in updates for a specific subject ID.
  * </p>
+ *
+ * <p>
+ *     Reporting a change also drops the subject from the subject cache, so changes must be reported
+ *     after the database has been updated.
+ * </p>
  */
 public final class SubjectChangeWatcher {
     private static final SubjectChangeWatcher instance = new SubjectChangeWatcher();
@@ -72,6 +82,7 @@ public final class SubjectChangeWatcher {
      * @param subjectId the ID of the subject that has been changed
      */
     public void reportChange(final long subjectId) {
+        SubjectCache.getInstance().invalidate(subjectId);
         safe(() -> {
             @Nullable Subject subject = null;
             final Iterable<SubjectChangeListener> listeners = new ArrayList<>(map.keySet());
@@ -89,4 +100,54 @@ public final class SubjectChangeWatcher {
             }
         });
     }
+
+    /**
+     * Report a batch of changes to subjects. Each subject is loaded at most once, and only if
+     * some listener is interested in it. All resulting notifications are delivered in a single
+     * post to the main thread.
+     *
+     * @param subjectIds the IDs of the subjects that have been changed
+     */
+    public void reportChanges(final Collection<Long> subjectIds) {
+        if (subjectIds.isEmpty()) {
+            return;
+        }
+        SubjectCache.getInstance().invalidate(subjectIds);
+        safe(() -> {
+            final Iterable<SubjectChangeListener> listeners = new ArrayList<>(map.keySet());
+            final AppDatabase db = WkApplication.getDatabase();
+            final Map<Long, Subject> subjects = new HashMap<>();
+            final Map<SubjectChangeListener, List<Subject>> changes = new IdentityHashMap<>();
+            for (final SubjectChangeListener listener: listeners) {
+                for (final long subjectId: subjectIds) {
+                    if (!listener.isInterestedInSubject(subjectId)) {
+                        continue;
+                    }
+                    @Nullable Subject subject = subjects.get(subjectId);
+                    if (subject == null && !subjects.containsKey(subjectId)) {
+                        subject = db.subjectDao().getById(subjectId);
+                        subjects.put(subjectId, subject);
+                    }
+                    if (subject != null) {
+                        @Nullable List<Subject> list = changes.get(listener);
+                        if (list == null) {
+                            list = new ArrayList<>();
+                            changes.put(listener, list);
+                        }
+                        list.add(subject);
+                    }
+                }
+            }
+            if (changes.isEmpty()) {
+                return;
+            }
+            new Handler(Looper.getMainLooper()).post(() -> {
+                for (final Map.Entry<SubjectChangeListener, List<Subject>> entry: changes.entrySet()) {
+                    for (final Subject subject: entry.getValue()) {
+                        safe(() -> entry.getKey().onSubjectChange(subject));
+                    }
+                }
+            });
+        });
+    }
 }
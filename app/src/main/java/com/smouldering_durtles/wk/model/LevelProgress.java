@@ -16,7 +16,7 @@
 
 package com.smouldering_durtles.wk.model;
 
-import com.smouldering_durtles.wk.db.model.Subject;
+import com.smouldering_durtles.wk.db.model.SubjectSummary;
 import com.smouldering_durtles.wk.enums.SubjectType;
 
 import java.util.ArrayList;
@@ -190,7 +190,7 @@ public final class LevelProgress {
          *
          * @param subject the subject to add
          */
-        public void addSubject(final Subject subject) {
+        public void addSubject(final SubjectSummary subject) {
             if (subject.isLocked()) {
                 buckets[9]++;
                 return;
@@ -0,0 +1,326 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.smouldering_durtles.wk.model;
+
+import com.smouldering_durtles.wk.db.model.SessionItem;
+import com.smouldering_durtles.wk.enums.SessionItemState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import static com.smouldering_durtles.wk.util.ObjectSupport.nextRandomInt;
+
+/**
+ * The index structures behind a session: the items, looked up by ID and by position, counters for
+ * the item states, and the choice delays per bucket. Items report their own changes through
+ * SessionItem.setScheduler(), so none of the counters ever needs a scan of the item list.
+ *
+ * <p>
+ *     Choosing a question works on the session's list of pending questions, in the same order and
+ *     with the same random choice as it always has. The optional filters (back-to-back, reading
+ *     first, meaning first, started items first) are combined in a single counting pass instead of
+ *     building a new list for each of them, and the final choice only walks the questions up to the
+ *     end of the first bucket.
+ * </p>
+ */
+public final class QuestionScheduler {
+    private static final int STARTED = 1;
+    private static final int READING_ALLOWED = 2;
+    private static final int MEANING_ALLOWED = 4;
+    private static final int NUM_PATTERNS = 8;
+
+    private List<SessionItem> items = Collections.emptyList();
+    private final Map<Long, SessionItem> itemsById = new HashMap<>();
+    private final Map<SessionItem, Integer> positions = new IdentityHashMap<>();
+    private final Map<Integer, Integer> bucketSizes = new HashMap<>();
+    private final Set<SessionItem> delayedItems = new LinkedHashSet<>();
+    private final int[] stateCounts = new int[SessionItemState.values().length];
+    private int numStarted = 0;
+    private final int[] patternCounts = new int[NUM_PATTERNS];
+
+    /**
+     * Replace the items in the session, and build the indexes for them. The list must not
+     * be modified afterwards, other than through the items themselves.
+     *
+     * @param newItems the items, in session order
+     */
+    public void setItems(final List<SessionItem> newItems) {
+        clear();
+        items = newItems;
+        for (int i=0; i<newItems.size(); i++) {
+            final SessionItem item = newItems.get(i);
+            itemsById.put(item.getId(), item);
+            positions.put(item, i);
+            final @Nullable Integer size = bucketSizes.get(item.getBucket());
+            bucketSizes.put(item.getBucket(), size == null ? 1 : size + 1);
+            stateCounts[item.getState().ordinal()]++;
+            if (item.isStarted()) {
+                numStarted++;
+            }
+            if (item.getChoiceDelay() > 0) {
+                delayedItems.add(item);
+            }
+            item.setScheduler(this);
+        }
+    }
+
+    /**
+     * Remove all items.
+     */
+    public void clear() {
+        for (final SessionItem item: items) {
+            item.setScheduler(null);
+        }
+        items = Collections.emptyList();
+        itemsById.clear();
+        positions.clear();
+        bucketSizes.clear();
+        delayedItems.clear();
+        Arrays.fill(stateCounts, 0);
+        numStarted = 0;
+    }
+
+    /**
+     * The items in the session, in session order.
+     *
+     * @return the unmodifiable list
+     */
+    public List<SessionItem> getItems() {
+        return Collections.unmodifiableList(items);
+    }
+
+    /**
+     * Called by an item when its state, number of answers or choice delay has changed.
+     *
+     * @param item the item
+     * @param oldState the state before the change
+     * @param oldStarted the started status before the change
+     * @param oldChoiceDelay the choice delay before the change
+     */
+    public void onItemChange(final SessionItem item, final SessionItemState oldState, final boolean oldStarted,
+                             final int oldChoiceDelay) {
+        if (item.getState() != oldState) {
+            stateCounts[oldState.ordinal()]--;
+            stateCounts[item.getState().ordinal()]++;
+        }
+        if (item.isStarted() != oldStarted) {
+            numStarted += oldStarted ? -1 : 1;
+        }
+        if (item.getChoiceDelay() > 0 && oldChoiceDelay <= 0) {
+            delayedItems.add(item);
+        }
+        else if (item.getChoiceDelay() <= 0 && oldChoiceDelay > 0) {
+            delayedItems.remove(item);
+        }
+    }
+
+    /**
+     * Find an item by subject ID.
+     *
+     * @param id the subject ID
+     * @return the item or null if not found
+     */
+    public @Nullable SessionItem findItem(final long id) {
+        return itemsById.get(id);
+    }
+
+    /**
+     * Get the position of an item in the session.
+     *
+     * @param item the item
+     * @return the zero-based position, or -1 if the item is not part of the session
+     */
+    public int indexOf(final @Nullable SessionItem item) {
+        if (item == null) {
+            return -1;
+        }
+        final @Nullable Integer position = positions.get(item);
+        return position == null ? -1 : position;
+    }
+
+    /**
+     * The number of items in the session in a specific state.
+     *
+     * @param state the state
+     * @return the number
+     */
+    public int getNumItems(final SessionItemState state) {
+        return stateCounts[state.ordinal()];
+    }
+
+    /**
+     * The number of started items in the session.
+     *
+     * @return the number
+     */
+    public int getNumStartedItems() {
+        return numStarted;
+    }
+
+    /**
+     * Count down the choice delay of all delayed items, after a question has been chosen.
+     */
+    public void decrementChoiceDelays() {
+        for (final SessionItem item: new ArrayList<>(delayedItems)) {
+            item.setChoiceDelay(item.getChoiceDelay() - 1);
+        }
+    }
+
+    /**
+     * Does a bucket have both delayed and undelayed items?.
+     *
+     * @param bucket the bucket
+     * @return true if it does
+     */
+    private boolean isBucketPartiallyDelayed(final int bucket) {
+        int numDelayed = 0;
+        for (final SessionItem item: delayedItems) {
+            if (item.getBucket() == bucket) {
+                numDelayed++;
+            }
+        }
+        final @Nullable Integer size = bucketSizes.get(bucket);
+        return numDelayed > 0 && size != null && size > numDelayed;
+    }
+
+    private static int getPattern(final Question question) {
+        final SessionItem item = question.getItem();
+        int pattern = 0;
+        if (item.isStarted()) {
+            pattern |= STARTED;
+        }
+        final boolean pendingBoth = item.hasPendingReadingAndMeaning();
+        if (!pendingBoth || question.getType().isReading()) {
+            pattern |= READING_ALLOWED;
+        }
+        if (!pendingBoth || question.getType().isMeaning()) {
+            pattern |= MEANING_ALLOWED;
+        }
+        return pattern;
+    }
+
+    /**
+     * Add a filter to a mask, but only if there is at least one question left that passes the combined filter.
+     *
+     * @param mask the filters so far
+     * @param filter the filter to add
+     * @return the new mask
+     */
+    private int narrow(final int mask, final int filter) {
+        final int wanted = mask | filter;
+        for (int pattern=0; pattern<NUM_PATTERNS; pattern++) {
+            if ((pattern & wanted) == wanted && patternCounts[pattern] > 0) {
+                return wanted;
+            }
+        }
+        return mask;
+    }
+
+    private static boolean isCandidate(final Question question, final int mask, final int bucket) {
+        if ((getPattern(question) & mask) != mask) {
+            return false;
+        }
+        return bucket < 0 || question.getItem().getBucket() == bucket && question.getItem().getChoiceDelay() == 0;
+    }
+
+    /**
+     * Choose the next question from the pending questions. The candidates are narrowed down by the
+     * enabled filters, each filter only being applied if it leaves something to choose from. Then
+     * a question is picked at random from the leading run of candidates that share the bucket of
+     * the first one. Undelayed items are preferred if the bucket has both delayed and undelayed ones.
+     *
+     * @param questions the pending questions, in order
+     * @param backToBack prefer questions for items that have already been started
+     * @param readingFirst prefer reading questions over meaning questions for the same item
+     * @param meaningFirst prefer meaning questions over reading questions for the same item
+     * @return the chosen question, or null if there are no questions
+     */
+    public @Nullable Question chooseQuestion(final List<Question> questions, final boolean backToBack,
+                                             final boolean readingFirst, final boolean meaningFirst) {
+        if (questions.isEmpty()) {
+            return null;
+        }
+
+        Arrays.fill(patternCounts, 0);
+        for (final Question question: questions) {
+            patternCounts[getPattern(question)]++;
+        }
+
+        int mask = 0;
+        if (backToBack) {
+            mask = narrow(mask, STARTED);
+        }
+        if (readingFirst) {
+            mask = narrow(mask, READING_ALLOWED);
+        }
+        if (meaningFirst) {
+            mask = narrow(mask, MEANING_ALLOWED);
+        }
+        if (numStarted >= 10) {
+            mask = narrow(mask, STARTED);
+        }
+
+        int currentBucket = -1;
+        for (final Question question: questions) {
+            if (isCandidate(question, mask, -1)) {
+                currentBucket = question.getItem().getBucket();
+                break;
+            }
+        }
+
+        int bucketFilter = -1;
+        if (isBucketPartiallyDelayed(currentBucket)) {
+            for (final Question question: questions) {
+                if (isCandidate(question, mask, currentBucket)) {
+                    bucketFilter = currentBucket;
+                    break;
+                }
+            }
+        }
+
+        int runLength = 0;
+        for (final Question question: questions) {
+            if (isCandidate(question, mask, bucketFilter)) {
+                if (question.getItem().getBucket() != currentBucket) {
+                    break;
+                }
+                runLength++;
+            }
+        }
+
+        int index = nextRandomInt(runLength);
+        for (final Question question: questions) {
+            if (isCandidate(question, mask, bucketFilter)) {
+                if (index == 0) {
+                    return question;
+                }
+                index--;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.model;
+
+import java.nio.charset.StandardCharsets;
+
+import javax.annotation.Nullable;
+
+/**
+ * The reference data for one subject as computed from the reference data pack, together with a
+ * content hash that is stored alongside the data so a later reload can tell if anything changed.
+ */
+public final class ReferenceDataValues {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final long id;
+    private final int frequency;
+    private final int joyoGrade;
+    private final int jlptLevel;
+    private final @Nullable String pitchInfo;
+    private final @Nullable String strokeData;
+    private final long hash;
+
+    /**
+     * The constructor.
+     *
+     * @param id the subject ID
+     * @param frequency the frequency
+     * @param joyoGrade the Joyo grade
+     * @param jlptLevel the JLPT level
+     * @param pitchInfo the pitch info, encoded as a JSON string
+     * @param strokeData the stroke data, encoded as a JSON string
+     */
+    public ReferenceDataValues(final long id, final int frequency, final int joyoGrade, final int jlptLevel,
+                               final @Nullable String pitchInfo, final @Nullable String strokeData) {
+        this.id = id;
+        this.frequency = frequency;
+        this.joyoGrade = joyoGrade;
+        this.jlptLevel = jlptLevel;
+        this.pitchInfo = pitchInfo;
+        this.strokeData = strokeData;
+        hash = computeHash();
+    }
+
+    private static long mix(final long hash, final int value) {
+        long h = hash;
+        for (int i=0; i<4; i++) {
+            h = (h ^ ((value >>> (i * 8)) & 0xFF)) * FNV_PRIME;
+        }
+        return h;
+    }
+
+    private static long mix(final long hash, final @Nullable String value) {
+        if (value == null) {
+            return mix(hash, -1);
+        }
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        long h = mix(hash, bytes.length);
+        for (final byte b: bytes) {
+            h = (h ^ (b & 0xFF)) * FNV_PRIME;
+        }
+        return h;
+    }
+
+    /**
+     * 64-bit FNV-1a over all values. The result is never 0, since 0 marks a subject whose
+     * reference data hash is unknown.
+     *
+     * @return the hash
+     */
+    private long computeHash() {
+        long h = FNV_OFFSET_BASIS;
+        h = mix(h, frequency);
+        h = mix(h, joyoGrade);
+        h = mix(h, jlptLevel);
+        h = mix(h, pitchInfo);
+        h = mix(h, strokeData);
+        return h == 0 ? 1 : h;
+    }
+
+    /**
+     * The subject ID.
+     * @return the value
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * The frequency (1-2500) for the 2500 most commonly used kanji.
+     * @return the value
+     */
+    public int getFrequency() {
+        return frequency;
+    }
+
+    /**
+     * The Joyo grade where this kanji is taught. 0 if not a Joyo kanji.
+     * @return the value
+     */
+    public int getJoyoGrade() {
+        return joyoGrade;
+    }
+
+    /**
+     * The JLPT level this is expected to belong to. 0 if not in any level.
+     * @return the value
+     */
+    public int getJlptLevel() {
+        return jlptLevel;
+    }
+
+    /**
+     * The pitch info for this subject.
+     * @return the value
+     */
+    public @Nullable String getPitchInfo() {
+        return pitchInfo;
+    }
+
+    /**
+     * The stroke data for this subject.
+     * @return the value
+     */
+    public @Nullable String getStrokeData() {
+        return strokeData;
+    }
+
+    /**
+     * The content hash of the values, never 0.
+     * @return the value
+     */
+    public long getHash() {
+        return hash;
+    }
+}
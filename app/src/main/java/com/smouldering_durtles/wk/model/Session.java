@@ -66,6 +66,8 @@ import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 
 import static com.smouldering_durtles.wk.enums.SessionItemState.ABANDONED;
+import static com.smouldering_durtles.wk.enums.SessionItemState.PENDING;
+import static com.smouldering_durtles.wk.enums.SessionItemState.REPORTED;
 import static com.smouldering_durtles.wk.enums.SessionState.ACTIVE;
 import static com.smouldering_durtles.wk.enums.SessionState.FINISHING;
 import static com.smouldering_durtles.wk.enums.SessionState.INACTIVE;
@@ -74,7 +76,6 @@ import static com.smouldering_durtles.wk.enums.SessionType.LESSON;
 import static com.smouldering_durtles.wk.enums.SessionType.NONE;
 import static com.smouldering_durtles.wk.enums.SessionType.REVIEW;
 import static com.smouldering_durtles.wk.enums.SessionType.SELF_STUDY;
-import static com.smouldering_durtles.wk.util.ObjectSupport.nextRandomInt;
 import static java.util.Objects.requireNonNull;
 
 /**
@@ -105,6 +106,7 @@ public final class Session implements SubjectChangeListener {
     private boolean answered = false;
     private boolean correct = false;
     private List<SessionItem> items = new ArrayList<>();
+    private final QuestionScheduler scheduler = new QuestionScheduler();
     private List<Question> questions = new ArrayList<>();
     private Comparator<Subject> comparator = ReviewOrder.SHUFFLE.getComparator();
     private final Deque<Question> history = new ArrayDeque<>();
@@ -314,14 +316,60 @@ s     *
         return questionChoiceReason;
     }
 
+    /**
+     * Add the subject of a session item to a list of upcoming subjects, if it isn't in it already.
+     *
+     * @param item the item
+     * @param subjects the list
+     */
+    private static void addUpcomingSubject(final @Nullable SessionItem item, final List<Subject> subjects) {
+        final @Nullable Subject subject = item == null ? null : item.getSubject();
+        if (subject != null && !subjects.contains(subject)) {
+            subjects.add(subject);
+        }
+    }
+
+    /**
+     * The subjects whose audio is most likely to be played next, in order. That is the subject of the
+     * current lesson item or unanswered reading question, followed by the next lesson items or the
+     * subjects of the pending reading questions in the order the scheduler considers them.
+     *
+     * @param maxSize the maximum number of subjects to return
+     * @return the subjects
+     */
+    public List<Subject> getUpcomingAudioSubjects(final int maxSize) {
+        final List<Subject> result = new ArrayList<>();
+        if (state == IN_LESSON_PRESENTATION) {
+            final int index = currentItem == null ? 0 : scheduler.indexOf(currentItem);
+            for (int i=Math.max(index, 0); i<items.size() && result.size() < maxSize; i++) {
+                addUpcomingSubject(items.get(i), result);
+            }
+            return result;
+        }
+        if (state != ACTIVE) {
+            return result;
+        }
+        if (currentQuestion != null && !answered && currentQuestion.getType().isReading()) {
+            addUpcomingSubject(currentQuestion.getItem(), result);
+        }
+        for (final Question question: questions) {
+            if (result.size() >= maxSize) {
+                break;
+            }
+            if (question.getType().isReading()) {
+                addUpcomingSubject(question.getItem(), result);
+            }
+        }
+        return result;
+    }
+
     /**
      * The number of items in the session that are still active.
      *
      * @return the number
      */
-    @SuppressLint("NewApi")
     public int getNumActiveItems() {
-        return (int) items.stream().filter(SessionItem::isActive).count();
+        return scheduler.getNumItems(SessionItemState.ACTIVE);
     }
 
     /**
@@ -329,9 +377,8 @@ s     *
      *
      * @return the number
      */
-    @SuppressLint("NewApi")
     public int getNumPendingItems() {
-        return (int) items.stream().filter(SessionItem::isPending).count();
+        return scheduler.getNumItems(PENDING);
     }
 
     /**
@@ -339,9 +386,8 @@ s     *
      *
      * @return the number
      */
-    @SuppressLint("NewApi")
     private int getNumFinishedItems() {
-        return (int) items.stream().filter(item -> item.isReported() || item.isPending()).count();
+        return scheduler.getNumItems(REPORTED) + scheduler.getNumItems(PENDING);
     }
 
     /**
@@ -349,9 +395,8 @@ s     *
      *
      * @return the number
      */
-    @SuppressLint("NewApi")
     private int getNumLiveItems() {
-        return (int) items.stream().filter(item -> !item.isAbandoned()).count();
+        return items.size() - scheduler.getNumItems(ABANDONED);
     }
 
     /**
@@ -359,9 +404,8 @@ s     *
      *
      * @return the number
      */
-    @SuppressLint("NewApi")
     public int getNumStartedItems() {
-        return (int) items.stream().filter(SessionItem::isStarted).count();
+        return scheduler.getNumStartedItems();
     }
 
     /**
@@ -369,9 +413,8 @@ s     *
      *
      * @return the number
      */
-    @SuppressLint("NewApi")
     public int getNumReportedItems() {
-        return (int) items.stream().filter(SessionItem::isReported).count();
+        return scheduler.getNumItems(REPORTED);
     }
 
     /**
@@ -384,7 +427,7 @@ s     *
         if (item == null) {
             return false;
         }
-        return items.indexOf(item) == 0;
+        return scheduler.indexOf(item) == 0;
     }
 
     /**
@@ -397,7 +440,7 @@ s     *
         if (item == null) {
             return false;
         }
-        return items.indexOf(item) == items.size() - 1;
+        return scheduler.indexOf(item) == items.size() - 1;
     }
 
     /**
@@ -416,7 +459,7 @@ s     *
      */
     public String getProgressText() {
         if (isInLessonPresentation()) {
-            return String.format(Locale.ROOT, "%d/%d", items.indexOf(currentItem)+1, items.size());
+            return String.format(Locale.ROOT, "%d/%d", scheduler.indexOf(currentItem)+1, items.size());
         }
         final boolean wrappingUp = state == ACTIVE && getNumStartedItems() >= getNumActiveItems();
         final String prefix = wrappingUp ? "Wrapup: " : "";
@@ -427,7 +470,6 @@ s     *
      * Choose a question from the available questions, taking into account
      * order requirements and other relevant configuration.
      */
-    @SuppressLint("NewApi")
     public void chooseQuestion() {
         if (currentQuestion != null || isFinishing() || isInactive()) {
             return;
@@ -459,84 +501,13 @@ s     *
             return;
         }
 
-        List<Question> candidateQuestions = questions;
-
-        if (backToBack) {
-            final List<Question> list = candidateQuestions.stream()
-                    .filter(question -> question.getItem().isStarted())
-                    .collect(Collectors.toList());
-            if (!list.isEmpty()) {
-                candidateQuestions = list;
-            }
-        }
-
-        if (readingFirst) {
-            final List<Question> list = candidateQuestions.stream()
-                    .filter(question -> !question.getItem().hasPendingReadingAndMeaning() || question.getType().isReading())
-                    .collect(Collectors.toList());
-            if (!list.isEmpty()) {
-                candidateQuestions = list;
-            }
-        }
-
-        if (meaningFirst) {
-            final List<Question> list = candidateQuestions.stream()
-                    .filter(question -> !question.getItem().hasPendingReadingAndMeaning() || question.getType().isMeaning())
-                    .collect(Collectors.toList());
-            if (!list.isEmpty()) {
-                candidateQuestions = list;
-            }
-        }
-
-        if (getNumStartedItems() >= 10) {
-            final List<Question> list = candidateQuestions.stream()
-                    .filter(question -> question.getItem().isStarted())
-                    .collect(Collectors.toList());
-            if (!list.isEmpty()) {
-                candidateQuestions = list;
-            }
-        }
-
-        boolean hasDelayed = false;
-        boolean hasUndelayed = false;
-        final int currentBucket = candidateQuestions.get(0).getItem().getBucket();
-        for (final SessionItem item: items) {
-            if (item.getBucket() == currentBucket) {
-                if (item.getChoiceDelay() == 0) {
-                    hasUndelayed = true;
-                }
-                else {
-                    hasDelayed = true;
-                }
-            }
-        }
-        if (hasDelayed && hasUndelayed) {
-            final List<Question> list = candidateQuestions.stream()
-                    .filter(question -> question.getItem().getBucket() == currentBucket)
-                    .filter(question -> question.getItem().getChoiceDelay() == 0)
-                    .collect(Collectors.toList());
-            if (!list.isEmpty()) {
-                candidateQuestions = list;
-            }
-        }
-
-        final int bucket = candidateQuestions.get(0).getItem().getBucket();
-        int i = 1;
-        while (i < candidateQuestions.size() && candidateQuestions.get(i).getItem().getBucket() == bucket) {
-            i++;
-        }
-        final int index = nextRandomInt(i);
-        setCurrentQuestion(candidateQuestions.get(index), questionChoiceReason);
-        currentItem = currentQuestion.getItem();
+        setCurrentQuestion(scheduler.chooseQuestion(questions, backToBack, readingFirst, meaningFirst), questionChoiceReason);
+        currentItem = requireNonNull(currentQuestion).getItem();
         WkApplication.getDatabase().propertiesDao().setCurrentItemId(currentItem.getId());
         WkApplication.getDatabase().propertiesDao().setCurrentQuestionType(currentQuestion.getType());
         FloatingUiState.audioPlayed = false;
         FloatingUiState.showDumpStage = null;
-        for (final SessionItem item: items) {
-            if (item.getChoiceDelay() > 0) {
-                item.setChoiceDelay(item.getChoiceDelay() - 1);
-            }
-        }
+        scheduler.decrementChoiceDelays();
         LOGGER.info("Choose question: %s", currentQuestion);
         LiveSessionProgress.getInstance().ping();
     }
@@ -555,7 +526,7 @@ s     *
             LOGGER.info("Move to next lesson item: no current item");
             return;
         }
-        final int index = items.indexOf(currentItem) + 1;
+        final int index = scheduler.indexOf(currentItem) + 1;
         if (index >= items.size()) {
             LOGGER.info("Move to next lesson item: no next item");
             return;
@@ -584,7 +555,7 @@ s     *
             LOGGER.info("Move to previous lesson item: no current item");
             return;
         }
-        final int index = items.indexOf(currentItem) - 1;
+        final int index = scheduler.indexOf(currentItem) - 1;
         if (index < 0 || index >= items.size()) {
             LOGGER.info("Move to previous lesson item: no next item");
             return;
@@ -1225,6 +1196,7 @@ s     *
                     items.add(item);
                 }
             }
+            scheduler.setItems(items);
             if (!items.isEmpty()) {
                 createQuestions();
                 state = type == LESSON && getNumStartedItems() == 0 ? IN_LESSON_PRESENTATION : ACTIVE;
@@ -1275,6 +1247,7 @@ s     *
      */
     public void finish() {
         LOGGER.info("Finishing session");
+        scheduler.clear();
         items.clear();
         questions.clear();
         history.clear();
@@ -1292,6 +1265,7 @@ s     *
      * Force reset the state in the database, as part of resetting the app database.
      */
     public void reset() {
+        scheduler.clear();
         items.clear();
         questions.clear();
         history.clear();
@@ -1432,6 +1406,7 @@ s     *
             prev = subject;
         }
 
+        scheduler.setItems(items);
         LOGGER.info("Items created: %d", items.size());
     }
 
@@ -1590,9 +1565,8 @@ s     *
      * @param id the subject ID
      * @return the item or null if not found
      */
-    @SuppressLint("NewApi")
     public @Nullable SessionItem findItemBySubjectId(final long id) {
-        return items.stream().filter(item -> item.getId() == id).findAny().orElse(null);
+        return scheduler.findItem(id);
     }
 
     @Override
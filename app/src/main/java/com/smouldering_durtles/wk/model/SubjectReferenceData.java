@@ -16,23 +16,21 @@
 
 package com.smouldering_durtles.wk.model;
 
+import com.smouldering_durtles.wk.db.ReferenceDataApplier;
 import com.smouldering_durtles.wk.enums.SubjectType;
 
 import javax.annotation.Nullable;
 
 /**
- * Subset model of Subject that contains the characters and the reference data.
- * Used for bulk updates of reference data.
+ * Subset model of Subject that contains the characters and the content hash of the stored
+ * reference data. Used for bulk updates of reference data, where the stored values themselves
+ * are only needed to decide if a subject must be updated, and the hash answers that.
  */
-public final class SubjectReferenceData {
+public final class SubjectReferenceData implements ReferenceDataApplier.StoredSubject {
     private final long id;
     private final @Nullable SubjectType type;
     private final @Nullable String characters;
-    private final int frequency;
-    private final int joyoGrade;
-    private final int jlptLevel;
-    private final @Nullable String pitchInfo;
-    private final @Nullable String strokeData;
+    private final long referenceDataHash;
 
     /**
      * The constructor.
@@ -40,23 +38,14 @@ public final class SubjectReferenceData {
      * @param id the subject ID
      * @param type subject field
      * @param characters subject field
-     * @param frequency subject field
-     * @param joyoGrade subject field
-     * @param jlptLevel subject field
-     * @param pitchInfo subject field
-     * @param strokeData subject field
+     * @param referenceDataHash subject field
      */
     public SubjectReferenceData(final long id, final @Nullable SubjectType type, final @Nullable String characters,
-                                final int frequency, final int joyoGrade, final int jlptLevel,
-                                final @Nullable String pitchInfo, final @Nullable String strokeData) {
+                                final long referenceDataHash) {
         this.id = id;
         this.type = type;
         this.characters = characters;
-        this.frequency = frequency;
-        this.joyoGrade = joyoGrade;
-        this.jlptLevel = jlptLevel;
-        this.pitchInfo = pitchInfo;
-        this.strokeData = strokeData;
+        this.referenceDataHash = referenceDataHash;
     }
 
     /**
@@ -85,44 +74,13 @@ public final class SubjectReferenceData {
     }
 
     /**
-     * The frequency (1-2500) for the 2500 most commonly used kanji.
+     * The content hash of the reference data as it was last applied to this subject, see
+     * ReferenceDataValues.getHash(). 0 if unknown, for subjects that haven't been written since the
+     * hash column was added.
      * @return the value
      */
-    public int getFrequency() {
-        return frequency;
-    }
-
-    /**
-     * The Joyo grade where this kanji is taught. 0 if not a Joyo kanji.
-     * @return the value
-     */
-    public int getJoyoGrade() {
-        return joyoGrade;
-    }
-
-    /**
-     * The JLPT level this is expected to belong to. 0 if not in any level.
-     * Since the JLPT scope per level is not published anymore, this is partly based on guesswork.
-     * @return the value
-     */
-    public int getJlptLevel() {
-        return jlptLevel;
-    }
-
-    /**
-     * The pitch info for this subject. A null value means undetermined, an empty array means no
-     * pitch info should be shown.
-     * @return the value
-     */
-    public @Nullable String getPitchInfo() {
-        return pitchInfo;
-    }
-
-    /**
-     * The stroke data for this subject.
-     * @return the value
-     */
-    public @Nullable String getStrokeData() {
-        return strokeData;
+    @Override
+    public long getReferenceDataHash() {
+        return referenceDataHash;
     }
 }
@@ -16,7 +16,7 @@
 
 package com.smouldering_durtles.wk.model;
 
-import com.smouldering_durtles.wk.db.model.Subject;
+import com.smouldering_durtles.wk.db.model.SubjectSummary;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -32,9 +32,9 @@ import static com.smouldering_durtles.wk.util.ObjectSupport.getTopOfHour;
 public final class TimeLine {
     private final long createdAt;
     private final long firstSlot;
-    private final List<Subject> availableLessons = new ArrayList<>();
-    private final List<Subject> availableReviews = new ArrayList<>();
-    private final List<List<Subject>> timeLine = new ArrayList<>();
+    private final List<SubjectSummary> availableLessons = new ArrayList<>();
+    private final List<SubjectSummary> availableReviews = new ArrayList<>();
+    private final List<List<SubjectSummary>> timeLine = new ArrayList<>();
     private final List<Integer> numRequiredForLevelUp = new ArrayList<>();
     private long longTermUpcomingReviewDate = 0;
     private int numLongTermUpcomingReviews = 0;
@@ -99,7 +99,7 @@ public final class TimeLine {
      * The list of available lessons.
      * @return the value
      */
-    public List<Subject> getAvailableLessons() {
+    public List<SubjectSummary> getAvailableLessons() {
         return Collections.unmodifiableList(availableLessons);
     }
 
@@ -107,7 +107,7 @@ public final class TimeLine {
      * The list of reviews that are available right now.
      * @return the value
      */
-    public List<Subject> getAvailableReviews() {
+    public List<SubjectSummary> getAvailableReviews() {
         return Collections.unmodifiableList(availableReviews);
     }
 
@@ -117,7 +117,7 @@ public final class TimeLine {
      * in the list may be empty, but not null.
      * @return the value
      */
-    public List<List<Subject>> getTimeLine() {
+    public List<List<SubjectSummary>> getTimeLine() {
         return Collections.unmodifiableList(timeLine);
     }
 
@@ -134,7 +134,7 @@ public final class TimeLine {
      *
      * @param lesson the lesson to add
      */
-    public void addLesson(final Subject lesson) {
+    public void addLesson(final SubjectSummary lesson) {
         availableLessons.add(lesson);
     }
 
@@ -144,7 +144,7 @@ public final class TimeLine {
      * @param review the review to add
      * @param requiredForLevelUp is this item on the level-up progression path?
      */
-    public void addReview(final Subject review, final boolean requiredForLevelUp) {
+    public void addReview(final SubjectSummary review, final boolean requiredForLevelUp) {
         if (review.getAvailableAt() == 0) {
             return;
         }
@@ -208,7 +208,7 @@ public final class TimeLine {
      */
     public boolean hasUpcomingReviews() {
         for (int i=1; i<timeLine.size(); i++) {
-            final List<Subject> slot = timeLine.get(i);
+            final List<SubjectSummary> slot = timeLine.get(i);
             if (!slot.isEmpty()) {
                 return true;
             }
@@ -236,7 +236,7 @@ public final class TimeLine {
      */
     public int getNumSingleSlotUpcomingReviews() {
         for (int i=1; i<timeLine.size(); i++) {
-            final List<Subject> slot = timeLine.get(i);
+            final List<SubjectSummary> slot = timeLine.get(i);
             if (!slot.isEmpty()) {
                 return slot.size();
             }
@@ -251,7 +251,7 @@ public final class TimeLine {
      */
     public long getUpcomingReviewDate() {
         for (int i=1; i<timeLine.size(); i++) {
-            final List<Subject> slot = timeLine.get(i);
+            final List<SubjectSummary> slot = timeLine.get(i);
             if (!slot.isEmpty()) {
                 return slot.get(0).getAvailableAt();
             }
@@ -21,18 +21,32 @@ import android.content.Intent;
 import com.smouldering_durtles.wk.GlobalSettings;
 import com.smouldering_durtles.wk.WkApplication;
 import com.smouldering_durtles.wk.db.AppDatabase;
+import com.smouldering_durtles.wk.db.dao.TaskDefinitionDao;
 import com.smouldering_durtles.wk.db.model.TaskDefinition;
+import com.smouldering_durtles.wk.enums.TaskLane;
 import com.smouldering_durtles.wk.jobs.TickJob;
 import com.smouldering_durtles.wk.livedata.LiveFirstTimeSetup;
 import com.smouldering_durtles.wk.model.Session;
 import com.smouldering_durtles.wk.services.JobIntentService;
 import com.smouldering_durtles.wk.tasks.ApiTask;
+import com.smouldering_durtles.wk.tasks.DownloadAudioTask;
+import com.smouldering_durtles.wk.tasks.DownloadPitchInfoTask;
+import com.smouldering_durtles.wk.tasks.GetSummaryTask;
+import com.smouldering_durtles.wk.tasks.ReportSessionItemTask;
+import com.smouldering_durtles.wk.tasks.ScanAudioDownloadStatusTask;
+import com.smouldering_durtles.wk.tasks.SubmitStudyMaterialTask;
+import com.smouldering_durtles.wk.util.LaneScheduler;
+import com.smouldering_durtles.wk.util.Logger;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import static com.smouldering_durtles.wk.Constants.LANE_STARVATION_LIMIT;
 import static com.smouldering_durtles.wk.StableIds.API_TASK_SERVICE_JOB_ID;
 import static com.smouldering_durtles.wk.util.ObjectSupport.safe;
 
@@ -43,54 +57,185 @@ import static com.smouldering_durtles.wk.util.ObjectSupport.safe;
  * so they will be executed even across restarts and when errors occur.
  *
  * <p>
- *     Tasks are recorded in the database. This service will loop over them
- *     one by one in priority order, taking into account the current online
- *     status.
+ *     Tasks are recorded in the database, and run in three lanes that work
+ *     independently of each other, each in priority order: interactive tasks
+ *     the user is waiting for, the sync of the API collections and the
+ *     reference data, and bulk downloads. The sync lane doesn't start a task
+ *     while interactive tasks are pending, so the reports always go out
+ *     before the collections are refreshed. Otherwise, a task that can't run
+ *     because of the current online status only holds up its own lane.
+ * </p>
+ *
+ * <p>
+ *     Audio download tasks are the exception: they are worked through by
+ *     AudioDownloadLane, in parallel and independently of the lanes here.
  * </p>
  */
 public final class ApiTaskService extends JobIntentService {
+    private static final Logger LOGGER = Logger.get(ApiTaskService.class);
+
+    /**
+     * The task classes that run in the interactive lane.
+     */
+    private static final Collection<Class<? extends ApiTask>> INTERACTIVE_TASKS = Arrays.asList(
+            ReportSessionItemTask.class, SubmitStudyMaterialTask.class, GetSummaryTask.class);
+
     /**
-     * A single dummy object to synchronize on, to make sure the background sync doesn't
-     * overlap with this.
+     * The task classes that run in the bulk lane.
      */
-    private static final Object TASK_MONITOR = new Object();
+    private static final Collection<Class<? extends ApiTask>> BULK_TASKS = Arrays.asList(
+            DownloadPitchInfoTask.class, ScanAudioDownloadStatusTask.class);
+
+    /**
+     * The task classes that don't run in the sync lane, which gets everything else.
+     */
+    private static final Collection<Class<? extends ApiTask>> NON_SYNC_TASKS = new ArrayList<>();
+
+    static {
+        NON_SYNC_TASKS.addAll(INTERACTIVE_TASKS);
+        NON_SYNC_TASKS.addAll(BULK_TASKS);
+        NON_SYNC_TASKS.add(DownloadAudioTask.class);
+    }
+
+    private static final LaneScheduler SCHEDULER = new LaneScheduler(new LaneScheduler.Queue() {
+        @Override
+        public List<Long> getNextIds(final TaskLane lane, final int maxCount) {
+            final TaskDefinitionDao dao = WkApplication.getDatabase().taskDefinitionDao();
+            switch (lane) {
+                case INTERACTIVE:
+                    return dao.getNextIdsIn(INTERACTIVE_TASKS, maxCount);
+                case BULK:
+                    return dao.getNextIdsIn(BULK_TASKS, maxCount);
+                case SYNC:
+                default:
+                    return dao.getNextIdsNotIn(NON_SYNC_TASKS, maxCount);
+            }
+        }
+
+        @Override
+        public List<Long> getOldestIds(final TaskLane lane, final int maxCount) {
+            final TaskDefinitionDao dao = WkApplication.getDatabase().taskDefinitionDao();
+            switch (lane) {
+                case INTERACTIVE:
+                    return dao.getOldestIdsIn(INTERACTIVE_TASKS, maxCount);
+                case BULK:
+                    return dao.getOldestIdsIn(BULK_TASKS, maxCount);
+                case SYNC:
+                default:
+                    return dao.getOldestIdsNotIn(NON_SYNC_TASKS, maxCount);
+            }
+        }
+
+        @Override
+        public @Nullable LaneScheduler.Task load(final long id) throws Exception {
+            final @Nullable ApiTask apiTask = loadTask(id);
+            if (apiTask == null) {
+                return null;
+            }
+            final TaskLane lane = getLane(apiTask.getClass());
+            return new LaneScheduler.Task() {
+                @Override
+                public boolean canRun() {
+                    return apiTask.canRun();
+                }
+
+                @Override
+                public boolean canRunConcurrently() {
+                    return apiTask.canRunConcurrently();
+                }
+
+                @Override
+                public void run() {
+                    if (lane == TaskLane.SYNC) {
+                        prefetchFollowingTask(id);
+                    }
+                    apiTask.run(lane);
+                }
+            };
+        }
+
+        @Override
+        public void onError(final Exception e) {
+            LOGGER.uerr(e);
+        }
+    }, LANE_STARVATION_LIMIT);
 
     /**
      * Schedule a run of the service to be executed on a background thread.
-     * This is regularly called from job housekeeping.
+     * This is regularly called from job housekeeping. The lanes start working
+     * right away, the service keeps the app alive until they are done.
      */
     public static void schedule() {
+        SCHEDULER.schedule();
         final Intent intent = new Intent(WkApplication.getInstance(), ApiTaskService.class);
         enqueueWork(WkApplication.getInstance(), ApiTaskService.class, API_TASK_SERVICE_JOB_ID, intent);
     }
 
-    private static void runTasksImpl() throws Exception {
+    /**
+     * Get the lane a task class runs in.
+     *
+     * @param clas the task class
+     * @return the lane
+     */
+    private static TaskLane getLane(final Class<? extends ApiTask> clas) {
+        if (INTERACTIVE_TASKS.contains(clas)) {
+            return TaskLane.INTERACTIVE;
+        }
+        if (BULK_TASKS.contains(clas)) {
+            return TaskLane.BULK;
+        }
+        return TaskLane.SYNC;
+    }
+
+    /**
+     * Load a task from the database and instantiate it. A task with an unknown class is removed.
+     *
+     * @param id the ID of the task
+     * @return the task or null if it doesn't exist (anymore)
+     * @throws Exception if the task could not be instantiated
+     */
+    private static @Nullable ApiTask loadTask(final long id) throws Exception {
         final AppDatabase db = WkApplication.getDatabase();
-        while (db.hasPendingApiTasks()) {
-            //noinspection SynchronizationOnStaticField
-            synchronized (TASK_MONITOR) {
-                final @Nullable TaskDefinition taskDefinition = db.taskDefinitionDao().getNextTaskDefinition();
-                if (taskDefinition == null) {
-                    break;
-                }
+        final @Nullable TaskDefinition taskDefinition = db.taskDefinitionDao().getById(id);
+        if (taskDefinition == null) {
+            return null;
+        }
+        final @Nullable Class<? extends ApiTask> clas = taskDefinition.getTaskClass();
+        if (clas == null) {
+            db.taskDefinitionDao().deleteTaskDefinition(taskDefinition);
+            return null;
+        }
+        return clas.getConstructor(TaskDefinition.class).newInstance(taskDefinition);
+    }
 
-                final @Nullable Class<? extends ApiTask> clas = taskDefinition.getTaskClass();
-                if (clas == null) {
-                    db.taskDefinitionDao().deleteTaskDefinition(taskDefinition);
+    /**
+     * Let the sync task that is queued after the one about to run start fetching its data, so its
+     * network time overlaps with the database work of the current task. The tasks themselves
+     * still run strictly one at a time and in order.
+     *
+     * @param currentId the ID of the task about to run
+     */
+    private static void prefetchFollowingTask(final long currentId) {
+        safe(() -> {
+            final List<Long> ids = WkApplication.getDatabase().taskDefinitionDao().getNextIdsNotIn(NON_SYNC_TASKS, 2);
+            for (final long id: ids) {
+                if (id == currentId) {
+                    continue;
                 }
-                else {
-                    final ApiTask apiTask = taskDefinition.getTaskClass()
-                            .getConstructor(TaskDefinition.class)
-                            .newInstance(taskDefinition);
-
-                    if (!apiTask.canRun()) {
-                        break;
-                    }
-
-                    apiTask.run();
+                final @Nullable ApiTask apiTask = loadTask(id);
+                if (apiTask != null && apiTask.canRun()) {
+                    apiTask.prefetch();
                 }
+                return;
             }
-        }
+        });
+    }
+
+    private static void runTasksImpl() throws Exception {
+        SCHEDULER.schedule();
+        SCHEDULER.awaitIdle();
+
+        final AppDatabase db = WkApplication.getDatabase();
         if (db.taskDefinitionDao().getApiCount() == 0) {
             if (GlobalSettings.getFirstTimeSetup() == 0) {
                 GlobalSettings.setFirstTimeSetup(1);
@@ -120,8 +265,9 @@ public final class ApiTaskService extends JobIntentService {
     }
 
     /**
-     * Loop through all available tasks and execute them one by one, taking into
-     * account the priority order and online status.
+     * Run all available tasks in their lanes, and wait until the lanes have run
+     * out of tasks they can run, taking into account the priority order and
+     * online status.
      *
      * <p>
      *     Each task is response for removing itself from the database when
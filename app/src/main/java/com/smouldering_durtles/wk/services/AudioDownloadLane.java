@@ -0,0 +1,278 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.services;
+
+import com.smouldering_durtles.wk.WkApplication;
+import com.smouldering_durtles.wk.api.model.PronunciationAudio;
+import com.smouldering_durtles.wk.db.AppDatabase;
+import com.smouldering_durtles.wk.db.model.Subject;
+import com.smouldering_durtles.wk.db.model.TaskDefinition;
+import com.smouldering_durtles.wk.tasks.DownloadAudioTask;
+import com.smouldering_durtles.wk.util.AudioDownloader;
+import com.smouldering_durtles.wk.util.AudioUtil;
+import com.smouldering_durtles.wk.util.HttpClients;
+import com.smouldering_durtles.wk.util.Logger;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+import static com.smouldering_durtles.wk.Constants.MAX_AUDIO_DOWNLOAD_TASKS_PER_ROUND;
+import static com.smouldering_durtles.wk.Constants.NUM_AUDIO_DOWNLOAD_THREADS;
+import static com.smouldering_durtles.wk.util.ObjectSupport.isEqual;
+import static com.smouldering_durtles.wk.util.ObjectSupport.orElse;
+import static com.smouldering_durtles.wk.util.ObjectSupport.safe;
+
+/**
+ * The lane that works through the pending audio download tasks, separately from the API task
+ * queue. The DownloadAudioTask records in the database are still the persistent queue, but
+ * ApiTaskService leaves them alone, so audio downloads never wait behind API work and API work
+ * never waits behind audio downloads.
+ *
+ * <p>
+ *     Pending tasks are picked up in rounds. The subjects of a round are grouped by level, and all
+ *     missing audio for a level is downloaded as one batch, a few files at a time. The download
+ *     status of a level is updated once, after its batch, and the level's tasks are then removed.
+ *     If the online status stops allowing audio downloads halfway, or the downloads are aborted,
+ *     the remaining tasks stay queued, and partially downloaded files are resumed next time.
+ * </p>
+ */
+public final class AudioDownloadLane {
+    private static final Logger LOGGER = Logger.get(AudioDownloadLane.class);
+
+    private static final AudioDownloadLane instance = new AudioDownloadLane();
+
+    private final ExecutorService coordinator;
+    private final ExecutorService workers;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicBoolean requested = new AtomicBoolean(false);
+    private final AtomicInteger generation = new AtomicInteger(0);
+
+    /**
+     * Get the singleton instance.
+     *
+     * @return the instance
+     */
+    public static AudioDownloadLane getInstance() {
+        return instance;
+    }
+
+    /**
+     * Create a pool of daemon threads that shuts down its threads when idle.
+     *
+     * @param numThreads the number of threads
+     * @param name the prefix for the thread names
+     * @return the pool
+     */
+    private static ExecutorService createPool(final int numThreads, final String name) {
+        final AtomicInteger count = new AtomicInteger(1);
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(numThreads, numThreads,
+                30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                    final Thread thread = new Thread(r, name + " #" + count.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private AudioDownloadLane() {
+        coordinator = createPool(1, "AudioDownloadLane");
+        workers = createPool(NUM_AUDIO_DOWNLOAD_THREADS, "AudioDownload");
+    }
+
+    /**
+     * Make sure the lane is working through the pending audio downloads. This returns right away.
+     * If the lane is already busy, it will take another look at the queue when it is done.
+     */
+    public void schedule() {
+        requested.set(true);
+        if (running.compareAndSet(false, true)) {
+            coordinator.execute(this::runLoop);
+        }
+    }
+
+    /**
+     * Stop the downloads that are in progress at the first opportunity. Files that are already
+     * being downloaded are finished, the rest of the batch is skipped.
+     */
+    public void abort() {
+        generation.incrementAndGet();
+    }
+
+    /**
+     * Keep draining the queue for as long as new requests come in.
+     */
+    private void runLoop() {
+        try {
+            while (requested.getAndSet(false)) {
+                safe(this::drain);
+            }
+        } finally {
+            running.set(false);
+        }
+        if (requested.get() && running.compareAndSet(false, true)) {
+            coordinator.execute(this::runLoop);
+        }
+    }
+
+    /**
+     * Check if the current network circumstances allow audio downloads.
+     *
+     * @return true if they do
+     */
+    private static boolean canRun() {
+        return WkApplication.getInstance().getOnlineStatus().canDownloadAudio();
+    }
+
+    /**
+     * Work through the pending tasks, one round at a time, until the queue is empty or downloads
+     * are no longer possible.
+     */
+    private void drain() {
+        final AppDatabase db = WkApplication.getDatabase();
+        final AudioDownloader downloader = new AudioDownloader(HttpClients.getClient(), workers);
+        while (canRun()) {
+            final List<TaskDefinition> taskDefinitions =
+                    db.taskDefinitionDao().getTaskDefinitionsByType(DownloadAudioTask.class, MAX_AUDIO_DOWNLOAD_TASKS_PER_ROUND);
+            if (taskDefinitions.isEmpty() || !runRound(downloader, taskDefinitions)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Run one round: group the tasks by their subjects' level and download one level at a time.
+     *
+     * @param downloader the downloader
+     * @param taskDefinitions the tasks for this round
+     * @return true if all levels in this round were completed
+     */
+    private boolean runRound(final AudioDownloader downloader, final Iterable<TaskDefinition> taskDefinitions) {
+        final AppDatabase db = WkApplication.getDatabase();
+        final Map<Integer, List<Subject>> subjectsByLevel = new LinkedHashMap<>();
+        final Map<Integer, List<TaskDefinition>> taskDefinitionsByLevel = new LinkedHashMap<>();
+        final Collection<TaskDefinition> stale = new ArrayList<>();
+
+        for (final TaskDefinition taskDefinition: taskDefinitions) {
+            @Nullable Subject subject = null;
+            try {
+                subject = db.subjectDao().getById(Long.parseLong(orElse(taskDefinition.getData(), "-1")));
+            } catch (final NumberFormatException e) {
+                //
+            }
+            if (subject == null) {
+                stale.add(taskDefinition);
+                continue;
+            }
+            final int level = subject.getLevel();
+            if (!subjectsByLevel.containsKey(level)) {
+                subjectsByLevel.put(level, new ArrayList<>());
+                taskDefinitionsByLevel.put(level, new ArrayList<>());
+            }
+            subjectsByLevel.get(level).add(subject);
+            taskDefinitionsByLevel.get(level).add(taskDefinition);
+        }
+        if (!stale.isEmpty()) {
+            db.taskDefinitionDao().deleteTaskDefinitions(stale);
+        }
+
+        for (final Map.Entry<Integer, List<Subject>> entry: subjectsByLevel.entrySet()) {
+            final int level = entry.getKey();
+            if (!downloadLevel(downloader, level, entry.getValue())) {
+                return false;
+            }
+            db.taskDefinitionDao().deleteTaskDefinitions(taskDefinitionsByLevel.get(level));
+        }
+        return true;
+    }
+
+    /**
+     * Collect the missing audio files for a number of subjects. Like before, an OGG file is only
+     * downloaded for a recording if there is no MP3 version of it.
+     *
+     * @param level the level of the subjects
+     * @param subjects the subjects
+     * @return the files to download, in subject order
+     */
+    private static Collection<AudioDownloader.Item> findMissingAudio(final int level, final Iterable<Subject> subjects) {
+        final Iterable<String> locationValues = AudioUtil.getLocationValues();
+        final Map<String, AudioDownloader.Item> items = new LinkedHashMap<>();
+        for (final Subject subject: subjects) {
+            final List<PronunciationAudio> audios = subject.getParsedPronunciationAudios();
+            for (final boolean ogg: new boolean[] {false, true}) {
+                for (final PronunciationAudio audio: audios) {
+                    if (isEqual(audio.getContentType(), "audio/ogg") != ogg || audio.getUrl() == null) {
+                        continue;
+                    }
+                    final String key = String.format(Locale.ROOT, "%d/%d", level, audio.getMetadata().getSourceId());
+                    if (items.containsKey(key) || AudioUtil.hasAudioFileFor(level, audio, locationValues)) {
+                        continue;
+                    }
+                    final @Nullable File output = AudioUtil.getNewFileForAudio(level, audio);
+                    if (output != null) {
+                        items.put(key, new AudioDownloader.Item(audio.getUrl(), output));
+                    }
+                }
+            }
+        }
+        return items.values();
+    }
+
+    /**
+     * Download all missing audio for a number of subjects on the same level, and update the
+     * download status for the level.
+     *
+     * @param downloader the downloader
+     * @param level the level
+     * @param subjects the subjects
+     * @return true if every file was attempted, false if the batch was cut short
+     */
+    private boolean downloadLevel(final AudioDownloader downloader, final int level, final Iterable<Subject> subjects) {
+        final Collection<AudioDownloader.Item> items = findMissingAudio(level, subjects);
+        if (items.isEmpty()) {
+            return true;
+        }
+
+        final int startGeneration = generation.get();
+        final long start = System.currentTimeMillis();
+        final AudioDownloader.Result result = downloader.downloadAll(items,
+                () -> generation.get() == startGeneration && canRun());
+        LOGGER.info("Audio for level %d: %d downloaded, %d failed, %d skipped in %d ms", level,
+                result.getNumDownloaded(), result.getNumFailed(), result.getNumSkipped(), System.currentTimeMillis() - start);
+
+        for (final AudioDownloader.Item item: result.getDownloaded()) {
+            AudioUtil.recordNewAudioFile(item.getTarget());
+        }
+        if (result.getNumDownloaded() > 0) {
+            AudioUtil.updateDownloadStatus(level);
+        }
+        return result.getNumSkipped() == 0;
+    }
+}
@@ -21,41 +21,56 @@ import androidx.core.util.Consumer;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
 import com.fasterxml.jackson.databind.node.NullNode;
-import com.smouldering_durtles.wk.BuildConfig;
 import com.smouldering_durtles.wk.Constants;
-import com.smouldering_durtles.wk.GlobalSettings;
-import com.smouldering_durtles.wk.Identification;
 import com.smouldering_durtles.wk.WkApplication;
+import com.smouldering_durtles.wk.api.ApiCollectionPage;
+import com.smouldering_durtles.wk.api.PagePipeline;
 import com.smouldering_durtles.wk.api.RateLimiter;
+import com.smouldering_durtles.wk.api.ResponseValidatorCache;
 import com.smouldering_durtles.wk.api.model.WaniKaniEntity;
 import com.smouldering_durtles.wk.db.AppDatabase;
 import com.smouldering_durtles.wk.db.Converters;
 import com.smouldering_durtles.wk.db.model.TaskDefinition;
+import com.smouldering_durtles.wk.enums.TaskLane;
 import com.smouldering_durtles.wk.livedata.LiveApiProgress;
 import com.smouldering_durtles.wk.livedata.LiveApiState;
 import com.smouldering_durtles.wk.util.DbLogger;
+import com.smouldering_durtles.wk.util.HttpClients;
 import com.smouldering_durtles.wk.util.Logger;
-import com.smouldering_durtles.wk.util.StreamUtil;
 
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
-import java.net.URL;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Nullable;
-import javax.net.ssl.HttpsURLConnection;
+
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
 
 import static com.smouldering_durtles.wk.Constants.API_RETRY_DELAY;
 import static com.smouldering_durtles.wk.Constants.HTTP_TOO_MANY_REQUESTS;
 import static com.smouldering_durtles.wk.Constants.HTTP_UNPROCESSABLE_ENTITY;
-import static com.smouldering_durtles.wk.Constants.MINUTE;
+import static com.smouldering_durtles.wk.Constants.MAX_PREFETCHED_PAGE_AGE;
 import static com.smouldering_durtles.wk.Constants.NUM_API_TRIES;
-import static com.smouldering_durtles.wk.Constants.SECOND;
+import static com.smouldering_durtles.wk.Constants.NUM_PAGE_PREFETCH_THREADS;
 import static com.smouldering_durtles.wk.util.ObjectSupport.safe;
 import static com.smouldering_durtles.wk.util.ObjectSupport.safeNullable;
+import static java.util.Objects.requireNonNull;
 import static java.net.HttpURLConnection.HTTP_UNAUTHORIZED;
 
 /**
@@ -65,6 +80,81 @@ import static java.net.HttpURLConnection.HTTP_UNAUTHORIZED;
  */
 public abstract class ApiTask {
     private static final Logger LOGGER = Logger.get(ApiTask.class);
+    private static final MediaType JSON_MEDIA_TYPE = MediaType.get("application/json; charset=utf-8");
+
+    /**
+     * The validator cache for conditional GET requests, backed by the properties table.
+     */
+    private static final ResponseValidatorCache VALIDATOR_CACHE = new ResponseValidatorCache(new ResponseValidatorCache.Store() {
+        @Override
+        public @Nullable String get(final String url) {
+            return WkApplication.getDatabase().propertiesDao().getResponseValidators(url);
+        }
+
+        @Override
+        public void put(final String url, final String value) {
+            WkApplication.getDatabase().propertiesDao().setResponseValidators(url, value);
+        }
+
+        @Override
+        public void remove(final String url) {
+            WkApplication.getDatabase().propertiesDao().deleteResponseValidators(url);
+        }
+    });
+
+    /**
+     * The executor for fetching collection pages ahead of the task that processes them. The fetches
+     * go through the same rate limiter as everything else, so they share the one API budget.
+     */
+    private static final ExecutorService PREFETCH_EXECUTOR;
+
+    static {
+        final AtomicInteger count = new AtomicInteger(1);
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(NUM_PAGE_PREFETCH_THREADS, NUM_PAGE_PREFETCH_THREADS,
+                30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                    final Thread thread = new Thread(r, "PagePrefetch #" + count.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        PREFETCH_EXECUTOR = executor;
+    }
+
+    /**
+     * First pages of collections that have been requested for a task that will run next, keyed by URL.
+     */
+    private static final Map<String, PrefetchedPage> PREFETCHED_PAGES = new HashMap<>();
+
+    /**
+     * Counts the writes that may have changed the user's data since a page was prefetched: every POST
+     * or PUT to the API, and every patched record that was resolved. A prefetched page is only used if
+     * this counter hasn't moved since the page was requested.
+     */
+    private static final AtomicLong WRITE_COUNT = new AtomicLong();
+
+    /**
+     * A first page that has been requested before its task started.
+     */
+    private static final class PrefetchedPage {
+        private final Class<?> cls;
+        private final long timestamp;
+        private final long writeCount;
+        private final Future<? extends ApiCollectionPage<?>> future;
+
+        private PrefetchedPage(final Class<?> cls, final long timestamp, final long writeCount,
+                               final Future<? extends ApiCollectionPage<?>> future) {
+            this.cls = cls;
+            this.timestamp = timestamp;
+            this.writeCount = writeCount;
+            this.future = future;
+        }
+    }
+
+    /**
+     * Set on the thread of a task that runs in the interactive lane. API calls made from that thread
+     * may use the rate limiter's reserve, all others leave it alone.
+     */
+    private static final ThreadLocal<Boolean> INTERACTIVE = new ThreadLocal<>();
 
     /**
      * The task definition this invocation is defined by.
@@ -81,59 +171,104 @@ public abstract class ApiTask {
     }
 
     /**
-     * Helper method to do a GET WaniKani API call and return the JSON response. Sets an API error
-     * status if needed, and returns null if no JSON-parseable response body could be received for
+     * Reader for the body of a successful API response. Implementations decide how much of the
+     * body is materialized and logged.
+     *
+     * @param <R> the type of the result
+     */
+    private interface ResponseBodyReader<R> {
+        /**
+         * Read and parse the response body.
+         *
+         * @param is the response body stream
+         * @return the parsed result
+         * @throws IOException if the body could not be read or parsed
+         */
+        R read(InputStream is) throws IOException;
+    }
+
+    /**
+     * Response body reader that parses the body into a JSON tree, and logs the full body.
+     * Only suitable for small responses.
+     *
+     * @param is the response body stream
+     * @return the response body, parsed as a JSON document
+     * @throws IOException if the body could not be read or parsed
+     */
+    private static JsonNode readTree(final InputStream is) throws IOException {
+        final ObjectMapper mapper = Converters.getObjectMapper();
+        final JsonNode value = mapper.readTree(is);
+        LOGGER.info("Response body: %s", mapper.writerWithDefaultPrettyPrinter().writeValueAsString(value));
+        return value;
+    }
+
+    /**
+     * Turn a request URI into an absolute URL.
+     *
+     * @param uri the request URI, which is either absolute or site-relative (starts with '/')
+     * @return the absolute URL
+     */
+    private static String toAbsoluteUrl(final String uri) {
+        if (!uri.startsWith("https://") && !uri.startsWith("http://")) {
+            return "https://api.wanikani.com" + uri;
+        }
+        return uri;
+    }
+
+    /**
+     * Helper method to do a GET WaniKani API call and return the parsed response. Sets an API error
+     * status if needed, and returns null if no parseable response body could be received for
      * any reason. Respects the API rate limits and will back off if the API signals we're going
      * too fast anyway.
      *
+     * <p>
+     *     If notModifiedValue is not null, the request is made conditional on the validators of the last
+     *     response for the same URL. If the server answers 304 Not Modified, the body is not read and
+     *     notModifiedValue is returned instead. The validators of a new response are remembered, but
+     *     they are only stored when the caller commits them after processing the response.
+     * </p>
+     *
      * @param uri the request URI, which is either absolute or site-relative (starts with '/')
-     * @return the response body, parsed as a JSON document
+     * @param reader the reader to parse the response body with
+     * @param notModifiedValue the value to return for a 304 response, or null for an unconditional request
+     * @param <R> the type of the parsed response
+     * @return the parsed response body
      */
-    private static @Nullable JsonNode getApiCall(final String uri) {
-        RateLimiter.getInstance().prepare();
-        final ObjectMapper mapper = Converters.getObjectMapper();
+    private static @Nullable <R> R getApiCall(final String uri, final ResponseBodyReader<R> reader, final @Nullable R notModifiedValue) {
+        RateLimiter.getInstance().prepare(!isInteractive());
         final AppDatabase db = WkApplication.getDatabase();
-        @Nullable HttpsURLConnection connection = null;
+        int code = 0;
         try {
-            String urlString = uri;
-            if (!urlString.startsWith("https://") && !urlString.startsWith("http://")) {
-                urlString = "https://api.wanikani.com" + uri;
+            final String urlString = toAbsoluteUrl(uri);
+            LOGGER.info("Fetching: %s", urlString);
+            final Request.Builder builder = new Request.Builder()
+                    .url(urlString)
+                    .header("Wanikani-Revision", Constants.API_VERSION)
+                    .get();
+            if (notModifiedValue != null) {
+                VALIDATOR_CACHE.prepare(urlString, builder);
             }
-            final URL url = new URL(urlString);
-            LOGGER.info("Fetching: %s", url);
-            connection = (HttpsURLConnection) url.openConnection();
-            connection.setRequestProperty("Authorization", "Bearer " + GlobalSettings.Api.getApiKey());
-            connection.setRequestProperty("Wanikani-Revision", Constants.API_VERSION);
-            connection.setRequestProperty("User-Agent", Identification.APP_NAME_UA + "/" + BuildConfig.VERSION_NAME);
-            connection.setRequestMethod("GET");
-            connection.setDoInput(true);
-            connection.setDoOutput(false);
-            connection.setAllowUserInteraction(false);
-            connection.setConnectTimeout((int) (10 * SECOND));
-            connection.setReadTimeout((int) MINUTE);
-            connection.getHeaderFields();
-            LOGGER.info("Response code: %d %s", connection.getResponseCode(), connection.getResponseMessage());
-            try (final InputStream is = connection.getInputStream()) {
-                final JsonNode value = mapper.readTree(is);
-                LOGGER.info("Response body: %s", mapper.writerWithDefaultPrettyPrinter().writeValueAsString(value));
+            try (final Response response = HttpClients.getApiClient().newCall(builder.build()).execute()) {
+                code = response.code();
+                LOGGER.info("Response code: %d %s", code, response.message());
+                RateLimiter.getInstance().update(response);
+                if (notModifiedValue != null && ResponseValidatorCache.isNotModified(response)) {
+                    return notModifiedValue;
+                }
+                final ResponseBody body = requireNonNull(response.body());
+                if (!response.isSuccessful()) {
+                    // Last resort attempt to log the response body in case of errors
+                    LOGGER.info("Response body: %s", new String(body.bytes(), "ISO-8859-1"));
+                    throw new IOException("HTTP error " + code);
+                }
+                final R value = reader.read(body.byteStream());
+                if (notModifiedValue != null) {
+                    VALIDATOR_CACHE.update(urlString, response);
+                }
                 return value;
             }
         }
         catch (final Exception e) {
-            int code = 0;
-            if (connection != null) {
-                try {
-                    code = connection.getResponseCode();
-                    // Last resort attempt to log the response body in case of errors
-                    if (code >= 100) {
-                        LOGGER.info("Response code: %d %s", code, connection.getResponseMessage());
-                        final byte[] body = StreamUtil.slurp(connection.getErrorStream());
-                        LOGGER.info("Response body: %s", new String(body, "ISO-8859-1"));
-                    }
-                } catch (final Exception e1) {
-                    //
-                }
-            }
             if (code == HTTP_UNAUTHORIZED) {
                 // Unauthorized
                 db.propertiesDao().setApiKeyRejected(true);
@@ -141,8 +276,8 @@ public abstract class ApiTask {
                 LiveApiState.getInstance().forceUpdate();
             }
             else if (code == HTTP_TOO_MANY_REQUESTS) {
-                // Too many requests
-                RateLimiter.getInstance().pause();
+                // Too many requests, the rate limiter has already been told to back off
+                LOGGER.info("Rate limited: %s", RateLimiter.getInstance().getMetricsSummary());
             }
             else {
                 // Server error >= 500 or some other error
@@ -162,14 +297,18 @@ public abstract class ApiTask {
      * @param uri the request URI, which is either absolute or site-relative (starts with '/')
      * @param numTries the maximum number of attempts to make, counting the first attempt as well
      * @param delay the delay between retries
-     * @return the response body, parsed as a JSON document
+     * @param reader the reader to parse the response body with
+     * @param notModifiedValue the value to return for a 304 response, or null for an unconditional request
+     * @param <R> the type of the parsed response
+     * @return the parsed response body
      */
     @SuppressWarnings("SameParameterValue")
-    private static @Nullable JsonNode getApiCallWithRetry(final String uri, final int numTries, final long delay) {
+    private static @Nullable <R> R getApiCallWithRetry(final String uri, final int numTries, final long delay,
+                                                       final ResponseBodyReader<R> reader, final @Nullable R notModifiedValue) {
         final AppDatabase db = WkApplication.getDatabase();
         // First try, just do the call and bail out if it succeeds.
         {
-            final @Nullable JsonNode result = safeNullable(() -> getApiCall(uri));
+            final @Nullable R result = safeNullable(() -> getApiCall(uri, reader, notModifiedValue));
             if (result != null) {
                 return result;
             }
@@ -187,9 +326,9 @@ public abstract class ApiTask {
                 LiveApiState.getInstance().forceUpdate();
             }
             // Wait a bit, and then try again.
-            final @Nullable JsonNode result = safeNullable(() -> {
+            final @Nullable R result = safeNullable(() -> {
                 Thread.sleep(delay);
-                return getApiCall(uri);
+                return getApiCall(uri, reader, notModifiedValue);
             });
             if (result != null) {
                 return result;
@@ -209,55 +348,35 @@ public abstract class ApiTask {
      * @return the response body, parsed as a JSON document
      */
     private static @Nullable JsonNode postApiCall(final String uri, final String method, final Object requestBody) {
-        RateLimiter.getInstance().prepare();
+        RateLimiter.getInstance().prepare(!isInteractive());
         final ObjectMapper mapper = Converters.getObjectMapper();
         final AppDatabase db = WkApplication.getDatabase();
-        @Nullable HttpsURLConnection connection = null;
+        int code = 0;
         try {
-            String urlString = uri;
-            if (!urlString.startsWith("https://") && !urlString.startsWith("http://")) {
-                urlString = "https://api.wanikani.com" + uri;
-            }
-            final URL url = new URL(urlString);
-            LOGGER.info("Posting: %s", url);
+            final String urlString = toAbsoluteUrl(uri);
+            LOGGER.info("Posting: %s", urlString);
             LOGGER.info("Request body: %s", mapper.writerWithDefaultPrettyPrinter().writeValueAsString(requestBody));
-            connection = (HttpsURLConnection) url.openConnection();
-            connection.setRequestProperty("Authorization", "Bearer " + GlobalSettings.Api.getApiKey());
-            connection.setRequestProperty("Wanikani-Revision", Constants.API_VERSION);
-            connection.setRequestProperty("Content-Type", "application/json; charset=utf-8");
-            connection.setRequestProperty("User-Agent", Identification.APP_NAME_UA + "/" + BuildConfig.VERSION_NAME);
-            connection.setRequestMethod(method);
-            connection.setDoInput(true);
-            connection.setDoOutput(true);
-            connection.setAllowUserInteraction(false);
-            connection.setConnectTimeout((int) (10 * SECOND));
-            connection.setReadTimeout((int) MINUTE);
-            try (final OutputStream os = connection.getOutputStream()) {
-                mapper.writeValue(os, requestBody);
-            }
-            connection.getHeaderFields();
-            LOGGER.info("Response code: %d %s", connection.getResponseCode(), connection.getResponseMessage());
-            try (final InputStream is = connection.getInputStream()) {
-                final JsonNode value = mapper.readTree(is);
+            final Request request = new Request.Builder()
+                    .url(urlString)
+                    .header("Wanikani-Revision", Constants.API_VERSION)
+                    .method(method, RequestBody.create(mapper.writeValueAsBytes(requestBody), JSON_MEDIA_TYPE))
+                    .build();
+            try (final Response response = HttpClients.getApiClient().newCall(request).execute()) {
+                code = response.code();
+                LOGGER.info("Response code: %d %s", code, response.message());
+                RateLimiter.getInstance().update(response);
+                final ResponseBody body = requireNonNull(response.body());
+                if (!response.isSuccessful()) {
+                    // Last resort attempt to log the response body in case of errors
+                    LOGGER.info("Response body: %s", new String(body.bytes(), "ISO-8859-1"));
+                    throw new IOException("HTTP error " + code);
+                }
+                final JsonNode value = mapper.readTree(body.byteStream());
                 LOGGER.info("Response body: %s", mapper.writerWithDefaultPrettyPrinter().writeValueAsString(value));
                 return value;
             }
         }
         catch (final Exception e) {
-            int code = 0;
-            if (connection != null) {
-                try {
-                    code = connection.getResponseCode();
-                    // Last resort attempt to log the response body in case of errors
-                    if (code >= 100) {
-                        LOGGER.info("Response code: %d %s", code, connection.getResponseMessage());
-                        final byte[] body = StreamUtil.slurp(connection.getErrorStream());
-                        LOGGER.info("Response body: %s", new String(body, "ISO-8859-1"));
-                    }
-                } catch (final Exception e1) {
-                    //
-                }
-            }
             if (code == HTTP_UNAUTHORIZED) {
                 // Unauthorized
                 db.propertiesDao().setApiKeyRejected(true);
@@ -265,8 +384,8 @@ public abstract class ApiTask {
                 LiveApiState.getInstance().forceUpdate();
             }
             else if (code == HTTP_TOO_MANY_REQUESTS) {
-                // Too many requests
-                RateLimiter.getInstance().pause();
+                // Too many requests, the rate limiter has already been told to back off
+                LOGGER.info("Rate limited: %s", RateLimiter.getInstance().getMetricsSummary());
             }
             else if (code == HTTP_UNPROCESSABLE_ENTITY) {
                 // Server refuses the entity, discard the error
@@ -281,6 +400,10 @@ public abstract class ApiTask {
             LOGGER.error(e, "API error");
             return null;
         }
+        finally {
+            // Whatever the outcome, the server may have applied the change by now
+            noteWrite();
+        }
     }
 
     /**
@@ -330,6 +453,40 @@ public abstract class ApiTask {
         return null;
     }
 
+    /**
+     * Map the "data" attribute of a single-entity response body to an object of the requested type.
+     * Sets an API error status if the body doesn't have the expected shape.
+     *
+     * @param body the response body
+     * @param cls the class to map the response entity to
+     * @param <T> the type of the response entity
+     * @return the parsed entity or null in case of any error
+     * @throws IOException if the mapping failed for any reason
+     */
+    private static @Nullable <T> T parseSingleEntity(final JsonNode body, final Class<T> cls) throws IOException {
+        final AppDatabase db = WkApplication.getDatabase();
+        final ObjectMapper mapper = Converters.getObjectMapper();
+        if (!body.has("data")) {
+            db.propertiesDao().setApiInError(true);
+            LiveApiState.getInstance().forceUpdate();
+            return null;
+        }
+        final JsonNode data = body.get("data");
+        final JsonParser parser = mapper.treeAsTokens(data);
+        final T value = mapper.readValue(parser, cls);
+
+        if (value instanceof WaniKaniEntity) {
+            if (!body.has("data") || !body.has("data_updated_at") || !body.has("id") || !body.has("object")) {
+                db.propertiesDao().setApiInError(true);
+                LiveApiState.getInstance().forceUpdate();
+                return null;
+            }
+            ((WaniKaniEntity) value).setId(body.get("id").asInt());
+            ((WaniKaniEntity) value).setObject(body.get("object").asText());
+        }
+        return value;
+    }
+
     /**
      * Make a GET API call that will return a single entity in the
      * response (rather than a collection or a report). The "data" attribute of the
@@ -341,32 +498,12 @@ public abstract class ApiTask {
      * @return the parsed response or null in case of any error
      */
     protected static @Nullable <T> T singleEntityApiCall(final String uri, final Class<T> cls) {
-        final AppDatabase db = WkApplication.getDatabase();
-        final ObjectMapper mapper = Converters.getObjectMapper();
         try {
-            final @Nullable JsonNode body = getApiCallWithRetry(uri, NUM_API_TRIES, API_RETRY_DELAY);
+            final @Nullable JsonNode body = getApiCallWithRetry(uri, NUM_API_TRIES, API_RETRY_DELAY, ApiTask::readTree, null);
             if (body == null) {
                 return null;
             }
-            if (!body.has("data")) {
-                db.propertiesDao().setApiInError(true);
-                LiveApiState.getInstance().forceUpdate();
-                return null;
-            }
-            final JsonNode data = body.get("data");
-            final JsonParser parser = mapper.treeAsTokens(data);
-            final T value = mapper.readValue(parser, cls);
-
-            if (value instanceof WaniKaniEntity) {
-                if (!body.has("data") || !body.has("data_updated_at") || !body.has("id") || !body.has("object")) {
-                    db.propertiesDao().setApiInError(true);
-                    LiveApiState.getInstance().forceUpdate();
-                    return null;
-                }
-                ((WaniKaniEntity) value).setId(body.get("id").asInt());
-                ((WaniKaniEntity) value).setObject(body.get("object").asText());
-            }
-            return value;
+            return parseSingleEntity(body, cls);
         } catch (final IOException e) {
             LOGGER.error(e, "API data error");
             return null;
@@ -374,20 +511,43 @@ public abstract class ApiTask {
     }
 
     /**
-     * If this is a paged response, extract the URL for the next page from the response body.
+     * Make a conditional GET API call for a single entity. The request carries the validators of the
+     * last successful response for the same URL, and if the server reports that nothing has changed
+     * since then, the consumer is not invoked at all. The validators of a new response are only
+     * stored after the consumer has returned. If the consumer fails, the validators
+     * are dropped so the next call is unconditional.
      *
-     * @param body the body to examine
-     * @return the next URL or null if not paged or at the last page
+     * @param uri the request URI, which is either absolute or site-relative (starts with '/')
+     * @param cls the class to map the response entity to
+     * @param consumer the consumer to handle the returned entity, only invoked if it has changed
+     * @param <T> the type of the response entity
+     * @return true if the response has been received and processed successfully, or if nothing has changed
      */
-    private static @Nullable String getNextUrl(final JsonNode body) {
-        if (!body.has("pages")) {
-            return null;
-        }
-        final JsonNode pages = body.get("pages");
-        if (!pages.has("next_url")) {
-            return null;
+    protected static <T> boolean conditionalSingleEntityApiCall(final String uri, final Class<T> cls, final Consumer<T> consumer) {
+        final String url = toAbsoluteUrl(uri);
+        try {
+            final @Nullable JsonNode body = getApiCallWithRetry(url, NUM_API_TRIES, API_RETRY_DELAY,
+                    ApiTask::readTree, MissingNode.getInstance());
+            if (body == null) {
+                return false;
+            }
+            if (body.isMissingNode()) {
+                LOGGER.info("Not modified: %s", url);
+                return true;
+            }
+            final @Nullable T value = parseSingleEntity(body, cls);
+            if (value == null) {
+                VALIDATOR_CACHE.invalidate(url);
+                return false;
+            }
+            consumer.accept(value);
+            VALIDATOR_CACHE.commit(url);
+            return true;
+        } catch (final Exception e) {
+            VALIDATOR_CACHE.invalidate(url);
+            LOGGER.error(e, "API data error");
+            return false;
         }
-        return pages.get("next_url").textValue();
     }
 
     /**
@@ -418,9 +578,110 @@ public abstract class ApiTask {
         return value;
     }
 
+    /**
+     * Fetch and parse a single page of a collection response. Each page is parsed in a single streaming
+     * pass, see ApiCollectionPage. Only a short summary of the page is logged, not the full response body.
+     *
+     * @param url the page URL, which is either absolute or site-relative (starts with '/')
+     * @param cls the class to map the response entities to
+     * @param conditional if true, make a conditional request and return a placeholder page if nothing has changed
+     * @param <T> the type of the response entities
+     * @return the page, or null if it could not be retrieved or is not a valid collection page
+     */
+    private static @Nullable <T extends WaniKaniEntity> ApiCollectionPage<T> getCollectionPage(final String url,
+                                                                                               final Class<? extends T> cls,
+                                                                                               final boolean conditional) {
+        final AppDatabase db = WkApplication.getDatabase();
+        final ObjectMapper mapper = Converters.getObjectMapper();
+        final @Nullable ApiCollectionPage<T> page = getApiCallWithRetry(url, NUM_API_TRIES, API_RETRY_DELAY, is -> {
+            final ApiCollectionPage<T> result = ApiCollectionPage.parse(is, mapper, cls);
+            LOGGER.info("Response body: %s", result.getSummary());
+            return result;
+        }, conditional ? ApiCollectionPage.notModified() : null);
+        if (page == null || page.isNotModified()) {
+            return page;
+        }
+        if (!page.hasData() || page.getNumMalformed() > 0) {
+            db.propertiesDao().setApiInError(true);
+            LiveApiState.getInstance().forceUpdate();
+            return null;
+        }
+        return page;
+    }
+
+    /**
+     * Record that the user's data may have changed, on the server or locally. Any page that was
+     * prefetched before this point is no longer used.
+     */
+    protected static void noteWrite() {
+        WRITE_COUNT.incrementAndGet();
+    }
+
+    /**
+     * Start fetching the first page of a collection in the background, for a task that is going to
+     * run after the current one. The page is picked up by the collection call of that task, if it
+     * comes soon enough. Conditional requests are never fetched this way.
+     *
+     * @param uri the request URI, which is either absolute or site-relative (starts with '/')
+     * @param cls the class to map the response entities to
+     */
+    protected static void prefetchCollection(final String uri, final Class<? extends WaniKaniEntity> cls) {
+        final String url = toAbsoluteUrl(uri);
+        final long now = System.currentTimeMillis();
+        synchronized (PREFETCHED_PAGES) {
+            final Iterator<PrefetchedPage> iterator = PREFETCHED_PAGES.values().iterator();
+            while (iterator.hasNext()) {
+                final PrefetchedPage page = iterator.next();
+                if (page.timestamp < now - MAX_PREFETCHED_PAGE_AGE) {
+                    page.future.cancel(false);
+                    iterator.remove();
+                }
+            }
+            if (PREFETCHED_PAGES.containsKey(url)) {
+                return;
+            }
+            LOGGER.info("Prefetching: %s", url);
+            PREFETCHED_PAGES.put(url, new PrefetchedPage(cls, now, WRITE_COUNT.get(),
+                    PREFETCH_EXECUTOR.submit(() -> getCollectionPage(url, cls, false))));
+        }
+    }
+
+    /**
+     * Start iterating over the pages of a collection. The first page is taken from the prefetched
+     * pages if it's there, fresh, of the right type and not older than the last write, otherwise it
+     * is requested now.
+     *
+     * @param url the absolute URL of the first page
+     * @param cls the class to map the response entities to
+     * @param conditional if true, make the request for the first page conditional
+     * @param <T> the type of the response entities
+     * @return the pipeline
+     */
+    @SuppressWarnings("unchecked")
+    private static <T extends WaniKaniEntity> PagePipeline<T> openCollection(final String url, final Class<? extends T> cls,
+                                                                             final boolean conditional) {
+        final PagePipeline.PageSource<T> source = pageUrl -> getCollectionPage(pageUrl, cls, false);
+        if (!conditional) {
+            final @Nullable PrefetchedPage prefetched;
+            synchronized (PREFETCHED_PAGES) {
+                prefetched = PREFETCHED_PAGES.remove(url);
+            }
+            if (prefetched != null) {
+                if (prefetched.cls == cls && prefetched.timestamp >= System.currentTimeMillis() - MAX_PREFETCHED_PAGE_AGE
+                        && prefetched.writeCount == WRITE_COUNT.get()) {
+                    LOGGER.info("Using prefetched page: %s", url);
+                    return new PagePipeline<>(PREFETCH_EXECUTOR, source, (Future<ApiCollectionPage<T>>) prefetched.future);
+                }
+                prefetched.future.cancel(false);
+            }
+        }
+        return new PagePipeline<>(PREFETCH_EXECUTOR, pageUrl -> getCollectionPage(pageUrl, cls, conditional && pageUrl.equals(url)), url);
+    }
+
     /**
      * Retrieve a collection from the API, including any subsequent pages in a multi-page response.
      * Rather than returning a List result, invoke a consumer callback to handle each response entity.
+     * The next page is already being fetched while the entities of a page are handled.
      *
      * @param uri the request URI, which is either absolute or site-relative (starts with '/')
      * @param cls the class to map the response entity to
@@ -430,26 +691,17 @@ public abstract class ApiTask {
      *         some or all of the entities in the response may still have been processed.
      */
     protected static <T extends WaniKaniEntity> boolean collectionApiCall(final String uri, final Class<? extends T> cls, final Consumer<T> consumer) {
-        final AppDatabase db = WkApplication.getDatabase();
-        try {
-            @Nullable String nextUrl = uri;
-            while (nextUrl != null) {
-                final @Nullable JsonNode body = getApiCallWithRetry(nextUrl, NUM_API_TRIES, API_RETRY_DELAY);
-                if (body == null) {
+        try (final PagePipeline<T> pipeline = openCollection(toAbsoluteUrl(uri), cls, false)) {
+            while (pipeline.hasNext()) {
+                final @Nullable ApiCollectionPage<T> page = pipeline.next();
+                if (page == null) {
                     return false;
                 }
-                if (!body.has("data")) {
-                    db.propertiesDao().setApiInError(true);
-                    LiveApiState.getInstance().forceUpdate();
-                    return false;
-                }
-                final JsonNode data = body.get("data");
-                LiveApiProgress.addEntities(data.size());
-                for (final JsonNode element: data) {
-                    consumer.accept(parseEntity(element, cls));
+                LiveApiProgress.addEntities(page.getEntities().size());
+                for (final T entity: page.getEntities()) {
+                    consumer.accept(entity);
                     LiveApiProgress.addProcessedEntity();
                 }
-                nextUrl = getNextUrl(body);
             }
             return true;
         } catch (final Exception e) {
@@ -459,50 +711,132 @@ public abstract class ApiTask {
     }
 
     /**
-     * Download a file. This is just a straight GET request, and the response is stored in a file.
-     * The download initially writes to a temporary file, and if the download was successful, then
-     * the temporary file is renamed to the final name. This prevents partial downloads from
-     * lingering.
+     * Retrieve a collection from the API, including any subsequent pages in a multi-page response.
+     * Same as collectionApiCall, but the consumer callback is invoked once for each page, so a whole
+     * page can be written to the database in a single transaction while the next page is being fetched.
      *
-     * @param urlString the absolute URL to fetch
-     * @param tempFile the temporary file to write to while downloading, must be on the same filesystem as outputFile.
-     * @param outputFile the eventual location for the downloaded file.
+     * @param uri the request URI, which is either absolute or site-relative (starts with '/')
+     * @param cls the class to map the response entity to
+     * @param consumer the consumer to handle each page of returned entities
+     * @param <T> the type of the response entity
+     * @return true if the entire response has been received and processed successfully. If false,
+     *         some or all of the entities in the response may still have been processed.
      */
-    protected static void downloadFile(final String urlString, final File tempFile, final File outputFile) {
-        try {
-            final URL url = new URL(urlString);
-            LOGGER.info("Download: %s", url);
-            final HttpsURLConnection connection = (HttpsURLConnection) url.openConnection();
-            connection.setRequestMethod("GET");
-            connection.setDoInput(true);
-            connection.setDoOutput(false);
-            connection.setAllowUserInteraction(false);
-            connection.setConnectTimeout((int) (10 * SECOND));
-            connection.setReadTimeout((int) MINUTE);
-            connection.getHeaderFields();
-            LOGGER.info("Response code: %d %s", connection.getResponseCode(), connection.getResponseMessage());
-            try (final InputStream is = connection.getInputStream(); final OutputStream os = new FileOutputStream(tempFile)) {
-                StreamUtil.pump(is, os);
-                //noinspection ResultOfMethodCallIgnored
-                tempFile.renameTo(outputFile);
+    protected static <T extends WaniKaniEntity> boolean pagedCollectionApiCall(final String uri, final Class<? extends T> cls,
+                                                                             final Consumer<List<T>> consumer) {
+        try (final PagePipeline<T> pipeline = openCollection(toAbsoluteUrl(uri), cls, false)) {
+            while (pipeline.hasNext()) {
+                final @Nullable ApiCollectionPage<T> page = pipeline.next();
+                if (page == null) {
+                    return false;
+                }
+                LiveApiProgress.addEntities(page.getEntities().size());
+                consumer.accept(page.getEntities());
+                LiveApiProgress.addProcessedEntities(page.getEntities().size());
             }
+            return true;
+        } catch (final Exception e) {
+            LOGGER.error(e, "API data error");
+            return false;
         }
-        catch (final Exception e) {
-            LOGGER.error(e, "Download error");
+    }
+
+    /**
+     * Retrieve a collection from the API, like collectionApiCall, but make the request for the first page
+     * conditional on the validators of the last successful response for the same URL. If the server
+     * reports that nothing has changed since then, the consumer is not invoked at all. The validators of
+     * the first page are only stored after every page has been processed. If anything fails along the way,
+     * the validators are dropped so the next call is unconditional.
+     *
+     * @param uri the request URI, which is either absolute or site-relative (starts with '/')
+     * @param cls the class to map the response entity to
+     * @param consumer the consumer to handle each returned entity, only invoked if the collection has changed
+     * @param <T> the type of the response entity
+     * @return true if the entire response has been received and processed successfully, or if nothing has changed
+     */
+    protected static <T extends WaniKaniEntity> boolean conditionalCollectionApiCall(final String uri, final Class<? extends T> cls,
+                                                                                   final Consumer<T> consumer) {
+        final String url = toAbsoluteUrl(uri);
+        try (final PagePipeline<T> pipeline = openCollection(url, cls, true)) {
+            while (pipeline.hasNext()) {
+                final @Nullable ApiCollectionPage<T> page = pipeline.next();
+                if (page == null) {
+                    VALIDATOR_CACHE.invalidate(url);
+                    return false;
+                }
+                if (page.isNotModified()) {
+                    LOGGER.info("Not modified: %s", url);
+                    return true;
+                }
+                LiveApiProgress.addEntities(page.getEntities().size());
+                for (final T entity: page.getEntities()) {
+                    consumer.accept(entity);
+                    LiveApiProgress.addProcessedEntity();
+                }
+            }
+            VALIDATOR_CACHE.commit(url);
+            return true;
+        } catch (final Exception e) {
+            VALIDATOR_CACHE.invalidate(url);
+            LOGGER.error(e, "API data error");
+            return false;
         }
     }
 
+    /**
+     * Forget the stored validators for a URL that won't be requested again.
+     *
+     * @param uri the request URI, which is either absolute or site-relative (starts with '/')
+     */
+    protected static void forgetResponseValidators(final String uri) {
+        VALIDATOR_CACHE.invalidate(toAbsoluteUrl(uri));
+    }
+
+    /**
+     * Is the current thread running a task in the interactive lane?.
+     *
+     * @return true if it is
+     */
+    private static boolean isInteractive() {
+        return INTERACTIVE.get() == Boolean.TRUE;
+    }
+
     /**
      * Run this task, including logging and exception handling.
+     *
+     * @param lane the lane the task is scheduled in
      */
-    public final void run() {
-        LOGGER.info("%s started with data: %s", DbLogger.getSimpleClassName(getClass()), taskDefinition.getData());
-        safe(() -> {
+    public final void run(final TaskLane lane) {
+        LOGGER.info("%s started in lane %s with data: %s", DbLogger.getSimpleClassName(getClass()), lane, taskDefinition.getData());
+        INTERACTIVE.set(lane == TaskLane.INTERACTIVE);
+        try {
+            safe(() -> {
+                LiveApiProgress.reset(false, "");
+                runLocal();
+            });
             LiveApiProgress.reset(false, "");
-            runLocal();
-        });
-        LiveApiProgress.reset(false, "");
-        LOGGER.info("%s finished", DbLogger.getSimpleClassName(getClass()));
+        } finally {
+            INTERACTIVE.remove();
+        }
+        LOGGER.info("%s finished, rate limiter: %s", DbLogger.getSimpleClassName(getClass()), RateLimiter.getInstance().getMetricsSummary());
+    }
+
+    /**
+     * Start fetching the first page of data for this task in the background, because it is going to
+     * run next. The default does nothing; tasks that sync a collection unconditionally override this.
+     */
+    public void prefetch() {
+        //
+    }
+
+    /**
+     * Can this task run at the same time as other tasks in its lane that also allow it? The default
+     * is no; only tasks that don't depend on each other's results override this.
+     *
+     * @return true if it can
+     */
+    public boolean canRunConcurrently() {
+        return false;
     }
 
     /**
@@ -17,28 +17,19 @@
 package com.smouldering_durtles.wk.tasks;
 
 import com.smouldering_durtles.wk.WkApplication;
-import com.smouldering_durtles.wk.api.model.PronunciationAudio;
-import com.smouldering_durtles.wk.db.AppDatabase;
-import com.smouldering_durtles.wk.db.dao.SubjectDao;
-import com.smouldering_durtles.wk.db.model.Subject;
 import com.smouldering_durtles.wk.db.model.TaskDefinition;
-import com.smouldering_durtles.wk.util.AudioUtil;
-
-import java.io.File;
-
-import javax.annotation.Nullable;
-
-import static com.smouldering_durtles.wk.util.ObjectSupport.isEqual;
-import static com.smouldering_durtles.wk.util.ObjectSupport.orElse;
+import com.smouldering_durtles.wk.services.AudioDownloadLane;
 
 /**
  * Task to download audio files for a single subject. This will download
  * one file for each recording source ID, i.e. all readings and all voices
- * will be represented, but this task won't download e.g. an MP3 file if
+ * will be represented, but this won't download e.g. an MP3 file if
  * the corresponding OGG file is already present.
  *
  * <p>
- *     Afterwards, the audio download status is updated in the database.
+ *     These tasks are not run by ApiTaskService. They are the persistent
+ *     queue for AudioDownloadLane, which downloads the audio for all pending
+ *     subjects on the same level in parallel, and removes the tasks when done.
  *     Errors are ignored, but the audio download status will reflect any
  *     audio files that may still be missing.
  * </p>
@@ -49,8 +40,6 @@ public final class DownloadAudioTask extends ApiTask {
      */
     public static final int PRIORITY = 100;
 
-    private final int subjectId;
-
     /**
      * The constructor.
      *
@@ -58,7 +47,6 @@ public final class DownloadAudioTask extends ApiTask {
      */
     public DownloadAudioTask(final TaskDefinition taskDefinition) {
         super(taskDefinition);
-        subjectId = Integer.parseInt(orElse(taskDefinition.getData(), "-1"));
     }
 
     @Override
@@ -68,62 +56,6 @@ public final class DownloadAudioTask extends ApiTask {
 
     @Override
     protected void runLocal() {
-        final AppDatabase db = WkApplication.getDatabase();
-        final SubjectDao subjectDao = db.subjectDao();
-
-        final @Nullable Subject subject = subjectDao.getById(subjectId);
-
-        if (subject != null) {
-            boolean scan = false;
-            final Iterable<String> locationValues = AudioUtil.getLocationValues();
-
-            for (final PronunciationAudio audio: subject.getParsedPronunciationAudios()) {
-                if (isEqual(audio.getContentType(), "audio/ogg")) {
-                    continue;
-                }
-                if (AudioUtil.hasAudioFileFor(subject.getLevel(), audio, locationValues)) {
-                    continue;
-                }
-                final @Nullable File output = AudioUtil.getNewFileForAudio(subject.getLevel(), audio);
-                if (output == null) {
-                    continue;
-                }
-                final @Nullable File tempFile = AudioUtil.getTempFile(output);
-                if (tempFile == null) {
-                    continue;
-                }
-                if (audio.getUrl() != null) {
-                    downloadFile(audio.getUrl(), tempFile, output);
-                    scan = true;
-                }
-            }
-
-            for (final PronunciationAudio audio: subject.getParsedPronunciationAudios()) {
-                if (!isEqual(audio.getContentType(), "audio/ogg")) {
-                    continue;
-                }
-                if (AudioUtil.hasAudioFileFor(subject.getLevel(), audio, locationValues)) {
-                    continue;
-                }
-                final @Nullable File output = AudioUtil.getNewFileForAudio(subject.getLevel(), audio);
-                if (output == null) {
-                    continue;
-                }
-                final @Nullable File tempFile = AudioUtil.getTempFile(output);
-                if (tempFile == null) {
-                    continue;
-                }
-                if (audio.getUrl() != null) {
-                    downloadFile(audio.getUrl(), tempFile, output);
-                    scan = true;
-                }
-            }
-
-            if (scan) {
-                AudioUtil.updateDownloadStatus(subject.getLevel());
-            }
-        }
-
-        db.taskDefinitionDao().deleteTaskDefinition(taskDefinition);
+        AudioDownloadLane.getInstance().schedule();
     }
 }
@@ -62,6 +62,11 @@ public final class DownloadPitchInfoTask extends ApiTask {
         return WkApplication.getInstance().getOnlineStatus().canDownloadAudio();
     }
 
+    @Override
+    public boolean canRunConcurrently() {
+        return true;
+    }
+
     @Override
     protected void runLocal() {
         final AppDatabase db = WkApplication.getDatabase();
@@ -24,18 +24,10 @@ import com.smouldering_durtles.wk.api.ApiState;
 import com.smouldering_durtles.wk.api.model.ApiAssignment;
 import com.smouldering_durtles.wk.db.AppDatabase;
 import com.smouldering_durtles.wk.db.model.TaskDefinition;
-import com.smouldering_durtles.wk.livedata.LiveAlertContext;
+import com.smouldering_durtles.wk.enums.DataChange;
 import com.smouldering_durtles.wk.livedata.LiveApiProgress;
 import com.smouldering_durtles.wk.livedata.LiveApiState;
-import com.smouldering_durtles.wk.livedata.LiveBurnedItems;
-import com.smouldering_durtles.wk.livedata.LiveCriticalCondition;
-import com.smouldering_durtles.wk.livedata.LiveJlptProgress;
-import com.smouldering_durtles.wk.livedata.LiveJoyoProgress;
-import com.smouldering_durtles.wk.livedata.LiveLevelDuration;
-import com.smouldering_durtles.wk.livedata.LiveLevelProgress;
-import com.smouldering_durtles.wk.livedata.LiveRecentUnlocks;
-import com.smouldering_durtles.wk.livedata.LiveSrsBreakDown;
-import com.smouldering_durtles.wk.livedata.LiveTimeLine;
+import com.smouldering_durtles.wk.livedata.LiveDataInvalidationBus;
 
 /**
  * Task to fetch any assignments that have been updated since the last time this task was run.
@@ -55,6 +47,26 @@ public final class GetAssignmentsTask extends ApiTask {
         super(taskDefinition);
     }
 
+    /**
+     * The URI to fetch the assignments from: everything that has changed since the last successful sync.
+     *
+     * @param db the database
+     * @return the URI
+     */
+    private static String getUri(final AppDatabase db) {
+        final long lastGetAssignmentsSuccess = db.propertiesDao().getLastAssignmentSyncSuccessDate(HOUR);
+        String uri = "/v2/assignments";
+        if (lastGetAssignmentsSuccess != 0) {
+            uri += "?updated_after=" + formatTimestampForApi(lastGetAssignmentsSuccess);
+        }
+        return uri;
+    }
+
+    @Override
+    public void prefetch() {
+        prefetchCollection(getUri(WkApplication.getDatabase()), ApiAssignment.class);
+    }
+
     @Override
     public boolean canRun() {
         return WkApplication.getInstance().getOnlineStatus().canCallApi() && ApiState.getCurrentApiState() == ApiState.OK;
@@ -63,16 +75,11 @@ public final class GetAssignmentsTask extends ApiTask {
     @Override
     protected void runLocal() {
         final AppDatabase db = WkApplication.getDatabase();
-        final long lastGetAssignmentsSuccess = db.propertiesDao().getLastAssignmentSyncSuccessDate(HOUR);
+        final String uri = getUri(db);
 
         LiveApiProgress.reset(true, "assignments");
 
-        String uri = "/v2/assignments";
-        if (lastGetAssignmentsSuccess != 0) {
-            uri += "?updated_after=" + formatTimestampForApi(lastGetAssignmentsSuccess);
-        }
-
-        if (!collectionApiCall(uri, ApiAssignment.class, t -> db.subjectSyncDao().insertOrUpdateAssignment(t))) {
+        if (!pagedCollectionApiCall(uri, ApiAssignment.class, page -> db.subjectSyncDao().insertOrUpdateAssignmentBatch(page))) {
             return;
         }
 
@@ -82,16 +89,7 @@ public final class GetAssignmentsTask extends ApiTask {
         db.taskDefinitionDao().deleteTaskDefinition(taskDefinition);
         LiveApiState.getInstance().forceUpdate();
         if (LiveApiProgress.getNumProcessedEntities() > 0) {
-            LiveTimeLine.getInstance().update();
-            LiveSrsBreakDown.getInstance().update();
-            LiveLevelProgress.getInstance().update();
-            LiveJoyoProgress.getInstance().update();
-            LiveJlptProgress.getInstance().update();
-            LiveRecentUnlocks.getInstance().update();
-            LiveCriticalCondition.getInstance().update();
-            LiveBurnedItems.getInstance().update();
-            LiveLevelDuration.getInstance().forceUpdate();
-            LiveAlertContext.getInstance().update();
+            LiveDataInvalidationBus.getInstance().invalidate(DataChange.ASSIGNMENT);
         }
     }
 }
@@ -22,15 +22,18 @@ import com.smouldering_durtles.wk.api.model.ApiLevelProgression;
 import com.smouldering_durtles.wk.db.AppDatabase;
 import com.smouldering_durtles.wk.db.dao.LevelProgressionDao;
 import com.smouldering_durtles.wk.db.model.TaskDefinition;
+import com.smouldering_durtles.wk.enums.DataChange;
 import com.smouldering_durtles.wk.livedata.LiveApiProgress;
 import com.smouldering_durtles.wk.livedata.LiveApiState;
-import com.smouldering_durtles.wk.livedata.LiveLevelDuration;
+import com.smouldering_durtles.wk.livedata.LiveDataInvalidationBus;
+
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.smouldering_durtles.wk.Constants.HOUR;
 import static com.smouldering_durtles.wk.util.TextUtil.formatTimestampForApi;
 
 /**
- * Task to fetch any level progression records that have been updated since the last time this task was run.
+ * Task to fetch the level progression records that have changed since the last time this task received any.
  */
 public final class GetLevelProgressionTask extends ApiTask {
     /**
@@ -56,23 +59,36 @@ public final class GetLevelProgressionTask extends ApiTask {
     protected void runLocal() {
         final AppDatabase db = WkApplication.getDatabase();
         final LevelProgressionDao levelProgressionDao = db.levelProgressionDao();
-        final long lastGetLevelProgressionSuccess = db.propertiesDao().getLastLevelProgressionSyncSuccessDate(HOUR);
+
+        final long checkpoint = db.propertiesDao().getLevelProgressionCheckpoint(HOUR);
+        final long startTime = System.currentTimeMillis();
 
         LiveApiProgress.reset(true, "Level progression");
 
         String uri = "/v2/level_progressions";
-        if (lastGetLevelProgressionSuccess != 0) {
-            uri += "?updated_after=" + formatTimestampForApi(lastGetLevelProgressionSuccess);
+        if (checkpoint != 0) {
+            uri += "?updated_after=" + formatTimestampForApi(checkpoint);
         }
 
-        if (!collectionApiCall(uri, ApiLevelProgression.class, levelProgressionDao::insertOrUpdate)) {
+        final AtomicInteger count = new AtomicInteger();
+        if (!conditionalCollectionApiCall(uri, ApiLevelProgression.class, levelProgression -> {
+            levelProgressionDao.insertOrUpdate(levelProgression);
+            count.incrementAndGet();
+        })) {
             return;
         }
 
+        // The checkpoint only moves when something has changed. Until then the URL stays the same,
+        // so the next request can be answered with a 304.
+        if (count.get() > 0) {
+            forgetResponseValidators(uri);
+            db.propertiesDao().setLevelProgressionCheckpoint(startTime);
+        }
+
         db.propertiesDao().setLastApiSuccessDate(System.currentTimeMillis());
         db.propertiesDao().setLastLevelProgressionSyncSuccessDate(System.currentTimeMillis());
         db.taskDefinitionDao().deleteTaskDefinition(taskDefinition);
         LiveApiState.getInstance().forceUpdate();
-        LiveLevelDuration.getInstance().forceUpdate();
+        LiveDataInvalidationBus.getInstance().invalidate(DataChange.LEVEL_PROGRESSION);
     }
 }
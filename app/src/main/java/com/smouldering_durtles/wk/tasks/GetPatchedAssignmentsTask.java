@@ -23,18 +23,10 @@ import com.smouldering_durtles.wk.api.ApiState;
 import com.smouldering_durtles.wk.api.model.ApiAssignment;
 import com.smouldering_durtles.wk.db.AppDatabase;
 import com.smouldering_durtles.wk.db.model.TaskDefinition;
-import com.smouldering_durtles.wk.livedata.LiveAlertContext;
+import com.smouldering_durtles.wk.enums.DataChange;
 import com.smouldering_durtles.wk.livedata.LiveApiProgress;
 import com.smouldering_durtles.wk.livedata.LiveApiState;
-import com.smouldering_durtles.wk.livedata.LiveBurnedItems;
-import com.smouldering_durtles.wk.livedata.LiveCriticalCondition;
-import com.smouldering_durtles.wk.livedata.LiveJlptProgress;
-import com.smouldering_durtles.wk.livedata.LiveJoyoProgress;
-import com.smouldering_durtles.wk.livedata.LiveLevelDuration;
-import com.smouldering_durtles.wk.livedata.LiveLevelProgress;
-import com.smouldering_durtles.wk.livedata.LiveRecentUnlocks;
-import com.smouldering_durtles.wk.livedata.LiveSrsBreakDown;
-import com.smouldering_durtles.wk.livedata.LiveTimeLine;
+import com.smouldering_durtles.wk.livedata.LiveDataInvalidationBus;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -74,7 +66,7 @@ public final class GetPatchedAssignmentsTask extends ApiTask {
         LiveApiProgress.reset(true, "assignments");
 
         final String uri = "/v2/assignments?subject_ids=" + idList;
-        if (!collectionApiCall(uri, ApiAssignment.class, t -> db.subjectSyncDao().insertOrUpdateAssignment(t))) {
+        if (!pagedCollectionApiCall(uri, ApiAssignment.class, page -> db.subjectSyncDao().insertOrUpdateAssignmentBatch(page))) {
             return;
         }
 
@@ -83,21 +75,13 @@ public final class GetPatchedAssignmentsTask extends ApiTask {
             subjectIds.add(Long.parseLong(s, 10));
         }
         db.subjectDao().resolvePatchedAssignments(subjectIds);
+        noteWrite();
 
         db.propertiesDao().setLastApiSuccessDate(System.currentTimeMillis());
         db.taskDefinitionDao().deleteTaskDefinition(taskDefinition);
         LiveApiState.getInstance().forceUpdate();
         if (LiveApiProgress.getNumProcessedEntities() > 0) {
-            LiveTimeLine.getInstance().update();
-            LiveSrsBreakDown.getInstance().update();
-            LiveLevelProgress.getInstance().update();
-            LiveJoyoProgress.getInstance().update();
-            LiveJlptProgress.getInstance().update();
-            LiveRecentUnlocks.getInstance().update();
-            LiveCriticalCondition.getInstance().update();
-            LiveBurnedItems.getInstance().update();
-            LiveLevelDuration.getInstance().forceUpdate();
-            LiveAlertContext.getInstance().update();
+            LiveDataInvalidationBus.getInstance().invalidate(DataChange.ASSIGNMENT);
         }
     }
 }
@@ -21,9 +21,10 @@ import com.smouldering_durtles.wk.api.ApiState;
 import com.smouldering_durtles.wk.api.model.ApiReviewStatistic;
 import com.smouldering_durtles.wk.db.AppDatabase;
 import com.smouldering_durtles.wk.db.model.TaskDefinition;
+import com.smouldering_durtles.wk.enums.DataChange;
 import com.smouldering_durtles.wk.livedata.LiveApiProgress;
 import com.smouldering_durtles.wk.livedata.LiveApiState;
-import com.smouldering_durtles.wk.livedata.LiveCriticalCondition;
+import com.smouldering_durtles.wk.livedata.LiveDataInvalidationBus;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -74,12 +75,13 @@ public final class GetPatchedReviewStatisticsTask extends ApiTask {
             subjectIds.add(Long.parseLong(s, 10));
         }
         db.subjectDao().resolvePatchedReviewStatistics(subjectIds);
+        noteWrite();
 
         db.propertiesDao().setLastApiSuccessDate(System.currentTimeMillis());
         db.taskDefinitionDao().deleteTaskDefinition(taskDefinition);
         LiveApiState.getInstance().forceUpdate();
         if (LiveApiProgress.getNumProcessedEntities() > 0) {
-            LiveCriticalCondition.getInstance().update();
+            LiveDataInvalidationBus.getInstance().invalidate(DataChange.REVIEW_STATISTIC);
         }
     }
 }
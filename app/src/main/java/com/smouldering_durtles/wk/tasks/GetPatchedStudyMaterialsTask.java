@@ -73,6 +73,7 @@ public final class GetPatchedStudyMaterialsTask extends ApiTask {
             subjectIds.add(Long.parseLong(s, 10));
         }
         db.subjectDao().resolvePatchedStudyMaterials(subjectIds);
+        noteWrite();
 
         db.propertiesDao().setLastApiSuccessDate(System.currentTimeMillis());
         db.taskDefinitionDao().deleteTaskDefinition(taskDefinition);
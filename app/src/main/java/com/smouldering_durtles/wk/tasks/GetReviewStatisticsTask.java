@@ -21,9 +21,10 @@ import com.smouldering_durtles.wk.api.ApiState;
 import com.smouldering_durtles.wk.api.model.ApiReviewStatistic;
 import com.smouldering_durtles.wk.db.AppDatabase;
 import com.smouldering_durtles.wk.db.model.TaskDefinition;
+import com.smouldering_durtles.wk.enums.DataChange;
 import com.smouldering_durtles.wk.livedata.LiveApiProgress;
 import com.smouldering_durtles.wk.livedata.LiveApiState;
-import com.smouldering_durtles.wk.livedata.LiveCriticalCondition;
+import com.smouldering_durtles.wk.livedata.LiveDataInvalidationBus;
 
 import static com.smouldering_durtles.wk.Constants.HOUR;
 import static com.smouldering_durtles.wk.util.TextUtil.formatTimestampForApi;
@@ -46,6 +47,26 @@ public final class GetReviewStatisticsTask extends ApiTask {
         super(taskDefinition);
     }
 
+    /**
+     * The URI to fetch the review statistics from: everything that has changed since the last successful sync.
+     *
+     * @param db the database
+     * @return the URI
+     */
+    private static String getUri(final AppDatabase db) {
+        final long lastGetReviewStatisticsSuccess = db.propertiesDao().getLastReviewStatisticSyncSuccessDate(HOUR);
+        String uri = "/v2/review_statistics";
+        if (lastGetReviewStatisticsSuccess != 0) {
+            uri += "?updated_after=" + formatTimestampForApi(lastGetReviewStatisticsSuccess);
+        }
+        return uri;
+    }
+
+    @Override
+    public void prefetch() {
+        prefetchCollection(getUri(WkApplication.getDatabase()), ApiReviewStatistic.class);
+    }
+
     @Override
     public boolean canRun() {
         return WkApplication.getInstance().getOnlineStatus().canCallApi() && ApiState.getCurrentApiState() == ApiState.OK;
@@ -54,15 +75,10 @@ public final class GetReviewStatisticsTask extends ApiTask {
     @Override
     protected void runLocal() {
         final AppDatabase db = WkApplication.getDatabase();
-        final long lastGetReviewStatisticsSuccess = db.propertiesDao().getLastReviewStatisticSyncSuccessDate(HOUR);
+        final String uri = getUri(db);
 
         LiveApiProgress.reset(true, "statistics");
 
-        String uri = "/v2/review_statistics";
-        if (lastGetReviewStatisticsSuccess != 0) {
-            uri += "?updated_after=" + formatTimestampForApi(lastGetReviewStatisticsSuccess);
-        }
-
         if (!collectionApiCall(uri, ApiReviewStatistic.class, t -> db.subjectSyncDao().insertOrUpdateReviewStatistic(t))) {
             return;
         }
@@ -72,7 +88,7 @@ public final class GetReviewStatisticsTask extends ApiTask {
         db.taskDefinitionDao().deleteTaskDefinition(taskDefinition);
         LiveApiState.getInstance().forceUpdate();
         if (LiveApiProgress.getNumProcessedEntities() > 0) {
-            LiveCriticalCondition.getInstance().update();
+            LiveDataInvalidationBus.getInstance().invalidate(DataChange.REVIEW_STATISTIC);
         }
     }
 }
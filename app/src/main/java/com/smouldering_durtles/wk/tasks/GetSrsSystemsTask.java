@@ -29,12 +29,15 @@ import com.smouldering_durtles.wk.livedata.LiveApiProgress;
 import com.smouldering_durtles.wk.livedata.LiveApiState;
 import com.smouldering_durtles.wk.livedata.LiveSrsSystems;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import javax.annotation.Nullable;
 
 /**
- * Task to fetch the SRS stages (not an incremental update, this is a full fetch every time).
+ * Task to fetch the SRS stages (not an incremental update, this is a full fetch every time,
+ * but the request is conditional and nothing is touched if the systems haven't changed).
  */
 public final class GetSrsSystemsTask extends ApiTask {
     /**
@@ -63,9 +66,9 @@ public final class GetSrsSystemsTask extends ApiTask {
 
         LiveApiProgress.reset(true, "SRS systems");
 
-        srsSystemDao.deleteAll();
+        final List<SrsSystemDefinition> definitions = new ArrayList<>();
         final String uri = "/v2/spaced_repetition_systems";
-        if (!collectionApiCall(uri, ApiSrsSystem.class, t -> {
+        if (!conditionalCollectionApiCall(uri, ApiSrsSystem.class, t -> {
             final SrsSystemDefinition definition = new SrsSystemDefinition();
             definition.id = t.id;
             definition.name = t.name;
@@ -75,11 +78,18 @@ public final class GetSrsSystemsTask extends ApiTask {
             definition.passingStagePosition = t.passingStagePosition;
             definition.burningStagePosition = t.burningStagePosition;
             definition.stages = serializeToJsonString(t.stages);
-            srsSystemDao.insert(definition);
+            definitions.add(definition);
         })) {
             return;
         }
 
+        if (!definitions.isEmpty()) {
+            srsSystemDao.deleteAll();
+            for (final SrsSystemDefinition definition: definitions) {
+                srsSystemDao.insert(definition);
+            }
+        }
+
         db.propertiesDao().setLastApiSuccessDate(System.currentTimeMillis());
         db.propertiesDao().setLastSrsSystemSyncSuccessDate(System.currentTimeMillis());
         db.taskDefinitionDao().deleteTaskDefinition(taskDefinition);
@@ -45,6 +45,26 @@ public final class GetStudyMaterialsTask extends ApiTask {
         super(taskDefinition);
     }
 
+    /**
+     * The URI to fetch the study materials from: everything that has changed since the last successful sync.
+     *
+     * @param db the database
+     * @return the URI
+     */
+    private static String getUri(final AppDatabase db) {
+        final long lastGetStudyMaterialsSuccess = db.propertiesDao().getLastStudyMaterialSyncSuccessDate(HOUR);
+        String uri = "/v2/study_materials";
+        if (lastGetStudyMaterialsSuccess != 0) {
+            uri += "?updated_after=" + formatTimestampForApi(lastGetStudyMaterialsSuccess);
+        }
+        return uri;
+    }
+
+    @Override
+    public void prefetch() {
+        prefetchCollection(getUri(WkApplication.getDatabase()), ApiStudyMaterial.class);
+    }
+
     @Override
     public boolean canRun() {
         return WkApplication.getInstance().getOnlineStatus().canCallApi() && ApiState.getCurrentApiState() == ApiState.OK;
@@ -53,15 +73,10 @@ public final class GetStudyMaterialsTask extends ApiTask {
     @Override
     protected void runLocal() {
         final AppDatabase db = WkApplication.getDatabase();
-        final long lastGetStudyMaterialsSuccess = db.propertiesDao().getLastStudyMaterialSyncSuccessDate(HOUR);
+        final String uri = getUri(db);
 
         LiveApiProgress.reset(true, "study materials");
 
-        String uri = "/v2/study_materials";
-        if (lastGetStudyMaterialsSuccess != 0) {
-            uri += "?updated_after=" + formatTimestampForApi(lastGetStudyMaterialsSuccess);
-        }
-
         if (!collectionApiCall(uri, ApiStudyMaterial.class, t -> db.subjectSyncDao().insertOrUpdateStudyMaterial(t, false))) {
             return;
         }
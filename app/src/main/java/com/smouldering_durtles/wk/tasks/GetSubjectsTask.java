@@ -22,18 +22,10 @@ import com.smouldering_durtles.wk.api.model.ApiSubject;
 import com.smouldering_durtles.wk.api.model.Reading;
 import com.smouldering_durtles.wk.db.AppDatabase;
 import com.smouldering_durtles.wk.db.model.TaskDefinition;
+import com.smouldering_durtles.wk.enums.DataChange;
 import com.smouldering_durtles.wk.livedata.LiveApiProgress;
 import com.smouldering_durtles.wk.livedata.LiveApiState;
-import com.smouldering_durtles.wk.livedata.LiveBurnedItems;
-import com.smouldering_durtles.wk.livedata.LiveCriticalCondition;
-import com.smouldering_durtles.wk.livedata.LiveJlptProgress;
-import com.smouldering_durtles.wk.livedata.LiveJoyoProgress;
-import com.smouldering_durtles.wk.livedata.LiveLevelDuration;
-import com.smouldering_durtles.wk.livedata.LiveLevelProgress;
-import com.smouldering_durtles.wk.livedata.LiveRecentUnlocks;
-import com.smouldering_durtles.wk.livedata.LiveTimeLine;
-
-import java.util.Set;
+import com.smouldering_durtles.wk.livedata.LiveDataInvalidationBus;
 
 import static com.smouldering_durtles.wk.Constants.HOUR;
 import static com.smouldering_durtles.wk.util.TextUtil.formatTimestampForApi;
@@ -56,6 +48,26 @@ public final class GetSubjectsTask extends ApiTask {
         super(taskDefinition);
     }
 
+    /**
+     * The URI to fetch the subjects from: everything that has changed since the last successful sync.
+     *
+     * @param db the database
+     * @return the URI
+     */
+    private static String getUri(final AppDatabase db) {
+        final long lastGetSubjectsSuccess = db.propertiesDao().getLastSubjectSyncSuccessDate(HOUR);
+        String uri = "/v2/subjects";
+        if (lastGetSubjectsSuccess != 0) {
+            uri += "?updated_after=" + formatTimestampForApi(lastGetSubjectsSuccess);
+        }
+        return uri;
+    }
+
+    @Override
+    public void prefetch() {
+        prefetchCollection(getUri(WkApplication.getDatabase()), ApiSubject.class);
+    }
+
     @Override
     public boolean canRun() {
         return WkApplication.getInstance().getOnlineStatus().canCallApi() && ApiState.getCurrentApiState() == ApiState.OK;
@@ -64,30 +76,25 @@ public final class GetSubjectsTask extends ApiTask {
     @Override
     protected void runLocal() {
         final AppDatabase db = WkApplication.getDatabase();
-        final long lastGetSubjectsSuccess = db.propertiesDao().getLastSubjectSyncSuccessDate(HOUR);
+        final String uri = getUri(db);
 
         LiveApiProgress.reset(true, "subjects");
 
-        String uri = "/v2/subjects";
-        if (lastGetSubjectsSuccess != 0) {
-            uri += "?updated_after=" + formatTimestampForApi(lastGetSubjectsSuccess);
-        }
-
-        final Set<Long> existingSubjectIds = db.subjectViewsDao().getAllSubjectIds();
-
-        if (!collectionApiCall(uri, ApiSubject.class, t -> {
-            if (!t.getReadings().isEmpty()) {
-                int i = 0;
-                while (i < t.getReadings().size()) {
-                    final Reading reading = t.getReadings().get(i);
-                    if (reading.isEmptyOrNone()) {
-                        t.getReadings().remove(i);
-                        continue;
+        if (!pagedCollectionApiCall(uri, ApiSubject.class, page -> {
+            for (final ApiSubject t: page) {
+                if (!t.getReadings().isEmpty()) {
+                    int i = 0;
+                    while (i < t.getReadings().size()) {
+                        final Reading reading = t.getReadings().get(i);
+                        if (reading.isEmptyOrNone()) {
+                            t.getReadings().remove(i);
+                            continue;
+                        }
+                        i++;
                     }
-                    i++;
                 }
             }
-            db.subjectSyncDao().insertOrUpdate(t, existingSubjectIds);
+            db.subjectSyncDao().insertOrUpdateBatch(page);
         })) {
             return;
         }
@@ -98,14 +105,7 @@ public final class GetSubjectsTask extends ApiTask {
         LiveApiState.getInstance().forceUpdate();
         if (LiveApiProgress.getNumProcessedEntities() > 0) {
             db.propertiesDao().setLastAudioScanDate(0);
-            LiveTimeLine.getInstance().update();
-            LiveLevelProgress.getInstance().update();
-            LiveJoyoProgress.getInstance().update();
-            LiveJlptProgress.getInstance().update();
-            LiveRecentUnlocks.getInstance().update();
-            LiveCriticalCondition.getInstance().update();
-            LiveBurnedItems.getInstance().update();
-            LiveLevelDuration.getInstance().forceUpdate();
+            LiveDataInvalidationBus.getInstance().invalidate(DataChange.SUBJECT);
         }
     }
 }
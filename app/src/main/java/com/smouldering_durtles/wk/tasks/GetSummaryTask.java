@@ -22,8 +22,9 @@ import com.smouldering_durtles.wk.api.model.ApiSummary;
 import com.smouldering_durtles.wk.api.model.ApiSummarySession;
 import com.smouldering_durtles.wk.db.AppDatabase;
 import com.smouldering_durtles.wk.db.model.TaskDefinition;
+import com.smouldering_durtles.wk.enums.DataChange;
 import com.smouldering_durtles.wk.livedata.LiveApiState;
-import com.smouldering_durtles.wk.livedata.LiveTimeLine;
+import com.smouldering_durtles.wk.livedata.LiveDataInvalidationBus;
 
 import java.util.Collection;
 import java.util.HashSet;
@@ -64,11 +65,27 @@ public final class GetSummaryTask extends ApiTask {
             return;
         }
 
+        // Not conditional: applySummary() also corrects local drift that builds up while the summary stays the same
         final @Nullable ApiSummary summary = singleEntityApiCall("/v2/summary", ApiSummary.class);
         if (summary == null) {
             return;
         }
+        applySummary(summary);
 
+        db.propertiesDao().setLastApiSuccessDate(System.currentTimeMillis());
+        db.propertiesDao().setLastSummarySyncSuccessDate(System.currentTimeMillis());
+        db.taskDefinitionDao().deleteTaskDefinition(taskDefinition);
+        LiveApiState.getInstance().forceUpdate();
+        LiveDataInvalidationBus.getInstance().invalidate(DataChange.PROPERTIES);
+    }
+
+    /**
+     * Force the lesson and review availability of subjects to match the summary.
+     *
+     * @param summary the summary from the API
+     */
+    private static void applySummary(final ApiSummary summary) {
+        final AppDatabase db = WkApplication.getDatabase();
         final int maxLevel = db.propertiesDao().getUserMaxLevelGranted();
 
         final Collection<Long> subjectIds = new HashSet<>();
@@ -94,11 +111,5 @@ public final class GetSummaryTask extends ApiTask {
             }
         }
         db.subjectSyncDao().forceUpcomingReviewUnavailableExcept(maxLevel, subjectIds);
-
-        db.propertiesDao().setLastApiSuccessDate(System.currentTimeMillis());
-        db.propertiesDao().setLastSummarySyncSuccessDate(System.currentTimeMillis());
-        db.taskDefinitionDao().deleteTaskDefinition(taskDefinition);
-        LiveApiState.getInstance().forceUpdate();
-        LiveTimeLine.getInstance().update();
     }
 }
@@ -22,9 +22,10 @@ import com.smouldering_durtles.wk.api.model.ApiSubscription;
 import com.smouldering_durtles.wk.api.model.ApiUser;
 import com.smouldering_durtles.wk.db.AppDatabase;
 import com.smouldering_durtles.wk.db.model.TaskDefinition;
+import com.smouldering_durtles.wk.enums.DataChange;
 import com.smouldering_durtles.wk.livedata.LiveApiState;
+import com.smouldering_durtles.wk.livedata.LiveDataInvalidationBus;
 import com.smouldering_durtles.wk.livedata.LiveLevelDuration;
-import com.smouldering_durtles.wk.livedata.LiveTimeLine;
 import com.smouldering_durtles.wk.livedata.LiveVacationMode;
 
 import javax.annotation.Nullable;
@@ -59,11 +60,27 @@ public final class GetUserTask extends ApiTask {
 
     @Override
     protected void runLocal() {
-        final @Nullable ApiUser user = singleEntityApiCall("/v2/user", ApiUser.class);
-        if (user == null) {
+        final AppDatabase db = WkApplication.getDatabase();
+        if (!conditionalSingleEntityApiCall("/v2/user", ApiUser.class, GetUserTask::applyUser)) {
             return;
         }
 
+        db.propertiesDao().setApiKeyRejected(false);
+        db.propertiesDao().setApiInError(false);
+        db.propertiesDao().setLastApiSuccessDate(System.currentTimeMillis());
+        db.propertiesDao().setLastUserSyncSuccessDate(System.currentTimeMillis());
+        db.taskDefinitionDao().deleteTaskDefinition(taskDefinition);
+        LiveApiState.getInstance().forceUpdate();
+        LiveLevelDuration.getInstance().forceUpdate();
+        LiveVacationMode.getInstance().forceUpdate();
+    }
+
+    /**
+     * Store the user details in the database. Only called if the user has changed since the last successful call.
+     *
+     * @param user the user details from the API
+     */
+    private static void applyUser(final ApiUser user) {
         final AppDatabase db = WkApplication.getDatabase();
         final @Nullable String oldUserId = db.propertiesDao().getUserId();
         if (!isEqual(user.getId(), oldUserId)) {
@@ -83,20 +100,11 @@ public final class GetUserTask extends ApiTask {
         final boolean newVacationMode = user.getCurrentVacationStartedAt() != 0;
         if (oldVacationMode != newVacationMode) {
             db.propertiesDao().setVacationMode(newVacationMode);
-            LiveTimeLine.getInstance().update();
+            LiveDataInvalidationBus.getInstance().invalidate(DataChange.PROPERTIES);
         }
 
         final @Nullable ApiSubscription subscription = user.getSubscription();
         final int maxLevelGranted = subscription == null ? user.getMaxLevelGrantedBySubscription() : subscription.getMaxLevelGranted();
         db.propertiesDao().setUserMaxLevelGranted(maxLevelGranted);
-
-        db.propertiesDao().setApiKeyRejected(false);
-        db.propertiesDao().setApiInError(false);
-        db.propertiesDao().setLastApiSuccessDate(System.currentTimeMillis());
-        db.propertiesDao().setLastUserSyncSuccessDate(System.currentTimeMillis());
-        db.taskDefinitionDao().deleteTaskDefinition(taskDefinition);
-        LiveApiState.getInstance().forceUpdate();
-        LiveLevelDuration.getInstance().forceUpdate();
-        LiveVacationMode.getInstance().forceUpdate();
     }
 }
@@ -18,23 +18,35 @@ package com.smouldering_durtles.wk.tasks;
 
 import com.smouldering_durtles.wk.WkApplication;
 import com.smouldering_durtles.wk.db.AppDatabase;
+import com.smouldering_durtles.wk.db.ReferenceDataApplier;
 import com.smouldering_durtles.wk.db.model.TaskDefinition;
 import com.smouldering_durtles.wk.livedata.LiveApiProgress;
+import com.smouldering_durtles.wk.model.ReferenceDataValues;
 import com.smouldering_durtles.wk.model.SubjectReferenceData;
+import com.smouldering_durtles.wk.util.Logger;
 import com.smouldering_durtles.wk.util.ReferenceDataUtil;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import javax.annotation.Nullable;
-
+import static com.smouldering_durtles.wk.Constants.REFERENCE_DATA_CHUNK_SIZE;
 import static com.smouldering_durtles.wk.Constants.REFERENCE_DATA_VERSION;
-import static com.smouldering_durtles.wk.util.ObjectSupport.isEqual;
 
 /**
  * Task to batch-update reference data. This is not a network task, the data is loaded
  * locally.
+ *
+ * <p>
+ *     The new reference data is computed on all cores, and diffed against the content hash
+ *     stored with each subject. Only the subjects that actually changed are written, in one
+ *     transaction per chunk.
+ * </p>
  */
 public final class LoadReferenceDataTask extends ApiTask {
+    private static final Logger LOGGER = Logger.get(LoadReferenceDataTask.class);
+
     /**
      * Task priority.
      */
@@ -57,6 +69,7 @@ public final class LoadReferenceDataTask extends ApiTask {
     @Override
     protected void runLocal() {
         final AppDatabase db = WkApplication.getDatabase();
+        final long start = System.currentTimeMillis();
 
         LiveApiProgress.reset(true, "reference data");
 
@@ -64,18 +77,34 @@ public final class LoadReferenceDataTask extends ApiTask {
         final List<SubjectReferenceData> referenceData = db.subjectViewsDao().getReferenceData();
         LiveApiProgress.addEntities(referenceData.size());
 
-        for (final SubjectReferenceData data: referenceData) {
-            final int frequency = ReferenceDataUtil.getFrequency(data.getType(), data.getCharacters());
-            final int joyoGrade = ReferenceDataUtil.getJoyoGrade(data.getType(), data.getCharacters());
-            final int jlptLevel = ReferenceDataUtil.getJlptLevel(data.getType(), data.getCharacters());
-            final @Nullable String pitchInfo = ReferenceDataUtil.getPitchInfo(data.getType(), data.getCharacters());
-            final @Nullable String strokeData = ReferenceDataUtil.getStrokeData(data.getType(), data.getId(), data.getCharacters());
-            if (frequency != data.getFrequency() || joyoGrade != data.getJoyoGrade() || jlptLevel != data.getJlptLevel()
-                    || !isEqual(pitchInfo, data.getPitchInfo())|| !isEqual(strokeData, data.getStrokeData())) {
-                db.subjectDao().updateReferenceData(data.getId(), frequency, joyoGrade, jlptLevel, pitchInfo, strokeData);
-            }
-            LiveApiProgress.addProcessedEntity();
+        final int numThreads = Math.max(1, Runtime.getRuntime().availableProcessors());
+        final AtomicInteger count = new AtomicInteger(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(numThreads, r -> {
+            final Thread thread = new Thread(r, "ReferenceData #" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        final int numChanged;
+        try {
+            final ReferenceDataApplier<SubjectReferenceData> applier = new ReferenceDataApplier<>(executor,
+                    subject -> ReferenceDataUtil.getValues(subject.getType(), subject.getId(), subject.getCharacters()),
+                    REFERENCE_DATA_CHUNK_SIZE);
+            numChanged = applier.apply(referenceData, new ReferenceDataApplier.Target() {
+                @Override
+                public void write(final List<ReferenceDataValues> changes) {
+                    db.subjectDao().applyReferenceDataBatch(changes);
+                }
+
+                @Override
+                public void processed(final int num) {
+                    LiveApiProgress.addProcessedEntities(num);
+                }
+            });
+        } finally {
+            executor.shutdownNow();
         }
+        LOGGER.info("Reference data applied to %d of %d subjects in %d ms on %d threads",
+                numChanged, referenceData.size(), System.currentTimeMillis() - start, numThreads);
 
         db.propertiesDao().setReferenceDataVersion(REFERENCE_DATA_VERSION);
 
@@ -17,6 +17,7 @@
 package com.smouldering_durtles.wk.tasks;
 
 import static com.smouldering_durtles.wk.Constants.API_RETRY_DELAY;
+import static com.smouldering_durtles.wk.Constants.MAX_REPORTS_PER_COMMIT;
 import static com.smouldering_durtles.wk.Constants.MINUTE;
 import static com.smouldering_durtles.wk.Constants.NUM_API_TRIES;
 import static com.smouldering_durtles.wk.enums.SessionType.LESSON;
@@ -33,28 +34,39 @@ import com.smouldering_durtles.wk.api.model.ApiStartAssignment;
 import com.smouldering_durtles.wk.db.AppDatabase;
 import com.smouldering_durtles.wk.db.model.Subject;
 import com.smouldering_durtles.wk.db.model.TaskDefinition;
+import com.smouldering_durtles.wk.enums.DataChange;
 import com.smouldering_durtles.wk.enums.SessionType;
-import com.smouldering_durtles.wk.livedata.LiveAlertContext;
 import com.smouldering_durtles.wk.livedata.LiveApiState;
-import com.smouldering_durtles.wk.livedata.LiveBurnedItems;
-import com.smouldering_durtles.wk.livedata.LiveCriticalCondition;
-import com.smouldering_durtles.wk.livedata.LiveJlptProgress;
-import com.smouldering_durtles.wk.livedata.LiveJoyoProgress;
-import com.smouldering_durtles.wk.livedata.LiveLevelDuration;
-import com.smouldering_durtles.wk.livedata.LiveLevelProgress;
-import com.smouldering_durtles.wk.livedata.LiveRecentUnlocks;
-import com.smouldering_durtles.wk.livedata.LiveSrsBreakDown;
-import com.smouldering_durtles.wk.livedata.LiveTimeLine;
+import com.smouldering_durtles.wk.livedata.LiveDataInvalidationBus;
 import com.smouldering_durtles.wk.util.Logger;
+import com.smouldering_durtles.wk.util.Outbox;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 
 import javax.annotation.Nullable;
 
 /**
- * Task to report a completed session item to the API. In case of a lesson
+ * Task to report completed session items to the API. In case of a lesson
  * session, start the subject's assignment. In case of a review session, create
  * a review.
+ *
+ * <p>
+ *     The queued report tasks act as an outbox: whichever of them runs first
+ *     submits all pending reports in the order they were queued, each with its
+ *     original timestamp, stopping at the first one that fails. The assignments
+ *     and review statistics returned by the API are written in one transaction
+ *     per small chunk of reports, right before the chunk's tasks are removed, so
+ *     a crash can only cause the reports of one chunk to be sent again. The
+ *     dashboard LiveData instances are refreshed once when the outbox is empty,
+ *     not once per item.
+ * </p>
+ *
+ * <p>
+ *     For every confirmed report, the time from the answer to the confirmation by
+ *     the server is measured, and a summary is logged when the outbox is empty.
+ * </p>
  */
 public final class ReportSessionItemTask extends ApiTask {
     private static final Logger LOGGER = Logger.get(ReportSessionItemTask.class);
@@ -66,14 +78,41 @@ public final class ReportSessionItemTask extends ApiTask {
      */
     public static final int PRIORITY = 15;
 
-    private final long timestamp;
-    private final long subjectId;
-    private long assignmentId;
-    private final SessionType type;
-    private final int meaningIncorrect;
-    private final int readingIncorrect;
-    private final boolean justPassed;
+    /**
+     * A single queued report, parsed from its task definition.
+     */
+    private static final class Report {
+        private final long timestamp;
+        private final long subjectId;
+        private long assignmentId;
+        private final SessionType type;
+        private final int meaningIncorrect;
+        private final int readingIncorrect;
+        private final boolean justPassed;
+
+        /**
+         * The constructor.
+         *
+         * @param taskDefinition the definition of the task in the database
+         */
+        private Report(final TaskDefinition taskDefinition) {
+            final String[] parts = orElse(taskDefinition.getData(), "").split(" ");
+            timestamp = Long.parseLong(parts[0]);
+            subjectId = Long.parseLong(parts[1]);
+            assignmentId = Long.parseLong(parts[2]);
+            type = SessionType.valueOf(parts[3]);
+            meaningIncorrect = Integer.parseInt(parts[4]);
+            readingIncorrect = Integer.parseInt(parts[5]);
+            justPassed = parts.length >= 7 && Boolean.parseBoolean(parts[6]);
+        }
+    }
+
+    private final List<ApiAssignment> assignments = new ArrayList<>();
+    private final List<ApiReviewStatistic> reviewStatistics = new ArrayList<>();
     private boolean keepTask = false;
+    private int numConfirmed = 0;
+    private long totalLatency = 0;
+    private long maxLatency = 0;
 
     /**
      * The constructor.
@@ -82,14 +121,6 @@ public final class ReportSessionItemTask extends ApiTask {
      */
     public ReportSessionItemTask(final TaskDefinition taskDefinition) {
         super(taskDefinition);
-        final String[] parts = orElse(taskDefinition.getData(), "").split(" ");
-        timestamp = Long.parseLong(parts[0]);
-        subjectId = Long.parseLong(parts[1]);
-        assignmentId = Long.parseLong(parts[2]);
-        type = SessionType.valueOf(parts[3]);
-        meaningIncorrect = Integer.parseInt(parts[4]);
-        readingIncorrect = Integer.parseInt(parts[5]);
-        justPassed = parts.length >= 7 && Boolean.parseBoolean(parts[6]);
     }
 
     @Override
@@ -107,122 +138,184 @@ public final class ReportSessionItemTask extends ApiTask {
      *     is only still around as a last-ditch fallback and maybe for future changes to
      *     predictive logic.
      * </p>
+     *
+     * @param report the report to find the assignment ID for
      */
-    private void findAssignmentId() {
+    private void findAssignmentId(final Report report) {
         final AppDatabase db = WkApplication.getDatabase();
-        final @Nullable Subject subject = db.subjectDao().getById(subjectId);
+        final @Nullable Subject subject = db.subjectDao().getById(report.subjectId);
         if (subject != null && subject.getAssignmentId() > 0) {
-            assignmentId = subject.getAssignmentId();
+            report.assignmentId = subject.getAssignmentId();
             return;
         }
 
-        final String uri = "/v2/assignments?subject_ids=" + subjectId;
-        if (!collectionApiCall(uri, ApiAssignment.class, t -> assignmentId = t.getId())) {
+        final String uri = "/v2/assignments?subject_ids=" + report.subjectId;
+        if (!collectionApiCall(uri, ApiAssignment.class, t -> report.assignmentId = t.getId())) {
             keepTask = true;
         }
     }
 
-    @Override
-    protected void runLocal() {
-        final AppDatabase db = WkApplication.getDatabase();
-        keepTask = false;
+    /**
+     * Start the assignment for a lesson item.
+     *
+     * @param report the report
+     */
+    private void reportLesson(final Report report) {
+        if (report.assignmentId <= 0) {
+            findAssignmentId(report);
+        }
 
-        if (type == LESSON) {
-            if (assignmentId <= 0) {
-                findAssignmentId();
+        if (report.assignmentId > 0) {
+            final ApiStartAssignment requestBody = new ApiStartAssignment();
+            if (report.timestamp > 0 && System.currentTimeMillis() - report.timestamp > MINUTE * 5) {
+                requestBody.setStartedAt(report.timestamp);
             }
-
-            if (assignmentId > 0) {
-                final ApiStartAssignment requestBody = new ApiStartAssignment();
-                if (timestamp > 0 && System.currentTimeMillis() - timestamp > MINUTE * 5) {
-                    requestBody.setStartedAt(timestamp);
-                }
-                final String url = String.format(Locale.ROOT, "/v2/assignments/%d/start", assignmentId);
-                final @Nullable JsonNode responseBody = postApiCallWithRetry(url, "PUT", requestBody, NUM_API_TRIES, API_RETRY_DELAY);
-                if (responseBody == null) {
-                    keepTask = true;
-                }
-                if (responseBody != null && responseBody.has("id")) {
-                    try {
-                        final @Nullable ApiAssignment assignment = parseEntity(responseBody, ApiAssignment.class);
-                        if (assignment != null) {
-                            db.subjectSyncDao().insertOrUpdateAssignment(assignment);
-                            LiveApiState.getInstance().forceUpdate();
-                            LiveTimeLine.getInstance().update();
-                            LiveSrsBreakDown.getInstance().update();
-                            LiveLevelProgress.getInstance().update();
-                            LiveJoyoProgress.getInstance().update();
-                            LiveJlptProgress.getInstance().update();
-                            LiveRecentUnlocks.getInstance().update();
-                            LiveCriticalCondition.getInstance().update();
-                            LiveBurnedItems.getInstance().update();
-                            LiveLevelDuration.getInstance().forceUpdate();
-                            LiveAlertContext.getInstance().update();
-                        }
-                    } catch (final Exception e) {
-                        LOGGER.error(e, "Error parsing start-assignment response");
+            final String url = String.format(Locale.ROOT, "/v2/assignments/%d/start", report.assignmentId);
+            final @Nullable JsonNode responseBody = postApiCallWithRetry(url, "PUT", requestBody, NUM_API_TRIES, API_RETRY_DELAY);
+            if (responseBody == null) {
+                keepTask = true;
+            }
+            if (responseBody != null && responseBody.has("id")) {
+                try {
+                    final @Nullable ApiAssignment assignment = parseEntity(responseBody, ApiAssignment.class);
+                    if (assignment != null) {
+                        assignments.add(assignment);
                     }
+                } catch (final Exception e) {
+                    LOGGER.error(e, "Error parsing start-assignment response");
                 }
             }
         }
+    }
 
-        if (type == REVIEW) {
-            final ApiCreateReview requestBody = new ApiCreateReview();
-            requestBody.getReview().setSubjectId(subjectId);
-            requestBody.getReview().setIncorrectMeaningAnswers(meaningIncorrect);
-            requestBody.getReview().setIncorrectReadingAnswers(readingIncorrect);
-            if (timestamp > 0 && System.currentTimeMillis() - timestamp > MINUTE * 5) {
-                requestBody.getReview().setCreatedAt(timestamp);
-            }
-            final String url = "/v2/reviews";
-            final @Nullable JsonNode responseBody = postApiCallWithRetry(url, "POST", requestBody, NUM_API_TRIES, API_RETRY_DELAY);
-            if (responseBody == null) {
-                keepTask = true;
-            }
-            if (responseBody != null && responseBody.has("id") && responseBody.has("resources_updated")) {
-                final JsonNode resourcesUpdated = responseBody.get("resources_updated");
-                if (resourcesUpdated.has("assignment")) {
-                    final JsonNode assignmentJson = resourcesUpdated.get("assignment");
-                    try {
-                        final @Nullable ApiAssignment assignment = parseEntity(assignmentJson, ApiAssignment.class);
-                        if (assignment != null) {
-                            db.subjectSyncDao().insertOrUpdateAssignment(assignment);
-                        }
-                    } catch (final Exception e) {
-                        LOGGER.error(e, "Error parsing create-review response");
+    /**
+     * Create a review for a review item.
+     *
+     * @param report the report
+     */
+    private void reportReview(final Report report) {
+        final ApiCreateReview requestBody = new ApiCreateReview();
+        requestBody.getReview().setSubjectId(report.subjectId);
+        requestBody.getReview().setIncorrectMeaningAnswers(report.meaningIncorrect);
+        requestBody.getReview().setIncorrectReadingAnswers(report.readingIncorrect);
+        if (report.timestamp > 0 && System.currentTimeMillis() - report.timestamp > MINUTE * 5) {
+            requestBody.getReview().setCreatedAt(report.timestamp);
+        }
+        final String url = "/v2/reviews";
+        final @Nullable JsonNode responseBody = postApiCallWithRetry(url, "POST", requestBody, NUM_API_TRIES, API_RETRY_DELAY);
+        if (responseBody == null) {
+            keepTask = true;
+        }
+        if (responseBody != null && responseBody.has("id") && responseBody.has("resources_updated")) {
+            final JsonNode resourcesUpdated = responseBody.get("resources_updated");
+            if (resourcesUpdated.has("assignment")) {
+                final JsonNode assignmentJson = resourcesUpdated.get("assignment");
+                try {
+                    final @Nullable ApiAssignment assignment = parseEntity(assignmentJson, ApiAssignment.class);
+                    if (assignment != null) {
+                        assignments.add(assignment);
                     }
+                } catch (final Exception e) {
+                    LOGGER.error(e, "Error parsing create-review response");
                 }
-                if (resourcesUpdated.has("review_statistic")) {
-                    final JsonNode reviewStatisticJson = resourcesUpdated.get("review_statistic");
-                    try {
-                        final @Nullable ApiReviewStatistic reviewStatistic = parseEntity(reviewStatisticJson, ApiReviewStatistic.class);
-                        if (reviewStatistic != null) {
-                            db.subjectSyncDao().insertOrUpdateReviewStatistic(reviewStatistic);
-                        }
-                    } catch (final Exception e) {
-                        LOGGER.error(e, "Error parsing create-review response");
+            }
+            if (resourcesUpdated.has("review_statistic")) {
+                final JsonNode reviewStatisticJson = resourcesUpdated.get("review_statistic");
+                try {
+                    final @Nullable ApiReviewStatistic reviewStatistic = parseEntity(reviewStatisticJson, ApiReviewStatistic.class);
+                    if (reviewStatistic != null) {
+                        reviewStatistics.add(reviewStatistic);
                     }
+                } catch (final Exception e) {
+                    LOGGER.error(e, "Error parsing create-review response");
                 }
-                LiveApiState.getInstance().forceUpdate();
-                LiveTimeLine.getInstance().update();
-                LiveSrsBreakDown.getInstance().update();
-                LiveLevelProgress.getInstance().update();
-                LiveJoyoProgress.getInstance().update();
-                LiveJlptProgress.getInstance().update();
-                LiveRecentUnlocks.getInstance().update();
-                LiveCriticalCondition.getInstance().update();
-                LiveBurnedItems.getInstance().update();
-                LiveLevelDuration.getInstance().forceUpdate();
-                LiveAlertContext.getInstance().update();
             }
         }
+    }
+
+    /**
+     * The queued report tasks, as seen by the outbox.
+     */
+    private final class ReportQueue implements Outbox.Queue<TaskDefinition> {
+        private final AppDatabase db = WkApplication.getDatabase();
+        private boolean forceLateRefresh = false;
+        private boolean reported = false;
+
+        @Override
+        public List<TaskDefinition> getPending(final int maxCount) {
+            return db.taskDefinitionDao().getTaskDefinitionsByType(ReportSessionItemTask.class, maxCount);
+        }
 
-        if (justPassed) {
-            db.propertiesDao().setForceLateRefresh(true);
+        @Override
+        public boolean send(final TaskDefinition definition) {
+            final Report report;
+            try {
+                report = new Report(definition);
+            } catch (final Exception e) {
+                LOGGER.error(e, "Dropping malformed report: %s", definition.getData());
+                return true;
+            }
+            if (report.type == LESSON) {
+                reportLesson(report);
+            }
+            if (report.type == REVIEW) {
+                reportReview(report);
+            }
+            if (keepTask) {
+                return false;
+            }
+            forceLateRefresh |= report.justPassed;
+            if (report.timestamp > 0) {
+                final long latency = Math.max(0, System.currentTimeMillis() - report.timestamp);
+                numConfirmed++;
+                totalLatency += latency;
+                maxLatency = Math.max(maxLatency, latency);
+            }
+            return true;
         }
 
-        if (!keepTask) {
-            db.taskDefinitionDao().deleteTaskDefinition(taskDefinition);
+        @Override
+        public void commit(final List<TaskDefinition> sent) {
+            db.subjectSyncDao().insertOrUpdateReportResults(assignments, reviewStatistics);
+            reported |= !assignments.isEmpty() || !reviewStatistics.isEmpty();
+            assignments.clear();
+            reviewStatistics.clear();
+            if (forceLateRefresh) {
+                db.propertiesDao().setForceLateRefresh(true);
+                forceLateRefresh = false;
+            }
+            db.taskDefinitionDao().deleteTaskDefinitions(sent);
+        }
+
+        @Override
+        public boolean canContinue() {
+            return canRun();
+        }
+    }
+
+    /**
+     * Refresh everything on the dashboard that depends on subjects' SRS state.
+     */
+    private static void refreshLiveData() {
+        LiveApiState.getInstance().forceUpdate();
+        LiveDataInvalidationBus.getInstance().invalidate(DataChange.ASSIGNMENT, DataChange.REVIEW_STATISTIC);
+    }
+
+    @Override
+    protected void runLocal() {
+        keepTask = false;
+        assignments.clear();
+        reviewStatistics.clear();
+
+        final ReportQueue queue = new ReportQueue();
+        new Outbox<>(queue, MAX_REPORTS_PER_COMMIT).drain();
+
+        if (queue.reported) {
+            refreshLiveData();
+        }
+        if (numConfirmed > 0) {
+            LOGGER.info("Confirmed %d reports, answer to confirmation: average %d ms, max %d ms",
+                    numConfirmed, totalLatency / numConfirmed, maxLatency);
         }
     }
 }
@@ -24,7 +24,7 @@ import com.smouldering_durtles.wk.util.AudioUtil;
 
 /**
  * Task to batch-updata audio download status. This is not a network task, the data is loaded
- * locally.
+ * locally. The audio file index is rebuilt first, to pick up changes made outside of the app.
  */
 public final class ScanAudioDownloadStatusTask extends ApiTask {
     /**
@@ -53,6 +53,8 @@ public final class ScanAudioDownloadStatusTask extends ApiTask {
         LiveApiProgress.reset(true, "scanning audio");
         LiveApiProgress.addEntities(0);
 
+        AudioUtil.rescanAudioFiles();
+
         final int maxLevel = db.subjectAggregatesDao().getMaxLevel();
 
         for (int i=0; i<maxLevel; i++) {
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.util;
+
+import com.smouldering_durtles.wk.enums.CloseEnoughAction;
+import com.smouldering_durtles.wk.model.AnswerVerdict;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+/**
+ * Answer matcher for one fixed set of accepted and rejected answers. This gives exactly the same verdicts
+ * as FuzzyMatching.matches(), but does most of the work up front so checking an answer is cheap:
+ *
+ * <ul>
+ *     <li>The reference answers are cleaned up and their typo lenience thresholds are calculated once,
+ *     instead of on every check.</li>
+ *     <li>An answer that exactly matches a reference answer is found by a hash lookup, without computing
+ *     any edit distances.</li>
+ *     <li>Edit distances are computed with the bounded OSA variant, which only looks at a band around the
+ *     diagonal, gives up as soon as the distance can no longer beat the best match so far, and works in
+ *     a row buffer that is allocated once per matcher.</li>
+ * </ul>
+ *
+ * <p>
+ *     Matchers are cached per subject, see get().
+ * </p>
+ */
+public final class AnswerMatcher {
+    private static final int CACHE_SIZE = 64;
+
+    private static final Map<Long, AnswerMatcher> CACHE = new LinkedHashMap<Long, AnswerMatcher>(CACHE_SIZE, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Long, AnswerMatcher> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private final String[] rawAccepted;
+    private final String[] rawRejected;
+    private final String[] accepted;
+    private final String[] rejected;
+    private final int[] acceptedThresholds;
+    private final int[] rejectedThresholds;
+    private final Map<String, String> exactAccepted = new HashMap<>();
+    private final Set<String> exactRejected = new HashSet<>();
+    private final int[] rows;
+    private int bestIndex = -1;
+
+    /**
+     * The constructor. The iteration order of the references matters: if several accepted answers match
+     * equally well, the first one is reported as the matched answer, just like FuzzyMatching.matches() does.
+     *
+     * @param accepted the good candidates
+     * @param rejected the bad candidates
+     */
+    public AnswerMatcher(final Iterable<String> accepted, final Iterable<String> rejected) {
+        rawAccepted = toArray(accepted);
+        rawRejected = toArray(rejected);
+        this.accepted = new String[rawAccepted.length];
+        this.rejected = new String[rawRejected.length];
+        acceptedThresholds = new int[rawAccepted.length];
+        rejectedThresholds = new int[rawRejected.length];
+        int maxLength = 0;
+
+        for (int i=0; i<rawAccepted.length; i++) {
+            final String clean = FuzzyMatching.cleanString(rawAccepted[i]);
+            this.accepted[i] = clean;
+            acceptedThresholds[i] = FuzzyMatching.getThreshold(clean.length());
+            maxLength = Math.max(maxLength, clean.length());
+            if (!exactAccepted.containsKey(clean)) {
+                exactAccepted.put(clean, rawAccepted[i]);
+            }
+        }
+
+        for (int i=0; i<rawRejected.length; i++) {
+            final String clean = FuzzyMatching.cleanString(rawRejected[i]);
+            this.rejected[i] = clean;
+            rejectedThresholds[i] = FuzzyMatching.getThreshold(clean.length());
+            maxLength = Math.max(maxLength, clean.length());
+            exactRejected.add(clean);
+        }
+
+        rows = new int[3 * (maxLength + 1)];
+    }
+
+    private static String[] toArray(final Iterable<String> references) {
+        final List<String> list = new ArrayList<>();
+        for (final String reference: references) {
+            list.add(reference);
+        }
+        return list.toArray(new String[0]);
+    }
+
+    private static boolean isSame(final String[] references, final Iterable<String> other) {
+        final Iterator<String> iterator = other.iterator();
+        for (final String reference: references) {
+            if (!iterator.hasNext() || !reference.equals(iterator.next())) {
+                return false;
+            }
+        }
+        return !iterator.hasNext();
+    }
+
+    /**
+     * Get a matcher for the meaning answers of a subject. A cached matcher is reused if it was built
+     * for the same references in the same order, so edits to synonyms or auxiliary meanings are picked
+     * up automatically.
+     *
+     * @param subjectId the ID of the subject
+     * @param accepted the good candidates
+     * @param rejected the bad candidates
+     * @return the matcher
+     */
+    public static AnswerMatcher get(final long subjectId, final Iterable<String> accepted, final Iterable<String> rejected) {
+        synchronized (CACHE) {
+            final @Nullable AnswerMatcher cached = CACHE.get(subjectId);
+            if (cached != null && isSame(cached.rawAccepted, accepted) && isSame(cached.rawRejected, rejected)) {
+                return cached;
+            }
+            final AnswerMatcher matcher = new AnswerMatcher(accepted, rejected);
+            CACHE.put(subjectId, matcher);
+            return matcher;
+        }
+    }
+
+    /**
+     * Find the best distance between the answer and one of a set of references that is below a limit.
+     * The search stops at the first reference that improves on the limit, unless keepLooking is set.
+     * The index of the best reference is left in bestIndex, or -1 if none was below the limit.
+     *
+     * @param cleanAnswer the cleaned up answer
+     * @param references the cleaned up references
+     * @param thresholds the thresholds for the references
+     * @param limit only distances below this limit count
+     * @param keepLooking if true, look for the best distance instead of the first one that's below the limit
+     * @return the best distance, or the limit if none was below it
+     */
+    private int findBest(final String cleanAnswer, final String[] references, final int[] thresholds,
+                         final int limit, final boolean keepLooking) {
+        bestIndex = -1;
+        int bestDistance = limit;
+        for (int i=0; i<references.length; i++) {
+            final int bound = Math.min(thresholds[i], bestDistance - 1);
+            if (bound < 0 || Math.abs(cleanAnswer.length() - references[i].length()) > bound) {
+                continue;
+            }
+            final int distance = OptimalStringAlignmentDistance.getBoundedDistance(cleanAnswer, references[i], bound, rows);
+            if (distance <= bound) {
+                bestIndex = i;
+                bestDistance = distance;
+                if (!keepLooking) {
+                    break;
+                }
+            }
+        }
+        return bestDistance;
+    }
+
+    /**
+     * Match an answer against the accepted and rejected answers, with the same rules as FuzzyMatching.matches().
+     *
+     * @param answer the answer to test
+     * @param closeEnoughAction what to do if the answer is not exactly correct but 'close enough'
+     * @return the verdict for this check
+     */
+    public synchronized AnswerVerdict matches(final String answer, final CloseEnoughAction closeEnoughAction) {
+        final String cleanAnswer = FuzzyMatching.cleanString(answer);
+
+        final @Nullable String exact = exactAccepted.get(cleanAnswer);
+        if (exact != null) {
+            return FuzzyMatching.getVerdict(answer, 0, 0, exact, closeEnoughAction);
+        }
+        if (exactRejected.contains(cleanAnswer)) {
+            return AnswerVerdict.NOK_WITHOUT_RETRY;
+        }
+
+        final int bestAcceptedScore = findBest(cleanAnswer, accepted, acceptedThresholds, Integer.MAX_VALUE, true);
+        if (bestIndex < 0) {
+            return AnswerVerdict.NOK_WITHOUT_RETRY;
+        }
+        final String bestAcceptedAnswer = rawAccepted[bestIndex];
+
+        // Only a rejected answer that matches strictly better than the best accepted answer can change the verdict
+        final int bestRejectedScore = findBest(cleanAnswer, rejected, rejectedThresholds, bestAcceptedScore, false);
+        if (bestIndex < 0) {
+            return FuzzyMatching.getVerdict(answer, bestAcceptedScore, Integer.MAX_VALUE, bestAcceptedAnswer, closeEnoughAction);
+        }
+        return FuzzyMatching.getVerdict(answer, bestAcceptedScore, bestRejectedScore, bestAcceptedAnswer, closeEnoughAction);
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.util;
+
+import android.annotation.SuppressLint;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Parsing of the timestamps used in the WaniKani API. This is kept free of Android dependencies,
+ * so it can be benchmarked on a plain JVM. Use TextUtil.parseTimestampFromApi() in app code,
+ * which also deals with empty and malformed values.
+ */
+public final class ApiTimestamps {
+    private ApiTimestamps() {
+        //
+    }
+
+    /**
+     * Parse a timestamp from the API.
+     *
+     * @param date the date string, in ISO 8601 format with an offset
+     * @return the timestamp in milliseconds since the epoch
+     * @throws java.time.format.DateTimeParseException if the string can't be parsed
+     */
+    @SuppressLint("NewApi")
+    public static long parse(final CharSequence date) {
+        return ZonedDateTime.parse(date, DateTimeFormatter.ISO_OFFSET_DATE_TIME).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nullable;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import static java.net.HttpURLConnection.HTTP_PARTIAL;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Downloads batches of files in parallel, with a bounded number of downloads in flight.
+ *
+ * <p>
+ *     Every target file has its own part file next to it, named after the target, so any number
+ *     of downloads can run in the same directory at the same time. The part file is only renamed
+ *     to the target when the body has been received completely. If a download is interrupted,
+ *     the part file is kept, and the next attempt asks the server for the remainder with a Range
+ *     request. A server that ignores the Range header simply sends the whole file again.
+ * </p>
+ */
+public final class AudioDownloader {
+    /**
+     * HTTP status code for when a Range request asks for bytes the server doesn't have. Kept here
+     * rather than in Constants, so this class doesn't need the Android build to compile.
+     */
+    private static final int HTTP_RANGE_NOT_SATISFIABLE = 416;
+
+    private final OkHttpClient client;
+    private final ExecutorService executor;
+
+    /**
+     * A single file to download.
+     */
+    public static final class Item {
+        private final String url;
+        private final File target;
+
+        /**
+         * The constructor.
+         *
+         * @param url the URL to download from
+         * @param target the file to store the download in
+         */
+        public Item(final String url, final File target) {
+            this.url = url;
+            this.target = target;
+        }
+
+        /**
+         * The URL to download from.
+         *
+         * @return the value
+         */
+        public String getUrl() {
+            return url;
+        }
+
+        /**
+         * The file to store the download in.
+         *
+         * @return the value
+         */
+        public File getTarget() {
+            return target;
+        }
+    }
+
+    /**
+     * Decides if downloads may still be started. This is checked before every download,
+     * so a batch stops as soon as the circumstances change.
+     */
+    public interface Gate {
+        /**
+         * Can the next download start?.
+         *
+         * @return true if it can
+         */
+        boolean isOpen();
+    }
+
+    /**
+     * The outcome of a batch.
+     */
+    public static final class Result {
+        private final List<Item> downloaded = new ArrayList<>();
+        private int numFailed = 0;
+        private int numSkipped = 0;
+
+        /**
+         * The files that were downloaded completely, in batch order.
+         *
+         * @return the list
+         */
+        public List<Item> getDownloaded() {
+            return Collections.unmodifiableList(downloaded);
+        }
+
+        /**
+         * The number of files that were downloaded completely.
+         *
+         * @return the value
+         */
+        public int getNumDownloaded() {
+            return downloaded.size();
+        }
+
+        /**
+         * The number of files that could not be downloaded. Their part files, if any, are kept
+         * so the next attempt can resume them.
+         *
+         * @return the value
+         */
+        public int getNumFailed() {
+            return numFailed;
+        }
+
+        /**
+         * The number of files that were not attempted because the gate closed.
+         *
+         * @return the value
+         */
+        public int getNumSkipped() {
+            return numSkipped;
+        }
+    }
+
+    /**
+     * The constructor.
+     *
+     * @param client the HTTP client to download with
+     * @param executor the executor that runs the downloads, its number of threads bounds the number of downloads in flight
+     */
+    public AudioDownloader(final OkHttpClient client, final ExecutorService executor) {
+        this.client = client;
+        this.executor = executor;
+    }
+
+    /**
+     * Get the part file that a download for a target file is written to until it is complete.
+     *
+     * @param target the target file
+     * @return the part file
+     */
+    public static File getPartFile(final File target) {
+        return new File(target.getParentFile(), target.getName() + ".part");
+    }
+
+    /**
+     * Check if a Content-Range header describes the remainder of a file starting at an offset.
+     *
+     * @param contentRange the header value
+     * @param offset the offset the range was requested from
+     * @return true if it does
+     */
+    private static boolean isContinuation(final @Nullable String contentRange, final long offset) {
+        return contentRange != null && contentRange.trim().startsWith("bytes " + offset + "-");
+    }
+
+    /**
+     * Download a single file, resuming a previous attempt if a part file is present. This runs on
+     * the calling thread.
+     *
+     * @param url the URL to download from
+     * @param target the file to store the download in
+     * @return true if the target file is now complete
+     * @throws IOException if the download failed halfway, the part file is kept in that case
+     */
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    public boolean download(final String url, final File target) throws IOException {
+        final File part = getPartFile(target);
+        final long offset = part.isFile() ? part.length() : 0;
+
+        final Request.Builder builder = new Request.Builder().url(url).get();
+        if (offset > 0) {
+            builder.header("Range", "bytes=" + offset + "-");
+        }
+
+        try (final Response response = client.newCall(builder.build()).execute()) {
+            if (response.code() == HTTP_RANGE_NOT_SATISFIABLE) {
+                part.delete();
+                return false;
+            }
+            if (!response.isSuccessful()) {
+                return false;
+            }
+            final boolean append = offset > 0 && response.code() == HTTP_PARTIAL;
+            if (append && !isContinuation(response.header("Content-Range"), offset)) {
+                part.delete();
+                return false;
+            }
+
+            final ResponseBody body = requireNonNull(response.body());
+            final long expectedLength = body.contentLength() < 0 ? -1 : (append ? offset : 0) + body.contentLength();
+            try (final InputStream is = body.byteStream(); final OutputStream os = new FileOutputStream(part, append)) {
+                StreamUtil.pump(is, os);
+            }
+            if (expectedLength >= 0 && part.length() != expectedLength) {
+                return false;
+            }
+        }
+
+        if (target.exists() && !target.delete()) {
+            return false;
+        }
+        return part.renameTo(target);
+    }
+
+    /**
+     * Download a batch of files in parallel and wait for all of them to finish. Errors for
+     * individual files don't stop the batch.
+     *
+     * @param items the files to download
+     * @param gate the gate that is checked before each download starts
+     * @return the outcome
+     */
+    public Result downloadAll(final Collection<Item> items, final Gate gate) {
+        final List<Future<Boolean>> futures = new ArrayList<>(items.size());
+        final Result result = new Result();
+        try {
+            for (final Item item: items) {
+                futures.add(executor.submit(() -> {
+                    if (!gate.isOpen()) {
+                        return null;
+                    }
+                    return download(item.url, item.target);
+                }));
+            }
+            final Iterator<Item> itemIterator = items.iterator();
+            for (final Future<Boolean> future: futures) {
+                final Item item = itemIterator.next();
+                try {
+                    final @Nullable Boolean downloaded = future.get();
+                    if (downloaded == null) {
+                        result.numSkipped++;
+                    }
+                    else if (downloaded) {
+                        result.downloaded.add(item);
+                    }
+                    else {
+                        result.numFailed++;
+                    }
+                } catch (final ExecutionException e) {
+                    result.numFailed++;
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.numSkipped = items.size() - result.downloaded.size() - result.numFailed;
+        } finally {
+            for (final Future<Boolean> future: futures) {
+                future.cancel(true);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.util;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+/**
+ * An in-memory index of the audio files present in the audio directories of the storage locations.
+ *
+ * <p>
+ *     An audio directory holds one subdirectory per level, with the audio files for that level in it.
+ *     The first time a directory is queried, it is listed once, level by level, and after that all
+ *     presence checks for it are lookups in memory. The code that creates, moves and deletes audio
+ *     files reports those changes here, so the index stays current without touching storage again.
+ * </p>
+ *
+ * <p>
+ *     In verification mode, every lookup is also checked against the file system, and any difference
+ *     is reported to the listener and then corrected in the index.
+ * </p>
+ */
+public final class AudioFileIndex {
+    private final Map<File, Map<Integer, Set<String>>> directories = new HashMap<>();
+    private final @Nullable MismatchListener listener;
+    private @Nullable File lastDirectory = null;
+    private @Nullable Map<Integer, Set<String>> lastLevels = null;
+
+    /**
+     * Receives the differences between the index and the file system found in verification mode.
+     */
+    public interface MismatchListener {
+        /**
+         * Report a difference.
+         *
+         * @param file the audio file
+         * @param indexed true if the index claimed the file exists
+         */
+        void mismatch(File file, boolean indexed);
+    }
+
+    /**
+     * The constructor.
+     *
+     * @param listener if not null, run in verification mode and report differences to this listener
+     */
+    public AudioFileIndex(final @Nullable MismatchListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Parse the name of a level directory.
+     *
+     * @param name the name
+     * @return the level, or -1 if the name is not a level number
+     */
+    private static int parseLevel(final String name) {
+        try {
+            return Integer.parseInt(name);
+        } catch (final NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * List the contents of an audio directory. Only the directory itself and its level directories
+     * are listed, the files are taken from the listings as they are, without looking at them one by one.
+     *
+     * @param audioDirectory the audio directory
+     * @return the names of the files found, by level
+     */
+    private static Map<Integer, Set<String>> scan(final File audioDirectory) {
+        final Map<Integer, Set<String>> result = new HashMap<>();
+        final @Nullable String[] levelNames = audioDirectory.list();
+        if (levelNames == null) {
+            return result;
+        }
+        for (final String levelName: levelNames) {
+            final int level = parseLevel(levelName);
+            if (level < 0) {
+                continue;
+            }
+            final @Nullable String[] fileNames = new File(audioDirectory, levelName).list();
+            if (fileNames != null && fileNames.length > 0) {
+                final Set<String> files = new HashSet<>(fileNames.length * 2);
+                Collections.addAll(files, fileNames);
+                result.put(level, files);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the index for an audio directory, scanning it if it isn't indexed yet.
+     *
+     * @param audioDirectory the audio directory
+     * @return the names of the files in it, by level
+     */
+    private Map<Integer, Set<String>> getLevels(final File audioDirectory) {
+        if (lastLevels != null && audioDirectory.equals(lastDirectory)) {
+            return lastLevels;
+        }
+        final File key = audioDirectory.getAbsoluteFile();
+        @Nullable Map<Integer, Set<String>> levels = directories.get(key);
+        if (levels == null) {
+            levels = scan(key);
+            directories.put(key, levels);
+        }
+        lastDirectory = audioDirectory;
+        lastLevels = levels;
+        return levels;
+    }
+
+    /**
+     * Add or remove a file in the index of an audio directory.
+     *
+     * @param levels the index of the audio directory
+     * @param level the level
+     * @param fileName the name of the file
+     * @param present true to add, false to remove
+     */
+    private static void update(final Map<Integer, Set<String>> levels, final int level, final String fileName, final boolean present) {
+        @Nullable Set<String> files = levels.get(level);
+        if (present) {
+            if (files == null) {
+                files = new HashSet<>();
+                levels.put(level, files);
+            }
+            files.add(fileName);
+        }
+        else if (files != null) {
+            files.remove(fileName);
+        }
+    }
+
+    /**
+     * Check if an audio file exists.
+     *
+     * @param audioDirectory the audio directory of the storage location
+     * @param level the level
+     * @param fileName the name of the file
+     * @return true if it exists
+     */
+    public synchronized boolean exists(final File audioDirectory, final int level, final String fileName) {
+        final Map<Integer, Set<String>> levels = getLevels(audioDirectory);
+        final @Nullable Set<String> files = levels.get(level);
+        final boolean indexed = files != null && files.contains(fileName);
+        if (listener == null) {
+            return indexed;
+        }
+        final File file = new File(new File(audioDirectory, Integer.toString(level)), fileName);
+        final boolean present = file.exists();
+        if (present != indexed) {
+            listener.mismatch(file, indexed);
+            update(levels, level, fileName, present);
+        }
+        return present;
+    }
+
+    /**
+     * Record that an audio file has been created or deleted. If the file's audio directory hasn't
+     * been indexed yet, there is nothing to do, it will be scanned when it is first needed.
+     *
+     * @param file the audio file
+     * @param present true if the file was created
+     */
+    private void changed(final File file, final boolean present) {
+        final @Nullable File levelDirectory = file.getAbsoluteFile().getParentFile();
+        if (levelDirectory == null) {
+            return;
+        }
+        final @Nullable File audioDirectory = levelDirectory.getParentFile();
+        final int level = parseLevel(levelDirectory.getName());
+        if (audioDirectory == null || level < 0) {
+            return;
+        }
+        final @Nullable Map<Integer, Set<String>> levels = directories.get(audioDirectory);
+        if (levels != null) {
+            update(levels, level, file.getName(), present);
+        }
+    }
+
+    /**
+     * Record that an audio file has been created.
+     *
+     * @param file the audio file
+     */
+    public synchronized void added(final File file) {
+        changed(file, true);
+    }
+
+    /**
+     * Record that an audio file has been deleted.
+     *
+     * @param file the audio file
+     */
+    public synchronized void removed(final File file) {
+        changed(file, false);
+    }
+
+    /**
+     * Forget everything, so every audio directory is scanned again on its next lookup. This is
+     * needed after changes to the file system that don't go through added() and removed().
+     */
+    public synchronized void invalidate() {
+        directories.clear();
+        lastDirectory = null;
+        lastLevels = null;
+    }
+
+    /**
+     * Compare the index with the file system, by scanning all indexed audio directories again.
+     * The index itself is not changed.
+     *
+     * @return a description of every difference, empty if the index is consistent
+     */
+    public synchronized List<String> check() {
+        final List<String> result = new ArrayList<>();
+        for (final Map.Entry<File, Map<Integer, Set<String>>> entry: directories.entrySet()) {
+            final Map<Integer, Set<String>> actual = scan(entry.getKey());
+            compare(entry.getKey(), entry.getValue(), actual, "Indexed but missing: ", result);
+            compare(entry.getKey(), actual, entry.getValue(), "Present but not indexed: ", result);
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * Find the files that are in one index of an audio directory but not in another.
+     *
+     * @param audioDirectory the audio directory
+     * @param levels the index to look for files in
+     * @param other the index to check against
+     * @param prefix the prefix for the descriptions
+     * @param result the list to add descriptions to
+     */
+    private static void compare(final File audioDirectory, final Map<Integer, Set<String>> levels,
+                                final Map<Integer, Set<String>> other, final String prefix, final Collection<String> result) {
+        for (final Map.Entry<Integer, Set<String>> entry: levels.entrySet()) {
+            final @Nullable Set<String> otherFiles = other.get(entry.getKey());
+            for (final String fileName: entry.getValue()) {
+                if (otherFiles == null || !otherFiles.contains(fileName)) {
+                    result.add(prefix + new File(new File(audioDirectory, Integer.toString(entry.getKey())), fileName));
+                }
+            }
+        }
+    }
+}
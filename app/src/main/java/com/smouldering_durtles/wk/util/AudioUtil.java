@@ -26,6 +26,7 @@ import android.os.Build;
 import android.os.Environment;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 
 import androidx.arch.core.util.Function;
 import androidx.core.content.ContextCompat;
@@ -54,10 +55,13 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.annotation.Nullable;
 
 import static com.smouldering_durtles.wk.Constants.AUDIO_DIRECTORY_NAME;
+import static com.smouldering_durtles.wk.Constants.AUDIO_PREFETCH_POOL_SIZE;
 import static com.smouldering_durtles.wk.enums.VoicePreference.ALTERNATE;
 import static com.smouldering_durtles.wk.enums.VoicePreference.FEMALE;
 import static com.smouldering_durtles.wk.enums.VoicePreference.MALE;
@@ -82,6 +86,62 @@ public final class AudioUtil {
 
     private static boolean lastWasMale = false;
 
+    /**
+     * The index of the audio files present on storage, so presence checks don't have to touch storage.
+     * In debug builds, every lookup is verified against the file system.
+     */
+    private static final AudioFileIndex FILE_INDEX = new AudioFileIndex(BuildConfig.DEBUG
+            ? (file, indexed) -> LOGGER.info("Audio file index out of date for %s, indexed: %s", file, indexed)
+            : null);
+
+    /**
+     * The single background thread that resolves and prepares audio for upcoming questions.
+     */
+    private static final ExecutorService PREFETCH_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        final Thread thread = new Thread(r, "AudioPrefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Media players that have been prepared ahead of time, keyed by file path or URL.
+     */
+    private static final PreparedPool<String, MediaPlayer> PLAYER_POOL = new PreparedPool<>(AUDIO_PREFETCH_POOL_SIZE, PREFETCH_EXECUTOR,
+            new PreparedPool.Preparer<String, MediaPlayer>() {
+                @Override
+                public MediaPlayer prepare(final String key) throws Exception {
+                    final MediaPlayer player = new MediaPlayer();
+                    try {
+                        player.setDataSource(key);
+                        player.prepare();
+                        return player;
+                    } catch (final Exception e) {
+                        player.release();
+                        throw e;
+                    }
+                }
+
+                @Override
+                public void release(final MediaPlayer value) {
+                    safe(value::release);
+                }
+            });
+
+    private static @Nullable PlaybackListener playbackListener = null;
+
+    /**
+     * Instrumentation hook that is told how long it took for each playback to start.
+     */
+    public interface PlaybackListener {
+        /**
+         * Report that playback has started.
+         *
+         * @param source "prepared" for a player that was prepared ahead of time, "local" or "streaming" otherwise
+         * @param latency the time in milliseconds from the request to play until playback started
+         */
+        void onPlaybackStarted(String source, long latency);
+    }
+
     private AudioUtil() {
         //
     }
@@ -155,8 +215,14 @@ public final class AudioUtil {
 
     /**
      * Get the File instance corresponding to an audio file for the specified audio record.
-     * If no such file exists, return null. If the return value is not null, that file is
-     * guaranteed to exist, but there are no guarantees it will be readable.
+     * If no such file is known, return null.
+     *
+     * <p>
+     *     This is answered from the in-memory file index, the file system is only consulted
+     *     the first time a storage location is looked at. A file that was deleted outside of
+     *     the app stays in the index until the next rescan, so a non-null result may no longer
+     *     exist, and even if it does there are no guarantees it will be readable.
+     * </p>
      *
      * @param level the subject's level
      * @param audio the audio record
@@ -182,15 +248,13 @@ public final class AudioUtil {
             }
             final File audioDir = new File(baseDirectory, AUDIO_DIRECTORY_NAME);
             final File levelDir = new File(audioDir, Integer.toString(level));
-            final GenderedFile mp3File = new GenderedFile(levelDir, String.format(Locale.ROOT, "%d.mp3", audio.getMetadata().getSourceId()),
-                    audio.getMetadata().isMale());
-            if (mp3File.exists()) {
-                return mp3File;
+            final String mp3Name = String.format(Locale.ROOT, "%d.mp3", audio.getMetadata().getSourceId());
+            if (FILE_INDEX.exists(audioDir, level, mp3Name)) {
+                return new GenderedFile(levelDir, mp3Name, audio.getMetadata().isMale());
             }
-            final GenderedFile oggFile = new GenderedFile(levelDir, String.format(Locale.ROOT, "%d.ogg", audio.getMetadata().getSourceId()),
-                    audio.getMetadata().isMale());
-            if (oggFile.exists()) {
-                return oggFile;
+            final String oggName = String.format(Locale.ROOT, "%d.ogg", audio.getMetadata().getSourceId());
+            if (FILE_INDEX.exists(audioDir, level, oggName)) {
+                return new GenderedFile(levelDir, oggName, audio.getMetadata().isMale());
             }
         }
         return null;
@@ -330,7 +394,30 @@ public final class AudioUtil {
     }
 
     /**
-     * Get the temporary file for downloading a new audio file.
+     * Record a new audio file that has been put in place outside of this class, e.g. by a download.
+     *
+     * @param file the new file
+     */
+    public static void recordNewAudioFile(final File file) {
+        FILE_INDEX.added(file);
+    }
+
+    /**
+     * Forget what is known about the audio files present, so the next lookups scan storage again.
+     * In debug builds, any differences between the index and storage are logged first.
+     */
+    public static void rescanAudioFiles() {
+        if (BuildConfig.DEBUG) {
+            for (final String problem: FILE_INDEX.check()) {
+                LOGGER.info("Audio file index check: %s", problem);
+            }
+        }
+        FILE_INDEX.invalidate();
+    }
+
+    /**
+     * Get the temporary file for copying an audio file into place. It is named after the target,
+     * so copies of different files never share a temporary file.
      *
      * @param targetFile the eventual target file this temp file is for
      * @return the file, which may or may not exist
@@ -341,7 +428,7 @@ public final class AudioUtil {
             if (dir == null) {
                 return null;
             }
-            return new File(dir, "downloading.tmp");
+            return new File(dir, targetFile.getName() + ".tmp");
         }
         catch (final Exception e) {
             return null;
@@ -617,6 +704,8 @@ public final class AudioUtil {
             final File dir = new File(location);
             deleteDirectory(new File(dir, AUDIO_DIRECTORY_NAME));
         }
+
+        FILE_INDEX.invalidate();
     }
 
     @TargetApi(26)
@@ -772,6 +861,94 @@ public final class AudioUtil {
         player.start();
     }
 
+    /**
+     * Set the instrumentation hook for playback latency.
+     *
+     * @param listener the listener, or null to remove it
+     */
+    public static void setPlaybackListener(final @Nullable PlaybackListener listener) {
+        playbackListener = listener;
+    }
+
+    /**
+     * Sort a subject's audio records by how likely they are to be played for it: primary reading first,
+     * then the preferred voice. This is the same ordering playAudio() uses when no reading has been matched.
+     *
+     * @param subject the subject
+     * @return the sorted records
+     */
+    private static List<PronunciationAudio> getAudiosInPlaybackOrder(final Subject subject) {
+        final List<PronunciationAudio> audios = new ArrayList<>(subject.getParsedPronunciationAudios());
+        final VoicePreference voicePreference = GlobalSettings.Audio.getVoicePreference();
+        final boolean malePreferred = voicePreference == MALE || voicePreference == ALTERNATE && !lastWasMale;
+        final boolean femalePreferred = voicePreference == FEMALE || voicePreference == ALTERNATE && lastWasMale;
+        Collections.sort(audios, (o1, o2) -> {
+            final boolean primary1 = subject.isPrimaryReading(o1.getMetadata().getPronunciation());
+            final boolean primary2 = subject.isPrimaryReading(o2.getMetadata().getPronunciation());
+            if (primary1 != primary2) {
+                return primary1 ? -1 : 1;
+            }
+            if (malePreferred && o1.getMetadata().isMale() != o2.getMetadata().isMale()) {
+                return o1.getMetadata().isMale() ? -1 : 1;
+            }
+            if (femalePreferred && o1.getMetadata().isFemale() != o2.getMetadata().isFemale()) {
+                return o1.getMetadata().isFemale() ? -1 : 1;
+            }
+            return 0;
+        });
+        return audios;
+    }
+
+    /**
+     * Find the audio sources to prepare for a number of upcoming subjects, most likely first. These are the
+     * existing audio files of the subjects. If the first subject has no audio files, its streaming URLs
+     * are used instead, if audio downloads are allowed right now.
+     *
+     * @param subjects the subjects, in the order they are expected to come up
+     * @return the file paths and URLs
+     */
+    private static List<String> getPrefetchSources(final List<Subject> subjects) {
+        final List<String> result = new ArrayList<>();
+        final Iterable<String> locationValues = getLocationValues();
+        for (final Subject subject: subjects) {
+            boolean found = false;
+            final List<PronunciationAudio> audios = getAudiosInPlaybackOrder(subject);
+            for (final PronunciationAudio audio: audios) {
+                final @Nullable GenderedFile file = getExistingFileForAudio(subject.getLevel(), audio, locationValues);
+                if (file != null && !result.contains(file.getAbsolutePath())) {
+                    result.add(file.getAbsolutePath());
+                    found = true;
+                }
+            }
+            if (!found && subject == subjects.get(0) && WkApplication.getInstance().getOnlineStatus().canDownloadAudio()) {
+                for (final PronunciationAudio audio: audios) {
+                    if (audio.getUrl() != null && !result.contains(audio.getUrl())) {
+                        result.add(audio.getUrl());
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get audio ready for the subjects that are coming up in a session, so it can start playing right away
+     * when it's needed. The files are resolved and the players prepared in the background. Players that
+     * are no longer needed are released, so calling this with an empty list releases everything.
+     *
+     * @param subjects the subjects, in the order they are expected to come up
+     */
+    public static void prefetchAudio(final List<Subject> subjects) {
+        PREFETCH_EXECUTOR.execute(() -> safe(() -> {
+            if (subjects.isEmpty() || WkApplication.getDatabase().propertiesDao().getIsMuted()) {
+                PLAYER_POOL.setWanted(Collections.emptyList());
+            }
+            else {
+                PLAYER_POOL.setWanted(getPrefetchSources(subjects));
+            }
+        }));
+    }
+
     /**
      * Play an audio file for a subject. Take into account the user's preferences,
      * and try to get a match for the given reading.
@@ -780,44 +957,60 @@ public final class AudioUtil {
      * @param lastMatchedAnswer the reading to match if possible
      */
     public static void playAudio(final Subject subject, final @Nullable String lastMatchedAnswer) {
+        final long start = SystemClock.elapsedRealtime();
         if (WkApplication.getDatabase().propertiesDao().getIsMuted()) {
             return;
         }
 
-        final @Nullable GenderedFile audioFile = getOneAudioFileShouldMatch(subject, lastMatchedAnswer);
+        @Nullable GenderedFile audioFile = getOneAudioFileShouldMatch(subject, lastMatchedAnswer);
+        if (audioFile != null && !audioFile.exists()) {
+            // Deleted outside of the app since the index looked at storage, try the next best file once
+            FILE_INDEX.removed(audioFile);
+            audioFile = getOneAudioFileShouldMatch(subject, lastMatchedAnswer);
+            if (audioFile != null && !audioFile.exists()) {
+                FILE_INDEX.removed(audioFile);
+                audioFile = null;
+            }
+        }
         if (audioFile != null) {
-            playLocalAudio(audioFile);
+            lastWasMale = audioFile.isMale();
+            playSource(audioFile.getAbsolutePath(), "local", start);
         } else {
             // Fallback to streaming
             final @Nullable PronunciationAudio streamingAudio = getStreamingAudio(subject, lastMatchedAnswer);
-            if (streamingAudio != null) {
-                playStreamingAudio(streamingAudio);
+            if (streamingAudio != null && streamingAudio.getUrl() != null) {
+                lastWasMale = streamingAudio.getMetadata().isMale();
+                playSource(streamingAudio.getUrl(), "streaming", start);
             }
         }
     }
 
-    private static void playLocalAudio(GenderedFile audioFile) {
+    /**
+     * Play an audio file or URL, with a player that was prepared ahead of time if there is one.
+     *
+     * @param source the file path or URL
+     * @param kind "local" or "streaming", for the instrumentation hook
+     * @param start the time the request to play was made
+     */
+    private static void playSource(final String source, final String kind, final long start) {
         safe(() -> {
-            final MediaPlayer player = new MediaPlayer();
+            @Nullable MediaPlayer player = PLAYER_POOL.take(source);
+            final boolean prepared = player != null;
+            if (player == null) {
+                player = new MediaPlayer();
+                player.setDataSource(source);
+                player.prepare();
+            }
             savedMediaPlayer = player;
-            lastWasMale = audioFile.isMale();
-
-            // Use audioFile directly
-            player.setDataSource(audioFile.getAbsolutePath());
-            player.prepare();
+            player.setOnCompletionListener(mp -> safe(mp::release));
             player.start();
-        });
-    }
 
-    private static void playStreamingAudio(PronunciationAudio audio) {
-        safe(() -> {
-            final MediaPlayer player = new MediaPlayer();
-            savedMediaPlayer = player;
-
-            lastWasMale = audio.getMetadata().isMale();
-            player.setDataSource(audio.getUrl());
-            player.prepare();
-            player.start();
+            final long latency = SystemClock.elapsedRealtime() - start;
+            LOGGER.debug("Audio playback started after %d ms, %s", latency, prepared ? "prepared" : kind);
+            final @Nullable PlaybackListener listener = playbackListener;
+            if (listener != null) {
+                listener.onPlaybackStarted(prepared ? "prepared" : kind, latency);
+            }
         });
     }
 
@@ -1168,6 +1361,7 @@ public final class AudioUtil {
             }
             if (destinationFile.exists() && file.length() <= destinationFile.length()) {
                 file.delete();
+                FILE_INDEX.removed(file);
                 return;
             }
 
@@ -1184,8 +1378,11 @@ public final class AudioUtil {
             if (destinationFile.exists()) {
                 destinationFile.delete();
             }
-            tempFile.renameTo(destinationFile);
+            if (tempFile.renameTo(destinationFile)) {
+                FILE_INDEX.added(destinationFile);
+            }
             file.delete();
+            FILE_INDEX.removed(file);
         }
         catch (final Exception e) {
             //
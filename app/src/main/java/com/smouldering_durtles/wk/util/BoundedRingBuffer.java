@@ -0,0 +1,151 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.util;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.annotation.Nullable;
+
+/**
+ * A bounded, lock-free multi-producer single-consumer ring buffer.
+ *
+ * <p>
+ *     Each slot carries a sequence number that tells producers and the consumer whose turn it is,
+ *     so producers only contend on a single compare-and-set of the tail position. Producers never
+ *     block: if the buffer is full, offer() fails immediately and the element is counted as dropped.
+ * </p>
+ *
+ * @param <T> the type of the elements
+ */
+public final class BoundedRingBuffer<T> {
+    private final int mask;
+    private final AtomicReferenceArray<T> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong(0);
+    private final AtomicLong numDropped = new AtomicLong(0);
+    private long head = 0;
+
+    /**
+     * The constructor.
+     *
+     * @param capacity the capacity, rounded up to a power of two
+     */
+    public BoundedRingBuffer(final int capacity) {
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        mask = size - 1;
+        elements = new AtomicReferenceArray<>(size);
+        sequences = new AtomicLongArray(size);
+        for (int i=0; i<size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Add an element to the buffer. Safe to call from any thread, never blocks.
+     *
+     * @param element the element
+     * @return the position of the element in the stream of all accepted elements, or -1 if the buffer was full
+     */
+    public long offer(final T element) {
+        while (true) {
+            final long position = tail.get();
+            final int index = (int) (position & mask);
+            final long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.set(index, element);
+                    sequences.set(index, position + 1);
+                    return position;
+                }
+            }
+            else if (diff < 0) {
+                numDropped.incrementAndGet();
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Take the oldest element from the buffer. Must only be called by the single consumer.
+     *
+     * @return the element, or null if the buffer is empty
+     */
+    public @Nullable T poll() {
+        final int index = (int) (head & mask);
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        final T element = elements.get(index);
+        elements.set(index, null);
+        sequences.set(index, head + mask + 1);
+        head++;
+        return element;
+    }
+
+    /**
+     * Move up to a maximum number of elements from the buffer to a list. Must only be called by the single consumer.
+     *
+     * @param list the list to add the elements to
+     * @param max the maximum number of elements to move
+     * @return the number of elements moved
+     */
+    public int drainTo(final List<? super T> list, final int max) {
+        int count = 0;
+        while (count < max) {
+            final @Nullable T element = poll();
+            if (element == null) {
+                break;
+            }
+            list.add(element);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * The total number of elements accepted by offer() so far.
+     *
+     * @return the value
+     */
+    public long getNumOffered() {
+        return tail.get();
+    }
+
+    /**
+     * The total number of elements taken by the consumer so far. Only accurate on the consumer thread.
+     *
+     * @return the value
+     */
+    public long getNumTaken() {
+        return head;
+    }
+
+    /**
+     * The number of elements rejected because the buffer was full.
+     *
+     * @return the value
+     */
+    public long getNumDropped() {
+        return numDropped.get();
+    }
+}
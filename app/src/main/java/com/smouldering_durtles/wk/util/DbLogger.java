@@ -18,7 +18,6 @@ package com.smouldering_durtles.wk.util;
 
 import android.annotation.SuppressLint;
 import android.content.SharedPreferences;
-import android.os.Looper;
 import android.util.Log;
 
 import androidx.preference.PreferenceManager;
@@ -34,14 +33,14 @@ import com.smouldering_durtles.wk.db.model.Property;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.PrintWriter;
-import java.io.StringWriter;
 import java.net.URL;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.zip.GZIPOutputStream;
 
 import javax.annotation.Nullable;
@@ -52,23 +51,25 @@ import static com.smouldering_durtles.wk.Constants.SECOND;
 
 /**
  * A logging class that will log both to the Android logger and a circular log in the database.
+ *
+ * <p>
+ *     Log calls never touch the database themselves. They queue an entry in a LogPipeline, and a
+ *     single background thread formats the entries and writes them in batches, one transaction per
+ *     batch. The same thread trims the log when it grows too large. Entries that are still queued
+ *     are written before the log is read, and before the process dies of an uncaught exception.
+ * </p>
  */
 public final class DbLogger {
+    private static final int CAPACITY = 4096;
+    private static final long CRASH_FLUSH_TIMEOUT = 2 * SECOND;
+    private static final long READ_FLUSH_TIMEOUT = 10 * SECOND;
+    private static final Map<Class<?>, String> tagNames = new ConcurrentHashMap<>();
     private static @Nullable DbLogger instance = null;
 
     private final AppDatabase db;
+    private final LogPipeline pipeline;
     private int mark = -1;
 
-    /**
-     * Are we currently on the main thread?. If so, we need to shunt the
-     * database work off to a background thread.
-     *
-     * @return true if this is the main thread
-     */
-    private static boolean isOnMainThread() {
-        return Looper.myLooper() == Looper.getMainLooper();
-    }
-
     /**
      * Get the simple class name of a class, without a package specifier.
      * Make sure there is always something sensible to return, even for anonymous
@@ -86,6 +87,22 @@ public final class DbLogger {
         return name.substring(pos+1);
     }
 
+    /**
+     * Get the log tag for a class, which is its simple class name. Cached, since this is needed for every log call.
+     *
+     * @param clas the class
+     * @return the tag
+     */
+    private static String getTag(final Class<?> clas) {
+        final @Nullable String cached = tagNames.get(clas);
+        if (cached != null) {
+            return cached;
+        }
+        final String name = getSimpleClassName(clas);
+        tagNames.put(clas, name);
+        return name;
+    }
+
     /**
      * Initialize the singleton instance.
      *
@@ -95,9 +112,26 @@ public final class DbLogger {
         if (instance == null) {
             //noinspection NonThreadSafeLazyInitialization
             instance = new DbLogger(db);
+            instance.pipeline.start();
+            installCrashHandler();
         }
     }
 
+    /**
+     * Install a default uncaught exception handler that logs the exception and writes out the queued
+     * log entries, before handing over to the handler that was installed before.
+     */
+    private static void installCrashHandler() {
+        final @Nullable Thread.UncaughtExceptionHandler previous = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler((thread, throwable) -> {
+            logErrorException(DbLogger.class, throwable, "Uncaught exception in thread %s", thread.getName());
+            flush(CRASH_FLUSH_TIMEOUT);
+            if (previous != null) {
+                previous.uncaughtException(thread, throwable);
+            }
+        });
+    }
+
     /**
      * The singleton constructor.
      *
@@ -105,6 +139,25 @@ public final class DbLogger {
      */
     private DbLogger(final AppDatabase db) {
         this.db = db;
+        pipeline = new LogPipeline(new LogPipeline.Sink() {
+            @Override
+            public void write(final List<LogRecord> records) {
+                db.logRecordDao().insertBatch(records);
+                if (mark >= 0) {
+                    for (final LogRecord record: records) {
+                        mark += record.length;
+                    }
+                    if (mark > Constants.LOG_FILE_SIZE) {
+                        trimImpl();
+                    }
+                }
+            }
+
+            @Override
+            public void maintain() {
+                trimImpl();
+            }
+        }, CAPACITY);
     }
 
     /**
@@ -116,14 +169,14 @@ public final class DbLogger {
      */
     public static void logDebug(final Class<?> clas, final String format, final Object... values) {
         try {
-            final String message = String.format(format, values);
+            final String tag = getTag(clas);
             if (BuildConfig.DEBUG) {
-                Log.d(getSimpleClassName(clas), message);
+                Log.d(tag, String.format(format, values));
             }
             if (instance == null) {
                 return;
             }
-            instance.writeRecord(System.currentTimeMillis(), clas, message, 20_000);
+            instance.pipeline.log(System.currentTimeMillis(), tag, 20_000, format, values);
         } catch (final Exception e) {
             Log.e("CircularLogFile", "Exception while logging", e);
         }
@@ -138,14 +191,14 @@ public final class DbLogger {
      */
     public static void logInfo(final Class<?> clas, final String format, final Object... values) {
         try {
-            final String message = String.format(format, values);
+            final String tag = getTag(clas);
             if (BuildConfig.DEBUG) {
-                Log.i(getSimpleClassName(clas), message);
+                Log.i(tag, String.format(format, values));
             }
             if (instance == null) {
                 return;
             }
-            instance.writeRecord(System.currentTimeMillis(), clas, message, 20_000);
+            instance.pipeline.log(System.currentTimeMillis(), tag, 20_000, format, values);
         } catch (final Exception e) {
             Log.e("CircularLogFile", "Exception while logging", e);
         }
@@ -162,20 +215,14 @@ public final class DbLogger {
     private static void logErrorException(final Class<?> clas, final Throwable throwable,
                                                        final String format, final Object... values) {
         try {
-            final String message = String.format(format, values);
-            Log.e(getSimpleClassName(clas), message, throwable);
+            final String tag = getTag(clas);
+            Log.e(tag, String.format(format, values), throwable);
             if (instance == null) {
                 return;
             }
-            instance.writeRecord(System.currentTimeMillis(), clas, message, 20_000);
-            final StringWriter writer = new StringWriter();
-            final PrintWriter printWriter = new PrintWriter(writer);
-            throwable.printStackTrace(printWriter);
-            printWriter.flush();
-            printWriter.close();
-            writer.flush();
-            writer.close();
-            instance.writeRecord(System.currentTimeMillis(), clas, writer.toString(), 50_000);
+            final long timestamp = System.currentTimeMillis();
+            instance.pipeline.log(timestamp, tag, 20_000, format, values);
+            instance.pipeline.logStackTrace(timestamp, tag, 50_000, throwable);
         } catch (final Exception e) {
             Log.e("CircularLogFile", "Exception while logging", e);
         }
@@ -204,53 +251,13 @@ public final class DbLogger {
     }
 
     /**
-     * Write a logging entry to the database.
+     * Wait until all log entries queued so far have been written to the database.
      *
-     * @param timestamp the timestamp for this entry
-     * @param clas the class responsible for this entry
-     * @param logMessage the message
-     * @param maxLength the maximum length of the message to log
+     * @param timeout the maximum time to wait in milliseconds
+     * @return true if everything was written in time
      */
-    private void writeRecord(final long timestamp, final Class<?> clas, final String logMessage, final int maxLength) {
-        if (isOnMainThread()) {
-            new AsyncTask<Void>() {
-                @Override
-                public Void doInBackground() {
-                    try {
-                        writeRecord(timestamp, clas, logMessage, maxLength);
-                    } catch (final Exception e) {
-                        logUnexpectedError(getClass(), e);
-                    }
-                    return null;
-                }
-
-                @Override
-                public void onPostExecute(@Nullable final Void result) {
-                    //
-                }
-
-                @Override
-                public void onProgressUpdate(final Object[] values) {
-                    //
-                }
-            }.execute();
-            return;
-        }
-
-        String message = logMessage;
-        if (message.length() > maxLength) {
-            message = message.substring(0, maxLength);
-        }
-
-        final LogRecord record = new LogRecord();
-        record.timestamp = timestamp;
-        record.tag = getSimpleClassName(clas);
-        record.message = message;
-        record.length = message.length();
-        db.logRecordDao().insert(record);
-        if (mark >= 0) {
-            mark += message.length();
-        }
+    public static boolean flush(final long timeout) {
+        return instance == null || instance.pipeline.flush(timeout);
     }
 
     /**
@@ -261,6 +268,7 @@ public final class DbLogger {
      */
     @SuppressLint("NewApi")
     private void writeLogContents(final OutputStream stream) throws IOException {
+        pipeline.flush(READ_FLUSH_TIMEOUT);
         stream.write(String.format("%s version %s, username %s\n", Identification.APP_NAME, BuildConfig.VERSION_NAME,
                 db.propertiesDao().getUsername()).getBytes("UTF-8"));
         long id = 0;
@@ -277,14 +285,18 @@ public final class DbLogger {
     }
 
     /**
-     * Remove old logging records from the database if it has become too large.
+     * Remove old logging records from the database if it has become too large. The trimming
+     * is done asynchronously by the thread that writes the log records.
      */
     public static void trim() {
         if (instance != null) {
-            instance.trimImpl();
+            instance.pipeline.requestMaintenance();
         }
     }
 
+    /**
+     * Trim the log. Only called from the flusher thread.
+     */
     private void trimImpl() {
         if (mark < 0) {
             mark = db.logRecordDao().getTotalSize();
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.smouldering_durtles.wk.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects keys submitted in bursts and hands them to an action once per burst, without duplicates.
+ *
+ * <p>
+ *     The first submission after a quiet period schedules the action after a fixed delay. Everything
+ *     submitted until the action runs joins the same run. The delay is counted from the first
+ *     submission, not the last, so a steady stream of submissions can't postpone the action forever.
+ *     Keys submitted while the action is running are picked up by the next run.
+ * </p>
+ *
+ * @param <T> the type of the keys
+ */
+public final class Debouncer<T> {
+    private final ScheduledExecutorService executor;
+    private final long delay;
+    private final Action<T> action;
+    private final Set<T> pending = new LinkedHashSet<>();
+    private boolean scheduled = false;
+
+    /**
+     * The action to run for a burst of keys.
+     *
+     * @param <T> the type of the keys
+     */
+    public interface Action<T> {
+        /**
+         * Run the action.
+         *
+         * @param keys the distinct keys submitted since the last run, in order of first submission
+         */
+        void run(Collection<T> keys);
+    }
+
+    /**
+     * The constructor.
+     *
+     * @param executor the executor to run the action on
+     * @param delay the delay in milliseconds between the first submission of a burst and the action
+     * @param action the action
+     */
+    public Debouncer(final ScheduledExecutorService executor, final long delay, final Action<T> action) {
+        this.executor = executor;
+        this.delay = delay;
+        this.action = action;
+    }
+
+    /**
+     * Submit keys for the next run of the action.
+     *
+     * @param keys the keys
+     */
+    public void submit(final Collection<? extends T> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            pending.addAll(keys);
+            if (scheduled) {
+                return;
+            }
+            scheduled = true;
+        }
+        executor.schedule(this::fire, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Take the pending keys and run the action for them.
+     */
+    private void fire() {
+        final List<T> keys;
+        synchronized (this) {
+            keys = new ArrayList<>(pending);
+            pending.clear();
+            scheduled = false;
+        }
+        if (!keys.isEmpty()) {
+            action.run(keys);
+        }
+    }
+}
@@ -0,0 +1,375 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.util;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import javax.annotation.Nullable;
+
+/**
+ * The set of Unicode code points that a font has a glyph for, read from the font's cmap table.
+ *
+ * <p>
+ *     The set is stored as sorted, non-overlapping ranges of code points, so a lookup is a binary search
+ *     over a few hundred ints at most. Fonts are parsed in a single forward pass over the file: the table
+ *     directory is read, the stream is skipped ahead to the cmap table, and only that table is read into
+ *     memory. This works for TrueType and CFF-flavoured OpenType fonts and for the first font in a
+ *     collection, using the best Unicode subtable of format 4, 12 or 13.
+ * </p>
+ *
+ * <p>
+ *     A parsed coverage can be written to a small index file and read back, so the font file itself
+ *     only needs to be parsed once.
+ * </p>
+ */
+public final class FontCoverage {
+    private static final int INDEX_MAGIC = 0x46434f56;
+    private static final int INDEX_VERSION = 1;
+
+    private static final int TAG_TTCF = 0x74746366;
+    private static final int TAG_CMAP = 0x636d6170;
+    private static final int MAX_CMAP_SIZE = 16 * 1024 * 1024;
+
+    private final int[] starts;
+    private final int[] ends;
+
+    private FontCoverage(final int[] starts, final int[] ends) {
+        this.starts = starts;
+        this.ends = ends;
+    }
+
+    /**
+     * Does the font have a glyph for this code point?.
+     *
+     * @param codePoint the code point
+     * @return true if it does
+     */
+    public boolean contains(final int codePoint) {
+        int low = 0;
+        int high = starts.length - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (codePoint < starts[mid]) {
+                high = mid - 1;
+            }
+            else if (codePoint > ends[mid]) {
+                low = mid + 1;
+            }
+            else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The number of ranges of consecutive code points in this coverage.
+     *
+     * @return the value
+     */
+    public int getNumRanges() {
+        return starts.length;
+    }
+
+    /**
+     * Parse the coverage of a font file.
+     *
+     * @param is the font file contents, consumed but not closed
+     * @return the coverage, or null if the font has no cmap subtable that can be used
+     * @throws IOException if the stream could not be read or is not a font file
+     */
+    public static @Nullable FontCoverage parse(final InputStream is) throws IOException {
+        final DataInputStream in = new DataInputStream(is);
+        long pos = 0;
+
+        int tag = in.readInt();
+        pos += 4;
+        if (tag == TAG_TTCF) {
+            in.readInt();
+            final int numFonts = in.readInt();
+            pos += 8;
+            if (numFonts < 1) {
+                return null;
+            }
+            final long fontOffset = in.readInt() & 0xFFFFFFFFL;
+            pos += 4;
+            pos = skipTo(in, pos, fontOffset);
+            tag = in.readInt();
+            pos += 4;
+        }
+        if (tag != 0x00010000 && tag != 0x4f54544f && tag != 0x74727565) {
+            throw new IOException("Not a TrueType or OpenType font");
+        }
+
+        final int numTables = in.readUnsignedShort();
+        in.skipBytes(6);
+        pos += 8;
+        long cmapOffset = -1;
+        long cmapLength = 0;
+        for (int i=0; i<numTables; i++) {
+            final int tableTag = in.readInt();
+            in.readInt();
+            final long offset = in.readInt() & 0xFFFFFFFFL;
+            final long length = in.readInt() & 0xFFFFFFFFL;
+            pos += 16;
+            if (tableTag == TAG_CMAP) {
+                cmapOffset = offset;
+                cmapLength = length;
+            }
+        }
+        if (cmapOffset < pos || cmapLength < 4 || cmapLength > MAX_CMAP_SIZE) {
+            return null;
+        }
+
+        skipTo(in, pos, cmapOffset);
+        final byte[] cmap = new byte[(int) cmapLength];
+        in.readFully(cmap);
+        return parseCmap(cmap);
+    }
+
+    private static long skipTo(final DataInputStream in, final long pos, final long target) throws IOException {
+        if (target < pos) {
+            throw new IOException("Font tables are not in file order");
+        }
+        long remaining = target - pos;
+        while (remaining > 0) {
+            final long skipped = in.skip(remaining);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new EOFException();
+                }
+                remaining--;
+            }
+            else {
+                remaining -= skipped;
+            }
+        }
+        return target;
+    }
+
+    private static int u16(final byte[] data, final int offset) {
+        return ((data[offset] & 0xFF) << 8) | (data[offset + 1] & 0xFF);
+    }
+
+    private static long u32(final byte[] data, final int offset) {
+        return ((long) u16(data, offset) << 16) | u16(data, offset + 2);
+    }
+
+    /**
+     * Rank a cmap subtable by how useful it is, or -1 if it can't be used.
+     *
+     * @param platformId the platform ID of the encoding record
+     * @param encodingId the encoding ID of the encoding record
+     * @param format the subtable format
+     * @return the rank, higher is better
+     */
+    private static int rankSubtable(final int platformId, final int encodingId, final int format) {
+        final boolean unicode = platformId == 0 || (platformId == 3 && (encodingId == 1 || encodingId == 10));
+        if (!unicode) {
+            return -1;
+        }
+        if (format == 12) {
+            return 3;
+        }
+        if (format == 4) {
+            return 2;
+        }
+        if (format == 13) {
+            return 1;
+        }
+        return -1;
+    }
+
+    private static @Nullable FontCoverage parseCmap(final byte[] cmap) {
+        try {
+            final int numSubtables = u16(cmap, 2);
+            int bestOffset = -1;
+            int bestRank = -1;
+            for (int i=0; i<numSubtables; i++) {
+                final int record = 4 + i * 8;
+                final int offset = (int) u32(cmap, record + 4);
+                if (offset < 0 || offset + 2 > cmap.length) {
+                    continue;
+                }
+                final int rank = rankSubtable(u16(cmap, record), u16(cmap, record + 2), u16(cmap, offset));
+                if (rank > bestRank) {
+                    bestRank = rank;
+                    bestOffset = offset;
+                }
+            }
+            if (bestOffset < 0) {
+                return null;
+            }
+            final RangeBuilder builder = new RangeBuilder();
+            if (u16(cmap, bestOffset) == 4) {
+                parseFormat4(cmap, bestOffset, builder);
+            }
+            else {
+                parseFormat12Or13(cmap, bestOffset, u16(cmap, bestOffset) == 13, builder);
+            }
+            return builder.build();
+        }
+        catch (final ArrayIndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    private static void parseFormat4(final byte[] cmap, final int offset, final RangeBuilder builder) {
+        final int segCount = u16(cmap, offset + 6) / 2;
+        final int endCodes = offset + 14;
+        final int startCodes = endCodes + segCount * 2 + 2;
+        final int idDeltas = startCodes + segCount * 2;
+        final int idRangeOffsets = idDeltas + segCount * 2;
+        for (int i=0; i<segCount; i++) {
+            final int start = u16(cmap, startCodes + i * 2);
+            final int end = u16(cmap, endCodes + i * 2);
+            final int idDelta = u16(cmap, idDeltas + i * 2);
+            final int idRangeOffset = u16(cmap, idRangeOffsets + i * 2);
+            for (int c=start; c<=end && c != 0xFFFF; c++) {
+                int glyph;
+                if (idRangeOffset == 0) {
+                    glyph = (c + idDelta) & 0xFFFF;
+                }
+                else {
+                    glyph = u16(cmap, idRangeOffsets + i * 2 + idRangeOffset + (c - start) * 2);
+                    if (glyph != 0) {
+                        glyph = (glyph + idDelta) & 0xFFFF;
+                    }
+                }
+                if (glyph != 0) {
+                    builder.add(c, c);
+                }
+            }
+        }
+    }
+
+    private static void parseFormat12Or13(final byte[] cmap, final int offset, final boolean manyToOne, final RangeBuilder builder) {
+        final long numGroups = u32(cmap, offset + 12);
+        for (long i=0; i<numGroups; i++) {
+            final int group = (int) (offset + 16 + i * 12);
+            final long start = u32(cmap, group);
+            final long end = Math.min(u32(cmap, group + 4), Character.MAX_CODE_POINT);
+            final long glyph = u32(cmap, group + 8);
+            if (start > end) {
+                continue;
+            }
+            if (glyph != 0) {
+                builder.add((int) start, (int) end);
+            }
+            else if (!manyToOne && start < end) {
+                // In format 12 the glyph IDs count up from the start glyph, so only the first one is missing
+                builder.add((int) start + 1, (int) end);
+            }
+        }
+    }
+
+    /**
+     * Read a coverage from an index file written by write().
+     *
+     * @param is the index contents, consumed but not closed
+     * @return the coverage, or null if the index is not in a known format
+     * @throws IOException if the stream could not be read
+     */
+    public static @Nullable FontCoverage read(final InputStream is) throws IOException {
+        final DataInputStream in = new DataInputStream(is);
+        if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION) {
+            return null;
+        }
+        final int count = in.readInt();
+        if (count < 0 || count > Character.MAX_CODE_POINT) {
+            return null;
+        }
+        final int[] starts = new int[count];
+        final int[] ends = new int[count];
+        for (int i=0; i<count; i++) {
+            starts[i] = in.readInt();
+            ends[i] = in.readInt();
+        }
+        return new FontCoverage(starts, ends);
+    }
+
+    /**
+     * Write this coverage as an index file.
+     *
+     * @param os the stream to write to, not closed
+     * @throws IOException if the stream could not be written
+     */
+    public void write(final OutputStream os) throws IOException {
+        final DataOutputStream out = new DataOutputStream(os);
+        out.writeInt(INDEX_MAGIC);
+        out.writeInt(INDEX_VERSION);
+        out.writeInt(starts.length);
+        for (int i=0; i<starts.length; i++) {
+            out.writeInt(starts[i]);
+            out.writeInt(ends[i]);
+        }
+        out.flush();
+    }
+
+    /**
+     * Collects covered ranges in any order, and merges them into sorted, non-overlapping ranges.
+     */
+    private static final class RangeBuilder {
+        private int[] starts = new int[64];
+        private int[] ends = new int[64];
+        private int size = 0;
+
+        private void add(final int start, final int end) {
+            if (size > 0 && start >= starts[size - 1] && start <= ends[size - 1] + 1) {
+                ends[size - 1] = Math.max(ends[size - 1], end);
+                return;
+            }
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+            }
+            starts[size] = start;
+            ends[size] = end;
+            size++;
+        }
+
+        private FontCoverage build() {
+            final long[] packed = new long[size];
+            for (int i=0; i<size; i++) {
+                packed[i] = ((long) starts[i] << 32) | ends[i];
+            }
+            Arrays.sort(packed);
+            final int[] resultStarts = new int[size];
+            final int[] resultEnds = new int[size];
+            int count = 0;
+            for (final long range: packed) {
+                final int start = (int) (range >>> 32);
+                final int end = (int) range;
+                if (count > 0 && start <= resultEnds[count - 1] + 1) {
+                    resultEnds[count - 1] = Math.max(resultEnds[count - 1], end);
+                }
+                else {
+                    resultStarts[count] = start;
+                    resultEnds[count] = end;
+                    count++;
+                }
+            }
+            return new FontCoverage(Arrays.copyOf(resultStarts, count), Arrays.copyOf(resultEnds, count));
+        }
+    }
+}
@@ -26,7 +26,9 @@ import com.smouldering_durtles.wk.R;
 import com.smouldering_durtles.wk.WkApplication;
 import com.smouldering_durtles.wk.model.TypefaceConfiguration;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -40,6 +42,7 @@ import java.util.Map;
 import javax.annotation.Nullable;
 
 import static com.smouldering_durtles.wk.Constants.FONTS_DIRECTORY_NAME;
+import static com.smouldering_durtles.wk.Constants.FONT_COVERAGE_DIRECTORY_NAME;
 
 /**
  * Utility class for handling font files stored in local storage.
@@ -68,6 +71,85 @@ public final class FontStorageUtil {
         return new File(baseDirectory, fileName);
     }
 
+    /**
+     * Get the file where the glyph coverage index of a font is or would be stored.
+     *
+     * @param name the font ID
+     * @return the File instance for the index, may or may not exist yet
+     */
+    private static File getCoverageFile(final String name) {
+        @Nullable File baseDirectory = ContextCompat.getNoBackupFilesDir(WkApplication.getInstance());
+        if (baseDirectory == null) {
+            baseDirectory = WkApplication.getInstance().getFilesDir();
+        }
+        baseDirectory = new File(baseDirectory, FONT_COVERAGE_DIRECTORY_NAME);
+        return new File(baseDirectory, name + ".cmap");
+    }
+
+    /**
+     * Load the glyph coverage of a font and register it with TextUtil, so glyph checks for the typeface
+     * are lookups instead of renderings. The coverage is read from the stored index if there is an
+     * up-to-date one. If not, it is parsed from the font file and the index is written for next time.
+     * If the font's cmap table can't be used, nothing is registered and TextUtil falls back to rendering.
+     *
+     * @param name the font ID
+     * @param typeface the typeface loaded from the font
+     * @param fontFile the imported font file, or null for a bundled font
+     * @param source supplier for the contents of the font file
+     */
+    private static void loadGlyphCoverage(final String name, final Typeface typeface, final @Nullable File fontFile,
+                                          final ObjectSupport.ThrowingSupplier<InputStream> source) {
+        final File coverageFile = getCoverageFile(name);
+        try {
+            if (coverageFile.exists() && (fontFile == null || coverageFile.lastModified() >= fontFile.lastModified())) {
+                try (final InputStream is = new FileInputStream(coverageFile)) {
+                    final @Nullable FontCoverage coverage = FontCoverage.read(is);
+                    if (coverage != null) {
+                        TextUtil.setGlyphCoverage(typeface, coverage);
+                        return;
+                    }
+                }
+            }
+
+            final @Nullable FontCoverage coverage;
+            try (final InputStream is = new BufferedInputStream(source.get())) {
+                coverage = FontCoverage.parse(is);
+            }
+            if (coverage == null) {
+                return;
+            }
+            TextUtil.setGlyphCoverage(typeface, coverage);
+
+            final @Nullable File directory = coverageFile.getParentFile();
+            if (directory != null && !directory.exists()) {
+                //noinspection ResultOfMethodCallIgnored
+                directory.mkdirs();
+            }
+            try (final OutputStream os = new FileOutputStream(coverageFile)) {
+                coverage.write(os);
+            }
+        }
+        catch (final Exception e) {
+            LOGGER.error(e, "Exception loading glyph coverage for font %s", name);
+        }
+    }
+
+    /**
+     * Load a bundled font from the resources, including its glyph coverage.
+     *
+     * @param context the context to load the resources from
+     * @param name the font ID
+     * @param id the resource ID of the font
+     * @return the typeface or null if it could not be loaded
+     */
+    private static @Nullable Typeface getBundledTypeface(final Context context, final String name, final int id) {
+        final @Nullable Typeface typeface = ResourcesCompat.getFont(context, id);
+        if (typeface != null) {
+            loadGlyphCoverage(name, typeface, null, () -> context.getResources().openRawResource(id));
+        }
+        return typeface;
+    }
+
     /**
      * Make sure the base directory for font files exists in local storage.
      */
@@ -103,6 +185,7 @@ public final class FontStorageUtil {
      */
     public static void importFontFile(final InputStream source, final String fileName) throws IOException {
         assertBaseDirectoryExists();
+        deleteCoverageFile(fileName);
         try (final OutputStream os = new FileOutputStream(getFontFile(fileName))) {
             StreamUtil.pump(source, os);
         }
@@ -133,49 +216,49 @@ public final class FontStorageUtil {
                         break;
                     }
                     case "2": {
-                        final @Nullable Typeface typeface = ResourcesCompat.getFont(context, R.font.sawarabi_mincho_medium);
+                        final @Nullable Typeface typeface = getBundledTypeface(context, name, R.font.sawarabi_mincho_medium);
                         if (typeface != null) {
                             CACHE.put(name, new TypefaceConfiguration(typeface));
                         }
                         break;
                     }
                     case "3": {
-                        final @Nullable Typeface typeface = ResourcesCompat.getFont(context, R.font.sawarabi_gothic_medium);
+                        final @Nullable Typeface typeface = getBundledTypeface(context, name, R.font.sawarabi_gothic_medium);
                         if (typeface != null) {
                             CACHE.put(name, new TypefaceConfiguration(typeface));
                         }
                         break;
                     }
                     case "4": {
-                        final @Nullable Typeface typeface = ResourcesCompat.getFont(context, R.font.mplus_1p_regular);
+                        final @Nullable Typeface typeface = getBundledTypeface(context, name, R.font.mplus_1p_regular);
                         if (typeface != null) {
                             CACHE.put(name, new TypefaceConfiguration(typeface));
                         }
                         break;
                     }
                     case "5": {
-                        final @Nullable Typeface typeface = ResourcesCompat.getFont(context, R.font.kosugi_regular);
+                        final @Nullable Typeface typeface = getBundledTypeface(context, name, R.font.kosugi_regular);
                         if (typeface != null) {
                             CACHE.put(name, new TypefaceConfiguration(typeface));
                         }
                         break;
                     }
                     case "6": {
-                        final @Nullable Typeface typeface = ResourcesCompat.getFont(context, R.font.kosugi_maru_regular);
+                        final @Nullable Typeface typeface = getBundledTypeface(context, name, R.font.kosugi_maru_regular);
                         if (typeface != null) {
                             CACHE.put(name, new TypefaceConfiguration(typeface));
                         }
                         break;
                     }
                     case "7": {
-                        final @Nullable Typeface typeface = ResourcesCompat.getFont(context, R.font.otsutomefont_ver3);
+                        final @Nullable Typeface typeface = getBundledTypeface(context, name, R.font.otsutomefont_ver3);
                         if (typeface != null) {
                             CACHE.put(name, new TypefaceConfiguration(typeface, 15, 0, 0, 0));
                         }
                         break;
                     }
                     case "8": {
-                        final @Nullable Typeface typeface = ResourcesCompat.getFont(context, R.font.gochikakutto);
+                        final @Nullable Typeface typeface = getBundledTypeface(context, name, R.font.gochikakutto);
                         if (typeface != null) {
                             CACHE.put(name, new TypefaceConfiguration(typeface));
                         }
@@ -188,6 +271,7 @@ public final class FontStorageUtil {
                             typeface = Typeface.createFromFile(fontFile);
                         }
                         if (typeface != null) {
+                            loadGlyphCoverage(name, typeface, fontFile, () -> new FileInputStream(fontFile));
                             CACHE.put(name, new TypefaceConfiguration(typeface));
                         }
                         break;
@@ -246,5 +330,19 @@ public final class FontStorageUtil {
             //noinspection ResultOfMethodCallIgnored
             file.delete();
         }
+        deleteCoverageFile(name);
+    }
+
+    /**
+     * Remove the glyph coverage index of a font from local storage, if it exists.
+     *
+     * @param name the font ID
+     */
+    private static void deleteCoverageFile(final String name) {
+        final File file = getCoverageFile(name);
+        if (file.exists()) {
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+        }
     }
 }
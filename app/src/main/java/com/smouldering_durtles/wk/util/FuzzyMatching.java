@@ -614,7 +614,7 @@ public final class FuzzyMatching {
      * @param s the string to clean up
      * @return the cleaned up string
      */
-    private static String cleanString(final String s) {
+    static String cleanString(final String s) {
         final StringBuilder sb = new StringBuilder();
         int i = 0;
         while (i < s.length()) {
@@ -651,33 +651,39 @@ public final class FuzzyMatching {
     }
 
     /**
-     * Compare two strings and return their edit distance if that edit distance
-     * is within the typo lenience threshold.
+     * Get the typo lenience threshold for a reference answer: the maximum edit distance
+     * for an answer to still be considered a match.
      *
-     * @param answer the user-supplied answer to check
-     * @param reference the reference answer to check against
-     * @return the edit distance or Integer.MAX_VALUE if rejected
+     * @param length the length of the cleaned up reference answer
+     * @return the threshold
      */
-    private static int getMatchScore(final CharSequence answer, final CharSequence reference) {
-        final int threshold;
-        switch (reference.length()) {
+    static int getThreshold(final int length) {
+        switch (length) {
             case 1:
             case 2:
             case 3:
-                threshold = 0;
-                break;
+                return 0;
             case 4:
             case 5:
-                threshold = 1;
-                break;
+                return 1;
             case 6:
             case 7:
-                threshold = 2;
-                break;
+                return 2;
             default:
-                threshold = reference.length() / 7 + 2;
-                break;
+                return length / 7 + 2;
         }
+    }
+
+    /**
+     * Compare two strings and return their edit distance if that edit distance
+     * is within the typo lenience threshold.
+     *
+     * @param answer the user-supplied answer to check
+     * @param reference the reference answer to check against
+     * @return the edit distance or Integer.MAX_VALUE if rejected
+     */
+    private static int getMatchScore(final CharSequence answer, final CharSequence reference) {
+        final int threshold = getThreshold(reference.length());
         final int score = OptimalStringAlignmentDistance.getDistance(answer, reference);
         return score <= threshold ? score : Integer.MAX_VALUE;
     }
@@ -719,6 +725,21 @@ public final class FuzzyMatching {
             }
         }
 
+        return getVerdict(answer, bestAcceptedScore, bestRejectedScore, bestAcceptedAnswer, closeEnoughAction);
+    }
+
+    /**
+     * Turn the best scores for the accepted and rejected answers into a verdict.
+     *
+     * @param answer the answer as given
+     * @param bestAcceptedScore the best score for the accepted answers, Integer.MAX_VALUE if none matched
+     * @param bestRejectedScore the best score for the rejected answers, Integer.MAX_VALUE if none matched
+     * @param bestAcceptedAnswer the accepted answer with the best score
+     * @param closeEnoughAction what to do if the answer is not exactly correct but 'close enough'
+     * @return the verdict for this check
+     */
+    static AnswerVerdict getVerdict(final String answer, final int bestAcceptedScore, final int bestRejectedScore,
+                                    final @Nullable String bestAcceptedAnswer, final CloseEnoughAction closeEnoughAction) {
         switch (closeEnoughAction) {
             case SHAKE_AND_RETRY:
                 if (bestAcceptedScore < Integer.MAX_VALUE && bestAcceptedScore <= bestRejectedScore) {
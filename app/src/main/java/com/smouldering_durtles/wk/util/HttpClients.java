@@ -0,0 +1,98 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.smouldering_durtles.wk.util;
+
+import com.smouldering_durtles.wk.BuildConfig;
+import com.smouldering_durtles.wk.Identification;
+import com.smouldering_durtles.wk.api.ApiAuthInterceptor;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+
+import static com.smouldering_durtles.wk.Constants.MINUTE;
+import static com.smouldering_durtles.wk.Constants.SECOND;
+
+/**
+ * The process-wide HTTP clients. All clients share a single connection pool and dispatcher, so
+ * connections and TLS sessions are reused across requests, even between the API, the web site
+ * and file downloads. HTTP/2 and transparent gzip are handled by OkHttp itself.
+ *
+ * <p>
+ *     Clients for specific purposes are derived from the base client with newBuilder(), which is
+ *     cheap and keeps sharing the pool and dispatcher.
+ * </p>
+ */
+public final class HttpClients {
+    private static final ConnectionPool CONNECTION_POOL = new ConnectionPool(5, 5, TimeUnit.MINUTES);
+    private static final Dispatcher DISPATCHER = new Dispatcher();
+
+    private static @Nullable OkHttpClient client = null;
+    private static @Nullable OkHttpClient apiClient = null;
+
+    private HttpClients() {
+        //
+    }
+
+    /**
+     * Get the base client. It sets the app's User-Agent on every request that doesn't have
+     * one, follows redirects, and has the same timeouts the app has always used.
+     *
+     * @return the client
+     */
+    public static synchronized OkHttpClient getClient() {
+        if (client == null) {
+            client = new OkHttpClient.Builder()
+                    .connectionPool(CONNECTION_POOL)
+                    .dispatcher(DISPATCHER)
+                    .connectTimeout(10 * SECOND, TimeUnit.MILLISECONDS)
+                    .readTimeout(MINUTE, TimeUnit.MILLISECONDS)
+                    .followRedirects(true)
+                    .followSslRedirects(true)
+                    .addInterceptor(chain -> {
+                        final Request request = chain.request();
+                        if (request.header("User-Agent") != null) {
+                            return chain.proceed(request);
+                        }
+                        return chain.proceed(request.newBuilder()
+                                .header("User-Agent", Identification.APP_NAME_UA + "/" + BuildConfig.VERSION_NAME)
+                                .build());
+                    })
+                    .build();
+        }
+        return client;
+    }
+
+    /**
+     * Get the client for WaniKani API calls. This is the base client plus authentication
+     * with the user's API token.
+     *
+     * @return the client
+     */
+    public static synchronized OkHttpClient getApiClient() {
+        if (apiClient == null) {
+            apiClient = getClient().newBuilder()
+                    .addInterceptor(ApiAuthInterceptor.getInstance())
+                    .build();
+        }
+        return apiClient;
+    }
+}
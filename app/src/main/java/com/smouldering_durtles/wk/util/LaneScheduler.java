@@ -0,0 +1,433 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.util;
+
+import com.smouldering_durtles.wk.enums.TaskLane;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+/**
+ * Scheduler that works through a persistent task queue in a number of independent lanes.
+ *
+ * <p>
+ *     Every lane has its own thread, and picks its own next task in priority order, so a long
+ *     task in one lane never delays the tasks in another, and a task that can't run right now
+ *     only holds up its own lane. Tasks that declare themselves independent of each other can
+ *     run side by side, up to the lane's concurrency limit; all other tasks run alone.
+ * </p>
+ *
+ * <p>
+ *     In a lane that isn't ordered, the oldest task runs next regardless of its priority once it
+ *     has been passed over by newer, higher priority tasks too many times in a row. An ordered
+ *     lane always runs its tasks in priority order. A lane that yields to the interactive lane
+ *     doesn't start a task while the interactive lane has any, and picks up again when the
+ *     interactive lane has worked through them.
+ * </p>
+ */
+public final class LaneScheduler {
+    private final Queue queue;
+    private final int starvationLimit;
+    private final Map<TaskLane, Lane> lanes = new EnumMap<>(TaskLane.class);
+
+    /**
+     * A task as seen by the scheduler.
+     */
+    public interface Task {
+        /**
+         * Check if the task can run right now.
+         *
+         * @return true if it can
+         */
+        boolean canRun();
+
+        /**
+         * Can this task run at the same time as other tasks in its lane that also allow it?.
+         *
+         * @return true if it can
+         */
+        boolean canRunConcurrently();
+
+        /**
+         * Run the task. The task is responsible for removing itself from the queue when it
+         * doesn't need to be retried.
+         */
+        void run();
+    }
+
+    /**
+     * The persistent queue the tasks are taken from.
+     */
+    public interface Queue {
+        /**
+         * Get the IDs of the pending tasks in a lane, in priority order.
+         *
+         * @param lane the lane
+         * @param maxCount the maximum number of IDs to return
+         * @return the IDs
+         */
+        List<Long> getNextIds(TaskLane lane, int maxCount);
+
+        /**
+         * Get the IDs of the pending tasks in a lane, oldest first.
+         *
+         * @param lane the lane
+         * @param maxCount the maximum number of IDs to return
+         * @return the IDs
+         */
+        List<Long> getOldestIds(TaskLane lane, int maxCount);
+
+        /**
+         * Load a task. If the task can't be run at all, the queue removes it and returns null.
+         *
+         * @param id the ID of the task
+         * @return the task or null if it no longer exists
+         * @throws Exception if the task could not be loaded
+         */
+        @Nullable Task load(long id) throws Exception;
+
+        /**
+         * Report an unexpected error while working through a lane. The lane carries on when it
+         * is scheduled again.
+         *
+         * @param e the error
+         */
+        void onError(Exception e);
+    }
+
+    /**
+     * The state of one lane. The running flag and the set of running tasks are guarded by the
+     * scheduler's monitor, the starvation counters are only touched by the lane's coordinator.
+     */
+    private static final class Lane {
+        private final TaskLane lane;
+        private final ExecutorService coordinator;
+        private final @Nullable ExecutorService workers;
+        private final AtomicBoolean requested = new AtomicBoolean(false);
+        private final Set<Long> inFlight = new HashSet<>();
+        private boolean running = false;
+        private long oldestId = -1;
+        private int numPassedOver = 0;
+
+        private Lane(final TaskLane lane) {
+            this.lane = lane;
+            coordinator = createPool(1, "TaskLane " + lane);
+            workers = lane.getMaxConcurrency() > 1 ? createPool(lane.getMaxConcurrency(), "TaskLane " + lane + " worker") : null;
+        }
+    }
+
+    /**
+     * The constructor.
+     *
+     * @param queue the task queue
+     * @param starvationLimit the number of times the oldest task in a lane that isn't ordered can be passed over before it runs anyway
+     */
+    public LaneScheduler(final Queue queue, final int starvationLimit) {
+        this.queue = queue;
+        this.starvationLimit = starvationLimit;
+        for (final TaskLane lane: TaskLane.values()) {
+            lanes.put(lane, new Lane(lane));
+        }
+    }
+
+    /**
+     * Create a pool of daemon threads that shuts down its threads when idle.
+     *
+     * @param numThreads the number of threads
+     * @param name the prefix for the thread names
+     * @return the pool
+     */
+    private static ExecutorService createPool(final int numThreads, final String name) {
+        final AtomicInteger count = new AtomicInteger(1);
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(numThreads, numThreads,
+                30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                    final Thread thread = new Thread(r, name + " #" + count.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Make sure all lanes are working through their pending tasks. This returns right away.
+     */
+    public void schedule() {
+        for (final TaskLane lane: TaskLane.values()) {
+            schedule(lane);
+        }
+    }
+
+    /**
+     * Make sure a lane is working through its pending tasks. This returns right away. If the lane
+     * is already busy, it will take another look at the queue when it is done.
+     *
+     * @param lane the lane
+     */
+    public void schedule(final TaskLane lane) {
+        final Lane l = lanes.get(lane);
+        l.requested.set(true);
+        synchronized (this) {
+            if (l.running) {
+                return;
+            }
+            l.running = true;
+        }
+        l.coordinator.execute(() -> runLoop(l));
+    }
+
+    /**
+     * Wait until all lanes have run out of tasks they can run.
+     *
+     * @throws InterruptedException if the wait was interrupted
+     */
+    public synchronized void awaitIdle() throws InterruptedException {
+        while (true) {
+            boolean busy = false;
+            for (final Lane l: lanes.values()) {
+                busy |= l.running || !l.inFlight.isEmpty();
+            }
+            if (!busy) {
+                return;
+            }
+            wait();
+        }
+    }
+
+    /**
+     * Is a lane working through its tasks right now?.
+     *
+     * @param lane the lane
+     * @return true if it is
+     */
+    public synchronized boolean isBusy(final TaskLane lane) {
+        final Lane l = lanes.get(lane);
+        return l.running || !l.inFlight.isEmpty();
+    }
+
+    /**
+     * Keep draining a lane for as long as new requests come in.
+     *
+     * @param l the lane
+     */
+    private void runLoop(final Lane l) {
+        try {
+            while (l.requested.getAndSet(false)) {
+                try {
+                    drain(l);
+                }
+                catch (final Exception e) {
+                    queue.onError(e);
+                }
+            }
+            if (l.lane == TaskLane.INTERACTIVE) {
+                scheduleYielding();
+            }
+        } finally {
+            synchronized (this) {
+                l.running = false;
+                notifyAll();
+            }
+        }
+        if (l.requested.get()) {
+            schedule(l.lane);
+        }
+    }
+
+    /**
+     * Give the lanes that yield to the interactive lane another look at their tasks, now that the
+     * interactive lane has been through its own. This happens while the interactive lane is
+     * still marked as running, so there is no moment where all lanes look idle in between.
+     */
+    private void scheduleYielding() {
+        for (final TaskLane lane: TaskLane.values()) {
+            if (lane.yieldsToInteractive()) {
+                schedule(lane);
+            }
+        }
+    }
+
+    /**
+     * Run the tasks in a lane until there are none left that can run.
+     *
+     * @param l the lane
+     * @throws Exception if a task could not be loaded or a wait was interrupted
+     */
+    private void drain(final Lane l) throws Exception {
+        while (true) {
+            if (l.lane.yieldsToInteractive() && !yieldToInteractive()) {
+                break;
+            }
+            final @Nullable Long id = pickNext(l);
+            if (id == null) {
+                if (awaitCompletion(l)) {
+                    continue;
+                }
+                break;
+            }
+            final @Nullable Task task = queue.load(id);
+            if (task == null) {
+                continue;
+            }
+            if (!task.canRun()) {
+                if (awaitCompletion(l)) {
+                    continue;
+                }
+                break;
+            }
+
+            if (l.workers != null && task.canRunConcurrently()) {
+                synchronized (this) {
+                    while (l.inFlight.size() >= l.lane.getMaxConcurrency()) {
+                        wait();
+                    }
+                    l.inFlight.add(id);
+                }
+                l.workers.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        synchronized (this) {
+                            l.inFlight.remove(id);
+                            notifyAll();
+                        }
+                    }
+                    scheduleOthers(l);
+                });
+            }
+            else {
+                synchronized (this) {
+                    while (!l.inFlight.isEmpty()) {
+                        wait();
+                    }
+                }
+                task.run();
+                scheduleOthers(l);
+            }
+        }
+    }
+
+    /**
+     * Wait for one of the tasks that are running concurrently in a lane to finish.
+     *
+     * @param l the lane
+     * @return true if a task finished, false if none were running
+     * @throws InterruptedException if the wait was interrupted
+     */
+    private synchronized boolean awaitCompletion(final Lane l) throws InterruptedException {
+        if (l.inFlight.isEmpty()) {
+            return false;
+        }
+        final int size = l.inFlight.size();
+        while (l.inFlight.size() >= size) {
+            wait();
+        }
+        return true;
+    }
+
+    /**
+     * Give the other lanes a chance to pick up tasks that the last task may have added.
+     *
+     * @param l the lane that just ran a task
+     */
+    private void scheduleOthers(final Lane l) {
+        for (final TaskLane lane: TaskLane.values()) {
+            if (lane != l.lane) {
+                schedule(lane);
+            }
+        }
+    }
+
+    /**
+     * Wait while the interactive lane is busy, and then check that it has no tasks left. If it
+     * still has tasks, they can't run right now, and the yielding lane must not start anything
+     * either. It is scheduled again when the interactive lane has been through its tasks.
+     *
+     * @return true if the yielding lane can start its next task
+     * @throws InterruptedException if the wait was interrupted
+     */
+    private boolean yieldToInteractive() throws InterruptedException {
+        final Lane interactive = lanes.get(TaskLane.INTERACTIVE);
+        synchronized (this) {
+            while (interactive.running || !interactive.inFlight.isEmpty()) {
+                wait();
+            }
+        }
+        return queue.getNextIds(TaskLane.INTERACTIVE, 1).isEmpty();
+    }
+
+    /**
+     * Get the first ID from a list that isn't excluded.
+     *
+     * @param ids the IDs
+     * @param exclude the IDs to skip
+     * @return the ID or null if there is none
+     */
+    private static @Nullable Long firstNotIn(final Iterable<Long> ids, final Collection<Long> exclude) {
+        for (final Long id: ids) {
+            if (!exclude.contains(id)) {
+                return id;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Pick the next task to run in a lane: the highest priority task that isn't already running,
+     * unless the lane isn't ordered and the oldest task has waited long enough.
+     *
+     * @param l the lane
+     * @return the ID of the task, or null if there is nothing left to run
+     */
+    private @Nullable Long pickNext(final Lane l) {
+        final Set<Long> exclude;
+        synchronized (this) {
+            exclude = new HashSet<>(l.inFlight);
+        }
+        final @Nullable Long next = firstNotIn(queue.getNextIds(l.lane, exclude.size() + 1), exclude);
+        if (next == null || l.lane.isOrdered()) {
+            return next;
+        }
+        final @Nullable Long oldest = firstNotIn(queue.getOldestIds(l.lane, exclude.size() + 1), exclude);
+        if (oldest == null || oldest.equals(next)) {
+            l.numPassedOver = 0;
+            return next;
+        }
+        if (oldest != l.oldestId) {
+            l.oldestId = oldest;
+            l.numPassedOver = 0;
+        }
+        l.numPassedOver++;
+        if (l.numPassedOver > starvationLimit) {
+            l.numPassedOver = 0;
+            return oldest;
+        }
+        return next;
+    }
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.util;
+
+import com.smouldering_durtles.wk.db.model.LogRecord;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.Nullable;
+
+/**
+ * The asynchronous part of the logging pipeline behind DbLogger.
+ *
+ * <p>
+ *     Producers put log entries in a bounded lock-free ring buffer and return immediately. Entries
+ *     keep their format string and arguments, and are only formatted by the single background
+ *     flusher thread, which writes them to the sink in batches. If producers outrun the flusher,
+ *     entries are dropped rather than blocking the producer.
+ * </p>
+ *
+ * <p>
+ *     Formatting is deferred, so the arguments are snapshotted when the entry is queued. Strings,
+ *     boxed primitives and enums are kept as they are, anything else is replaced by its string
+ *     form. The message shows the arguments as they were at the time of the log call, even if
+ *     the caller changes them afterwards.
+ * </p>
+ */
+public final class LogPipeline {
+    private static final int BATCH_SIZE = 256;
+    private static final int WAKEUP_INTERVAL = 64;
+    private static final long FLUSH_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private final Sink sink;
+    private final BoundedRingBuffer<Entry> buffer;
+    private final AtomicLong numFlushed = new AtomicLong(0);
+    private volatile boolean maintenanceRequested = false;
+    private volatile boolean stopped = false;
+    private volatile @Nullable Thread flusher = null;
+
+    /**
+     * The destination for formatted log records.
+     */
+    public interface Sink {
+        /**
+         * Write a batch of records. Called only from the flusher thread.
+         *
+         * @param records the records
+         */
+        void write(List<LogRecord> records);
+
+        /**
+         * Do periodic maintenance such as trimming the log. Called only from the flusher thread,
+         * when requested with requestMaintenance().
+         */
+        void maintain();
+    }
+
+    /**
+     * A pending log entry, formatted lazily by the flusher.
+     */
+    private static final class Entry {
+        private final long timestamp;
+        private final String tag;
+        private final int maxLength;
+        private final String format;
+        private final @Nullable Object[] values;
+        private final @Nullable Throwable throwable;
+
+        private Entry(final long timestamp, final String tag, final int maxLength, final String format,
+                      final @Nullable Object[] values, final @Nullable Throwable throwable) {
+            this.timestamp = timestamp;
+            this.tag = tag;
+            this.maxLength = maxLength;
+            this.format = format;
+            this.values = values;
+            this.throwable = throwable;
+        }
+
+        private String formatMessage() {
+            if (throwable != null) {
+                final StringWriter writer = new StringWriter();
+                final PrintWriter printWriter = new PrintWriter(writer);
+                throwable.printStackTrace(printWriter);
+                printWriter.flush();
+                return writer.toString();
+            }
+            if (values == null) {
+                return format;
+            }
+            try {
+                return String.format(format, values);
+            } catch (final Exception e) {
+                return format;
+            }
+        }
+
+        private LogRecord toRecord() {
+            String message = formatMessage();
+            if (message.length() > maxLength) {
+                message = message.substring(0, maxLength);
+            }
+            final LogRecord record = new LogRecord();
+            record.timestamp = timestamp;
+            record.tag = tag;
+            record.message = message;
+            record.length = message.length();
+            return record;
+        }
+    }
+
+    /**
+     * The constructor.
+     *
+     * @param sink the destination for formatted records
+     * @param capacity the maximum number of entries waiting to be flushed
+     */
+    public LogPipeline(final Sink sink, final int capacity) {
+        this.sink = sink;
+        buffer = new BoundedRingBuffer<>(capacity);
+    }
+
+    /**
+     * Start the flusher thread.
+     */
+    public synchronized void start() {
+        if (flusher != null) {
+            return;
+        }
+        final Thread thread = new Thread(this::runFlusher, "LogFlusher");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        flusher = thread;
+        thread.start();
+    }
+
+    /**
+     * Flush all pending entries and stop the flusher thread.
+     *
+     * @throws InterruptedException if interrupted while waiting for the flusher to finish
+     */
+    public void stop() throws InterruptedException {
+        final @Nullable Thread thread;
+        synchronized (this) {
+            thread = flusher;
+        }
+        stopped = true;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            thread.join();
+        }
+    }
+
+    /**
+     * Copy format arguments so they can't change before the entry is formatted. Immutable values
+     * are kept, so numeric conversions still work. Atomic counters become their current value,
+     * and anything else becomes its string form.
+     *
+     * @param values the format arguments
+     * @return the snapshot
+     */
+    private static Object[] snapshot(final Object[] values) {
+        final Object[] result = new Object[values.length];
+        for (int i=0; i<values.length; i++) {
+            final @Nullable Object value = values[i];
+            if (value == null || value instanceof String || value instanceof Boolean || value instanceof Character
+                    || value instanceof Enum<?>) {
+                result[i] = value;
+            }
+            else if (value instanceof AtomicInteger || value instanceof AtomicLong) {
+                result[i] = ((Number) value).longValue();
+            }
+            else if (value instanceof Number) {
+                result[i] = value;
+            }
+            else {
+                try {
+                    result[i] = String.valueOf(value);
+                } catch (final Exception e) {
+                    result[i] = value.getClass().getName();
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Queue a log entry. The arguments are snapshotted now, the message is formatted with
+     * String.format() by the flusher.
+     *
+     * @param timestamp the timestamp for this entry
+     * @param tag the tag
+     * @param maxLength the maximum length of the formatted message
+     * @param format the format string
+     * @param values the format arguments, or null if format is the literal message
+     */
+    public void log(final long timestamp, final String tag, final int maxLength, final String format, final @Nullable Object[] values) {
+        enqueue(new Entry(timestamp, tag, maxLength, format, values == null ? null : snapshot(values), null));
+    }
+
+    /**
+     * Queue a log entry with the stack trace of an exception as its message.
+     *
+     * @param timestamp the timestamp for this entry
+     * @param tag the tag
+     * @param maxLength the maximum length of the formatted message
+     * @param throwable the exception
+     */
+    public void logStackTrace(final long timestamp, final String tag, final int maxLength, final Throwable throwable) {
+        enqueue(new Entry(timestamp, tag, maxLength, "", null, throwable));
+    }
+
+    private void enqueue(final Entry entry) {
+        final long position = buffer.offer(entry);
+        if (position >= 0 && (position + 1) % WAKEUP_INTERVAL == 0) {
+            final @Nullable Thread thread = flusher;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
+    }
+
+    /**
+     * Ask the flusher to run the sink's maintenance soon.
+     */
+    public void requestMaintenance() {
+        maintenanceRequested = true;
+        final @Nullable Thread thread = flusher;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Wait until everything that was queued before this call has been written to the sink.
+     *
+     * @param timeout the maximum time to wait in milliseconds
+     * @return true if everything was written in time
+     */
+    public boolean flush(final long timeout) {
+        final long target = buffer.getNumOffered();
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        while (numFlushed.get() < target) {
+            final @Nullable Thread thread = flusher;
+            if (thread == null || System.nanoTime() > deadline) {
+                return false;
+            }
+            LockSupport.unpark(thread);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        return true;
+    }
+
+    /**
+     * The number of entries dropped because the buffer was full.
+     *
+     * @return the value
+     */
+    public long getNumDropped() {
+        return buffer.getNumDropped();
+    }
+
+    /**
+     * The number of entries written to the sink.
+     *
+     * @return the value
+     */
+    public long getNumFlushed() {
+        return numFlushed.get();
+    }
+
+    /**
+     * The main loop of the flusher thread.
+     */
+    private void runFlusher() {
+        final List<Entry> entries = new ArrayList<>(BATCH_SIZE);
+        final List<LogRecord> records = new ArrayList<>(BATCH_SIZE);
+        while (true) {
+            final boolean stopping = stopped;
+            entries.clear();
+            buffer.drainTo(entries, BATCH_SIZE);
+            if (!entries.isEmpty()) {
+                records.clear();
+                for (final Entry entry: entries) {
+                    records.add(entry.toRecord());
+                }
+                try {
+                    sink.write(records);
+                } catch (final Exception e) {
+                    // Nowhere left to log this, and the flusher must survive
+                }
+                numFlushed.addAndGet(entries.size());
+            }
+            if (maintenanceRequested) {
+                maintenanceRequested = false;
+                try {
+                    sink.maintain();
+                } catch (final Exception e) {
+                    //
+                }
+            }
+            if (entries.size() < BATCH_SIZE) {
+                if (stopping) {
+                    return;
+                }
+                LockSupport.parkNanos(this, FLUSH_INTERVAL_NANOS);
+            }
+        }
+    }
+}
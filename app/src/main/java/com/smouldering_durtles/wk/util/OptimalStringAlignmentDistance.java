@@ -65,4 +65,73 @@ public final class OptimalStringAlignmentDistance {
 
         return d[a.length()][b.length()];
     }
+
+    /**
+     * Get the edit distance between two strings, but only if it doesn't exceed a bound. Only a band of
+     * 2*maxDistance+1 cells around the diagonal of the matrix is computed, and the computation stops as
+     * soon as a whole row exceeds the bound, since the distance can never come down again after that.
+     * Nothing is allocated: the matrix rows live in a buffer supplied by the caller.
+     *
+     * @param a one string
+     * @param b another string
+     * @param maxDistance the bound
+     * @param rows the buffer for the matrix rows, must have room for at least 3*(b.length()+1) entries
+     * @return the edit distance between a and b according to OSA if it is at most maxDistance, maxDistance+1 otherwise
+     */
+    public static int getBoundedDistance(final CharSequence a, final CharSequence b, final int maxDistance, final int[] rows) {
+        final int n = a.length();
+        final int m = b.length();
+        final int inf = maxDistance + 1;
+        if (maxDistance < 0 || Math.abs(n - m) > maxDistance) {
+            return inf;
+        }
+        if (n == 0) {
+            return m;
+        }
+        if (m == 0) {
+            return n;
+        }
+
+        final int width = m + 1;
+        int pp = 0;
+        int p = width;
+        int c = 2 * width;
+        for (int j=0; j<=min(m, inf); j++) {
+            rows[p + j] = min(j, inf);
+        }
+
+        for (int i=1; i<=n; i++) {
+            final int lo = Math.max(1, i - maxDistance);
+            final int hi = min(m, i + maxDistance);
+            rows[c] = min(i, inf);
+            if (lo > 1) {
+                rows[c + lo - 1] = inf;
+            }
+            int rowMin = rows[c];
+            final char ca = a.charAt(i-1);
+            for (int j=lo; j<=hi; j++) {
+                final char cb = b.charAt(j-1);
+                final int cost = ca == cb ? 0 : 1;
+                int v = min(min(rows[p + j] + 1, rows[c + j - 1] + 1), rows[p + j - 1] + cost);
+                if (i > 1 && j > 1 && ca == b.charAt(j-2) && a.charAt(i-2) == cb) {
+                    v = min(v, rows[pp + j - 2] + cost);
+                }
+                v = min(v, inf);
+                rows[c + j] = v;
+                rowMin = min(rowMin, v);
+            }
+            if (hi < m) {
+                rows[c + hi + 1] = inf;
+            }
+            if (rowMin > maxDistance) {
+                return inf;
+            }
+            final int tmp = pp;
+            pp = p;
+            p = c;
+            c = tmp;
+        }
+
+        return rows[p + m];
+    }
 }
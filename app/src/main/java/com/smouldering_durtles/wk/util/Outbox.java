@@ -0,0 +1,115 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Drains a persistent queue of reports that must reach the server in the order they were queued.
+ *
+ * <p>
+ *     Reports are taken from the queue in chunks and sent one by one. Sending stops at the first
+ *     report that fails, so nothing overtakes it, and it is tried again first on the next drain.
+ *     The reports that were sent are committed as soon as their chunk is done or sending stops.
+ *     That is where the queue writes their results and removes them, so if the app dies halfway,
+ *     only the sent reports of the chunk in progress are sent again.
+ * </p>
+ *
+ * @param <T> the type of the queued reports
+ */
+public final class Outbox<T> {
+    private final Queue<T> queue;
+    private final int chunkSize;
+
+    /**
+     * The persistent queue the reports are taken from.
+     *
+     * @param <T> the type of the queued reports
+     */
+    public interface Queue<T> {
+        /**
+         * Get the oldest reports in the queue, in the order they were queued.
+         *
+         * @param maxCount the maximum number of reports to return
+         * @return the reports
+         */
+        List<T> getPending(int maxCount);
+
+        /**
+         * Send a report. A report that can never be sent should be dropped by returning true.
+         *
+         * @param report the report
+         * @return true if the report is done with, false if it must stay queued
+         */
+        boolean send(T report);
+
+        /**
+         * Write the results of a number of sent reports, and remove them from the queue.
+         *
+         * @param sent the reports, in the order they were sent
+         */
+        void commit(List<T> sent);
+
+        /**
+         * Check if sending can carry on with the next chunk.
+         *
+         * @return true if it can
+         */
+        boolean canContinue();
+    }
+
+    /**
+     * The constructor.
+     *
+     * @param queue the queue
+     * @param chunkSize the maximum number of reports sent before they are committed
+     */
+    public Outbox(final Queue<T> queue, final int chunkSize) {
+        this.queue = queue;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Send the queued reports until the queue is empty, a report fails, or the queue says to stop.
+     *
+     * @return true if the queue was emptied
+     */
+    public boolean drain() {
+        while (true) {
+            final List<T> chunk = queue.getPending(chunkSize);
+            if (chunk.isEmpty()) {
+                return true;
+            }
+            final List<T> sent = new ArrayList<>();
+            boolean failed = false;
+            for (final T report: chunk) {
+                if (!queue.send(report)) {
+                    failed = true;
+                    break;
+                }
+                sent.add(report);
+            }
+            if (!sent.isEmpty()) {
+                queue.commit(sent);
+            }
+            if (failed || !queue.canContinue()) {
+                return false;
+            }
+        }
+    }
+}
@@ -33,7 +33,6 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.net.URL;
 import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -46,10 +45,10 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import javax.annotation.Nullable;
-import javax.net.ssl.HttpsURLConnection;
 
-import static com.smouldering_durtles.wk.Constants.MINUTE;
-import static com.smouldering_durtles.wk.Constants.SECOND;
+import okhttp3.Request;
+import okhttp3.Response;
+
 import static com.smouldering_durtles.wk.util.ObjectSupport.isEmpty;
 import static java.util.Objects.requireNonNull;
 
@@ -143,6 +142,23 @@ public final class PitchInfoUtil {
         return getWeblioFile(characters).exists();
     }
 
+    /**
+     * Do a GET request with the shared HTTP client, and check that it was successful.
+     *
+     * @param urlString the URL to fetch
+     * @return the response, which must be closed by the caller
+     * @throws IOException if the request failed or the response is not successful
+     */
+    private static Response fetch(final String urlString) throws IOException {
+        final Request request = new Request.Builder().url(urlString).get().build();
+        final Response response = HttpClients.getClient().newCall(request).execute();
+        if (!response.isSuccessful()) {
+            response.close();
+            throw new IOException("HTTP error " + response.code());
+        }
+        return response;
+    }
+
     /**
      * Try do download a weblio dictionary entry. Fail silently if unable.
      *
@@ -155,18 +171,10 @@ public final class PitchInfoUtil {
             final File file = getWeblioFile(characters);
             final File tempFile = getTempFile();
 
-            final URL url = new URL(urlString);
-            LOGGER.info("Weblio fetch for %s: %s", characters, url);
-            final HttpsURLConnection connection = (HttpsURLConnection) url.openConnection();
-            connection.setRequestMethod("GET");
-            connection.setDoInput(true);
-            connection.setDoOutput(false);
-            connection.setAllowUserInteraction(false);
-            connection.setConnectTimeout((int) (10 * SECOND));
-            connection.setReadTimeout((int) MINUTE);
-            connection.setInstanceFollowRedirects(true);
-            connection.getHeaderFields();
-            try (final InputStream is = connection.getInputStream(); final OutputStream os = new FileOutputStream(tempFile)) {
+            LOGGER.info("Weblio fetch for %s: %s", characters, urlString);
+            try (final Response response = fetch(urlString);
+                 final InputStream is = requireNonNull(response.body()).byteStream();
+                 final OutputStream os = new FileOutputStream(tempFile)) {
                 StreamUtil.pump(is, os);
             }
             if (file.exists()) {
@@ -192,21 +200,11 @@ public final class PitchInfoUtil {
             final String urlString = "https://www.weblio.jp/content?query="
                     + URLEncoder.encode(TILDE_PATTERN.matcher(characters).replaceAll(""), "UTF-8");
 
-            final URL url = new URL(urlString);
-            LOGGER.info("Weblio fetch for %s: %s", characters, url);
-            final HttpsURLConnection connection = (HttpsURLConnection) url.openConnection();
-            connection.setRequestMethod("GET");
-            connection.setDoInput(true);
-            connection.setDoOutput(false);
-            connection.setAllowUserInteraction(false);
-            connection.setConnectTimeout((int) (10 * SECOND));
-            connection.setReadTimeout((int) MINUTE);
-            connection.setInstanceFollowRedirects(true);
-            connection.getHeaderFields();
-            try (final InputStream is = connection.getInputStream()) {
-                final byte[] body = StreamUtil.slurp(is);
+            LOGGER.info("Weblio fetch for %s: %s", characters, urlString);
+            try (final Response response = fetch(urlString)) {
+                final String body = new String(requireNonNull(response.body()).bytes(), "UTF-8");
                 LOGGER.info("Weblio fetch done");
-                return new String(body, "UTF-8");
+                return body;
             }
         } catch (final Exception e) {
             LOGGER.error(e, "Exception downloading weblio page");
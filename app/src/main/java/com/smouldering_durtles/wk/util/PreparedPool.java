@@ -0,0 +1,198 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import javax.annotation.Nullable;
+
+/**
+ * A small pool of expensive resources that are prepared ahead of time, in the background, for the
+ * keys that are most likely to be needed next.
+ *
+ * <p>
+ *     The caller keeps telling the pool which keys it expects to need, most likely first. The pool
+ *     keeps the first few of them prepared, and releases anything that falls out of that window.
+ *     A prepared value is handed out once; after that the caller owns it.
+ * </p>
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the prepared values
+ */
+public final class PreparedPool<K, V> {
+    private final int capacity;
+    private final Executor executor;
+    private final Preparer<K, V> preparer;
+    private final Map<K, Entry<V>> entries = new LinkedHashMap<>();
+
+    /**
+     * Prepares and releases the values.
+     *
+     * @param <K> the type of the keys
+     * @param <V> the type of the prepared values
+     */
+    public interface Preparer<K, V> {
+        /**
+         * Prepare the value for a key. This is called on the pool's executor.
+         *
+         * @param key the key
+         * @return the value
+         * @throws Exception if the value could not be prepared
+         */
+        V prepare(K key) throws Exception;
+
+        /**
+         * Release a value that was prepared but is no longer wanted.
+         *
+         * @param value the value
+         */
+        void release(V value);
+    }
+
+    /**
+     * A slot in the pool, empty until its value has been prepared.
+     *
+     * @param <V> the type of the prepared value
+     */
+    private static final class Entry<V> {
+        private @Nullable V value = null;
+    }
+
+    /**
+     * The constructor.
+     *
+     * @param capacity the maximum number of values kept prepared or being prepared
+     * @param executor the executor that prepares the values
+     * @param preparer the preparer for the values
+     */
+    public PreparedPool(final int capacity, final Executor executor, final Preparer<K, V> preparer) {
+        this.capacity = capacity;
+        this.executor = executor;
+        this.preparer = preparer;
+    }
+
+    /**
+     * Tell the pool which keys are expected to be needed, most likely first. Only the first keys
+     * up to the capacity are prepared, anything else in the pool is released.
+     *
+     * @param keys the keys
+     */
+    public void setWanted(final Iterable<? extends K> keys) {
+        final Set<K> wanted = new LinkedHashSet<>();
+        for (final K key: keys) {
+            if (wanted.size() >= capacity) {
+                break;
+            }
+            wanted.add(key);
+        }
+
+        final Collection<V> released = new ArrayList<>();
+        synchronized (this) {
+            final Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                final Map.Entry<K, Entry<V>> entry = iterator.next();
+                if (!wanted.contains(entry.getKey())) {
+                    iterator.remove();
+                    if (entry.getValue().value != null) {
+                        released.add(entry.getValue().value);
+                    }
+                }
+            }
+            for (final K key: wanted) {
+                if (!entries.containsKey(key)) {
+                    final Entry<V> entry = new Entry<>();
+                    entries.put(key, entry);
+                    executor.execute(() -> prepare(key, entry));
+                }
+            }
+        }
+        for (final V value: released) {
+            preparer.release(value);
+        }
+    }
+
+    /**
+     * Prepare the value for a slot, unless the slot has been dropped in the meantime.
+     *
+     * @param key the key
+     * @param entry the slot
+     */
+    private void prepare(final K key, final Entry<V> entry) {
+        synchronized (this) {
+            if (entries.get(key) != entry) {
+                return;
+            }
+        }
+        final V value;
+        try {
+            value = preparer.prepare(key);
+        } catch (final Exception e) {
+            synchronized (this) {
+                if (entries.get(key) == entry) {
+                    entries.remove(key);
+                }
+            }
+            return;
+        }
+        synchronized (this) {
+            if (entries.get(key) == entry) {
+                entry.value = value;
+                return;
+            }
+        }
+        preparer.release(value);
+    }
+
+    /**
+     * Take the prepared value for a key out of the pool. If it isn't ready yet, the caller should
+     * prepare its own.
+     *
+     * @param key the key
+     * @return the value, or null if there is no prepared value for this key
+     */
+    public synchronized @Nullable V take(final K key) {
+        final @Nullable Entry<V> entry = entries.get(key);
+        if (entry == null || entry.value == null) {
+            return null;
+        }
+        entries.remove(key);
+        return entry.value;
+    }
+
+    /**
+     * Get the keys that currently have a prepared value, in the order they were wanted.
+     *
+     * @return the keys
+     */
+    public synchronized List<K> getPreparedKeys() {
+        final List<K> result = new ArrayList<>();
+        for (final Map.Entry<K, Entry<V>> entry: entries.entrySet()) {
+            if (entry.getValue().value != null) {
+                result.add(entry.getKey());
+            }
+        }
+        return result;
+    }
+}
@@ -27,8 +27,6 @@ import java.util.Map;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
-import static com.smouldering_durtles.wk.util.ObjectSupport.orElse;
-
 /**
  * A Pseudo-IME implementation that will replace Romaji in a string
  * with corresponding Kana characters, in roughly the same way that a Japanese IME
@@ -386,7 +384,8 @@ public final class PseudoIme {
         for (final String key: new ArrayList<>(KANA_MAP.keySet())) {
             final @Nullable String value = KANA_MAP.get(key);
             if (value != null) {
-                KANA_MAP.put(key.toUpperCase(Locale.ENGLISH), orElse(toKatakana(value), ""));
+                final @Nullable String katakana = toKatakana(value);
+                KANA_MAP.put(key.toUpperCase(Locale.ENGLISH), katakana == null ? "" : katakana);
             }
         }
     }
@@ -488,8 +487,9 @@ public final class PseudoIme {
 
     /**
      * A dummy implementation of Editable that is just capable enough for the fixup() method.
+     * It is public so fixup() can also be exercised outside of a real text field.
       */
-    private static final class DummyEditable implements Editable {
+    public static final class DummyEditable implements Editable {
         /**
          * The current contents of the editable.
          */
@@ -500,7 +500,7 @@ public final class PseudoIme {
          *
          * @param value initial value for the editable
          */
-        DummyEditable(final String value) {
+        public DummyEditable(final String value) {
             this.value = value;
         }
 
@@ -16,14 +16,22 @@
 
 package com.smouldering_durtles.wk.util;
 
+import android.content.res.AssetFileDescriptor;
+import android.content.res.Resources;
+
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.smouldering_durtles.wk.R;
 import com.smouldering_durtles.wk.WkApplication;
 import com.smouldering_durtles.wk.db.Converters;
 import com.smouldering_durtles.wk.enums.SubjectType;
 import com.smouldering_durtles.wk.model.PitchInfo;
+import com.smouldering_durtles.wk.model.ReferenceDataValues;
 
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -32,27 +40,21 @@ import javax.annotation.Nullable;
 
 import static com.smouldering_durtles.wk.util.ObjectSupport.listOf;
 import static com.smouldering_durtles.wk.util.ObjectSupport.safe;
-import static java.util.Objects.requireNonNull;
 
 /**
- * Utility class for determining reference data for a subject, backed by JSON files stored
- * as resources in the app.
+ * Utility class for determining reference data for a subject, backed by the compiled reference
+ * data pack that is stored as a resource in the app.
+ *
+ * <p>
+ *     The pack is memory-mapped on first use and every lookup is a binary search in the mapped
+ *     file, so none of the tables are ever parsed into maps on the heap.
+ * </p>
  */
 @SuppressWarnings("LongLine")
 public final class ReferenceDataUtil {
-    private static final Map<String, Integer> FREQUENCY_MAP = new HashMap<>();
-    private static final Map<String, Integer> JOYO_GRADE_MAP = new HashMap<>();
-    private static final Map<String, Integer> KANJI_JLPT_LEVEL_MAP = new HashMap<>();
-    private static final Map<String, Integer> VOCAB_JLPT_LEVEL_MAP = new HashMap<>();
-    private static final Map<String, List<PitchInfo>> PITCH_INFO_MAP = new HashMap<>();
-    private static final Map<String, List<String>> STROKE_DATA_MAP = new HashMap<>();
     private static final Map<Long, List<String>> STROKE_DATA_OVERRIDE = new HashMap<>();
-    private static final InternalizingCache<Integer> INT_INTERNALIZER = new InternalizingCache<>();
-    private static boolean frequencyMapLoaded = false;
-    private static boolean joyoGradeMapLoaded = false;
-    private static boolean jlptLevelMapsLoaded = false;
-    private static boolean pitchInfoMapLoaded = false;
-    private static boolean strokeDataMapLoaded = false;
+    private static @Nullable ReferencePack pack = null;
+    private static boolean packLoaded = false;
 
     static {
         STROKE_DATA_OVERRIDE.put(8763L, listOf(
@@ -468,112 +470,48 @@ public final class ReferenceDataUtil {
     }
 
     /**
-     * Load a JSON file into a map.
+     * Map the reference data pack. The pack resource is stored uncompressed in the APK, so it
+     * can be mapped in place. If that doesn't work for some reason, the pack is read into memory instead.
      *
-     * @param map the map to store the data in
-     * @param resourceId the resource ID of the JSON file to load
+     * @return the pack
+     * @throws IOException if the pack can't be read
      */
-    private static void loadMap(final Map<? super String, ? super Integer> map, final int resourceId) {
-        if (!map.isEmpty()) {
-            return;
+    private static ReferencePack openPack() throws IOException {
+        final Resources resources = WkApplication.getInstance().getResources();
+        try (final AssetFileDescriptor fd = resources.openRawResourceFd(R.raw.reference_pack);
+             final FileInputStream is = fd.createInputStream()) {
+            return ReferencePack.open(is.getChannel().map(FileChannel.MapMode.READ_ONLY, fd.getStartOffset(), fd.getLength()));
         }
-
-        safe(() -> {
-            try (final InputStream is = WkApplication.getInstance().getResources().openRawResource(resourceId)) {
-                final Map<String, Integer> json = Converters.getObjectMapper().readValue(is, new TypeReference<Map<String, Integer>>() {});
-                for (final Map.Entry<String, Integer> entry : json.entrySet()) {
-                    final @Nullable String key = entry.getKey();
-                    final @Nullable Integer value = entry.getValue();
-                    if (key != null && value != null) {
-                        map.put(key.intern(), requireNonNull(INT_INTERNALIZER.internalize(value)));
-                    }
-                }
+        catch (final Resources.NotFoundException | IOException e) {
+            try (final InputStream is = resources.openRawResource(R.raw.reference_pack)) {
+                return ReferencePack.open(ByteBuffer.wrap(StreamUtil.slurp(is)));
             }
-        });
-    }
-
-    /**
-     * Load the frequency map if not loaded already.
-     */
-    private static void loadFrequencyMap() {
-        if (frequencyMapLoaded) {
-            return;
         }
-        loadMap(FREQUENCY_MAP, R.raw.kanjidic_freq);
-        frequencyMapLoaded = true;
     }
 
     /**
-     * Load the Joyo grade map if not loaded already.
-     */
-    private static void loadJoyoGradeMap() {
-        if (joyoGradeMapLoaded) {
-            return;
-        }
-        loadMap(JOYO_GRADE_MAP, R.raw.wikipedia_joyo_grades);
-        joyoGradeMapLoaded = true;
-    }
-
-    /**
-     * Load the JLPT level map if not loaded already.
-     */
-    private static void loadJlptLevelMaps() {
-        if (jlptLevelMapsLoaded) {
-            return;
-        }
-        loadMap(KANJI_JLPT_LEVEL_MAP, R.raw.kanji_jlpt_levels);
-        loadMap(VOCAB_JLPT_LEVEL_MAP, R.raw.vocab_jlpt_levels);
-        jlptLevelMapsLoaded = true;
-    }
-
-    /**
-     * Load the pitch info map if not loaded already.
+     * Get the reference data pack, opening it on first use.
+     *
+     * @return the pack or null if it could not be opened
      */
-    private static void loadPitchInfoMap() {
-        if (pitchInfoMapLoaded || !PITCH_INFO_MAP.isEmpty()) {
-            return;
+    private static synchronized @Nullable ReferencePack getPack() {
+        if (!packLoaded) {
+            safe(() -> pack = openPack());
+            packLoaded = true;
         }
-
-        safe(() -> {
-            try (final InputStream is = WkApplication.getInstance().getResources().openRawResource(R.raw.pitch_info)) {
-                final Map<String, List<PitchInfo>> json = Converters.getObjectMapper()
-                        .readValue(is, new TypeReference<Map<String, List<PitchInfo>>>() {});
-                for (final Map.Entry<String, List<PitchInfo>> entry : json.entrySet()) {
-                    final @Nullable String key = entry.getKey();
-                    final @Nullable List<PitchInfo> value = entry.getValue();
-                    if (key != null && value != null) {
-                        PITCH_INFO_MAP.put(key.intern(), value);
-                    }
-                }
-            }
-        });
-
-        pitchInfoMapLoaded = true;
+        return pack;
     }
 
     /**
-     * Load the stroke data map if not loaded already.
+     * Look up an int value in the reference data pack.
+     *
+     * @param section the pack section
+     * @param characters the subject's characters
+     * @return the value or 0 if not found
      */
-    private static void loadStrokeDataMap() {
-        if (strokeDataMapLoaded || !STROKE_DATA_MAP.isEmpty()) {
-            return;
-        }
-
-        safe(() -> {
-            try (final InputStream is = WkApplication.getInstance().getResources().openRawResource(R.raw.stroke_data)) {
-                final Map<String, List<String>> json = Converters.getObjectMapper()
-                        .readValue(is, new TypeReference<Map<String, List<String>>>() {});
-                for (final Map.Entry<String, List<String>> entry : json.entrySet()) {
-                    final @Nullable String key = entry.getKey();
-                    final @Nullable List<String> value = entry.getValue();
-                    if (key != null && value != null) {
-                        STROKE_DATA_MAP.put(key.intern(), value);
-                    }
-                }
-            }
-        });
-
-        strokeDataMapLoaded = true;
+    private static int lookupInt(final int section, final String characters) {
+        final @Nullable ReferencePack p = getPack();
+        return p == null ? 0 : p.getInt(section, characters, 0);
     }
 
     /**
@@ -587,12 +525,7 @@ public final class ReferenceDataUtil {
         if (characters == null || type == null || !type.isKanji()) {
             return 0;
         }
-        loadFrequencyMap();
-        final @Nullable Integer value = FREQUENCY_MAP.get(characters);
-        if (value == null) {
-            return 0;
-        }
-        return value;
+        return lookupInt(ReferencePack.FREQUENCY, characters);
     }
 
     /**
@@ -606,12 +539,7 @@ public final class ReferenceDataUtil {
         if (characters == null || type == null || !type.isKanji()) {
             return 0;
         }
-        loadJoyoGradeMap();
-        final @Nullable Integer value = JOYO_GRADE_MAP.get(characters);
-        if (value == null) {
-            return 0;
-        }
-        return value;
+        return lookupInt(ReferencePack.JOYO_GRADE, characters);
     }
 
     /**
@@ -625,25 +553,13 @@ public final class ReferenceDataUtil {
         if (characters == null || type == null || !(type.isKanji() || type.isVocabulary())) {
             return 0;
         }
-        loadJlptLevelMaps();
-
-        if (type.isKanji()) {
-            final @Nullable Integer value = KANJI_JLPT_LEVEL_MAP.get(characters);
-            if (value == null) {
-                return 0;
-            }
-            return value;
-        }
-
-        final @Nullable Integer value = VOCAB_JLPT_LEVEL_MAP.get(characters);
-        if (value == null) {
-            return 0;
-        }
-        return value;
+        return lookupInt(type.isKanji() ? ReferencePack.KANJI_JLPT_LEVEL : ReferencePack.VOCAB_JLPT_LEVEL, characters);
     }
 
     /**
-     * Get the pitch info for a subject with the given type and characters.
+     * Get the pitch info for a subject with the given type and characters. The pack holds the
+     * pitch info in its source format, so it is passed through PitchInfo to get the same
+     * normalized form the app has always stored.
      *
      * @param type the subject's type
      * @param characters the subject's characters
@@ -653,12 +569,13 @@ public final class ReferenceDataUtil {
         if (characters == null || type == null || !type.canHavePitchInfo()) {
             return null;
         }
-        loadPitchInfoMap();
-        final @Nullable List<PitchInfo> info = PITCH_INFO_MAP.get(characters);
-        if (info == null) {
+        final @Nullable ReferencePack p = getPack();
+        final @Nullable String json = p == null ? null : p.getString(ReferencePack.PITCH_INFO, characters);
+        if (json == null) {
             return null;
         }
         try {
+            final List<PitchInfo> info = Converters.getObjectMapper().readValue(json, new TypeReference<List<PitchInfo>>() {});
             return Converters.getObjectMapper().writeValueAsString(info);
         }
         catch (final Exception e) {
@@ -689,17 +606,20 @@ public final class ReferenceDataUtil {
         if (characters == null || type == null || id == -1 || !type.canHaveStrokeData()) {
             return null;
         }
-        loadStrokeDataMap();
-        final @Nullable List<String> data = STROKE_DATA_MAP.get(characters);
-        if (data == null) {
-            return null;
-        }
-        try {
-            return Converters.getObjectMapper().writeValueAsString(data);
-        }
-        catch (final Exception e) {
-            // This can't realistically happen
-            return null;
-        }
+        final @Nullable ReferencePack p = getPack();
+        return p == null ? null : p.getString(ReferencePack.STROKE_DATA, characters);
+    }
+
+    /**
+     * Get all reference data for a subject with the given type, id and characters.
+     *
+     * @param type the subject's type
+     * @param id the subject's ID
+     * @param characters the subject's characters
+     * @return the reference data
+     */
+    public static ReferenceDataValues getValues(final @Nullable SubjectType type, final long id, final @Nullable String characters) {
+        return new ReferenceDataValues(id, getFrequency(type, characters), getJoyoGrade(type, characters),
+                getJlptLevel(type, characters), getPitchInfo(type, characters), getStrokeData(type, id, characters));
     }
 }
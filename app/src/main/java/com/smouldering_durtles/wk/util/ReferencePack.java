@@ -0,0 +1,242 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import javax.annotation.Nullable;
+
+/**
+ * Read-only view of the compiled reference data pack, as written by reference-data/compile_reference_pack.py.
+ *
+ * <p>
+ *     The pack holds one section per reference data table. Each section is a list of keys sorted by their
+ *     UTF-8 bytes, with either an int or a UTF-8 string value per key. Offsets into the pack are stored as
+ *     tables of big-endian ints, so a lookup is a binary search that compares the encoded key directly
+ *     against the buffer. Nothing is decoded up front and no maps are built, which means the pack can be
+ *     memory-mapped and only the pages that are actually looked at ever get loaded.
+ * </p>
+ *
+ * <p>
+ *     Layout: the magic, the format version and the number of sections, followed by a directory of
+ *     (id, kind, count, offset) entries. A section at its offset starts with count+1 key offsets, followed
+ *     by count int values for an int section, or count+1 value offsets for a string section. All offsets
+ *     are absolute, and entry i's key or value runs from offset i up to offset i+1.
+ * </p>
+ *
+ * <p>
+ *     Lookups only use absolute reads, so a single instance can be shared between threads.
+ * </p>
+ */
+public final class ReferencePack {
+    private static final int MAGIC = 0x574b5250;
+    private static final int VERSION = 1;
+    private static final int KIND_INT = 0;
+    private static final int KIND_STRING = 1;
+
+    /**
+     * Section: kanji frequency from kanjidic.
+     */
+    public static final int FREQUENCY = 1;
+
+    /**
+     * Section: Joyo grade by kanji.
+     */
+    public static final int JOYO_GRADE = 2;
+
+    /**
+     * Section: JLPT level by kanji.
+     */
+    public static final int KANJI_JLPT_LEVEL = 3;
+
+    /**
+     * Section: JLPT level by vocabulary.
+     */
+    public static final int VOCAB_JLPT_LEVEL = 4;
+
+    /**
+     * Section: pitch info by vocabulary, as compact JSON in the same format as the pitch info source data.
+     */
+    public static final int PITCH_INFO = 5;
+
+    /**
+     * Section: stroke data by kanji, as a compact JSON array of stroke paths.
+     */
+    public static final int STROKE_DATA = 6;
+
+    private static final int NUM_SECTION_IDS = 7;
+
+    private final ByteBuffer buffer;
+    private final int[] kinds = new int[NUM_SECTION_IDS];
+    private final int[] counts = new int[NUM_SECTION_IDS];
+    private final int[] offsets = new int[NUM_SECTION_IDS];
+
+    private ReferencePack(final ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Open a pack. The buffer is used as-is and must not be modified afterwards. The directory
+     * is checked here, so a truncated or mismatched pack fails now instead of on a lookup.
+     *
+     * @param buffer the buffer holding the pack, usually a mapped file
+     * @return the pack
+     * @throws IOException if the buffer doesn't hold a pack of a supported version
+     */
+    public static ReferencePack open(final ByteBuffer buffer) throws IOException {
+        final int limit = buffer.limit();
+        if (limit < 12 || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a reference data pack");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported reference data pack version " + buffer.getInt(4));
+        }
+        final int numSections = buffer.getInt(8);
+        if (numSections < 0 || 12 + numSections * 16L > limit) {
+            throw new IOException("Corrupt reference data pack directory");
+        }
+
+        final ReferencePack pack = new ReferencePack(buffer);
+        for (int i=0; i<numSections; i++) {
+            final int pos = 12 + i * 16;
+            final int id = buffer.getInt(pos);
+            final int kind = buffer.getInt(pos + 4);
+            final int count = buffer.getInt(pos + 8);
+            final int offset = buffer.getInt(pos + 12);
+            if (id <= 0 || id >= NUM_SECTION_IDS || (kind != KIND_INT && kind != KIND_STRING)) {
+                continue;
+            }
+            final long tableSize = (count + 1L) * 4 + (kind == KIND_INT ? count : count + 1L) * 4;
+            if (count < 0 || offset < 0 || offset + tableSize > limit) {
+                throw new IOException("Corrupt reference data pack section " + id);
+            }
+            final int end = buffer.getInt(kind == KIND_INT ? offset + count * 4 : offset + (count * 2 + 1) * 4);
+            if (end < 0 || end > limit) {
+                throw new IOException("Corrupt reference data pack section " + id);
+            }
+            pack.kinds[id] = kind;
+            pack.counts[id] = count;
+            pack.offsets[id] = offset;
+        }
+        return pack;
+    }
+
+    /**
+     * The number of entries in a section, 0 if the pack doesn't have the section.
+     *
+     * @param section the section ID
+     * @return the number of entries
+     */
+    public int size(final int section) {
+        return counts[section];
+    }
+
+    /**
+     * Compare an encoded key against the key of entry index in a section, as unsigned bytes.
+     *
+     * @param section the section ID
+     * @param index the entry index
+     * @param key the UTF-8 bytes of the key
+     * @return negative, zero or positive like compareTo()
+     */
+    private int compareKey(final int section, final int index, final byte[] key) {
+        final int pos = offsets[section] + index * 4;
+        final int start = buffer.getInt(pos);
+        final int length = buffer.getInt(pos + 4) - start;
+        final int n = Math.min(length, key.length);
+        for (int i=0; i<n; i++) {
+            final int diff = (buffer.get(start + i) & 0xFF) - (key[i] & 0xFF);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return length - key.length;
+    }
+
+    /**
+     * Find the index of a key in a section.
+     *
+     * @param section the section ID
+     * @param key the key
+     * @return the index, or -1 if not found
+     */
+    private int find(final int section, final String key) {
+        final byte[] encoded = key.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = counts[section] - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int cmp = compareKey(section, mid, encoded);
+            if (cmp < 0) {
+                low = mid + 1;
+            }
+            else if (cmp > 0) {
+                high = mid - 1;
+            }
+            else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Look up an int value.
+     *
+     * @param section the section ID, must be an int section
+     * @param key the key
+     * @param defaultValue the value to return if the key is not present
+     * @return the value
+     */
+    public int getInt(final int section, final String key, final int defaultValue) {
+        if (kinds[section] != KIND_INT) {
+            return defaultValue;
+        }
+        final int index = find(section, key);
+        if (index < 0) {
+            return defaultValue;
+        }
+        final int count = counts[section];
+        return buffer.getInt(offsets[section] + (count + 1 + index) * 4);
+    }
+
+    /**
+     * Look up a string value.
+     *
+     * @param section the section ID, must be a string section
+     * @param key the key
+     * @return the value, or null if the key is not present
+     */
+    public @Nullable String getString(final int section, final String key) {
+        if (kinds[section] != KIND_STRING) {
+            return null;
+        }
+        final int index = find(section, key);
+        if (index < 0) {
+            return null;
+        }
+        final int pos = offsets[section] + (counts[section] + 1 + index) * 4;
+        final int start = buffer.getInt(pos);
+        final byte[] bytes = new byte[buffer.getInt(pos + 4) - start];
+        for (int i=0; i<bytes.length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -26,23 +26,28 @@ import com.smouldering_durtles.wk.api.model.AuxiliaryMeaning;
 import com.smouldering_durtles.wk.api.model.ContextSentence;
 import com.smouldering_durtles.wk.api.model.Meaning;
 import com.smouldering_durtles.wk.api.model.Reading;
+import com.smouldering_durtles.wk.db.AppDatabase;
 import com.smouldering_durtles.wk.db.Converters;
 import com.smouldering_durtles.wk.db.model.Subject;
+import com.smouldering_durtles.wk.db.model.SubjectSearchEntry;
+import com.smouldering_durtles.wk.db.model.SubjectSearchHit;
 import com.smouldering_durtles.wk.enums.SubjectType;
 import com.smouldering_durtles.wk.model.AdvancedSearchParameters;
 import com.smouldering_durtles.wk.model.SrsSystemRepository;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
-import java.util.regex.Pattern;
+import java.util.Map;
 
 import javax.annotation.Nullable;
 
 import static com.smouldering_durtles.wk.Constants.DAY;
 import static com.smouldering_durtles.wk.Constants.HOUR;
+import static com.smouldering_durtles.wk.Constants.MAX_KEYWORD_SEARCH_HITS;
 import static com.smouldering_durtles.wk.Constants.MAX_SEARCH_HITS;
 import static com.smouldering_durtles.wk.util.ObjectSupport.isEmpty;
 import static com.smouldering_durtles.wk.util.ObjectSupport.join;
@@ -53,139 +58,51 @@ import static com.smouldering_durtles.wk.util.ObjectSupport.safe;
  */
 public final class SearchUtil {
     private static final Logger LOGGER = Logger.get(SearchUtil.class);
-    private static final Pattern TERM_PATTERN = Pattern.compile("[\\p{Z}\\s]");
-    private static final Pattern PERC_PATTERN = Pattern.compile("%");
-    private static final Pattern US_PATTERN = Pattern.compile("_");
 
     private SearchUtil() {
         //
     }
 
     /**
-     * Split a query into words suitable for searching in Java code.
+     * Run a search query against the full-text index of a database, and load the best hits. Matching
+     * and ranking both happen inside SQLite, only the subjects that make the cut are loaded. The
+     * ranking is carried by the order of the result. The subjects come from the shared subject cache,
+     * so they are returned as they are and never modified here.
      *
-     * @param query the search query
-     * @return the list of words
+     * @param db the database to search in
+     * @param query the query text
+     * @param maxHits the maximum number of subjects to return
+     * @return the list of found subjects, best match first
      */
-    private static List<String> splitTermsForJava(final CharSequence query) {
-        final String[] terms = TERM_PATTERN.split(query);
-        final List<String> result = new ArrayList<>();
-        for (final String term: terms) {
-            if (!isEmpty(term)) {
-                result.add(term.toUpperCase(Locale.ROOT));
-            }
+    public static List<Subject> searchSubjects(final AppDatabase db, final CharSequence query, final int maxHits) {
+        final @Nullable SubjectSearchQuery searchQuery = SubjectSearchQuery.build(query, maxHits);
+        if (searchQuery == null) {
+            return Collections.emptyList();
         }
-        return result;
-    }
 
-    /**
-     * Split a query into words suitable for searching in an SQL query.
-     *
-     * @param query the search query
-     * @return the list of words
-     */
-    private static List<String> splitTermsForSql(final CharSequence query) {
-        final String[] terms = TERM_PATTERN.split(query);
-        final List<String> result = new ArrayList<>();
-        for (final String term: terms) {
-            if (!isEmpty(term)) {
-                result.add(
-                        US_PATTERN.matcher(PERC_PATTERN.matcher(term).replaceAll("\\%")).replaceAll("\\_"));
-            }
+        final List<SubjectSearchHit> hits = db.subjectCollectionsDao().getSearchHitsWithRawQuery(
+                new SimpleSQLiteQuery(searchQuery.getSql(), searchQuery.getArgs()));
+        if (hits.isEmpty()) {
+            return Collections.emptyList();
         }
-        return result;
-    }
 
-    /**
-     * Get a search ranking for a search term in a haystack of body text.
-     * This ranking reflects how well the term matches: number of times,
-     * whole word or partial, etc.
-     *
-     * @param haystack the body to search in
-     * @param term the term to search for
-     * @param weight the weight for this search, higher weight means hits in this haystack are more important
-     * @return the calculated score, higher means a better match
-     */
-    private static int getRanking(final @Nullable String haystack, final String term, final int weight) {
-        if (isEmpty(haystack)) {
-            return 0;
+        final Collection<Long> ids = new ArrayList<>(hits.size());
+        for (final SubjectSearchHit hit: hits) {
+            ids.add(hit.getId());
         }
-
-        final String uHaystack = haystack.toUpperCase(Locale.ROOT);
-
-        int base = 0;
-        int count = 0;
-        while (true) {
-            final int p = uHaystack.indexOf(term, base);
-            if (p < 0) {
-                return count * weight;
-            }
-            count++;
-            if (p == 0 || !Character.isLetterOrDigit(uHaystack.charAt(p-1))) {
-                count++;
-            }
-            if (p+term.length() >= uHaystack.length() || !Character.isLetterOrDigit(uHaystack.charAt(p+term.length()))) {
-                count++;
-            }
-            base = p + term.length();
+        final Map<Long, Subject> subjects = new HashMap<>();
+        for (final Subject subject: db.subjectCollectionsDao().getByIds(ids)) {
+            subjects.put(subject.getId(), subject);
         }
-    }
-
-    /**
-     * Get a search ranking: how many terms are hits in this subject,
-     * and how important are those hits?. The result is summarized as an int.
-     *
-     * @param subject the subject
-     * @param terms the search query, split into words
-     * @return the ranking
-     */
-    private static int getSearchRanking(final Subject subject, final Iterable<String> terms) {
-        int ranking = 0;
-
-        for (final String term: terms) {
-            ranking += getRanking(subject.getCharacters(), term, 100);
-            ranking += getRanking(subject.getSlug(), term, 10);
-            ranking += getRanking(subject.getMeaningMnemonic(), term, 1);
-            ranking += getRanking(subject.getMeaningHint(), term, 1);
-            ranking += getRanking(subject.getMeaningNote(), term, 1);
-            ranking += getRanking(subject.getReadingMnemonic(), term, 1);
-            ranking += getRanking(subject.getReadingHint(), term, 1);
-            ranking += getRanking(subject.getReadingNote(), term, 1);
-
-            ranking += getRanking(subject.getOneMeaning(), term, 100);
-
-            for (final Meaning meaning: subject.getMeanings()) {
-                ranking += getRanking(meaning.getMeaning(), term, 30);
-            }
-
-            for (final AuxiliaryMeaning meaning: subject.getAuxiliaryMeanings()) {
-                ranking += getRanking(meaning.getMeaning(), term, 30);
-            }
-
-            for (final Reading reading: subject.getReadings()) {
-                ranking += getRanking(reading.getValue(false), term, 30);
-            }
-
-            for (final String s: subject.getPartsOfSpeech()) {
-                ranking += getRanking(s, term, 1);
-            }
 
-            for (final ContextSentence sentence: subject.getContextSentences()) {
-                ranking += getRanking(sentence.getEnglish(), term, 1);
-                ranking += getRanking(sentence.getJapanese(), term, 1);
-            }
-
-            for (final String s: subject.getMeaningSynonyms()) {
-                ranking += getRanking(s, term, 3);
+        final List<Subject> result = new ArrayList<>(hits.size());
+        for (final SubjectSearchHit hit: hits) {
+            final @Nullable Subject subject = subjects.get(hit.getId());
+            if (subject != null) {
+                result.add(subject);
             }
         }
-
-        return ranking;
-    }
-
-    private static List<Subject> runQuery(final String sql, final String[] args) {
-        final SupportSQLiteQuery query = new SimpleSQLiteQuery(sql, args);
-        return WkApplication.getDatabase().subjectCollectionsDao().getSubjectsWithRawQuery(query);
+        return result;
     }
 
     /**
@@ -198,41 +115,7 @@ public final class SearchUtil {
         if (query.trim().length() < 3) {
             return Collections.emptyList();
         }
-
-        final List<String> terms = splitTermsForSql(query);
-        if (terms.isEmpty()) {
-            return Collections.emptyList();
-        }
-
-        final StringBuilder sb = new StringBuilder();
-        final String[] args = new String[terms.size()];
-        sb.append("SELECT * FROM subject WHERE hiddenAt=0 AND object IS NOT NULL");
-        int i = 0;
-        for (final String term: terms) {
-            sb.append(" AND smallSearchTarget LIKE ?");
-            args[i++] = "%" + term + "%";
-        }
-        sb.append(" LIMIT ").append(MAX_SEARCH_HITS);
-        List<Subject> subjects = runQuery(sb.toString(), args);
-
-        if (subjects.size() < MAX_SEARCH_HITS) {
-            final StringBuilder sb2 = new StringBuilder();
-            sb2.append("SELECT * FROM subject WHERE hiddenAt=0 AND object IS NOT NULL");
-            for (int j=0; j<terms.size(); j++) {
-                sb2.append(" AND searchTarget LIKE ?");
-            }
-            sb2.append(" LIMIT ").append(MAX_SEARCH_HITS);
-            subjects = runQuery(sb2.toString(), args);
-        }
-
-        final List<String> javaTerms = splitTermsForJava(query);
-        for (final Subject subject: subjects) {
-            subject.setRanking(getSearchRanking(subject, javaTerms));
-        }
-
-        Collections.sort(subjects, (o1, o2) -> Integer.compare(o2.getRanking(), o1.getRanking()));
-
-        return subjects;
+        return searchSubjects(WkApplication.getDatabase(), query, MAX_SEARCH_HITS);
     }
 
     /**
@@ -242,29 +125,7 @@ public final class SearchUtil {
      * @return the list of found subjects
      */
     private static List<Subject> searchSubjects(final CharSequence query) {
-        final List<String> terms = splitTermsForSql(query);
-        if (terms.isEmpty()) {
-            return Collections.emptyList();
-        }
-
-        final StringBuilder sb = new StringBuilder();
-        final String[] args = new String[terms.size()];
-        sb.append("SELECT * FROM subject WHERE hiddenAt=0 AND object IS NOT NULL");
-        int i = 0;
-        for (final String term: terms) {
-            sb.append(" AND searchTarget LIKE ?");
-            args[i++] = "%" + term + "%";
-        }
-        final List<Subject> subjects = runQuery(sb.toString(), args);
-
-        final List<String> javaTerms = splitTermsForJava(query);
-        for (final Subject subject: subjects) {
-            subject.setRanking(getSearchRanking(subject, javaTerms));
-        }
-
-        Collections.sort(subjects, (o1, o2) -> Integer.compare(o2.getRanking(), o1.getRanking()));
-
-        return subjects;
+        return searchSubjects(WkApplication.getDatabase(), query, MAX_KEYWORD_SEARCH_HITS);
     }
 
     /**
@@ -501,4 +362,144 @@ public final class SearchUtil {
 
         return join(" ", "", "", result);
     }
+
+    /**
+     * Find the primary meaning out of a list of meanings: the one flagged as primary, or else an accepted one.
+     *
+     * @param meanings the meanings
+     * @return the meaning, or an empty string if there are none
+     */
+    private static String findPrimaryMeaning(final Collection<Meaning> meanings) {
+        @Nullable Meaning result = null;
+        for (final Meaning meaning: meanings) {
+            if (result == null || meaning.isPrimary() || !result.isAcceptedAnswer()) {
+                result = meaning;
+            }
+            if (result.isPrimary()) {
+                break;
+            }
+        }
+        return result == null || result.getMeaning() == null ? "" : result.getMeaning();
+    }
+
+    /**
+     * Fill the subject columns of a search index entry.
+     *
+     * @param entry the entry to fill
+     * @param characters the subject's characters
+     * @param slug the subject's slug
+     * @param meanings the subject's meanings
+     * @param auxiliaryMeanings the subject's auxiliary meanings
+     * @param readings the subject's readings
+     * @param texts the subject's mnemonics and hints
+     * @param partsOfSpeech the subject's parts of speech
+     * @param contextSentences the subject's context sentences
+     */
+    private static void fillSearchEntry(final SubjectSearchEntry entry,
+                                        final @Nullable String characters,
+                                        final @Nullable String slug,
+                                        final List<Meaning> meanings,
+                                        final Iterable<AuxiliaryMeaning> auxiliaryMeanings,
+                                        final Iterable<Reading> readings,
+                                        final Iterable<String> texts,
+                                        final Collection<String> partsOfSpeech,
+                                        final Iterable<ContextSentence> contextSentences) {
+        entry.characters = characters == null ? "" : characters;
+        entry.slug = slug == null ? "" : slug;
+        entry.primaryMeaning = findPrimaryMeaning(meanings);
+
+        final Collection<String> meaningTexts = new ArrayList<>();
+        for (final Meaning meaning: meanings) {
+            meaningTexts.add(meaning.getMeaning());
+        }
+        for (final AuxiliaryMeaning meaning: auxiliaryMeanings) {
+            meaningTexts.add(meaning.getMeaning());
+        }
+        entry.meanings = join(" ", "", "", meaningTexts);
+
+        final Collection<String> readingTexts = new ArrayList<>();
+        for (final Reading reading: readings) {
+            readingTexts.add(reading.getValue(false));
+        }
+        entry.readings = join(" ", "", "", readingTexts);
+
+        final Collection<String> bodyTexts = new ArrayList<>();
+        for (final String text: texts) {
+            if (!isEmpty(text)) {
+                bodyTexts.add(text);
+            }
+        }
+        bodyTexts.addAll(partsOfSpeech);
+        for (final ContextSentence sentence: contextSentences) {
+            bodyTexts.add(sentence.getEnglish());
+            bodyTexts.add(sentence.getJapanese());
+        }
+        entry.body = join(" ", "", "", bodyTexts);
+    }
+
+    /**
+     * Build the subject columns of the search index entry for an API subject. The study material
+     * columns are left empty.
+     *
+     * @param apiSubject the subject to examine
+     * @return the entry
+     */
+    public static SubjectSearchEntry createSearchEntry(final ApiSubject apiSubject) {
+        final SubjectSearchEntry entry = new SubjectSearchEntry();
+        entry.id = apiSubject.getId();
+        fillSearchEntry(entry, apiSubject.getCharacters(), apiSubject.getSlug(), apiSubject.getMeanings(),
+                apiSubject.getAuxiliaryMeanings(), apiSubject.getReadings(),
+                Arrays.asList(apiSubject.getMeaningMnemonic(), apiSubject.getMeaningHint(),
+                        apiSubject.getReadingMnemonic(), apiSubject.getReadingHint()),
+                apiSubject.getPartsOfSpeech(), apiSubject.getContextSentences());
+        return entry;
+    }
+
+    /**
+     * Build the complete search index entry for a subject from the database, including the
+     * study material columns. This is used to (re)build the index from existing data.
+     *
+     * @param subject the subject to examine
+     * @return the entry
+     */
+    public static SubjectSearchEntry createSearchEntry(final Subject subject) {
+        final SubjectSearchEntry entry = new SubjectSearchEntry();
+        entry.id = subject.getId();
+        fillSearchEntry(entry, subject.getCharacters(), subject.getSlug(), subject.getMeanings(),
+                subject.getAuxiliaryMeanings(), subject.getReadings(),
+                Arrays.asList(subject.getMeaningMnemonic(), subject.getMeaningHint(),
+                        subject.getReadingMnemonic(), subject.getReadingHint()),
+                subject.getPartsOfSpeech(), subject.getContextSentences());
+        entry.notes = findSearchNotes(subject.getMeaningNote(), subject.getReadingNote());
+        entry.synonyms = findSearchSynonyms(subject.getMeaningSynonyms());
+        return entry;
+    }
+
+    /**
+     * Build the notes column of the search index from a subject's study material.
+     *
+     * @param meaningNote the meaning note
+     * @param readingNote the reading note
+     * @return the text for the column
+     */
+    public static String findSearchNotes(final @Nullable String meaningNote, final @Nullable String readingNote) {
+        final Collection<String> result = new ArrayList<>();
+        if (!isEmpty(meaningNote)) {
+            result.add(meaningNote);
+        }
+        if (!isEmpty(readingNote)) {
+            result.add(readingNote);
+        }
+        return join(" ", "", "", result);
+    }
+
+    /**
+     * Build the synonyms column of the search index from a subject's study material.
+     *
+     * @param meaningSynonyms the meaning synonyms
+     * @return the text for the column
+     */
+    public static String findSearchSynonyms(final Collection<String> meaningSynonyms) {
+        return join(" ", "", "", meaningSynonyms);
+    }
 }
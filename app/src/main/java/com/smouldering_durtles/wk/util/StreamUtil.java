@@ -26,6 +26,11 @@ import java.io.OutputStream;
  * Utility methods for dealing with streams.
  */
 public final class StreamUtil {
+    /**
+     * The size of the copy buffer. Large enough that copying a file takes few system calls.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     private StreamUtil() {
         //
     }
@@ -38,7 +43,7 @@ public final class StreamUtil {
      * @throws IOException if the stream could not be read
      */
     public static byte[] slurp(final InputStream is) throws IOException {
-        final byte[] buffer = new byte[256];
+        final byte[] buffer = new byte[BUFFER_SIZE];
         try (final ByteArrayBuilder builder = new ByteArrayBuilder()) {
             while (true) {
                 final int n = is.read(buffer);
@@ -58,7 +63,7 @@ public final class StreamUtil {
      * @throws IOException if either reading or writing fails
      */
     public static void pump(final InputStream is, final OutputStream os) throws IOException {
-        final byte[] buffer = new byte[256];
+        final byte[] buffer = new byte[BUFFER_SIZE];
         while (true) {
             final int n = is.read(buffer);
             if (n < 0) {
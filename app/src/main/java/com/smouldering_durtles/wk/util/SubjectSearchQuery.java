@@ -0,0 +1,223 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nullable;
+
+/**
+ * An SQL query against the subject_search full-text index, built from a search query as typed by
+ * the user. The query produces the subject IDs and rankings of the best hits. Both the matching and
+ * the ranking happen inside SQLite.
+ *
+ * <p>
+ *     This is kept free of Android dependencies, so it can be benchmarked on a plain JVM.
+ * </p>
+ */
+public final class SubjectSearchQuery {
+    private static final Pattern TERM_PATTERN = Pattern.compile("[\\p{Z}\\s]");
+    private static final Pattern PERC_PATTERN = Pattern.compile("%");
+    private static final Pattern US_PATTERN = Pattern.compile("_");
+    private static final Pattern BS_PATTERN = Pattern.compile("\\\\");
+    private static final Pattern QUOTE_PATTERN = Pattern.compile("[\"*]");
+
+    /**
+     * The columns of the subject_search table that take part in the ranking, with their weights.
+     * These mirror the field weights the search has always used: hits in the characters or the primary
+     * meaning count most, hits in mnemonics, notes and context sentences count least.
+     */
+    private static final String[] RANKED_COLUMNS = {
+            "characters", "slug", "primaryMeaning", "meanings", "readings", "body", "notes", "synonyms"
+    };
+    private static final int[] RANKED_WEIGHTS = {100, 10, 100, 30, 30, 1, 1, 3};
+
+    private final String sql;
+    private final Object[] args;
+
+    /**
+     * One word of a search query.
+     */
+    private static final class SearchTerm {
+        /**
+         * The word as typed, but with ASCII letters in upper case to match SQLite's upper().
+         */
+        private final String upper;
+
+        /**
+         * Can this word be found through the full-text index? The tokenizer doesn't split runs of Japanese
+         * text, so a word that is only part of one can only be found with a LIKE scan.
+         */
+        private final boolean indexed;
+
+        private SearchTerm(final String term) {
+            final StringBuilder sb = new StringBuilder(term.length());
+            boolean hasLetterOrDigit = false;
+            boolean hasJapanese = false;
+            for (int i=0; i<term.length(); i++) {
+                final char c = term.charAt(i);
+                sb.append(c >= 'a' && c <= 'z' ? (char) (c - 'a' + 'A') : c);
+                if (c >= 0x3000) {
+                    hasJapanese = true;
+                }
+                else if (Character.isLetterOrDigit(c)) {
+                    hasLetterOrDigit = true;
+                }
+            }
+            upper = sb.toString();
+            indexed = hasLetterOrDigit && !hasJapanese;
+        }
+
+        /**
+         * This word as a prefix phrase for an FTS MATCH expression.
+         *
+         * @return the phrase
+         */
+        private String getMatchPhrase() {
+            return "\"" + QUOTE_PATTERN.matcher(upper).replaceAll(" ") + "*\"";
+        }
+
+        /**
+         * This word as a LIKE pattern, with the LIKE wildcards escaped.
+         *
+         * @return the pattern
+         */
+        private String getLikePattern() {
+            return "%" + US_PATTERN.matcher(PERC_PATTERN.matcher(BS_PATTERN.matcher(upper)
+                    .replaceAll("\\\\\\\\")).replaceAll("\\\\%")).replaceAll("\\\\_") + "%";
+        }
+    }
+
+    /**
+     * Split a query into words.
+     *
+     * @param query the search query
+     * @return the list of words
+     */
+    private static List<SearchTerm> splitTerms(final CharSequence query) {
+        final String[] terms = TERM_PATTERN.split(query);
+        final List<SearchTerm> result = new ArrayList<>();
+        for (final String term: terms) {
+            if (!term.isEmpty()) {
+                result.add(new SearchTerm(term));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Append an SQL expression that ranks a hit for one search term in one column of the index. This
+     * ranking reflects how well the term matches: number of times, at the start or end of a word, and
+     * the weight of the column.
+     *
+     * @param sb the builder for the query
+     * @param column the column name
+     * @param weight the weight for this column, higher weight means hits in this column are more important
+     * @param param the number of the query parameter that holds the term
+     */
+    private static void appendRanking(final StringBuilder sb, final String column, final int weight, final int param) {
+        final String haystack = "upper(subject_search." + column + ")";
+        sb.append("((length(").append(haystack).append(") - length(replace(").append(haystack).append(", ?").append(param)
+                .append(", ''))) / length(?").append(param).append(')');
+        sb.append(" + (instr(' ' || ").append(haystack).append(", ' ' || ?").append(param).append(") > 0)");
+        sb.append(" + (instr(").append(haystack).append(" || ' ', ?").append(param).append(" || ' ') > 0)");
+        sb.append(") * ").append(weight);
+    }
+
+    private SubjectSearchQuery(final String sql, final Object[] args) {
+        this.sql = sql;
+        this.args = args;
+    }
+
+    /**
+     * Build the query for a search. Every word of the search must be found in a subject for it to be a hit.
+     *
+     * @param query the query text
+     * @param maxHits the maximum number of hits the query produces
+     * @return the query, or null if the search text doesn't contain any words
+     */
+    public static @Nullable SubjectSearchQuery build(final CharSequence query, final int maxHits) {
+        final List<SearchTerm> terms = splitTerms(query);
+        if (terms.isEmpty()) {
+            return null;
+        }
+
+        final List<String> args = new ArrayList<>();
+        final StringBuilder sb = new StringBuilder();
+        sb.append("SELECT subject_search.rowid AS id, (");
+        for (int i=0; i<terms.size(); i++) {
+            args.add(terms.get(i).upper);
+            for (int j=0; j<RANKED_COLUMNS.length; j++) {
+                if (i > 0 || j > 0) {
+                    sb.append(" + ");
+                }
+                appendRanking(sb, RANKED_COLUMNS[j], RANKED_WEIGHTS[j], args.size());
+            }
+        }
+        sb.append(") AS ranking FROM subject_search JOIN subject ON subject.id = subject_search.rowid");
+        sb.append(" WHERE subject.hiddenAt = 0 AND subject.object IS NOT NULL");
+
+        final StringBuilder phrases = new StringBuilder();
+        for (final SearchTerm term: terms) {
+            if (term.indexed) {
+                if (phrases.length() > 0) {
+                    phrases.append(' ');
+                }
+                phrases.append(term.getMatchPhrase());
+            }
+            else {
+                args.add(term.getLikePattern());
+                sb.append(" AND (");
+                for (int j=0; j<RANKED_COLUMNS.length; j++) {
+                    if (j > 0) {
+                        sb.append(" || ' ' || ");
+                    }
+                    sb.append("subject_search.").append(RANKED_COLUMNS[j]);
+                }
+                sb.append(") LIKE ?").append(args.size()).append(" ESCAPE '\\'");
+            }
+        }
+        if (phrases.length() > 0) {
+            args.add(phrases.toString());
+            sb.append(" AND subject_search MATCH ?").append(args.size());
+        }
+        sb.append(" ORDER BY ranking DESC, subject.id LIMIT ").append(maxHits);
+
+        return new SubjectSearchQuery(sb.toString(), args.toArray());
+    }
+
+    /**
+     * The SQL text of the query, with numbered parameters.
+     *
+     * @return the SQL
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * The values for the parameters of the query.
+     *
+     * @return the values
+     */
+    @SuppressWarnings("AssignmentOrReturnOfFieldWithMutableType")
+    public Object[] getArgs() {
+        return args;
+    }
+}
@@ -44,6 +44,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 import javax.annotation.Nullable;
@@ -68,6 +69,21 @@ public final class TextUtil {
      */
     private static final Map<Typeface, Boolean> TILDE_CAPABLE = new HashMap<>();
 
+    /**
+     * The glyph coverage of typefaces whose cmap table could be read, see setGlyphCoverage().
+     */
+    private static final Map<Typeface, FontCoverage> COVERAGE = new ConcurrentHashMap<>();
+
+    /**
+     * For typefaces without a known coverage: the memoised results of rendering single code points.
+     */
+    private static final Map<Typeface, Map<Integer, Boolean>> RENDERED_GLYPHS = new ConcurrentHashMap<>();
+
+    /**
+     * For typefaces without a known coverage: the rendering of the missing-glyph character.
+     */
+    private static final Map<Typeface, int[]> TOFU_PIXELS = new ConcurrentHashMap<>();
+
     private static final Pattern AMP_PATTERN = Pattern.compile("&");
     private static final Pattern LT_PATTERN = Pattern.compile("<");
     private static final Pattern GT_PATTERN = Pattern.compile(">");
@@ -76,6 +92,17 @@ public final class TextUtil {
         //
     }
 
+    /**
+     * Register the glyph coverage of a typeface, read from its font file. Glyph checks for this typeface
+     * then become lookups in the coverage, instead of rendering the characters.
+     *
+     * @param typeface the typeface
+     * @param coverage the coverage
+     */
+    public static void setGlyphCoverage(final Typeface typeface, final FontCoverage coverage) {
+        COVERAGE.put(typeface, coverage);
+    }
+
     /**
      * Determine if the typeface has non-empty glyphs for every character in s.
      *
@@ -89,18 +116,11 @@ public final class TextUtil {
         }
         int i = 0;
         while (i < s.length()) {
-            if (i < s.length() - 1 && Character.isHighSurrogate(s.charAt(i)) && Character.isLowSurrogate(s.charAt(i+1))) {
-                if (!hasGlyph(typeface, s.substring(i, i+2))) {
-                    return false;
-                }
-                i += 2;
-            }
-            else {
-                if (!hasGlyph(typeface, s.substring(i, i+1))) {
-                    return false;
-                }
-                i++;
+            final int codePoint = s.codePointAt(i);
+            if (!hasGlyph(typeface, codePoint)) {
+                return false;
             }
+            i += Character.charCount(codePoint);
         }
         return true;
     }
@@ -126,15 +146,47 @@ public final class TextUtil {
     }
 
     /**
-     * Determine if the typeface has a non-empty glyph for a character.
+     * Determine if the typeface has a glyph for a code point. If the coverage of the typeface is known,
+     * this is a lookup. If not, the character is rendered and compared against the missing-glyph
+     * character, and the result is remembered for the rest of the process.
+     *
+     * @param typeface the typeface to test
+     * @param codePoint the code point to test
+     * @return true if it has
+     */
+    private static boolean hasGlyph(final Typeface typeface, final int codePoint) {
+        final @Nullable FontCoverage coverage = COVERAGE.get(typeface);
+        if (coverage != null) {
+            return coverage.contains(codePoint);
+        }
+        @Nullable Map<Integer, Boolean> rendered = RENDERED_GLYPHS.get(typeface);
+        if (rendered == null) {
+            rendered = new ConcurrentHashMap<>();
+            RENDERED_GLYPHS.put(typeface, rendered);
+        }
+        final @Nullable Boolean known = rendered.get(codePoint);
+        if (known != null) {
+            return known;
+        }
+        final boolean result = hasRenderedGlyph(typeface, new String(Character.toChars(codePoint)));
+        rendered.put(codePoint, result);
+        return result;
+    }
+
+    /**
+     * Determine if the typeface has a non-empty glyph for a character, by rendering it.
      *
      * @param typeface the typeface to test
      * @param c the single-character string to test
      * @return true if it has
      */
-    private static boolean hasGlyph(final Typeface typeface, final String c) {
+    private static boolean hasRenderedGlyph(final Typeface typeface, final String c) {
         try {
-            final int[] tofuPixels = render(typeface, "\\uFFFE");
+            @Nullable int[] tofuPixels = TOFU_PIXELS.get(typeface);
+            if (tofuPixels == null) {
+                tofuPixels = render(typeface, "\\uFFFE");
+                TOFU_PIXELS.put(typeface, tofuPixels);
+            }
             final int[] actualPixels = render(typeface, c);
             return !emptyPixels(actualPixels) && !Arrays.equals(actualPixels, tofuPixels);
         }
@@ -208,7 +260,7 @@ public final class TextUtil {
      */
     public static boolean isTildeCapable(final Typeface typeface) {
         if (!TILDE_CAPABLE.containsKey(typeface)) {
-            TILDE_CAPABLE.put(typeface, hasGlyph(typeface, "〜"));
+            TILDE_CAPABLE.put(typeface, hasGlyph(typeface, '〜'));
         }
         return isTrue(TILDE_CAPABLE.get(typeface));
     }
@@ -275,7 +327,7 @@ public final class TextUtil {
             return 0;
         }
 
-        return safe(0L, () -> ZonedDateTime.parse(date, DateTimeFormatter.ISO_OFFSET_DATE_TIME).toInstant().toEpochMilli());
+        return safe(0L, () -> ApiTimestamps.parse(date));
     }
 
     /**
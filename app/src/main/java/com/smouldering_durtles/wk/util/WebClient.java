@@ -16,9 +16,7 @@
 
 package com.smouldering_durtles.wk.util;
 
-import com.smouldering_durtles.wk.BuildConfig;
 import com.smouldering_durtles.wk.GlobalSettings;
-import com.smouldering_durtles.wk.Identification;
 import com.smouldering_durtles.wk.WkApplication;
 import com.smouldering_durtles.wk.db.AppDatabase;
 import com.smouldering_durtles.wk.db.model.Subject;
@@ -118,32 +116,36 @@ public final class WebClient {
         });
     }
 
+    /**
+     * Get a client that uses the current default cookie handler. The login replaces the cookie handler,
+     * so this can't be cached, but the client shares the connection pool with all other clients in the app.
+     *
+     * @return the client
+     */
+    private static OkHttpClient getClient() {
+        return HttpClients.getClient().newBuilder()
+                .cookieJar(new JavaNetCookieJar(CookieHandler.getDefault()))
+                .build();
+    }
+
     private static @Nullable Response getUrl(final String url) {
         return safeNullable(() -> {
             LOGGER.info("Fetching: %s", url);
-            final OkHttpClient client = new OkHttpClient.Builder()
-                    .cookieJar(new JavaNetCookieJar(CookieHandler.getDefault()))
-                    .build();
             final Request request = new Request.Builder()
-                    .header("User-Agent", Identification.APP_NAME_UA + "/" + BuildConfig.VERSION_NAME)
                     .url(url)
                     .build();
-            return client.newCall(request).execute();
+            return getClient().newCall(request).execute();
         });
     }
 
     private static @Nullable Response postUrl(final String url, final RequestBody requestBody) {
         return safeNullable(() -> {
             LOGGER.info("Posting: %s", url);
-            final OkHttpClient client = new OkHttpClient.Builder()
-                    .cookieJar(new JavaNetCookieJar(CookieHandler.getDefault()))
-                    .build();
             final Request request = new Request.Builder()
-                    .header("User-Agent", Identification.APP_NAME_UA + "/" + BuildConfig.VERSION_NAME)
                     .url(url)
                     .post(requestBody)
                     .build();
-            return client.newCall(request).execute();
+            return getClient().newCall(request).execute();
         });
     }
 
@@ -24,7 +24,7 @@ import androidx.lifecycle.LifecycleOwner;
 
 import com.smouldering_durtles.wk.GlobalSettings;
 import com.smouldering_durtles.wk.R;
-import com.smouldering_durtles.wk.db.model.Subject;
+import com.smouldering_durtles.wk.db.model.SubjectSummary;
 import com.smouldering_durtles.wk.enums.ActiveTheme;
 import com.smouldering_durtles.wk.livedata.LiveFirstTimeSetup;
 import com.smouldering_durtles.wk.livedata.LiveLevelDuration;
@@ -187,7 +187,7 @@ public final class LessonReviewBreakdownView extends TableLayout {
         int lessonPastKanCount = 0;
         int lessonPastVocCount = 0;
 
-        for (final Subject subject: timeLine.getAvailableLessons()) {
+        for (final SubjectSummary subject: timeLine.getAvailableLessons()) {
             if (subject.getLevel() == userLevel && subject.getType().isRadical()) {
                 lessonCurrentRadCount++;
             }
@@ -231,7 +231,7 @@ public final class LessonReviewBreakdownView extends TableLayout {
         int reviewPastKanCount = 0;
         int reviewPastVocCount = 0;
 
-        for (final Subject subject: timeLine.getAvailableReviews()) {
+        for (final SubjectSummary subject: timeLine.getAvailableReviews()) {
             if (subject.getLevel() == userLevel && subject.getType().isRadical()) {
                 reviewCurrentRadCount++;
             }
@@ -72,6 +72,12 @@ public final class SubjectInfoView extends LinearLayout implements SubjectChange
     private @Nullable WeakLcoRef<Actment> actmentRef = null;
     private ContainerType containerType = ContainerType.BROWSE;
     private @Nullable Subject subject;
+    /**
+     * Synonyms added in this view that the subject doesn't have yet, because the job that saves them
+     * hasn't updated the database yet. The subject itself can be shared through the subject cache,
+     * so it is never changed here.
+     */
+    private @Nullable List<String> pendingSynonyms = null;
 
     private final List<ViewProxy> contextSentenceEnglish = new ArrayList<>();
     private final List<ViewProxy> contextSentenceJapanese = new ArrayList<>();
@@ -357,6 +363,9 @@ public final class SubjectInfoView extends LinearLayout implements SubjectChange
         if (subjectId == subject.getId()) {
             safe(() -> {
                 this.subject = subject;
+                if (pendingSynonyms != null && subject.getMeaningSynonyms().containsAll(pendingSynonyms)) {
+                    pendingSynonyms = null;
+                }
                 layoutSubject(true);
             });
         }
@@ -419,18 +428,28 @@ public final class SubjectInfoView extends LinearLayout implements SubjectChange
         }
     }
 
+    /**
+     * Get the synonyms to show for the subject, including the ones that are still being saved.
+     *
+     * @param theSubject the subject
+     * @return the synonyms
+     */
+    private List<String> getMeaningSynonyms(final Subject theSubject) {
+        return pendingSynonyms == null ? theSubject.getMeaningSynonyms() : pendingSynonyms;
+    }
+
     private void addSynonym(final @Nullable String value) {
         if (subject == null || isEmpty(value)) {
             return;
         }
 
-        final List<String> list = new ArrayList<>(subject.getMeaningSynonyms());
+        final List<String> list = new ArrayList<>(getMeaningSynonyms(subject));
         if (!list.contains(value)) {
             list.add(value);
         }
 
-        subject.setMeaningSynonyms(list);
-        synonyms.setText(subject.getMeaningSynonymsRichText());
+        pendingSynonyms = new ArrayList<>(list);
+        synonyms.setText(Subject.getMeaningSynonymsRichText(list));
 
         list.add(0, Long.toString(subject.getId()));
         list.add(1, orElse(subject.getMeaningNote(), ""));
@@ -512,6 +531,9 @@ public final class SubjectInfoView extends LinearLayout implements SubjectChange
         safe(() -> {
             actmentRef = new WeakLcoRef<>(actment);
             final boolean sameSubject = subjectId == newSubject.getId();
+            if (!sameSubject) {
+                pendingSynonyms = null;
+            }
             subject = newSubject;
             subjectId = subject.getId();
             layoutSubject(sameSubject);
@@ -552,7 +574,7 @@ public final class SubjectInfoView extends LinearLayout implements SubjectChange
         starRating.setSubject(subject);
 
         // Meaning mnemonic
-        meaningDivider.setVisibility(subject.hasMeaningMnemonic() && (showMeaningRelated || showMeaningAnswers && subject.hasMeaningSynonyms()));
+        meaningDivider.setVisibility(subject.hasMeaningMnemonic() && (showMeaningRelated || showMeaningAnswers && !getMeaningSynonyms(subject).isEmpty()));
         meaningMnemonic.setText(subject.getMeaningMnemonicRichText());
         meaningMnemonic.setJapaneseLocale();
         meaningMnemonic.setLinkMovementMethod();
@@ -569,7 +591,7 @@ public final class SubjectInfoView extends LinearLayout implements SubjectChange
         meaningNote.setJapaneseLocale();
         meaningNote.setLinkMovementMethod();
         meaningNote.setVisibility(showMeaningRelated && subject.hasMeaningNote());
-        synonyms.setText(subject.getMeaningSynonymsRichText());
+        synonyms.setText(Subject.getMeaningSynonymsRichText(getMeaningSynonyms(subject)));
         synonyms.setJapaneseLocale();
         synonyms.setLinkMovementMethod();
         synonyms.setVisibility(showMeaningAnswers);
@@ -38,7 +38,7 @@ import androidx.lifecycle.LifecycleOwner;
 
 import com.smouldering_durtles.wk.GlobalSettings;
 import com.smouldering_durtles.wk.R;
-import com.smouldering_durtles.wk.db.model.Subject;
+import com.smouldering_durtles.wk.db.model.SubjectSummary;
 import com.smouldering_durtles.wk.enums.ActiveTheme;
 import com.smouldering_durtles.wk.enums.SubjectType;
 import com.smouldering_durtles.wk.livedata.LiveTimeLine;
@@ -582,10 +582,10 @@ public final class TimeLineBarChart extends View implements GestureDetector.OnGe
         totalCount = 0;
         maxBarCount = 0;
         for (int i = 0; i < timeLine.getSize(); i++) {
-            final List<Subject> reviews = timeLine.getTimeLine().get(i);
+            final List<SubjectSummary> reviews = timeLine.getTimeLine().get(i);
             final int[] values = {0, 0, 0, 0};
             int count = 0;
-            for (final Subject review: reviews) {
+            for (final SubjectSummary review: reviews) {
                 final SrsSystem.Stage stage = review.getSrsStage();
                 int bucket = stage.getTimeLineBarChartBucket();
                 if (bucket == 4) {
@@ -616,10 +616,10 @@ public final class TimeLineBarChart extends View implements GestureDetector.OnGe
         totalCount = 0;
         maxBarCount = 0;
         for (int i = 0; i < timeLine.getSize(); i++) {
-            final List<Subject> reviews = timeLine.getTimeLine().get(i);
+            final List<SubjectSummary> reviews = timeLine.getTimeLine().get(i);
             final int[] values = {0, 0, 0, 0, 0};
             int count = 0;
-            for (final Subject review: reviews) {
+            for (final SubjectSummary review: reviews) {
                 final SrsSystem.Stage stage = review.getSrsStage().getNewStage(0);
                 values[stage.getTimeLineBarChartBucket()]++;
                 count++;
@@ -646,10 +646,10 @@ public final class TimeLineBarChart extends View implements GestureDetector.OnGe
         totalCount = 0;
         maxBarCount = 0;
         for (int i = 0; i < timeLine.getSize(); i++) {
-            final List<Subject> reviews = timeLine.getTimeLine().get(i);
+            final List<SubjectSummary> reviews = timeLine.getTimeLine().get(i);
             final int[] values = {0, 0, 0};
             int count = 0;
-            for (final Subject review: reviews) {
+            for (final SubjectSummary review: reviews) {
                 int bucketIndex = review.getType().getTimeLineBarChartBucket();
 
                 // Check if the item type is WANIKANI_KANA_VOCAB and update the bucket index accordingly
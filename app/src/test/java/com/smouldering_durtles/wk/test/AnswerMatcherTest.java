@@ -0,0 +1,160 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.test;
+
+import static org.junit.Assert.assertEquals;
+
+import com.smouldering_durtles.wk.enums.CloseEnoughAction;
+import com.smouldering_durtles.wk.model.AnswerVerdict;
+import com.smouldering_durtles.wk.util.AnswerMatcher;
+import com.smouldering_durtles.wk.util.FuzzyMatching;
+import com.smouldering_durtles.wk.util.OptimalStringAlignmentDistance;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Property test to verify that AnswerMatcher gives the same verdicts as FuzzyMatching on random
+ * answers and references, and that the bounded OSA distance agrees with the full one.
+ */
+@SuppressWarnings("JavaDoc")
+public final class AnswerMatcherTest {
+    private static final int ROUNDS = 10000;
+
+    /**
+     * Characters to build random strings from: a small alphabet so near misses are common, plus
+     * characters that the answer clean-up replaces or normalizes.
+     */
+    private static final String ALPHABET = "abcdeABCDE  -'.\u2019\u0663\uFF11\t\u3000";
+
+    private static String randomString(final Random random, final int maxLength) {
+        final int length = random.nextInt(maxLength + 1);
+        final StringBuilder sb = new StringBuilder();
+        for (int i=0; i<length; i++) {
+            sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Make a few random edits to a string: insertions, deletions, substitutions and transpositions.
+     */
+    private static String mutate(final Random random, final String s) {
+        final StringBuilder sb = new StringBuilder(s);
+        final int edits = random.nextInt(4);
+        for (int i=0; i<edits; i++) {
+            final int op = random.nextInt(4);
+            final int pos = sb.length() == 0 ? 0 : random.nextInt(sb.length());
+            final char c = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+            if (op == 0 || sb.length() == 0) {
+                sb.insert(pos, c);
+            }
+            else if (op == 1) {
+                sb.deleteCharAt(pos);
+            }
+            else if (op == 2) {
+                sb.setCharAt(pos, c);
+            }
+            else if (pos + 1 < sb.length()) {
+                final char t = sb.charAt(pos);
+                sb.setCharAt(pos, sb.charAt(pos + 1));
+                sb.setCharAt(pos + 1, t);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void assertSameVerdict(final String message, final AnswerVerdict expected, final AnswerVerdict actual) {
+        assertEquals(message, expected.isOk(), actual.isOk());
+        assertEquals(message, expected.isRetry(), actual.isRetry());
+        assertEquals(message, expected.isNearMatch(), actual.isNearMatch());
+        assertEquals(message, expected.getGivenAnswer(), actual.getGivenAnswer());
+        assertEquals(message, expected.getMatchedAnswer(), actual.getMatchedAnswer());
+    }
+
+    @Test
+    public void testSameVerdicts() {
+        final Random random = new Random(12345);
+        for (int round=0; round<ROUNDS; round++) {
+            final Set<String> accepted = new HashSet<>();
+            final Set<String> rejected = new HashSet<>();
+            final int numAccepted = 1 + random.nextInt(4);
+            for (int i=0; i<numAccepted; i++) {
+                accepted.add(randomString(random, 16));
+            }
+            final int numRejected = random.nextInt(3);
+            for (int i=0; i<numRejected; i++) {
+                rejected.add(random.nextBoolean() ? mutate(random, accepted.iterator().next()) : randomString(random, 16));
+            }
+            final List<String> references = new ArrayList<>(accepted);
+            references.addAll(rejected);
+
+            final AnswerMatcher matcher = new AnswerMatcher(accepted, rejected);
+            for (int i=0; i<5; i++) {
+                final String answer = random.nextInt(5) == 0
+                        ? randomString(random, 16)
+                        : mutate(random, references.get(random.nextInt(references.size())));
+                for (final CloseEnoughAction action: CloseEnoughAction.values()) {
+                    final String message = String.format("answer '%s', accepted %s, rejected %s, %s", answer, accepted, rejected, action);
+                    assertSameVerdict(message,
+                            FuzzyMatching.matches(answer, accepted, rejected, action),
+                            matcher.matches(answer, action));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCachedMatcher() {
+        final Set<String> accepted = new HashSet<>();
+        accepted.add("Big Mountain");
+        accepted.add("Large Hill");
+        final Set<String> rejected = new HashSet<>();
+        rejected.add("Big Mountains");
+
+        for (final String answer: new String[] {"big mountain", "big mountian", "big mountains", "large hil", "hill", ""}) {
+            assertSameVerdict(answer, FuzzyMatching.matches(answer, accepted, rejected, CloseEnoughAction.ACCEPT_WITH_TOAST),
+                    AnswerMatcher.get(1, accepted, rejected).matches(answer, CloseEnoughAction.ACCEPT_WITH_TOAST));
+        }
+
+        accepted.add("Tall Peak");
+        assertSameVerdict("synonym added", FuzzyMatching.matches("tall peak", accepted, rejected, CloseEnoughAction.ACCEPT_WITH_TOAST),
+                AnswerMatcher.get(1, accepted, rejected).matches("tall peak", CloseEnoughAction.ACCEPT_WITH_TOAST));
+    }
+
+    @Test
+    public void testBoundedDistance() {
+        final Random random = new Random(54321);
+        final int[] rows = new int[3 * 41];
+        for (int round=0; round<ROUNDS; round++) {
+            final String a = random.nextBoolean() ? randomString(random, 40) : mutate(random, randomString(random, 36));
+            final String b = random.nextBoolean() ? randomString(random, 40) : mutate(random, a);
+            if (b.length() > 40) {
+                continue;
+            }
+            final int expected = OptimalStringAlignmentDistance.getDistance(a, b);
+            final int bound = random.nextInt(8);
+            final int actual = OptimalStringAlignmentDistance.getBoundedDistance(a, b, bound, rows);
+            assertEquals("'" + a + "' vs '" + b + "' bound " + bound, expected <= bound ? expected : bound + 1, actual);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smouldering_durtles.wk.api.ApiCollectionPage;
+import com.smouldering_durtles.wk.api.model.ApiAssignment;
+import com.smouldering_durtles.wk.db.Converters;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import javax.annotation.Nullable;
+
+/**
+ * Test class to verify streaming parsing of collection pages, replaying recorded-shape pages from a local stub server.
+ */
+@SuppressWarnings("JavaDoc")
+public final class ApiCollectionPageTest {
+    private static final int NUM_PAGES = 3;
+    private static final int PAGE_SIZE = 500;
+
+    private final List<byte[]> pages = new ArrayList<>();
+    private @Nullable HttpServer server = null;
+    private String baseUrl = "";
+
+    private static String assignmentPage(final String baseUrl, final int page, final boolean last) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("{\"object\":\"collection\",\"url\":\"").append(baseUrl).append("/v2/assignments\",");
+        sb.append("\"pages\":{\"per_page\":").append(PAGE_SIZE).append(",\"next_url\":");
+        if (last) {
+            sb.append("null");
+        }
+        else {
+            sb.append('"').append(baseUrl).append("/v2/assignments?page=").append(page + 1).append('"');
+        }
+        sb.append(",\"previous_url\":null},\"total_count\":").append(NUM_PAGES * PAGE_SIZE);
+        sb.append(",\"data_updated_at\":\"2023-04-01T12:00:00.000000Z\",\"data\":[");
+        for (int i=0; i<PAGE_SIZE; i++) {
+            final int id = page * PAGE_SIZE + i + 1;
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(String.format(Locale.ROOT, "{\"id\":%d,\"object\":\"assignment\",\"url\":\"%s/v2/assignments/%d\","
+                            + "\"data_updated_at\":\"2023-03-01T10:00:00.000000Z\",\"data\":{\"created_at\":\"2022-01-01T00:00:00.000000Z\","
+                            + "\"subject_id\":%d,\"subject_type\":\"vocabulary\",\"srs_stage\":%d,"
+                            + "\"unlocked_at\":\"2022-01-01T00:00:00.000000Z\",\"started_at\":\"2022-01-02T00:00:00.000000Z\","
+                            + "\"passed_at\":null,\"burned_at\":null,\"available_at\":\"2023-04-02T08:00:00.000000Z\","
+                            + "\"resurrected_at\":null,\"hidden\":false}}",
+                    id, baseUrl, id, 10000 + id, id % 9));
+        }
+        sb.append("]}");
+        return sb.toString();
+    }
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+        for (int i=0; i<NUM_PAGES; i++) {
+            pages.add(assignmentPage(baseUrl, i, i == NUM_PAGES - 1).getBytes(StandardCharsets.UTF_8));
+        }
+        server.createContext("/v2/assignments", exchange -> {
+            final @Nullable String query = exchange.getRequestURI().getQuery();
+            final int page = query == null ? 0 : Integer.parseInt(query.substring("page=".length()));
+            final byte[] body = pages.get(page);
+            exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (final OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    private static long getAllocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    @Test
+    public void testReplayPages() throws IOException {
+        final ObjectMapper mapper = Converters.getObjectMapper();
+        @Nullable String nextUrl = baseUrl + "/v2/assignments";
+        int numPages = 0;
+        long expectedId = 1;
+        while (nextUrl != null) {
+            final HttpURLConnection connection = (HttpURLConnection) new URL(nextUrl).openConnection();
+            final ApiCollectionPage<ApiAssignment> page;
+            try (final InputStream is = connection.getInputStream()) {
+                page = ApiCollectionPage.parse(is, mapper, ApiAssignment.class);
+            }
+            assertTrue(page.hasData());
+            assertEquals(0, page.getNumMalformed());
+            assertEquals(NUM_PAGES * PAGE_SIZE, page.getTotalCount());
+            assertEquals(PAGE_SIZE, page.getEntities().size());
+            for (final ApiAssignment assignment: page.getEntities()) {
+                assertEquals(expectedId, assignment.getId());
+                assertEquals(10000 + expectedId, assignment.getSubjectId());
+                assertEquals(expectedId % 9, assignment.getSrsStageId());
+                assertTrue(assignment.getAvailableAt() > 0);
+                assertEquals(0, assignment.getBurnedAt());
+                expectedId++;
+            }
+            nextUrl = page.getNextUrl();
+            numPages++;
+        }
+        assertEquals(NUM_PAGES, numPages);
+    }
+
+    @Test
+    public void testMalformedElementIsCounted() throws IOException {
+        final String body = "{\"object\":\"collection\",\"pages\":{\"next_url\":null},\"data\":["
+                + "{\"id\":1,\"object\":\"assignment\",\"data_updated_at\":\"2023-03-01T10:00:00.000000Z\",\"data\":{\"subject_id\":5}},"
+                + "{\"id\":2,\"object\":\"assignment\",\"data\":{\"subject_id\":6}}]}";
+        final ApiCollectionPage<ApiAssignment> page = ApiCollectionPage.parse(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), Converters.getObjectMapper(), ApiAssignment.class);
+        assertTrue(page.hasData());
+        assertEquals(1, page.getEntities().size());
+        assertEquals(1, page.getNumMalformed());
+        assertNull(page.getNextUrl());
+    }
+
+    @Test
+    public void testAllocationIsBoundedPerPage() throws IOException {
+        final ObjectMapper mapper = Converters.getObjectMapper();
+        final byte[] body = pages.get(0);
+
+        // Warm up both paths so class loading and deserializer caching don't count
+        for (int i=0; i<5; i++) {
+            ApiCollectionPage.parse(new ByteArrayInputStream(body), mapper, ApiAssignment.class);
+            parseWithTree(mapper, body);
+        }
+
+        final long streamStart = getAllocatedBytes();
+        ApiCollectionPage.parse(new ByteArrayInputStream(body), mapper, ApiAssignment.class);
+        final long streamAllocated = getAllocatedBytes() - streamStart;
+
+        final long treeStart = getAllocatedBytes();
+        parseWithTree(mapper, body);
+        final long treeAllocated = getAllocatedBytes() - treeStart;
+
+        // Timestamp parsing dominates what's left, so the bound is loose but does scale with the page, not the collection
+        assertTrue("streaming parse allocated " + streamAllocated + " bytes for a " + body.length + " byte page",
+                streamAllocated < 32L * body.length);
+        assertTrue("streaming parse allocated " + streamAllocated + " bytes, tree parse " + treeAllocated,
+                streamAllocated * 4 < treeAllocated * 3);
+    }
+
+    /**
+     * The old approach: build a tree, pretty-print it for the log and map each element from the tree.
+     */
+    private static void parseWithTree(final ObjectMapper mapper, final byte[] body) throws IOException {
+        final JsonNode tree = mapper.readTree(new ByteArrayInputStream(body));
+        mapper.writerWithDefaultPrettyPrinter().writeValueAsString(tree);
+        for (final JsonNode element: tree.get("data")) {
+            final ApiAssignment assignment = mapper.readValue(mapper.treeAsTokens(element.get("data")), ApiAssignment.class);
+            assignment.setId(element.get("id").asLong());
+        }
+    }
+}
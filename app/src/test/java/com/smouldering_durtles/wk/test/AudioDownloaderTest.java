@@ -0,0 +1,282 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.smouldering_durtles.wk.util.AudioDownloader;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nullable;
+
+import okhttp3.OkHttpClient;
+
+/**
+ * Test class for the audio downloader, against a local HTTP server that serves generated files with
+ * some latency per request, and that can be told to ignore Range headers or to cut responses short.
+ * The time saved by downloading in parallel is measured by AudioDownloaderBenchmark.
+ */
+@SuppressWarnings("JavaDoc")
+public final class AudioDownloaderTest {
+    private static final int FILE_SIZE = 200 * 1024;
+    private static final int NUM_THREADS = 4;
+    private static final long LATENCY = 20;
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-");
+
+    private @Nullable HttpServer server = null;
+    private @Nullable ExecutorService executor = null;
+    private @Nullable File dir = null;
+    private final List<String> ranges = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger numRequests = new AtomicInteger(0);
+    private final AtomicInteger inFlight = new AtomicInteger(0);
+    private final AtomicInteger maxInFlight = new AtomicInteger(0);
+    private final AtomicLong bytesServed = new AtomicLong(0);
+    private volatile boolean ignoreRange = false;
+    private volatile int cutShortAfter = -1;
+
+    private static byte[] content(final String name) {
+        final byte[] data = new byte[FILE_SIZE];
+        int x = name.hashCode();
+        for (int i=0; i<data.length; i++) {
+            x = x * 1103515245 + 12345;
+            data[i] = (byte) (x >>> 16);
+        }
+        return data;
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        numRequests.incrementAndGet();
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            Thread.sleep(LATENCY);
+            final String name = exchange.getRequestURI().getPath().substring("/audio/".length());
+            final byte[] data = content(name);
+            final @Nullable String range = exchange.getRequestHeaders().getFirst("Range");
+            int offset = 0;
+            int code = 200;
+            if (range != null) {
+                ranges.add(range);
+                final Matcher matcher = RANGE.matcher(range);
+                if (!ignoreRange && matcher.matches()) {
+                    offset = Integer.parseInt(matcher.group(1));
+                    if (offset >= data.length) {
+                        exchange.getResponseHeaders().set("Content-Range", "bytes */" + data.length);
+                        exchange.sendResponseHeaders(416, -1);
+                        return;
+                    }
+                    code = 206;
+                    exchange.getResponseHeaders().set("Content-Range",
+                            "bytes " + offset + "-" + (data.length - 1) + "/" + data.length);
+                }
+            }
+            exchange.getResponseHeaders().set("Content-Type", "audio/mpeg");
+            exchange.sendResponseHeaders(code, data.length - offset);
+            try (final OutputStream os = exchange.getResponseBody()) {
+                final int length = cutShortAfter >= 0 ? Math.min(cutShortAfter, data.length - offset) : data.length - offset;
+                bytesServed.addAndGet(length);
+                os.write(data, offset, length);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/audio/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        executor = Executors.newFixedThreadPool(NUM_THREADS);
+        dir = Files.createTempDirectory("audio").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        if (server != null) {
+            server.stop(0);
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        if (dir != null) {
+            final @Nullable File[] files = dir.listFiles();
+            if (files != null) {
+                for (final File file: files) {
+                    //noinspection ResultOfMethodCallIgnored
+                    file.delete();
+                }
+            }
+            //noinspection ResultOfMethodCallIgnored
+            dir.delete();
+        }
+    }
+
+    private AudioDownloader createDownloader() {
+        assertNotNull(executor);
+        return new AudioDownloader(new OkHttpClient(), executor);
+    }
+
+    private String url(final String name) {
+        assertNotNull(server);
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/audio/" + name;
+    }
+
+    private File file(final String name) {
+        assertNotNull(dir);
+        return new File(dir, name);
+    }
+
+    private static void writePart(final File target, final byte[] data, final int length) throws IOException {
+        try (final OutputStream os = new FileOutputStream(AudioDownloader.getPartFile(target))) {
+            os.write(data, 0, length);
+        }
+    }
+
+    private static void assertComplete(final File target) throws IOException {
+        assertTrue(target.isFile());
+        assertFalse(AudioDownloader.getPartFile(target).exists());
+        assertArrayEquals(content(target.getName()), Files.readAllBytes(target.toPath()));
+    }
+
+    @Test
+    public void testLevelBatch() throws IOException {
+        final AudioDownloader downloader = createDownloader();
+        final List<AudioDownloader.Item> items = new ArrayList<>();
+        for (int i=0; i<20; i++) {
+            items.add(new AudioDownloader.Item(url(i + ".mp3"), file(i + ".mp3")));
+        }
+
+        final AudioDownloader.Result result = downloader.downloadAll(items, () -> true);
+
+        assertEquals(items.size(), result.getNumDownloaded());
+        assertEquals(0, result.getNumFailed());
+        assertEquals(0, result.getNumSkipped());
+        for (final AudioDownloader.Item item: items) {
+            assertComplete(item.getTarget());
+        }
+        assertTrue(maxInFlight.get() > 1);
+        assertTrue(maxInFlight.get() <= NUM_THREADS);
+    }
+
+    @Test
+    public void testResumeWithRange() throws IOException {
+        final File target = file("resume.mp3");
+        writePart(target, content(target.getName()), FILE_SIZE / 3);
+
+        assertTrue(createDownloader().download(url(target.getName()), target));
+
+        assertEquals(Collections.singletonList("bytes=" + FILE_SIZE / 3 + "-"), ranges);
+        assertEquals(FILE_SIZE - FILE_SIZE / 3, bytesServed.get());
+        assertComplete(target);
+    }
+
+    @Test
+    public void testServerIgnoresRange() throws IOException {
+        ignoreRange = true;
+        final File target = file("ignored.mp3");
+        writePart(target, new byte[FILE_SIZE / 2], FILE_SIZE / 2);
+
+        assertTrue(createDownloader().download(url(target.getName()), target));
+
+        assertEquals(1, ranges.size());
+        assertEquals(FILE_SIZE, bytesServed.get());
+        assertComplete(target);
+    }
+
+    @Test
+    public void testInterruptedDownloadResumes() throws IOException {
+        final AudioDownloader downloader = createDownloader();
+        final File target = file("interrupted.mp3");
+
+        cutShortAfter = FILE_SIZE / 4;
+        try {
+            downloader.download(url(target.getName()), target);
+            fail("Expected the short response to fail");
+        } catch (final IOException e) {
+            //
+        }
+        assertFalse(target.exists());
+        assertTrue(AudioDownloader.getPartFile(target).length() > 0);
+
+        cutShortAfter = -1;
+        final long partLength = AudioDownloader.getPartFile(target).length();
+        assertTrue(downloader.download(url(target.getName()), target));
+        assertEquals(Collections.singletonList("bytes=" + partLength + "-"), ranges);
+        assertComplete(target);
+    }
+
+    @Test
+    public void testStalePartIsDiscarded() throws IOException {
+        final AudioDownloader downloader = createDownloader();
+        final File target = file("stale.mp3");
+        writePart(target, new byte[FILE_SIZE + 10], FILE_SIZE + 10);
+
+        assertFalse(downloader.download(url(target.getName()), target));
+        assertFalse(AudioDownloader.getPartFile(target).exists());
+
+        assertTrue(downloader.download(url(target.getName()), target));
+        assertComplete(target);
+    }
+
+    @Test
+    public void testClosedGateSkipsEverything() {
+        final List<AudioDownloader.Item> items = new ArrayList<>();
+        for (int i=0; i<10; i++) {
+            items.add(new AudioDownloader.Item(url(i + ".mp3"), file(i + ".mp3")));
+        }
+
+        final AudioDownloader.Result result = createDownloader().downloadAll(items, () -> false);
+
+        assertEquals(0, result.getNumDownloaded());
+        assertEquals(items.size(), result.getNumSkipped());
+        assertEquals(0, numRequests.get());
+        for (final AudioDownloader.Item item: items) {
+            assertFalse(item.getTarget().exists());
+        }
+    }
+}
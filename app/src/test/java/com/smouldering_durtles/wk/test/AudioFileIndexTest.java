@@ -0,0 +1,194 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.smouldering_durtles.wk.util.AudioFileIndex;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import javax.annotation.Nullable;
+
+/**
+ * Test class for the audio file index, on a temporary directory laid out like an audio directory.
+ */
+@SuppressWarnings("JavaDoc")
+public final class AudioFileIndexTest {
+    private static final int NUM_LEVELS = 10;
+    private static final int FILES_PER_LEVEL = 20;
+
+    private @Nullable File audioDirectory = null;
+
+    private static void deleteRecursively(final File file) {
+        final @Nullable File[] children = file.listFiles();
+        if (children != null) {
+            for (final File child: children) {
+                deleteRecursively(child);
+            }
+        }
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+
+    private File audioFile(final int level, final String name) {
+        assertNotNull(audioDirectory);
+        return new File(new File(audioDirectory, Integer.toString(level)), name);
+    }
+
+    private File createAudioFile(final int level, final String name) throws IOException {
+        final File file = audioFile(level, name);
+        //noinspection ResultOfMethodCallIgnored
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), new byte[] {1, 2, 3});
+        return file;
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        audioDirectory = Files.createTempDirectory("pronunciation-audio").toFile();
+        createAudioFile(1, "100.mp3");
+        createAudioFile(1, "101.ogg");
+        createAudioFile(2, "200.mp3");
+    }
+
+    @After
+    public void tearDown() {
+        if (audioDirectory != null) {
+            deleteRecursively(audioDirectory);
+        }
+    }
+
+    @Test
+    public void testLookups() {
+        assertNotNull(audioDirectory);
+        final AudioFileIndex index = new AudioFileIndex(null);
+        assertTrue(index.exists(audioDirectory, 1, "100.mp3"));
+        assertTrue(index.exists(audioDirectory, 1, "101.ogg"));
+        assertFalse(index.exists(audioDirectory, 1, "101.mp3"));
+        assertFalse(index.exists(audioDirectory, 2, "100.mp3"));
+        assertTrue(index.exists(audioDirectory, 2, "200.mp3"));
+        assertFalse(index.exists(audioDirectory, 3, "300.mp3"));
+        assertFalse(index.exists(new File(audioDirectory, "missing"), 1, "100.mp3"));
+        assertEquals(Collections.emptyList(), index.check());
+    }
+
+    @Test
+    public void testLookupsDontTouchStorage() throws IOException {
+        assertNotNull(audioDirectory);
+        final AudioFileIndex index = new AudioFileIndex(null);
+        assertFalse(index.exists(audioDirectory, 3, "300.mp3"));
+
+        final File file = createAudioFile(3, "300.mp3");
+        assertFalse(index.exists(audioDirectory, 3, "300.mp3"));
+        assertEquals(1, index.check().size());
+
+        index.invalidate();
+        assertTrue(index.exists(audioDirectory, 3, "300.mp3"));
+        assertTrue(file.delete());
+        assertTrue(index.exists(audioDirectory, 3, "300.mp3"));
+    }
+
+    @Test
+    public void testUpdates() throws IOException {
+        assertNotNull(audioDirectory);
+        final AudioFileIndex index = new AudioFileIndex(null);
+        assertFalse(index.exists(audioDirectory, 3, "300.mp3"));
+
+        index.added(createAudioFile(3, "300.mp3"));
+        assertTrue(index.exists(audioDirectory, 3, "300.mp3"));
+
+        final File file = audioFile(1, "100.mp3");
+        assertTrue(file.delete());
+        index.removed(file);
+        assertFalse(index.exists(audioDirectory, 1, "100.mp3"));
+
+        assertEquals(Collections.emptyList(), index.check());
+    }
+
+    @Test
+    public void testVerificationMode() throws IOException {
+        assertNotNull(audioDirectory);
+        final List<String> mismatches = new ArrayList<>();
+        final AudioFileIndex index = new AudioFileIndex((file, indexed) -> mismatches.add(file.getName() + " " + indexed));
+        assertFalse(index.exists(audioDirectory, 3, "300.mp3"));
+
+        createAudioFile(3, "300.mp3");
+        assertTrue(audioFile(1, "100.mp3").delete());
+        assertTrue(index.exists(audioDirectory, 3, "300.mp3"));
+        assertFalse(index.exists(audioDirectory, 1, "100.mp3"));
+        assertEquals(2, mismatches.size());
+        assertEquals("300.mp3 false", mismatches.get(0));
+        assertEquals("100.mp3 true", mismatches.get(1));
+
+        assertTrue(index.exists(audioDirectory, 3, "300.mp3"));
+        assertEquals(2, mismatches.size());
+        assertEquals(Collections.emptyList(), index.check());
+    }
+
+    @Test
+    public void testLevelScan() throws IOException {
+        assertNotNull(audioDirectory);
+        final String[][] mp3Names = new String[NUM_LEVELS + 1][FILES_PER_LEVEL];
+        final String[][] oggNames = new String[NUM_LEVELS + 1][FILES_PER_LEVEL];
+        for (int level=1; level<=NUM_LEVELS; level++) {
+            for (int i=0; i<FILES_PER_LEVEL; i++) {
+                mp3Names[level][i] = String.format(Locale.ROOT, "%d.mp3", level * 1000 + i);
+                oggNames[level][i] = String.format(Locale.ROOT, "%d.ogg", level * 1000 + i);
+                if (i % 4 != 0) {
+                    createAudioFile(level, mp3Names[level][i]);
+                }
+            }
+        }
+
+        int numPresent = 0;
+        for (int level=1; level<=NUM_LEVELS; level++) {
+            final File levelDirectory = new File(audioDirectory, Integer.toString(level));
+            for (int i=0; i<FILES_PER_LEVEL; i++) {
+                if (new File(levelDirectory, mp3Names[level][i]).exists() || new File(levelDirectory, oggNames[level][i]).exists()) {
+                    numPresent++;
+                }
+            }
+        }
+
+        final AudioFileIndex index = new AudioFileIndex(null);
+        int numIndexed = 0;
+        for (int level=1; level<=NUM_LEVELS; level++) {
+            for (int i=0; i<FILES_PER_LEVEL; i++) {
+                if (index.exists(audioDirectory, level, mp3Names[level][i]) || index.exists(audioDirectory, level, oggNames[level][i])) {
+                    numIndexed++;
+                }
+            }
+        }
+
+        assertEquals(numPresent, numIndexed);
+        assertEquals(NUM_LEVELS * FILES_PER_LEVEL * 3 / 4, numIndexed);
+    }
+}
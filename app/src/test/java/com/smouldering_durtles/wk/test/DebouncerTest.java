@@ -0,0 +1,94 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.smouldering_durtles.wk.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.smouldering_durtles.wk.util.Debouncer;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test class to verify that a burst of invalidations results in a single, deduplicated run.
+ */
+@SuppressWarnings("JavaDoc")
+public final class DebouncerTest {
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+    @After
+    public void stopExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testBurstIsCoalesced() throws InterruptedException {
+        final List<List<String>> runs = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch latch = new CountDownLatch(1);
+        final Debouncer<String> debouncer = new Debouncer<>(executor, 100, keys -> {
+            runs.add(new ArrayList<>(keys));
+            latch.countDown();
+        });
+
+        for (int i=0; i<200; i++) {
+            debouncer.submit(Arrays.asList("timeline", "srs"));
+            debouncer.submit(Collections.singletonList(i % 2 == 0 ? "critical" : "srs"));
+        }
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Thread.sleep(200);
+
+        assertEquals(1, runs.size());
+        assertEquals(Arrays.asList("timeline", "srs", "critical"), runs.get(0));
+    }
+
+    @Test
+    public void testLaterSubmissionStartsNewRun() throws InterruptedException {
+        final List<List<String>> runs = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch latch = new CountDownLatch(2);
+        final Debouncer<String> debouncer = new Debouncer<>(executor, 50, keys -> {
+            runs.add(new ArrayList<>(keys));
+            latch.countDown();
+        });
+
+        debouncer.submit(Collections.singletonList("timeline"));
+        Thread.sleep(200);
+        debouncer.submit(Collections.singletonList("timeline"));
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+        assertEquals(2, runs.size());
+    }
+
+    @Test
+    public void testEmptySubmissionDoesNothing() throws InterruptedException {
+        final List<List<String>> runs = Collections.synchronizedList(new ArrayList<>());
+        final Debouncer<String> debouncer = new Debouncer<>(executor, 10, keys -> runs.add(new ArrayList<>(keys)));
+        debouncer.submit(Collections.emptyList());
+        Thread.sleep(100);
+        assertTrue(runs.isEmpty());
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.smouldering_durtles.wk.util.FontCoverage;
+
+import org.junit.Test;
+
+import java.awt.Font;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+
+import javax.annotation.Nullable;
+
+/**
+ * Test class to verify that the cmap-based glyph coverage of the bundled fonts agrees with the
+ * coverage the JDK's own font engine reports, and that the index file format round-trips.
+ */
+@SuppressWarnings("JavaDoc")
+public final class FontCoverageTest {
+    private static final String FONT_DIR = "src/main/res/font";
+
+    private static File locate(final String path) {
+        final File file = new File(path);
+        return file.exists() ? file : new File("app", path);
+    }
+
+    private static File[] getFonts() {
+        final @Nullable File[] files = locate(FONT_DIR).listFiles((dir, name) -> name.endsWith(".ttf") || name.endsWith(".otf"));
+        assertNotNull(files);
+        assertTrue(files.length > 0);
+        return files;
+    }
+
+    private static FontCoverage parse(final File file) throws Exception {
+        try (final InputStream is = new FileInputStream(file)) {
+            final @Nullable FontCoverage coverage = FontCoverage.parse(is);
+            assertNotNull(file.getName(), coverage);
+            return coverage;
+        }
+    }
+
+    @Test
+    public void testCoverageMatchesJdk() throws Exception {
+        for (final File file: getFonts()) {
+            final FontCoverage coverage = parse(file);
+            final Font font = Font.createFont(Font.TRUETYPE_FONT, file);
+            int covered = 0;
+            for (int c=0x20; c<0x10000; c++) {
+                // The JDK reports invisible formatting characters and separators as displayable in any font
+                final int type = Character.getType(c);
+                if (Character.isSurrogate((char) c) || type == Character.FORMAT
+                        || type == Character.LINE_SEPARATOR || type == Character.PARAGRAPH_SEPARATOR) {
+                    continue;
+                }
+                assertEquals(file.getName() + " U+" + Integer.toHexString(c), font.canDisplay(c), coverage.contains(c));
+                if (coverage.contains(c)) {
+                    covered++;
+                }
+            }
+            assertTrue(coverage.contains('あ'));
+            assertTrue(covered > 1000);
+        }
+    }
+
+    @Test
+    public void testIndexRoundTrip() throws Exception {
+        final FontCoverage coverage = parse(getFonts()[0]);
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        coverage.write(os);
+        final @Nullable FontCoverage copy = FontCoverage.read(new ByteArrayInputStream(os.toByteArray()));
+        assertNotNull(copy);
+        assertEquals(coverage.getNumRanges(), copy.getNumRanges());
+        for (int c=0; c<0x30000; c++) {
+            assertEquals(coverage.contains(c), copy.contains(c));
+        }
+
+        final byte[] future = os.toByteArray();
+        future[7]++;
+        assertNull(FontCoverage.read(new ByteArrayInputStream(future)));
+    }
+
+    @Test
+    public void testCodePointsOutsideTheFont() throws Exception {
+        final FontCoverage coverage = parse(getFonts()[0]);
+        assertFalse(coverage.contains(0xFFFF));
+        assertFalse(coverage.contains(-1));
+        assertFalse(coverage.contains(0x110000));
+    }
+}
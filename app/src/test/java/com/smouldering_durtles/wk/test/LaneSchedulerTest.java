@@ -0,0 +1,329 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.smouldering_durtles.wk.enums.TaskLane;
+import com.smouldering_durtles.wk.util.LaneScheduler;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+/**
+ * Test class for the lane scheduler, on an in-memory queue of tasks that just sleep.
+ */
+@SuppressWarnings("JavaDoc")
+public final class LaneSchedulerTest {
+    private static final long START = System.nanoTime();
+
+    private static long now() {
+        return (System.nanoTime() - START) / 1_000_000L;
+    }
+
+    /**
+     * A fake task that takes some time and removes itself from the queue when done. If it has a
+     * gate, it also waits for the gate to open.
+     */
+    private static final class FakeTask implements LaneScheduler.Task {
+        private final FakeQueue queue;
+        private final String name;
+        private final long id;
+        private final TaskLane lane;
+        private final int priority;
+        private final long duration;
+        private final boolean concurrent;
+        private volatile boolean runnable = true;
+        private volatile @Nullable CountDownLatch gate = null;
+        private volatile long started = -1;
+        private volatile long finished = -1;
+
+        private FakeTask(final FakeQueue queue, final String name, final TaskLane lane, final int priority,
+                         final long duration, final boolean concurrent) {
+            this.queue = queue;
+            this.name = name;
+            id = queue.nextId.incrementAndGet();
+            this.lane = lane;
+            this.priority = priority;
+            this.duration = duration;
+            this.concurrent = concurrent;
+        }
+
+        @Override
+        public boolean canRun() {
+            return runnable;
+        }
+
+        @Override
+        public boolean canRunConcurrently() {
+            return concurrent;
+        }
+
+        @Override
+        public void run() {
+            started = now();
+            queue.started(this);
+            try {
+                final @Nullable CountDownLatch g = gate;
+                if (g != null) {
+                    g.await();
+                }
+                Thread.sleep(duration);
+            } catch (final InterruptedException e) {
+                //
+            }
+            queue.finished(this);
+            finished = now();
+        }
+    }
+
+    /**
+     * The in-memory queue.
+     */
+    private static final class FakeQueue implements LaneScheduler.Queue {
+        private final AtomicLong nextId = new AtomicLong(0);
+        private final List<FakeTask> tasks = new ArrayList<>();
+        private final List<String> runOrder = new ArrayList<>();
+        private final List<Exception> errors = new ArrayList<>();
+        private final AtomicInteger running = new AtomicInteger(0);
+        private final AtomicInteger maxRunning = new AtomicInteger(0);
+        private volatile boolean exclusiveOverlap = false;
+
+        private FakeTask add(final String name, final TaskLane lane, final int priority, final long duration, final boolean concurrent) {
+            final FakeTask task = new FakeTask(this, name, lane, priority, duration, concurrent);
+            synchronized (this) {
+                tasks.add(task);
+            }
+            return task;
+        }
+
+        private synchronized void started(final FakeTask task) {
+            runOrder.add(task.name);
+            final int n = running.incrementAndGet();
+            maxRunning.set(Math.max(maxRunning.get(), n));
+            if (!task.concurrent && n > 1) {
+                exclusiveOverlap = true;
+            }
+        }
+
+        private synchronized void finished(final FakeTask task) {
+            running.decrementAndGet();
+            tasks.remove(task);
+        }
+
+        private synchronized List<Long> getIds(final TaskLane lane, final int maxCount, final Comparator<FakeTask> order) {
+            final List<FakeTask> candidates = new ArrayList<>();
+            for (final FakeTask task: tasks) {
+                if (task.lane == lane) {
+                    candidates.add(task);
+                }
+            }
+            Collections.sort(candidates, order);
+            final List<Long> result = new ArrayList<>();
+            for (int i=0; i<candidates.size() && i<maxCount; i++) {
+                result.add(candidates.get(i).id);
+            }
+            return result;
+        }
+
+        @Override
+        public List<Long> getNextIds(final TaskLane lane, final int maxCount) {
+            return getIds(lane, maxCount, (o1, o2) -> o1.priority != o2.priority
+                    ? Integer.compare(o1.priority, o2.priority) : Long.compare(o1.id, o2.id));
+        }
+
+        @Override
+        public List<Long> getOldestIds(final TaskLane lane, final int maxCount) {
+            return getIds(lane, maxCount, (o1, o2) -> Long.compare(o1.id, o2.id));
+        }
+
+        @Override
+        public synchronized @Nullable LaneScheduler.Task load(final long id) {
+            for (final FakeTask task: tasks) {
+                if (task.id == id) {
+                    return task;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public synchronized void onError(final Exception e) {
+            errors.add(e);
+        }
+    }
+
+    private static void awaitStarted(final FakeTask task) throws InterruptedException {
+        while (task.started < 0) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static void awaitFinished(final FakeTask task) throws InterruptedException {
+        while (task.finished < 0) {
+            Thread.sleep(1);
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void testReportIsNotHeldUpByBulkBacklog() throws InterruptedException {
+        final FakeQueue queue = new FakeQueue();
+        final LaneScheduler scheduler = new LaneScheduler(queue, 8);
+        final FakeTask scan = queue.add("audio scan", TaskLane.BULK, 1, 0, false);
+        final CountDownLatch gate = new CountDownLatch(1);
+        scan.gate = gate;
+        for (int i=0; i<10; i++) {
+            queue.add("pitch info", TaskLane.BULK, 101, 1, true);
+        }
+        scheduler.schedule();
+        awaitStarted(scan);
+
+        final FakeTask report = queue.add("report", TaskLane.INTERACTIVE, 15, 1, false);
+        scheduler.schedule();
+        awaitFinished(report);
+        assertEquals(-1, scan.finished);
+
+        gate.countDown();
+        scheduler.awaitIdle();
+        synchronized (queue) {
+            assertTrue(queue.tasks.isEmpty());
+            assertTrue(queue.errors.isEmpty());
+        }
+    }
+
+    @Test
+    public void testBlockedTaskOnlyHoldsUpItsLane() throws InterruptedException {
+        final FakeQueue queue = new FakeQueue();
+        final LaneScheduler scheduler = new LaneScheduler(queue, 8);
+        final FakeTask pitchInfo = queue.add("pitch info", TaskLane.BULK, 101, 10, true);
+        pitchInfo.runnable = false;
+        final FakeTask report = queue.add("report", TaskLane.INTERACTIVE, 15, 10, false);
+        final FakeTask collection = queue.add("collection", TaskLane.SYNC, 20, 10, false);
+        scheduler.schedule();
+        scheduler.awaitIdle();
+
+        assertTrue(report.finished >= 0);
+        assertTrue(collection.finished >= 0);
+        assertEquals(-1, pitchInfo.started);
+        assertFalse(scheduler.isBusy(TaskLane.BULK));
+
+        pitchInfo.runnable = true;
+        scheduler.schedule(TaskLane.BULK);
+        scheduler.awaitIdle();
+        assertTrue(pitchInfo.finished >= 0);
+    }
+
+    @Test
+    public void testOldestTaskIsNotStarved() throws InterruptedException {
+        final FakeQueue queue = new FakeQueue();
+        final LaneScheduler scheduler = new LaneScheduler(queue, 3);
+        queue.add("old", TaskLane.BULK, 50, 1, false);
+        for (int i=0; i<10; i++) {
+            queue.add("new", TaskLane.BULK, 10, 1, false);
+        }
+        scheduler.schedule();
+        scheduler.awaitIdle();
+
+        assertEquals(11, queue.runOrder.size());
+        assertEquals("old", queue.runOrder.get(3));
+    }
+
+    @Test
+    public void testSyncRunsInPriorityOrder() throws InterruptedException {
+        final FakeQueue queue = new FakeQueue();
+        final LaneScheduler scheduler = new LaneScheduler(queue, 3);
+        queue.add("old", TaskLane.SYNC, 50, 1, false);
+        for (int i=0; i<10; i++) {
+            queue.add("new", TaskLane.SYNC, 10, 1, false);
+        }
+        scheduler.schedule();
+        scheduler.awaitIdle();
+
+        assertEquals(11, queue.runOrder.size());
+        assertEquals("old", queue.runOrder.get(10));
+    }
+
+    @Test
+    public void testBulkConcurrencyLimit() throws InterruptedException {
+        final FakeQueue queue = new FakeQueue();
+        final LaneScheduler scheduler = new LaneScheduler(queue, 8);
+        for (int i=0; i<10; i++) {
+            queue.add("pitch info", TaskLane.BULK, 101, 30, true);
+        }
+        queue.add("audio scan", TaskLane.BULK, 1, 30, false);
+        for (int i=0; i<10; i++) {
+            queue.add("pitch info", TaskLane.BULK, 101, 30, true);
+        }
+        scheduler.schedule();
+        scheduler.awaitIdle();
+
+        assertEquals(21, queue.runOrder.size());
+        assertEquals("audio scan", queue.runOrder.get(0));
+        assertEquals(TaskLane.BULK.getMaxConcurrency(), queue.maxRunning.get());
+        assertFalse(queue.exclusiveOverlap);
+    }
+
+    @Test
+    public void testSyncWaitsForRunningReport() throws InterruptedException {
+        final FakeQueue queue = new FakeQueue();
+        final LaneScheduler scheduler = new LaneScheduler(queue, 8);
+        final FakeTask report = queue.add("report", TaskLane.INTERACTIVE, 15, 0, false);
+        final CountDownLatch gate = new CountDownLatch(1);
+        report.gate = gate;
+        scheduler.schedule(TaskLane.INTERACTIVE);
+        awaitStarted(report);
+
+        final FakeTask collection = queue.add("collection", TaskLane.SYNC, 20, 10, false);
+        scheduler.schedule(TaskLane.SYNC);
+        Thread.sleep(50);
+        assertEquals(-1, collection.started);
+
+        gate.countDown();
+        scheduler.awaitIdle();
+        assertTrue(collection.started >= report.finished);
+    }
+
+    @Test
+    public void testSyncWaitsForPendingReport() throws InterruptedException {
+        final FakeQueue queue = new FakeQueue();
+        final LaneScheduler scheduler = new LaneScheduler(queue, 8);
+        final FakeTask report = queue.add("report", TaskLane.INTERACTIVE, 15, 10, false);
+        report.runnable = false;
+        final FakeTask collection = queue.add("collection", TaskLane.SYNC, 20, 10, false);
+        scheduler.schedule();
+        scheduler.awaitIdle();
+        assertEquals(-1, report.started);
+        assertEquals(-1, collection.started);
+
+        report.runnable = true;
+        scheduler.schedule(TaskLane.INTERACTIVE);
+        scheduler.awaitIdle();
+        assertTrue(report.finished >= 0);
+        assertTrue(collection.started >= report.finished);
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.smouldering_durtles.wk.db.model.LogRecord;
+import com.smouldering_durtles.wk.util.LogPipeline;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test class for LogPipeline. The database is simulated by a sink with a fixed cost per
+ * transaction and per row, so batching actually matters. LogPipelineBenchmark in the benchmark
+ * module has the timings.
+ */
+@SuppressWarnings("JavaDoc")
+public final class LogPipelineTest {
+    private static final long TRANSACTION_COST_NANOS = 50_000;
+    private static final long ROW_COST_NANOS = 2_000;
+
+    /**
+     * A sink that records what it gets, and simulates the cost of a database transaction.
+     */
+    private static final class SimulatedDbSink implements LogPipeline.Sink {
+        private final List<LogRecord> records = Collections.synchronizedList(new ArrayList<>());
+        private int numTransactions = 0;
+        private int numMaintenance = 0;
+
+        private static void spin(final long nanos) {
+            final long end = System.nanoTime() + nanos;
+            //noinspection StatementWithEmptyBody
+            while (System.nanoTime() < end) {
+                //
+            }
+        }
+
+        @Override
+        public void write(final List<LogRecord> batch) {
+            spin(TRANSACTION_COST_NANOS + ROW_COST_NANOS * batch.size());
+            records.addAll(batch);
+            numTransactions++;
+        }
+
+        @Override
+        public void maintain() {
+            numMaintenance++;
+        }
+    }
+
+    @Test
+    public void testOrderAndLazyFormatting() throws InterruptedException {
+        final SimulatedDbSink sink = new SimulatedDbSink();
+        final LogPipeline pipeline = new LogPipeline(sink, 1024);
+        pipeline.start();
+        for (int i=0; i<500; i++) {
+            pipeline.log(i, "Tag", 10, "Message %d of %s", new Object[] {i, "a long tail that gets truncated"});
+        }
+        pipeline.logStackTrace(500, "Tag", 20_000, new IllegalStateException("boom"));
+        pipeline.log(501, "Tag", 100, "100% literal", null);
+        assertTrue(pipeline.flush(10_000));
+        pipeline.stop();
+
+        assertEquals(502, sink.records.size());
+        for (int i=0; i<500; i++) {
+            final LogRecord record = sink.records.get(i);
+            assertEquals(i, record.timestamp);
+            assertEquals(String.format(Locale.ROOT, "Message %d of a long tail", i).substring(0, 10), record.message);
+            assertEquals(10, record.length);
+        }
+        assertTrue(sink.records.get(500).message.startsWith("java.lang.IllegalStateException: boom"));
+        assertEquals("100% literal", sink.records.get(501).message);
+        assertTrue(sink.numTransactions < 502);
+    }
+
+    @Test
+    public void testArgumentsAreSnapshotted() throws InterruptedException {
+        final SimulatedDbSink sink = new SimulatedDbSink();
+        final LogPipeline pipeline = new LogPipeline(sink, 64);
+        // Not started yet, so nothing is formatted before the arguments change
+        final StringBuilder text = new StringBuilder("before");
+        final AtomicInteger counter = new AtomicInteger(1);
+        final List<String> list = new ArrayList<>(Collections.singletonList("a"));
+        pipeline.log(0, "Tag", 100, "%s %d %s %s", new Object[] {text, counter, list, null});
+        text.setLength(0);
+        text.append("after");
+        counter.set(2);
+        list.add("b");
+        pipeline.start();
+        assertTrue(pipeline.flush(10_000));
+        pipeline.stop();
+        assertEquals("before 1 [a] null", sink.records.get(0).message);
+    }
+
+    @Test
+    public void testFullBufferDropsWithoutBlocking() throws InterruptedException {
+        final SimulatedDbSink sink = new SimulatedDbSink();
+        final LogPipeline pipeline = new LogPipeline(sink, 16);
+        // Not started, so nothing drains the buffer
+        for (int i=0; i<100; i++) {
+            pipeline.log(i, "Tag", 100, "x", null);
+        }
+        assertEquals(84, pipeline.getNumDropped());
+        pipeline.requestMaintenance();
+        pipeline.start();
+        assertTrue(pipeline.flush(10_000));
+        pipeline.stop();
+        assertEquals(16, sink.records.size());
+        assertEquals(1, sink.numMaintenance);
+    }
+
+    @Test
+    public void testConcurrentProducers() throws InterruptedException {
+        final SimulatedDbSink sink = new SimulatedDbSink();
+        final LogPipeline pipeline = new LogPipeline(sink, 1 << 16);
+        pipeline.start();
+        final int numThreads = 4;
+        final CountDownLatch done = new CountDownLatch(numThreads);
+        for (int t=0; t<numThreads; t++) {
+            final int thread = t;
+            new Thread(() -> {
+                for (int i=0; i<5000; i++) {
+                    pipeline.log(i, "T" + thread, 100, "%d", new Object[] {i});
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        assertTrue(pipeline.flush(30_000));
+        pipeline.stop();
+        assertEquals(numThreads * 5000, sink.records.size() + pipeline.getNumDropped());
+        // Per producer, order is preserved
+        final int[] next = new int[numThreads];
+        for (final LogRecord record: sink.records) {
+            final int thread = Integer.parseInt(record.tag.substring(1));
+            assertTrue(Integer.parseInt(record.message) >= next[thread]);
+            next[thread] = Integer.parseInt(record.message) + 1;
+        }
+    }
+}
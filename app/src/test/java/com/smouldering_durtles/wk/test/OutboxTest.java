@@ -0,0 +1,136 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.smouldering_durtles.wk.util.Outbox;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Test class to verify that Outbox sends reports in queue order, commits them in chunks, and
+ * stops at the first report that fails.
+ */
+@SuppressWarnings("JavaDoc")
+public final class OutboxTest {
+    /**
+     * An in-memory queue that records what is sent and committed.
+     */
+    private static final class FakeQueue implements Outbox.Queue<String> {
+        private final List<String> pending = new ArrayList<>();
+        private final Set<String> failing = new HashSet<>();
+        private final List<String> sent = new ArrayList<>();
+        private final List<List<String>> commits = new ArrayList<>();
+        private int numChunksAllowed = Integer.MAX_VALUE;
+
+        private FakeQueue(final String... reports) {
+            pending.addAll(Arrays.asList(reports));
+        }
+
+        @Override
+        public List<String> getPending(final int maxCount) {
+            return new ArrayList<>(pending.subList(0, Math.min(maxCount, pending.size())));
+        }
+
+        @Override
+        public boolean send(final String report) {
+            sent.add(report);
+            return !failing.contains(report);
+        }
+
+        @Override
+        public void commit(final List<String> reports) {
+            commits.add(new ArrayList<>(reports));
+            pending.removeAll(reports);
+        }
+
+        @Override
+        public boolean canContinue() {
+            numChunksAllowed--;
+            return numChunksAllowed > 0;
+        }
+    }
+
+    @Test
+    public void testChunkedCommits() {
+        final FakeQueue queue = new FakeQueue("a", "b", "c", "d", "e", "f", "g");
+        assertTrue(new Outbox<>(queue, 3).drain());
+        assertEquals(Arrays.asList("a", "b", "c", "d", "e", "f", "g"), queue.sent);
+        assertEquals(Arrays.asList(
+                Arrays.asList("a", "b", "c"),
+                Arrays.asList("d", "e", "f"),
+                Collections.singletonList("g")), queue.commits);
+        assertTrue(queue.pending.isEmpty());
+    }
+
+    @Test
+    public void testStopAtFirstFailure() {
+        final FakeQueue queue = new FakeQueue("a", "b", "c", "d", "e");
+        queue.failing.add("c");
+        assertFalse(new Outbox<>(queue, 10).drain());
+        assertEquals(Arrays.asList("a", "b", "c"), queue.sent);
+        assertEquals(Collections.singletonList(Arrays.asList("a", "b")), queue.commits);
+        assertEquals(Arrays.asList("c", "d", "e"), queue.pending);
+
+        // The failed report goes first on the next drain, and nothing overtook it
+        queue.failing.clear();
+        queue.sent.clear();
+        queue.commits.clear();
+        assertTrue(new Outbox<>(queue, 10).drain());
+        assertEquals(Arrays.asList("c", "d", "e"), queue.sent);
+        assertEquals(Collections.singletonList(Arrays.asList("c", "d", "e")), queue.commits);
+        assertTrue(queue.pending.isEmpty());
+    }
+
+    @Test
+    public void testFailureAtStartOfChunk() {
+        final FakeQueue queue = new FakeQueue("a", "b", "c", "d");
+        queue.failing.add("c");
+        assertFalse(new Outbox<>(queue, 2).drain());
+        assertEquals(Arrays.asList("a", "b", "c"), queue.sent);
+        assertEquals(Collections.singletonList(Arrays.asList("a", "b")), queue.commits);
+        assertEquals(Arrays.asList("c", "d"), queue.pending);
+    }
+
+    @Test
+    public void testStopWhenQueueSaysSo() {
+        final FakeQueue queue = new FakeQueue("a", "b", "c", "d", "e");
+        queue.numChunksAllowed = 2;
+        assertFalse(new Outbox<>(queue, 2).drain());
+        assertEquals(Arrays.asList("a", "b", "c", "d"), queue.sent);
+        assertEquals(Arrays.asList(Arrays.asList("a", "b"), Arrays.asList("c", "d")), queue.commits);
+        assertEquals(Collections.singletonList("e"), queue.pending);
+    }
+
+    @Test
+    public void testEmptyQueue() {
+        final FakeQueue queue = new FakeQueue();
+        assertTrue(new Outbox<>(queue, 10).drain());
+        assertTrue(queue.sent.isEmpty());
+        assertTrue(queue.commits.isEmpty());
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smouldering_durtles.wk.api.model.AuxiliaryMeaning;
+import com.smouldering_durtles.wk.api.model.ContextSentence;
+import com.smouldering_durtles.wk.api.model.Meaning;
+import com.smouldering_durtles.wk.api.model.PronunciationAudio;
+import com.smouldering_durtles.wk.api.model.PronunciationAudioMeta;
+import com.smouldering_durtles.wk.api.model.Reading;
+import com.smouldering_durtles.wk.db.Converters;
+import com.smouldering_durtles.wk.db.PackedSubjectLists;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Test class to verify that the packed subject lists decode to the same values as the JSON columns they
+ * replace. The decoding cost of both is compared by PackedSubjectListsBenchmark.
+ */
+@SuppressWarnings("JavaDoc")
+public final class PackedSubjectListsTest {
+    private static final int NUM_SUBJECTS = 200;
+
+    /**
+     * The lists of one subject, as they come from the API.
+     */
+    private static final class Lists {
+        private final List<Meaning> meanings = new ArrayList<>();
+        private final List<AuxiliaryMeaning> auxiliaryMeanings = new ArrayList<>();
+        private final List<Reading> readings = new ArrayList<>();
+        private final List<Long> componentSubjectIds = new ArrayList<>();
+        private final List<Long> amalgamationSubjectIds = new ArrayList<>();
+        private final List<Long> visuallySimilarSubjectIds = new ArrayList<>();
+        private final List<String> partsOfSpeech = new ArrayList<>();
+        private final List<ContextSentence> contextSentences = new ArrayList<>();
+        private final List<PronunciationAudio> pronunciationAudios = new ArrayList<>();
+
+        private byte[] pack() {
+            return new PackedSubjectLists.Writer()
+                    .meanings(meanings)
+                    .auxiliaryMeanings(auxiliaryMeanings)
+                    .readings(readings)
+                    .componentSubjectIds(componentSubjectIds)
+                    .amalgamationSubjectIds(amalgamationSubjectIds)
+                    .visuallySimilarSubjectIds(visuallySimilarSubjectIds)
+                    .partsOfSpeech(partsOfSpeech)
+                    .contextSentences(contextSentences)
+                    .pronunciationAudios(pronunciationAudios)
+                    .toByteArray();
+        }
+
+        private String[] toJson(final ObjectMapper mapper) throws Exception {
+            return new String[] {
+                    mapper.writeValueAsString(meanings),
+                    mapper.writeValueAsString(auxiliaryMeanings),
+                    mapper.writeValueAsString(readings),
+                    mapper.writeValueAsString(componentSubjectIds),
+                    mapper.writeValueAsString(amalgamationSubjectIds),
+                    mapper.writeValueAsString(visuallySimilarSubjectIds),
+                    mapper.writeValueAsString(partsOfSpeech),
+                    mapper.writeValueAsString(contextSentences),
+                    mapper.writeValueAsString(pronunciationAudios)
+            };
+        }
+    }
+
+    private static Lists createSubject(final int n) {
+        final Lists lists = new Lists();
+        for (int i=0; i<3; i++) {
+            final Meaning meaning = new Meaning();
+            meaning.setMeaning("meaning " + n + " variant " + i);
+            meaning.setPrimary(i == 0);
+            meaning.setAcceptedAnswer(i != 2);
+            lists.meanings.add(meaning);
+        }
+        final AuxiliaryMeaning auxiliaryMeaning = new AuxiliaryMeaning();
+        auxiliaryMeaning.setMeaning("not " + n);
+        auxiliaryMeaning.setType(n % 2 == 0 ? "whitelist" : "blacklist");
+        lists.auxiliaryMeanings.add(auxiliaryMeaning);
+        for (int i=0; i<2; i++) {
+            final Reading reading = new Reading();
+            reading.setReading("よみ" + n + "の" + i);
+            reading.setPrimary(i == 0);
+            reading.setAcceptedAnswer(true);
+            reading.setType(i == 0 ? "onyomi" : null);
+            lists.readings.add(reading);
+        }
+        lists.componentSubjectIds.add(440L + n % 50);
+        lists.componentSubjectIds.add(8761L + n);
+        lists.componentSubjectIds.add(12L);
+        for (int i=0; i<6; i++) {
+            lists.amalgamationSubjectIds.add(2467L + n * 7L + i * 13L);
+        }
+        lists.visuallySimilarSubjectIds.add(1000L + n);
+        lists.partsOfSpeech.add("noun");
+        lists.partsOfSpeech.add("する verb");
+        for (int i=0; i<3; i++) {
+            final ContextSentence sentence = new ContextSentence();
+            sentence.setEnglish("This is example sentence number " + i + " for subject " + n + ".");
+            sentence.setJapanese("これは" + n + "の例文" + i + "です。");
+            lists.contextSentences.add(sentence);
+        }
+        for (int i=0; i<4; i++) {
+            final PronunciationAudio audio = new PronunciationAudio();
+            audio.setUrl("https://files.wanikani.com/" + n + "-" + i + "-audio.mp3");
+            audio.setContentType(i % 2 == 0 ? "audio/mpeg" : "audio/ogg");
+            final PronunciationAudioMeta metadata = new PronunciationAudioMeta();
+            metadata.setGender(i < 2 ? "female" : "male");
+            metadata.setPronunciation("よみ" + n);
+            metadata.setSourceId(20000L + n);
+            metadata.setVoiceActorId(1 + i / 2);
+            metadata.setVoiceActorName(i < 2 ? "Kyoko" : "Kenichi");
+            metadata.setVoiceDescription("Tokyo accent");
+            audio.setMetadata(metadata);
+            lists.pronunciationAudios.add(audio);
+        }
+        return lists;
+    }
+
+    private static long[] toArray(final List<Long> ids) {
+        final long[] result = new long[ids.size()];
+        for (int i=0; i<result.length; i++) {
+            result[i] = ids.get(i);
+        }
+        return result;
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        final ObjectMapper mapper = Converters.getObjectMapper();
+        for (int n=0; n<50; n++) {
+            final Lists lists = createSubject(n);
+            final byte[] packed = lists.pack();
+            final String[] json = lists.toJson(mapper);
+            assertEquals(json[0], mapper.writeValueAsString(PackedSubjectLists.getMeanings(packed)));
+            assertEquals(json[1], mapper.writeValueAsString(PackedSubjectLists.getAuxiliaryMeanings(packed)));
+            assertEquals(json[2], mapper.writeValueAsString(PackedSubjectLists.getReadings(packed)));
+            assertArrayEquals(toArray(lists.componentSubjectIds), PackedSubjectLists.getComponentSubjectIds(packed));
+            assertArrayEquals(toArray(lists.amalgamationSubjectIds), PackedSubjectLists.getAmalgamationSubjectIds(packed));
+            assertArrayEquals(toArray(lists.visuallySimilarSubjectIds), PackedSubjectLists.getVisuallySimilarSubjectIds(packed));
+            assertEquals(json[6], mapper.writeValueAsString(PackedSubjectLists.getPartsOfSpeech(packed)));
+            assertEquals(json[7], mapper.writeValueAsString(PackedSubjectLists.getContextSentences(packed)));
+            assertEquals(json[8], mapper.writeValueAsString(PackedSubjectLists.getPronunciationAudios(packed)));
+        }
+    }
+
+    @Test
+    public void testEdgeCases() {
+        final byte[] empty = new PackedSubjectLists.Writer().toByteArray();
+        assertEquals(Collections.emptyList(), PackedSubjectLists.getMeanings(empty));
+        assertEquals(0, PackedSubjectLists.getComponentSubjectIds(empty).length);
+        assertEquals(Collections.emptyList(), PackedSubjectLists.getPronunciationAudios(empty));
+
+        final byte[] packed = new PackedSubjectLists.Writer()
+                .componentSubjectIds(Arrays.asList(5L, 3L, 5L, Long.MAX_VALUE, 3L, -1L))
+                .partsOfSpeech(Collections.singletonList("名詞"))
+                .toByteArray();
+        assertArrayEquals(new long[] {5L, 3L, Long.MAX_VALUE, -1L}, PackedSubjectLists.getComponentSubjectIds(packed));
+        assertEquals(Collections.singletonList("名詞"), PackedSubjectLists.getPartsOfSpeech(packed));
+        assertEquals(Arrays.asList(5L, 3L, Long.MAX_VALUE, -1L),
+                PackedSubjectLists.asList(PackedSubjectLists.getComponentSubjectIds(packed)));
+
+        assertNull(PackedSubjectLists.getMeanings(null));
+        assertNull(PackedSubjectLists.getMeanings(new byte[0]));
+        final byte[] future = packed.clone();
+        future[0] = (byte) (PackedSubjectLists.VERSION + 1);
+        assertNull(PackedSubjectLists.getMeanings(future));
+        assertNull(PackedSubjectLists.getComponentSubjectIds(future));
+    }
+
+    @Test
+    public void testPackedIsSmallerThanJson() throws Exception {
+        final ObjectMapper mapper = Converters.getObjectMapper();
+        long packedSize = 0;
+        long jsonSize = 0;
+        for (int n=0; n<NUM_SUBJECTS; n++) {
+            final Lists lists = createSubject(n);
+            final byte[] packed = lists.pack();
+            packedSize += packed.length;
+            for (final String s: lists.toJson(mapper)) {
+                jsonSize += s.getBytes("UTF-8").length;
+            }
+            assertTrue(listSize(PackedSubjectLists.getMeanings(packed)) > 0);
+            assertTrue(arraySize(PackedSubjectLists.getAmalgamationSubjectIds(packed)) > 0);
+            assertTrue(listSize(PackedSubjectLists.getPronunciationAudios(packed)) > 0);
+        }
+        assertTrue(packedSize < jsonSize);
+    }
+
+    private static int listSize(final List<?> list) {
+        assertNotNull(list);
+        return list.size();
+    }
+
+    private static int arraySize(final long[] array) {
+        assertNotNull(array);
+        return array.length;
+    }
+}
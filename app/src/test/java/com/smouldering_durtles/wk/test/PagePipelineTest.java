@@ -0,0 +1,173 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smouldering_durtles.wk.api.ApiCollectionPage;
+import com.smouldering_durtles.wk.api.PagePipeline;
+import com.smouldering_durtles.wk.api.model.ApiAssignment;
+import com.smouldering_durtles.wk.db.Converters;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.Nullable;
+
+/**
+ * Test class to verify that pipelined page fetches hand out the same pages in the same order as
+ * sequential fetches. The time saved by the overlap is measured by PagePipelineBenchmark.
+ */
+@SuppressWarnings("JavaDoc")
+public final class PagePipelineTest {
+    private static final int NUM_PAGES = 6;
+    private static final int PAGE_SIZE = 500;
+
+    private final List<byte[]> pages = new ArrayList<>();
+    private @Nullable HttpServer server = null;
+    private @Nullable ExecutorService executor = null;
+    private String baseUrl = "";
+
+    private static String assignmentPage(final String baseUrl, final int page, final boolean last) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("{\"object\":\"collection\",\"url\":\"").append(baseUrl).append("/v2/assignments\",");
+        sb.append("\"pages\":{\"per_page\":").append(PAGE_SIZE).append(",\"next_url\":");
+        if (last) {
+            sb.append("null");
+        }
+        else {
+            sb.append('"').append(baseUrl).append("/v2/assignments?page=").append(page + 1).append('"');
+        }
+        sb.append(",\"previous_url\":null},\"total_count\":").append(NUM_PAGES * PAGE_SIZE);
+        sb.append(",\"data_updated_at\":\"2023-04-01T12:00:00.000000Z\",\"data\":[");
+        for (int i=0; i<PAGE_SIZE; i++) {
+            final int id = page * PAGE_SIZE + i + 1;
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(String.format(Locale.ROOT, "{\"id\":%d,\"object\":\"assignment\","
+                            + "\"data_updated_at\":\"2023-03-01T10:00:00.000000Z\",\"data\":{"
+                            + "\"subject_id\":%d,\"subject_type\":\"vocabulary\",\"srs_stage\":%d,"
+                            + "\"available_at\":\"2023-04-02T08:00:00.000000Z\",\"hidden\":false}}",
+                    id, 10000 + id, id % 9));
+        }
+        sb.append("]}");
+        return sb.toString();
+    }
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newFixedThreadPool(2));
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+        for (int i=0; i<NUM_PAGES; i++) {
+            pages.add(assignmentPage(baseUrl, i, i == NUM_PAGES - 1).getBytes(StandardCharsets.UTF_8));
+        }
+        server.createContext("/v2/assignments", exchange -> {
+            final @Nullable String query = exchange.getRequestURI().getQuery();
+            final int page = query == null ? 0 : Integer.parseInt(query.substring("page=".length()));
+            final byte[] body = pages.get(page);
+            exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (final OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.start();
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void stopServer() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    private static ApiCollectionPage<ApiAssignment> fetch(final String url) throws IOException {
+        final ObjectMapper mapper = Converters.getObjectMapper();
+        final HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try (final InputStream is = connection.getInputStream()) {
+            return ApiCollectionPage.parse(is, mapper, ApiAssignment.class);
+        }
+    }
+
+    private static void process(final ApiCollectionPage<ApiAssignment> page, final List<Long> ids) {
+        for (final ApiAssignment assignment: page.getEntities()) {
+            ids.add(assignment.getId());
+        }
+    }
+
+    @Test
+    public void testPipelinedSyncMatchesSequential() throws Exception {
+        final List<Long> sequentialIds = new ArrayList<>();
+        @Nullable String nextUrl = baseUrl + "/v2/assignments";
+        while (nextUrl != null) {
+            final ApiCollectionPage<ApiAssignment> page = fetch(nextUrl);
+            process(page, sequentialIds);
+            nextUrl = page.getNextUrl();
+        }
+
+        final List<Long> pipelinedIds = new ArrayList<>();
+        int numPages = 0;
+        try (final PagePipeline<ApiAssignment> pipeline = new PagePipeline<>(executor, PagePipelineTest::fetch, baseUrl + "/v2/assignments")) {
+            while (pipeline.hasNext()) {
+                final @Nullable ApiCollectionPage<ApiAssignment> page = pipeline.next();
+                assertNotNull(page);
+                process(page, pipelinedIds);
+                numPages++;
+            }
+        }
+
+        assertEquals(NUM_PAGES, numPages);
+        assertEquals(NUM_PAGES * PAGE_SIZE, pipelinedIds.size());
+        assertEquals(sequentialIds, pipelinedIds);
+    }
+
+    @Test
+    public void testCloseStopsEarly() throws Exception {
+        final PagePipeline<ApiAssignment> pipeline = new PagePipeline<>(executor, PagePipelineTest::fetch, baseUrl + "/v2/assignments");
+        final @Nullable ApiCollectionPage<ApiAssignment> page = pipeline.next();
+        assertNotNull(page);
+        assertEquals(1, page.getEntities().get(0).getId());
+        assertTrue(pipeline.hasNext());
+        pipeline.close();
+        assertFalse(pipeline.hasNext());
+    }
+}
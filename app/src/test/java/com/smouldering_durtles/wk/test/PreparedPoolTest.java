@@ -0,0 +1,186 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.smouldering_durtles.wk.util.PreparedPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+/**
+ * Test class for the pool of values prepared ahead of time, with a preparer that simulates the
+ * time it takes to prepare a media player. The time to play with and without the pool is measured
+ * by PreparedPoolBenchmark.
+ */
+@SuppressWarnings("JavaDoc")
+public final class PreparedPoolTest {
+    private static final long PREPARE_TIME = 40;
+
+    private @Nullable ExecutorService executor = null;
+    private final List<String> prepared = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> released = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch started = new CountDownLatch(1);
+    private volatile @Nullable CountDownLatch gate = null;
+
+    private final PreparedPool.Preparer<String, String> preparer = new PreparedPool.Preparer<String, String>() {
+        @Override
+        public String prepare(final String key) throws Exception {
+            started.countDown();
+            final @Nullable CountDownLatch latch = gate;
+            if (latch != null) {
+                latch.await();
+            }
+            if (key.startsWith("bad")) {
+                throw new IllegalStateException(key);
+            }
+            Thread.sleep(PREPARE_TIME);
+            prepared.add(key);
+            return "player:" + key;
+        }
+
+        @Override
+        public void release(final String value) {
+            released.add(value);
+        }
+    };
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private PreparedPool<String, String> createPool(final int capacity) {
+        assertNotNull(executor);
+        return new PreparedPool<>(capacity, executor, preparer);
+    }
+
+    private void drain() throws InterruptedException {
+        assertNotNull(executor);
+        final CountDownLatch latch = new CountDownLatch(1);
+        executor.execute(latch::countDown);
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testPreparesWantedKeysInOrder() throws InterruptedException {
+        final PreparedPool<String, String> pool = createPool(2);
+        pool.setWanted(Arrays.asList("a", "b", "c"));
+        drain();
+
+        assertEquals(Arrays.asList("a", "b"), prepared);
+        assertEquals(Arrays.asList("a", "b"), pool.getPreparedKeys());
+        assertEquals("player:a", pool.take("a"));
+        assertNull(pool.take("a"));
+        assertNull(pool.take("c"));
+        assertEquals(Collections.emptyList(), released);
+    }
+
+    @Test
+    public void testEvictsBySessionOrder() throws InterruptedException {
+        final PreparedPool<String, String> pool = createPool(2);
+        pool.setWanted(Arrays.asList("a", "b"));
+        drain();
+
+        pool.setWanted(Arrays.asList("c", "b", "a"));
+        drain();
+        assertEquals(Collections.singletonList("player:a"), released);
+        assertEquals(Arrays.asList("b", "c"), pool.getPreparedKeys());
+
+        pool.setWanted(Collections.emptyList());
+        assertEquals(3, released.size());
+        assertEquals(Collections.emptyList(), pool.getPreparedKeys());
+    }
+
+    @Test
+    public void testValueDroppedWhilePreparingIsReleased() throws InterruptedException {
+        final PreparedPool<String, String> pool = createPool(2);
+        gate = new CountDownLatch(1);
+        pool.setWanted(Collections.singletonList("a"));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        pool.setWanted(Collections.singletonList("b"));
+        gate.countDown();
+        drain();
+
+        assertEquals(Collections.singletonList("player:a"), released);
+        assertEquals(Collections.singletonList("b"), pool.getPreparedKeys());
+    }
+
+    @Test
+    public void testDroppedBeforePreparingIsSkipped() throws InterruptedException {
+        final PreparedPool<String, String> pool = createPool(1);
+        gate = new CountDownLatch(1);
+        pool.setWanted(Collections.singletonList("a"));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        pool.setWanted(Collections.singletonList("b"));
+        pool.setWanted(Collections.singletonList("c"));
+        gate.countDown();
+        drain();
+
+        assertEquals(Arrays.asList("a", "c"), prepared);
+        assertEquals(Collections.singletonList("c"), pool.getPreparedKeys());
+    }
+
+    @Test
+    public void testFailedPrepare() throws InterruptedException {
+        final PreparedPool<String, String> pool = createPool(2);
+        pool.setWanted(Arrays.asList("bad", "a"));
+        drain();
+
+        assertNull(pool.take("bad"));
+        assertEquals(Collections.singletonList("a"), pool.getPreparedKeys());
+    }
+
+    @Test
+    public void testSessionIsPreparedAhead() throws InterruptedException {
+        final PreparedPool<String, String> pool = createPool(4);
+        final List<String> session = Arrays.asList("q1", "q2", "q3", "q4", "q5", "q6", "q7", "q8");
+
+        for (int i=0; i<session.size(); i++) {
+            pool.setWanted(session.subList(i, session.size()));
+            drain();
+            assertEquals("player:" + session.get(i), pool.take(session.get(i)));
+        }
+
+        assertEquals(session, prepared);
+        assertEquals(Collections.emptyList(), released);
+        assertEquals(Collections.emptyList(), pool.getPreparedKeys());
+    }
+}
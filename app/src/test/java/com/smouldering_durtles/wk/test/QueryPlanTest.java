@@ -0,0 +1,246 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smouldering_durtles.wk.db.SubjectIndexes;
+import com.smouldering_durtles.wk.util.SubjectSearchQuery;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nullable;
+
+/**
+ * Query plan regression test for the subject queries. The tables and Room's indexes are created from the
+ * newest exported Room schema, the extra indexes from SubjectIndexes, and the queries are taken straight
+ * from the @Query annotations in all subject DAO sources, plus the search query built by SubjectSearchQuery.
+ * Every query must be valid against the schema. The hot queries must use the index they were designed for,
+ * without scanning the subject table or sorting the result. The search must go through the full-text index
+ * and only look up the subjects it hits.
+ */
+@SuppressWarnings("JavaDoc")
+public final class QueryPlanTest {
+    private static final String SCHEMA_DIR = "schemas/com.smouldering_durtles.wk.db.AppDatabase";
+    private static final String DAO_DIR = "src/main/java/com/smouldering_durtles/wk/db/dao";
+    private static final String[] DAOS = {"SubjectCollectionsDao", "SubjectAggregatesDao", "SubjectDao", "SubjectSyncDao", "SubjectViewsDao"};
+
+    private static final Pattern QUERY = Pattern.compile(
+            "@Query\\(((?:\\s*\"(?:[^\"\\\\]|\\\\.)*\"\\s*\\+?)+)\\)\\s*(?:public|protected)[^(]*?(\\w+)\\(");
+    private static final Pattern LITERAL = Pattern.compile("\"((?:[^\"\\\\]|\\\\.)*)\"");
+    private static final Pattern PARAMETER = Pattern.compile(":\\w+");
+
+    /**
+     * The hot queries, each followed by the indexes its plan must use.
+     */
+    private static final String[][] HOT_QUERIES = {
+            {"getAvailableLessonSummaries", "index_subject_lesson_queue"},
+            {"getUpcomingReviewSummaries", "index_subject_review_queue"},
+            {"getAlertContext", "index_subject_lesson_queue", "index_subject_review_queue"},
+            {"getNextLongTermReviewDate", "index_subject_review_queue"},
+            {"getNextLongTermReviewCount", "index_subject_availableAt"},
+            {"getKanjiForLevelHelper", "index_subject_level_object"},
+            {"getLevelProgressSummaries", "index_subject_level_object"},
+            {"getByLevelRangeHelper", "index_subject_level_object"},
+            {"getLevelReachedDate", "index_subject_level_object"},
+            {"getRecentUnlocksHelper", "index_subject_unlockedAt"},
+            {"getSessionSubjectsHelper", "PRIMARY KEY"},
+            {"getByIdsHelper", "PRIMARY KEY"}
+    };
+
+    private @Nullable Connection connection = null;
+
+    private static File locate(final String path) {
+        final File file = new File(path);
+        return file.exists() ? file : new File("app", path);
+    }
+
+    private static String read(final File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    private static File getLatestSchema() {
+        final @Nullable File[] files = locate(SCHEMA_DIR).listFiles((dir, name) -> name.matches("\\d+\\.json"));
+        assertNotNull(files);
+        @Nullable File latest = null;
+        int latestVersion = -1;
+        for (final File file: files) {
+            final int version = Integer.parseInt(file.getName().replace(".json", ""));
+            if (version > latestVersion) {
+                latest = file;
+                latestVersion = version;
+            }
+        }
+        assertNotNull(latest);
+        return latest;
+    }
+
+    private static Map<String, String> getQueries() throws IOException {
+        final Map<String, String> result = new LinkedHashMap<>();
+        for (final String dao: DAOS) {
+            final Matcher matcher = QUERY.matcher(read(locate(DAO_DIR + "/" + dao + ".java")));
+            while (matcher.find()) {
+                final StringBuilder sb = new StringBuilder();
+                final Matcher literal = LITERAL.matcher(matcher.group(1));
+                while (literal.find()) {
+                    sb.append(literal.group(1).replace("\\\"", "\""));
+                }
+                result.put(matcher.group(2), sb.toString());
+            }
+        }
+        return result;
+    }
+
+    private List<String> getPlan(final String sql) throws SQLException {
+        assertNotNull(connection);
+        final List<String> plan = new ArrayList<>();
+        final String explain = "EXPLAIN QUERY PLAN " + PARAMETER.matcher(sql).replaceAll("?");
+        try (final PreparedStatement statement = connection.prepareStatement(explain)) {
+            final int numParameters = statement.getParameterMetaData().getParameterCount();
+            for (int i=1; i<=numParameters; i++) {
+                statement.setObject(i, null);
+            }
+            try (final ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    plan.add(rs.getString(4));
+                }
+            }
+        }
+        return plan;
+    }
+
+    @Before
+    public void createDatabase() throws IOException, SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        final JsonNode schema = new ObjectMapper().readTree(getLatestSchema());
+        try (final Statement statement = connection.createStatement()) {
+            for (final JsonNode entity: schema.get("database").get("entities")) {
+                final String tableName = entity.get("tableName").asText();
+                statement.execute(entity.get("createSql").asText().replace("${TABLE_NAME}", tableName));
+                if (entity.has("indices")) {
+                    for (final JsonNode index: entity.get("indices")) {
+                        statement.execute(index.get("createSql").asText().replace("${TABLE_NAME}", tableName));
+                    }
+                }
+            }
+            for (final String name: SubjectIndexes.OBSOLETE_INDEXES) {
+                statement.execute("DROP INDEX IF EXISTS " + name);
+            }
+            for (final String[] index: SubjectIndexes.INDEXES) {
+                statement.execute("DROP INDEX IF EXISTS " + index[0]);
+                statement.execute(index[1]);
+            }
+        }
+    }
+
+    @After
+    public void closeDatabase() throws SQLException {
+        if (connection != null) {
+            connection.close();
+            connection = null;
+        }
+    }
+
+    @Test
+    public void testIndexDefinitionsAreStoredVerbatim() throws SQLException {
+        assertNotNull(connection);
+        for (final String[] index: SubjectIndexes.INDEXES) {
+            try (final PreparedStatement statement = connection.prepareStatement("SELECT sql FROM sqlite_master WHERE type = 'index' AND name = ?")) {
+                statement.setString(1, index[0]);
+                try (final ResultSet rs = statement.executeQuery()) {
+                    assertTrue(rs.next());
+                    assertEquals(index[1], rs.getString(1));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testHotQueryPlans() throws IOException, SQLException {
+        final Map<String, String> queries = getQueries();
+        final Map<String, List<String>> plans = new LinkedHashMap<>();
+        for (final Map.Entry<String, String> entry: queries.entrySet()) {
+            plans.put(entry.getKey(), getPlan(entry.getValue()));
+        }
+
+        final List<String> problems = new ArrayList<>();
+        for (final String[] hot: HOT_QUERIES) {
+            final @Nullable List<String> plan = plans.get(hot[0]);
+            if (plan == null) {
+                problems.add(hot[0] + ": query not found");
+                continue;
+            }
+            for (int i=1; i<hot.length; i++) {
+                boolean found = false;
+                for (final String step: plan) {
+                    found |= step.contains(hot[i]);
+                }
+                if (!found) {
+                    problems.add(hot[0] + ": doesn't use " + hot[i] + " in " + plan);
+                }
+            }
+            for (final String step: plan) {
+                if (step.equals("SCAN subject") || step.equals("USE TEMP B-TREE FOR ORDER BY")) {
+                    problems.add(hot[0] + ": " + step + " in " + plan);
+                }
+            }
+        }
+        assertTrue(String.join("\n", problems), problems.isEmpty());
+    }
+
+    @Test
+    public void testSearchQueryPlans() throws SQLException {
+        for (final String query: new String[] {"fire", "big fire", "火", "大 fire"}) {
+            final @Nullable SubjectSearchQuery searchQuery = SubjectSearchQuery.build(query, 50);
+            assertNotNull(searchQuery);
+            final List<String> plan = getPlan(searchQuery.getSql());
+            boolean usesIndex = false;
+            boolean usesKey = false;
+            for (final String step: plan) {
+                usesIndex |= step.startsWith("SCAN subject_search VIRTUAL TABLE INDEX");
+                usesKey |= step.startsWith("SEARCH subject USING INTEGER PRIMARY KEY");
+                assertFalse(query + ": " + plan, step.equals("SCAN subject"));
+            }
+            assertTrue(query + ": " + plan, usesIndex);
+            assertTrue(query + ": " + plan, usesKey);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.smouldering_durtles.wk.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.smouldering_durtles.wk.db.model.SessionItem;
+import com.smouldering_durtles.wk.enums.QuestionType;
+import com.smouldering_durtles.wk.enums.SessionItemState;
+import com.smouldering_durtles.wk.model.Question;
+import com.smouldering_durtles.wk.model.QuestionScheduler;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+/**
+ * Property test to verify that QuestionScheduler keeps its counters in sync with the items, and
+ * only ever chooses a question from the same set of candidates as the original list-filtering
+ * implementation of Session.chooseQuestion() did.
+ */
+@SuppressWarnings("JavaDoc")
+public final class QuestionSchedulerTest {
+    private static final int ROUNDS = 200;
+    private static final int STEPS = 100;
+
+    private static List<SessionItem> createItems(final Random random) {
+        final List<SessionItem> result = new ArrayList<>();
+        final int numItems = 1 + random.nextInt(60);
+        int bucket = 0;
+        for (int i=0; i<numItems; i++) {
+            if (random.nextInt(4) == 0) {
+                bucket++;
+            }
+            final SessionItem item = new SessionItem();
+            item.setId(1000 + i);
+            item.setBucket(bucket);
+            item.setOrder(i);
+            item.setQuestion3Done(true);
+            item.setQuestion4Done(true);
+            result.add(item);
+        }
+        return result;
+    }
+
+    private static List<Question> createQuestions(final Iterable<SessionItem> items) {
+        final List<Question> result = new ArrayList<>();
+        for (final SessionItem item: items) {
+            final Question meaning = new Question(item, QuestionType.WANIKANI_VOCAB_MEANING);
+            final Question reading = new Question(item, QuestionType.WANIKANI_VOCAB_READING);
+            item.addQuestion(meaning);
+            item.addQuestion(reading);
+            result.add(meaning);
+            result.add(reading);
+        }
+        return result;
+    }
+
+    private static List<Question> filter(final List<Question> candidates, final Predicate<Question> predicate) {
+        final List<Question> list = new ArrayList<>();
+        for (final Question question: candidates) {
+            if (predicate.test(question)) {
+                list.add(question);
+            }
+        }
+        return list.isEmpty() ? candidates : list;
+    }
+
+    /**
+     * The candidates the original implementation would have chosen from with equal probability.
+     */
+    private static List<Question> getReferenceCandidates(final List<SessionItem> items, final List<Question> questions,
+                                                         final boolean backToBack, final boolean readingFirst,
+                                                         final boolean meaningFirst) {
+        List<Question> candidates = questions;
+        if (backToBack) {
+            candidates = filter(candidates, question -> question.getItem().isStarted());
+        }
+        if (readingFirst) {
+            candidates = filter(candidates,
+                    question -> !question.getItem().hasPendingReadingAndMeaning() || question.getType().isReading());
+        }
+        if (meaningFirst) {
+            candidates = filter(candidates,
+                    question -> !question.getItem().hasPendingReadingAndMeaning() || question.getType().isMeaning());
+        }
+        int numStarted = 0;
+        for (final SessionItem item: items) {
+            if (item.isStarted()) {
+                numStarted++;
+            }
+        }
+        if (numStarted >= 10) {
+            candidates = filter(candidates, question -> question.getItem().isStarted());
+        }
+
+        boolean hasDelayed = false;
+        boolean hasUndelayed = false;
+        final int currentBucket = candidates.get(0).getItem().getBucket();
+        for (final SessionItem item: items) {
+            if (item.getBucket() == currentBucket) {
+                if (item.getChoiceDelay() == 0) {
+                    hasUndelayed = true;
+                }
+                else {
+                    hasDelayed = true;
+                }
+            }
+        }
+        if (hasDelayed && hasUndelayed) {
+            candidates = filter(candidates,
+                    question -> question.getItem().getBucket() == currentBucket && question.getItem().getChoiceDelay() == 0);
+        }
+
+        final int bucket = candidates.get(0).getItem().getBucket();
+        int i = 1;
+        while (i < candidates.size() && candidates.get(i).getItem().getBucket() == bucket) {
+            i++;
+        }
+        return candidates.subList(0, i);
+    }
+
+    private static void checkCounters(final QuestionScheduler scheduler, final List<SessionItem> items) {
+        for (final SessionItemState state: SessionItemState.values()) {
+            int count = 0;
+            for (final SessionItem item: items) {
+                if (item.getState() == state) {
+                    count++;
+                }
+            }
+            assertEquals(count, scheduler.getNumItems(state));
+        }
+        int numStarted = 0;
+        for (final SessionItem item: items) {
+            if (item.isStarted()) {
+                numStarted++;
+            }
+        }
+        assertEquals(numStarted, scheduler.getNumStartedItems());
+    }
+
+    @Test
+    public void testChooseQuestion() {
+        final Random random = new Random(1);
+        for (int round=0; round<ROUNDS; round++) {
+            final List<SessionItem> items = createItems(random);
+            final List<Question> questions = createQuestions(items);
+            final QuestionScheduler scheduler = new QuestionScheduler();
+            scheduler.setItems(items);
+            final boolean backToBack = random.nextBoolean();
+            final boolean readingFirst = random.nextBoolean();
+            final boolean meaningFirst = random.nextBoolean();
+
+            for (int step=0; step<STEPS && !questions.isEmpty(); step++) {
+                checkCounters(scheduler, items);
+                final List<Question> expected = getReferenceCandidates(items, questions, backToBack, readingFirst, meaningFirst);
+                final Question chosen = scheduler.chooseQuestion(questions, backToBack, readingFirst, meaningFirst);
+                assertNotNull(chosen);
+                assertTrue(expected.contains(chosen));
+                scheduler.decrementChoiceDelays();
+
+                final SessionItem item = chosen.getItem();
+                switch (random.nextInt(4)) {
+                    case 0:
+                        item.setChoiceDelay(3);
+                        break;
+                    case 1:
+                        item.setQuestionIncorrect(chosen.getType().getSlot(), 1);
+                        item.setNumAnswers(item.getNumAnswers() + 1);
+                        item.setChoiceDelay(3);
+                        break;
+                    default:
+                        item.setQuestionDone(chosen.getType().getSlot(), true);
+                        item.setNumAnswers(item.getNumAnswers() + 1);
+                        questions.remove(chosen);
+                        if (item.isFinished()) {
+                            item.setState(random.nextBoolean() ? SessionItemState.PENDING : SessionItemState.REPORTED);
+                        }
+                        break;
+                }
+                if (random.nextInt(20) == 0) {
+                    final SessionItem victim = items.get(random.nextInt(items.size()));
+                    if (victim.isActive() && !victim.isStarted()) {
+                        victim.setState(SessionItemState.ABANDONED);
+                        questions.removeIf(question -> question.getItem() == victim);
+                    }
+                }
+            }
+            checkCounters(scheduler, items);
+        }
+    }
+
+    @Test
+    public void testLookups() {
+        final List<SessionItem> items = createItems(new Random(2));
+        final QuestionScheduler scheduler = new QuestionScheduler();
+        scheduler.setItems(items);
+        for (int i=0; i<items.size(); i++) {
+            assertSame(items.get(i), scheduler.findItem(items.get(i).getId()));
+            assertEquals(i, scheduler.indexOf(items.get(i)));
+        }
+        assertNull(scheduler.findItem(1));
+        assertEquals(-1, scheduler.indexOf(new SessionItem()));
+
+        scheduler.clear();
+        assertNull(scheduler.findItem(items.get(0).getId()));
+        items.get(0).setState(SessionItemState.ABANDONED);
+        assertEquals(0, scheduler.getNumItems(SessionItemState.ABANDONED));
+    }
+}
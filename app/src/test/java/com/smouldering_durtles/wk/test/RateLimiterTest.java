@@ -0,0 +1,180 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.smouldering_durtles.wk.api.RateLimiter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Test class to verify the token-bucket behaviour of RateLimiter, on a fake clock.
+ */
+@SuppressWarnings("JavaDoc")
+public final class RateLimiterTest {
+    private static final long START = 1_700_000_000_000L;
+
+    /**
+     * A clock that only moves when somebody sleeps on it.
+     */
+    private static final class FakeClock implements RateLimiter.Clock {
+        private final AtomicLong time = new AtomicLong(START);
+
+        @Override
+        public long now() {
+            return time.get();
+        }
+
+        @Override
+        public void sleep(final long millis) {
+            time.addAndGet(millis);
+        }
+
+        void advance(final long millis) {
+            time.addAndGet(millis);
+        }
+    }
+
+    @Test
+    public void testBurstThenSteadyRate() {
+        final FakeClock clock = new FakeClock();
+        final RateLimiter limiter = new RateLimiter(clock);
+        for (int i=0; i<5; i++) {
+            limiter.prepare();
+        }
+        assertEquals(START, clock.now());
+        assertEquals(0, limiter.getNumDelayed());
+
+        // After the burst, one request per second
+        for (int i=0; i<60; i++) {
+            limiter.prepare();
+        }
+        assertEquals(START + 60_000, clock.now());
+        assertEquals(65, limiter.getNumAcquired());
+        assertEquals(60, limiter.getNumDelayed());
+        assertEquals(60_000, limiter.getTotalWaitTime());
+        assertEquals(1_000, limiter.getMaxWaitTime());
+    }
+
+    @Test
+    public void testBackgroundCallsLeaveReserve() {
+        final FakeClock clock = new FakeClock();
+        final RateLimiter limiter = new RateLimiter(clock);
+        for (int i=0; i<4; i++) {
+            limiter.prepare(true);
+        }
+        assertEquals(START, clock.now());
+
+        // The last token is only for foreground calls
+        limiter.prepare();
+        assertEquals(START, clock.now());
+        limiter.prepare(true);
+        assertEquals(START + 2_000, clock.now());
+    }
+
+    @Test
+    public void testIdleRefillIsCappedAtBurst() {
+        final FakeClock clock = new FakeClock();
+        final RateLimiter limiter = new RateLimiter(clock);
+        clock.advance(10 * 60_000);
+        for (int i=0; i<6; i++) {
+            limiter.prepare();
+        }
+        assertEquals(START + 10 * 60_000 + 1_000, clock.now());
+        assertEquals(1, limiter.getNumDelayed());
+    }
+
+    @Test
+    public void testAdaptsToAdvertisedLimit() {
+        final FakeClock clock = new FakeClock();
+        final RateLimiter limiter = new RateLimiter(clock);
+        limiter.update(200, "120", "119", null, null);
+        assertEquals(120, limiter.getLimit());
+        for (int i=0; i<5; i++) {
+            limiter.prepare();
+        }
+        limiter.prepare();
+        assertEquals(START + 500, clock.now());
+    }
+
+    @Test
+    public void testRemainingZeroWaitsForReset() {
+        final FakeClock clock = new FakeClock();
+        final RateLimiter limiter = new RateLimiter(clock);
+        final long reset = (START + 42_000) / 1000;
+        limiter.update(200, "60", "0", Long.toString(reset), null);
+        limiter.prepare();
+        assertEquals(reset * 1000, clock.now());
+    }
+
+    @Test
+    public void testTooManyRequestsHonoursRetryAfter() {
+        final FakeClock clock = new FakeClock();
+        final RateLimiter limiter = new RateLimiter(clock);
+        limiter.update(429, null, null, null, "7");
+        limiter.prepare();
+        assertEquals(START + 7_000, clock.now());
+        assertEquals(7_000, limiter.getMaxWaitTime());
+    }
+
+    @Test
+    public void testTooManyRequestsWithoutHeadersBacksOff() {
+        final FakeClock clock = new FakeClock();
+        final RateLimiter limiter = new RateLimiter(clock);
+        limiter.update(429, null, null, null, null);
+        limiter.prepare();
+        assertTrue(clock.now() > START);
+    }
+
+    @Test
+    public void testMalformedHeadersAreIgnored() {
+        final FakeClock clock = new FakeClock();
+        final RateLimiter limiter = new RateLimiter(clock);
+        limiter.update(200, "lots", "-3", "soon", "never");
+        assertEquals(60, limiter.getLimit());
+        limiter.prepare();
+        assertEquals(START, clock.now());
+    }
+
+    @Test
+    public void testConcurrentCallers() throws InterruptedException {
+        final FakeClock clock = new FakeClock();
+        final RateLimiter limiter = new RateLimiter(clock);
+        final List<Thread> threads = new ArrayList<>();
+        for (int i=0; i<4; i++) {
+            final Thread thread = new Thread(() -> {
+                for (int j=0; j<25; j++) {
+                    limiter.prepare();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (final Thread thread: threads) {
+            thread.join();
+        }
+        assertEquals(100, limiter.getNumAcquired());
+        // Concurrent sleepers all advance the shared fake clock, so only a lower bound holds
+        assertTrue(clock.now() >= START + 95_000);
+    }
+}
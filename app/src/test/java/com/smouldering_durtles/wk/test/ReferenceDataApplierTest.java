@@ -0,0 +1,339 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smouldering_durtles.wk.db.ReferenceDataApplier;
+import com.smouldering_durtles.wk.enums.SubjectType;
+import com.smouldering_durtles.wk.model.ReferenceDataValues;
+import com.smouldering_durtles.wk.model.SubjectReferenceData;
+import com.smouldering_durtles.wk.util.ReferencePack;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+/**
+ * Test class for the reference data apply stage. The diff and chunking logic is checked with a trivial
+ * calculator, and a reload of a small database from the generated reference pack must end up with the
+ * same rows as the old approach of comparing every row and updating each difference.
+ */
+@SuppressWarnings("JavaDoc")
+public final class ReferenceDataApplierTest {
+    private static final String PACK = "build/generated/referencePack/res/raw/reference_pack.bin";
+    private static final int NUM_KANJI = 200;
+    private static final int NUM_VOCAB = 700;
+
+    private @Nullable ExecutorService executor = null;
+    private @Nullable File dbFile = null;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors()));
+    }
+
+    @After
+    public void tearDown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        if (dbFile != null && !dbFile.delete()) {
+            dbFile.deleteOnExit();
+        }
+    }
+
+    private static List<SubjectReferenceData> makeSubjects(final int count, final long hash) {
+        final List<SubjectReferenceData> subjects = new ArrayList<>();
+        for (int i=1; i<=count; i++) {
+            subjects.add(new SubjectReferenceData(i, SubjectType.WANIKANI_KANJI, Integer.toString(i), hash));
+        }
+        return subjects;
+    }
+
+    private static ReferenceDataValues simpleValues(final SubjectReferenceData subject) {
+        return new ReferenceDataValues(subject.getId(), (int) (subject.getId() % 7), 0, 0, null, null);
+    }
+
+    @Test
+    public void testOnlyChangedSubjectsAreWrittenInOrder() {
+        final List<SubjectReferenceData> subjects = new ArrayList<>();
+        for (final SubjectReferenceData subject: makeSubjects(1000, 0)) {
+            final long hash = subject.getId() % 3 == 0 ? simpleValues(subject).getHash() : 0;
+            subjects.add(new SubjectReferenceData(subject.getId(), subject.getType(), subject.getCharacters(), hash));
+        }
+        final List<List<ReferenceDataValues>> chunks = new ArrayList<>();
+        final AtomicInteger processed = new AtomicInteger();
+        assertNotNull(executor);
+        final int numChanged = new ReferenceDataApplier<SubjectReferenceData>(executor, ReferenceDataApplierTest::simpleValues, 64).apply(subjects,
+                new ReferenceDataApplier.Target() {
+                    @Override
+                    public void write(final List<ReferenceDataValues> changes) {
+                        chunks.add(changes);
+                    }
+
+                    @Override
+                    public void processed(final int count) {
+                        processed.addAndGet(count);
+                    }
+                });
+
+        assertEquals(1000, processed.get());
+        long lastId = 0;
+        int total = 0;
+        for (final List<ReferenceDataValues> chunk: chunks) {
+            assertTrue(!chunk.isEmpty() && chunk.size() <= 64);
+            for (final ReferenceDataValues values: chunk) {
+                assertTrue(values.getId() > lastId);
+                assertTrue(values.getId() % 3 != 0);
+                lastId = values.getId();
+                total++;
+            }
+        }
+        assertEquals(667, total);
+        assertEquals(667, numChanged);
+    }
+
+    @Test
+    public void testHashIsNeverZeroAndCoversAllValues() {
+        final ReferenceDataValues base = new ReferenceDataValues(1, 1, 2, 3, "[]", null);
+        assertTrue(base.getHash() != 0);
+        assertTrue(base.getHash() != new ReferenceDataValues(1, 1, 2, 3, null, null).getHash());
+        assertTrue(base.getHash() != new ReferenceDataValues(1, 1, 2, 3, null, "[]").getHash());
+        assertTrue(base.getHash() != new ReferenceDataValues(1, 1, 3, 2, "[]", null).getHash());
+        assertEquals(base.getHash(), new ReferenceDataValues(2, 1, 2, 3, "[]", null).getHash());
+    }
+
+    @Test
+    public void testCalculatorFailureIsRethrown() {
+        assertNotNull(executor);
+        try {
+            new ReferenceDataApplier<SubjectReferenceData>(executor, subject -> {
+                if (subject.getId() == 500) {
+                    throw new IllegalArgumentException("boom");
+                }
+                return simpleValues(subject);
+            }, 100).apply(makeSubjects(1000, 0), new ReferenceDataApplier.Target() {
+                @Override
+                public void write(final List<ReferenceDataValues> changes) {
+                    //
+                }
+
+                @Override
+                public void processed(final int count) {
+                    //
+                }
+            });
+            fail("Failure not rethrown");
+        } catch (final IllegalStateException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+    }
+
+    private static ReferencePack openPack() throws IOException {
+        final File file = new File(PACK).exists() ? new File(PACK) : new File("app", PACK);
+        try (final FileInputStream is = new FileInputStream(file)) {
+            return ReferencePack.open(is.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, is.getChannel().size()));
+        }
+    }
+
+    private static List<String> readKeys(final String name, final int max) throws IOException {
+        final File file = new File("../reference-data/compiled", name).exists()
+                ? new File("../reference-data/compiled", name) : new File("reference-data/compiled", name);
+        final List<String> keys = new ArrayList<>();
+        new ObjectMapper().readTree(file).fieldNames().forEachRemaining(keys::add);
+        return keys.subList(0, Math.min(max, keys.size()));
+    }
+
+    private static ReferenceDataValues packValues(final ReferencePack pack, final SubjectReferenceData subject) {
+        final String characters = subject.getCharacters() == null ? "" : subject.getCharacters();
+        if (subject.getType().isKanji()) {
+            return new ReferenceDataValues(subject.getId(), pack.getInt(ReferencePack.FREQUENCY, characters, 0),
+                    pack.getInt(ReferencePack.JOYO_GRADE, characters, 0), pack.getInt(ReferencePack.KANJI_JLPT_LEVEL, characters, 0),
+                    null, pack.getString(ReferencePack.STROKE_DATA, characters));
+        }
+        return new ReferenceDataValues(subject.getId(), 0, 0, pack.getInt(ReferencePack.VOCAB_JLPT_LEVEL, characters, 0),
+                pack.getString(ReferencePack.PITCH_INFO, characters), null);
+    }
+
+    private Connection createDatabase(final List<String> kanji, final List<String> vocab) throws IOException, SQLException {
+        dbFile = File.createTempFile("reference", ".db");
+        final Connection connection = DriverManager.getConnection("jdbc:sqlite:" + dbFile.getAbsolutePath());
+        try (final Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE subject (id INTEGER PRIMARY KEY NOT NULL, object TEXT, characters TEXT,"
+                    + " frequency INTEGER NOT NULL DEFAULT 0, joyoGrade INTEGER NOT NULL DEFAULT 0, jlptLevel INTEGER NOT NULL DEFAULT 0,"
+                    + " pitchInfo TEXT, strokeData TEXT, referenceDataHash INTEGER NOT NULL DEFAULT 0)");
+        }
+        connection.setAutoCommit(false);
+        try (final PreparedStatement statement = connection.prepareStatement("INSERT INTO subject (id, object, characters) VALUES (?, ?, ?)")) {
+            long id = 1;
+            for (final String characters: kanji) {
+                statement.setLong(1, id++);
+                statement.setString(2, "kanji");
+                statement.setString(3, characters);
+                statement.executeUpdate();
+            }
+            for (final String characters: vocab) {
+                statement.setLong(1, id++);
+                statement.setString(2, "vocabulary");
+                statement.setString(3, characters);
+                statement.executeUpdate();
+            }
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+        return connection;
+    }
+
+    private static List<SubjectReferenceData> loadSubjects(final Connection connection) throws SQLException {
+        final List<SubjectReferenceData> subjects = new ArrayList<>();
+        try (final Statement statement = connection.createStatement();
+             final ResultSet rs = statement.executeQuery("SELECT id, object, characters, referenceDataHash FROM subject")) {
+            while (rs.next()) {
+                subjects.add(new SubjectReferenceData(rs.getLong(1),
+                        rs.getString(2).equals("kanji") ? SubjectType.WANIKANI_KANJI : SubjectType.WANIKANI_VOCAB,
+                        rs.getString(3), rs.getLong(4)));
+            }
+        }
+        return subjects;
+    }
+
+    private static void setValues(final PreparedStatement statement, final ReferenceDataValues values, final long hash) throws SQLException {
+        statement.setInt(1, values.getFrequency());
+        statement.setInt(2, values.getJoyoGrade());
+        statement.setInt(3, values.getJlptLevel());
+        statement.setString(4, values.getPitchInfo());
+        statement.setString(5, values.getStrokeData());
+        statement.setLong(6, hash);
+        statement.setLong(7, values.getId());
+    }
+
+    private static int applySequential(final Connection connection, final ReferencePack pack) throws SQLException {
+        int numChanged = 0;
+        final List<Object[]> rows = new ArrayList<>();
+        try (final Statement statement = connection.createStatement();
+             final ResultSet rs = statement.executeQuery("SELECT id, object, characters, frequency, joyoGrade, jlptLevel, pitchInfo, strokeData FROM subject")) {
+            while (rs.next()) {
+                rows.add(new Object[] {rs.getLong(1), rs.getString(2), rs.getString(3), rs.getInt(4), rs.getInt(5), rs.getInt(6),
+                        rs.getString(7), rs.getString(8)});
+            }
+        }
+        try (final PreparedStatement update = connection.prepareStatement("UPDATE subject SET frequency = ?, joyoGrade = ?,"
+                + " jlptLevel = ?, pitchInfo = ?, strokeData = ?, referenceDataHash = ? WHERE id = ?")) {
+            for (final Object[] row: rows) {
+                final SubjectReferenceData subject = new SubjectReferenceData((Long) row[0],
+                        row[1].equals("kanji") ? SubjectType.WANIKANI_KANJI : SubjectType.WANIKANI_VOCAB, (String) row[2], 0);
+                final ReferenceDataValues values = packValues(pack, subject);
+                if (values.getFrequency() != (Integer) row[3] || values.getJoyoGrade() != (Integer) row[4]
+                        || values.getJlptLevel() != (Integer) row[5] || !String.valueOf(values.getPitchInfo()).equals(String.valueOf(row[6]))
+                        || !String.valueOf(values.getStrokeData()).equals(String.valueOf(row[7]))) {
+                    setValues(update, values, 0);
+                    update.executeUpdate();
+                    numChanged++;
+                }
+            }
+        }
+        return numChanged;
+    }
+
+    private int applyChunked(final Connection connection, final ReferencePack pack) throws SQLException {
+        assertNotNull(executor);
+        final List<SubjectReferenceData> subjects = loadSubjects(connection);
+        try (final PreparedStatement update = connection.prepareStatement("UPDATE subject SET frequency = ?, joyoGrade = ?,"
+                + " jlptLevel = ?, pitchInfo = ?, strokeData = ?, referenceDataHash = ? WHERE id = ?")) {
+            return new ReferenceDataApplier<SubjectReferenceData>(executor, subject -> packValues(pack, subject), 50).apply(subjects,
+                    new ReferenceDataApplier.Target() {
+                        @Override
+                        public void write(final List<ReferenceDataValues> changes) {
+                            try {
+                                connection.setAutoCommit(false);
+                                for (final ReferenceDataValues values: changes) {
+                                    setValues(update, values, values.getHash());
+                                    update.executeUpdate();
+                                }
+                                connection.commit();
+                                connection.setAutoCommit(true);
+                            } catch (final SQLException e) {
+                                throw new IllegalStateException(e);
+                            }
+                        }
+
+                        @Override
+                        public void processed(final int count) {
+                            //
+                        }
+                    });
+        }
+    }
+
+    private static List<String> dump(final Connection connection) throws SQLException {
+        final List<String> result = new ArrayList<>();
+        try (final Statement statement = connection.createStatement();
+             final ResultSet rs = statement.executeQuery("SELECT id, frequency, joyoGrade, jlptLevel, pitchInfo, strokeData FROM subject ORDER BY id")) {
+            while (rs.next()) {
+                result.add(rs.getLong(1) + " " + rs.getInt(2) + " " + rs.getInt(3) + " " + rs.getInt(4) + " " + rs.getString(5) + " " + rs.getString(6));
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void testChunkedApplyMatchesPerRowUpdates() throws IOException, SQLException {
+        final ReferencePack pack = openPack();
+        final List<String> kanji = readKeys("kanjidic_freq.json", NUM_KANJI);
+        final List<String> vocab = readKeys("pitch_info.json", NUM_VOCAB);
+
+        final List<String> sequentialResult;
+        final int numSequential;
+        try (final Connection connection = createDatabase(kanji, vocab)) {
+            numSequential = applySequential(connection, pack);
+            assertTrue(numSequential > 0);
+            assertEquals(0, applySequential(connection, pack));
+            sequentialResult = dump(connection);
+        }
+        tearDown();
+        setUp();
+
+        try (final Connection connection = createDatabase(kanji, vocab)) {
+            assertEquals(kanji.size() + vocab.size(), applyChunked(connection, pack));
+            assertEquals(0, applyChunked(connection, pack));
+            assertEquals(sequentialResult, dump(connection));
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smouldering_durtles.wk.util.ReferencePack;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * Test class to verify that the reference data pack generated by the build holds exactly the data of the JSON
+ * files it was compiled from, with every section present.
+ */
+@SuppressWarnings("JavaDoc")
+public final class ReferencePackTest {
+    private static final String PACK = "build/generated/referencePack/res/raw/reference_pack.bin";
+    private static final String COMPILED_DIR = "reference-data/compiled";
+
+    private static final String[] INT_FILES = {
+            "kanjidic_freq.json", "wikipedia_joyo_grades.json", "kanji_jlpt_levels.json", "vocab_jlpt_levels.json"};
+    private static final int[] INT_SECTIONS = {
+            ReferencePack.FREQUENCY, ReferencePack.JOYO_GRADE, ReferencePack.KANJI_JLPT_LEVEL, ReferencePack.VOCAB_JLPT_LEVEL};
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static File locatePack() {
+        final File file = new File(PACK);
+        return file.exists() ? file : new File("app", PACK);
+    }
+
+    private static File locateCompiled(final String name) {
+        final File file = new File("../" + COMPILED_DIR, name);
+        return file.exists() ? file : new File(COMPILED_DIR, name);
+    }
+
+    private static ReferencePack openPack() throws IOException {
+        try (final FileInputStream is = new FileInputStream(locatePack())) {
+            final MappedByteBuffer buffer = is.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, is.getChannel().size());
+            return ReferencePack.open(buffer);
+        }
+    }
+
+    private static Map<String, Integer> readIntMap(final String name) throws IOException {
+        return MAPPER.readValue(locateCompiled(name), new TypeReference<Map<String, Integer>>() {});
+    }
+
+    @Test
+    public void testIntSectionsMatchSource() throws IOException {
+        final ReferencePack pack = openPack();
+        for (int i=0; i<INT_FILES.length; i++) {
+            final Map<String, Integer> source = readIntMap(INT_FILES[i]);
+            assertEquals(INT_FILES[i], source.size(), pack.size(INT_SECTIONS[i]));
+            for (final Map.Entry<String, Integer> entry: source.entrySet()) {
+                assertEquals(entry.getKey(), (int) entry.getValue(), pack.getInt(INT_SECTIONS[i], entry.getKey(), -1));
+            }
+        }
+        assertEquals(-1, pack.getInt(ReferencePack.FREQUENCY, "", -1));
+        assertEquals(-1, pack.getInt(ReferencePack.FREQUENCY, "not a kanji", -1));
+        assertNull(pack.getString(ReferencePack.FREQUENCY, "日"));
+    }
+
+    @Test
+    public void testPitchInfoMatchesSource() throws IOException {
+        final ReferencePack pack = openPack();
+        final JsonNode source = MAPPER.readTree(locateCompiled("pitch_info.json"));
+        assertEquals(source.size(), pack.size(ReferencePack.PITCH_INFO));
+        source.fields().forEachRemaining(entry -> {
+            final @Nullable String json = pack.getString(ReferencePack.PITCH_INFO, entry.getKey());
+            assertNotNull(entry.getKey(), json);
+            try {
+                assertEquals(entry.getKey(), entry.getValue(), MAPPER.readTree(json));
+            } catch (final IOException e) {
+                throw new AssertionError(e);
+            }
+        });
+        assertNull(pack.getString(ReferencePack.PITCH_INFO, "not a word"));
+        assertEquals(0, pack.getInt(ReferencePack.PITCH_INFO, "〜丁目", 0));
+    }
+
+    @Test
+    public void testStrokeDataMatchesSource() throws IOException {
+        final ReferencePack pack = openPack();
+        final JsonNode source = MAPPER.readTree(locateCompiled("stroke_data.json"));
+        assertTrue(source.size() > 0);
+        assertEquals(source.size(), pack.size(ReferencePack.STROKE_DATA));
+        source.fields().forEachRemaining(entry -> {
+            final @Nullable String json = pack.getString(ReferencePack.STROKE_DATA, entry.getKey());
+            assertNotNull(entry.getKey(), json);
+            try {
+                assertEquals(entry.getKey(), entry.getValue(), MAPPER.readTree(json));
+            } catch (final IOException e) {
+                throw new AssertionError(e);
+            }
+        });
+    }
+
+    @Test
+    public void testRejectsBadPack() {
+        final ByteBuffer[] buffers = {
+                ByteBuffer.allocate(4),
+                ByteBuffer.allocate(12).putInt(0, 0x12345678),
+                ByteBuffer.allocate(12).putInt(0, 0x574b5250).putInt(4, 99),
+                ByteBuffer.allocate(28).putInt(0, 0x574b5250).putInt(4, 1).putInt(8, 1)
+                        .putInt(12, ReferencePack.FREQUENCY).putInt(16, 0).putInt(20, 1000).putInt(24, 28)
+        };
+        for (final ByteBuffer buffer: buffers) {
+            try {
+                ReferencePack.open(buffer);
+                fail("Bad pack accepted");
+            } catch (final IOException e) {
+                // Expected
+            }
+        }
+    }
+}
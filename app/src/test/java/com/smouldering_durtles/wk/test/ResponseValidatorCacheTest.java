@@ -0,0 +1,165 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static java.util.Objects.requireNonNull;
+
+import com.smouldering_durtles.wk.api.ResponseValidatorCache;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Test class to verify conditional requests with ResponseValidatorCache against a local stub server.
+ */
+@SuppressWarnings("JavaDoc")
+public final class ResponseValidatorCacheTest {
+    private static final String LAST_MODIFIED = "Sat, 01 Apr 2023 12:00:00 GMT";
+
+    private final Map<String, String> storage = new HashMap<>();
+    private final ResponseValidatorCache cache = new ResponseValidatorCache(new ResponseValidatorCache.Store() {
+        @Override
+        public @Nullable String get(final String url) {
+            return storage.get(url);
+        }
+
+        @Override
+        public void put(final String url, final String value) {
+            storage.put(url, value);
+        }
+
+        @Override
+        public void remove(final String url) {
+            storage.remove(url);
+        }
+    });
+
+    private final OkHttpClient client = new OkHttpClient();
+    private @Nullable HttpServer server = null;
+    private String url = "";
+    private String etag = "\"v1\"";
+    private int numFullResponses = 0;
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/v2/user";
+        server.createContext("/v2/user", exchange -> {
+            final @Nullable String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+            exchange.getResponseHeaders().add("ETag", etag);
+            exchange.getResponseHeaders().add("Last-Modified", LAST_MODIFIED);
+            if (etag.equals(ifNoneMatch)) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            numFullResponses++;
+            final byte[] body = "{\"object\":\"user\",\"data\":{}}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (final OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Make a request the way ApiTask does, and return true if a body had to be read.
+     */
+    private boolean fetch() throws IOException {
+        final Request.Builder builder = new Request.Builder().url(url);
+        cache.prepare(url, builder);
+        try (final Response response = client.newCall(builder.build()).execute()) {
+            if (ResponseValidatorCache.isNotModified(response)) {
+                return false;
+            }
+            assertTrue(response.isSuccessful());
+            requireNonNull(response.body()).bytes();
+            cache.update(url, response);
+            cache.commit(url);
+            return true;
+        }
+    }
+
+    @Test
+    public void testNotModifiedAfterFirstFetch() throws IOException {
+        assertTrue(fetch());
+        assertEquals("\"v1\"\n" + LAST_MODIFIED, storage.get(url));
+        assertFalse(fetch());
+        assertFalse(fetch());
+        assertEquals(1, numFullResponses);
+    }
+
+    @Test
+    public void testChangedResourceIsFetchedAgain() throws IOException {
+        assertTrue(fetch());
+        etag = "\"v2\"";
+        assertTrue(fetch());
+        assertEquals("\"v2\"\n" + LAST_MODIFIED, storage.get(url));
+        assertFalse(fetch());
+        assertEquals(2, numFullResponses);
+    }
+
+    @Test
+    public void testUncommittedValidatorsAreNotUsed() throws IOException {
+        final Request.Builder builder = new Request.Builder().url(url);
+        try (final Response response = client.newCall(builder.build()).execute()) {
+            requireNonNull(response.body()).bytes();
+            cache.update(url, response);
+        }
+        assertNull(storage.get(url));
+        assertTrue(fetch());
+        assertEquals("\"v1\"\n" + LAST_MODIFIED, storage.get(url));
+        assertFalse(fetch());
+        assertEquals(2, numFullResponses);
+    }
+
+    @Test
+    public void testInvalidateForcesFullFetch() throws IOException {
+        assertTrue(fetch());
+        cache.invalidate(url);
+        assertNull(storage.get(url));
+        assertTrue(fetch());
+        assertEquals(2, numFullResponses);
+    }
+}
@@ -0,0 +1,26 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+@FieldsAreNonnullByDefault
+@LocalVariablesAreNonnullByDefault
+@MethodsAreNonnullByDefault
+@ParametersAreNonnullByDefault
+package com.smouldering_durtles.wk.test;
+
+import javax.annotation.FieldsAreNonnullByDefault;
+import javax.annotation.LocalVariablesAreNonnullByDefault;
+import javax.annotation.MethodsAreNonnullByDefault;
+import javax.annotation.ParametersAreNonnullByDefault;
\ No newline at end of file
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.smouldering_durtles.wk.benchmark;
+
+import com.smouldering_durtles.wk.enums.CloseEnoughAction;
+import com.smouldering_durtles.wk.util.AnswerMatcher;
+import com.smouldering_durtles.wk.util.FuzzyMatching;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmarks for checking an answer against the accepted and rejected answers of a subject.
+ * This runs on every submitted answer. Each case has a few accepted and one rejected answer, and
+ * the answer is an exact match, a typo, or something else entirely.
+ */
+@State(Scope.Benchmark)
+@OperationsPerInvocation(AnswerMatchingBenchmark.NUM_CASES)
+public class AnswerMatchingBenchmark {
+    static final int NUM_CASES = 512;
+
+    private final String[] answers = new String[NUM_CASES];
+    private final List<List<String>> accepted = new ArrayList<>(NUM_CASES);
+    private final List<List<String>> rejected = new ArrayList<>(NUM_CASES);
+    private final AnswerMatcher[] matchers = new AnswerMatcher[NUM_CASES];
+
+    /**
+     * Build the cases from the corpus, with a fixed seed so every run sees the same input.
+     */
+    @Setup
+    public void setup() {
+        final List<Corpus.Entry> entries = Corpus.get().getEntries();
+        final Random random = new Random(1);
+        for (int i=0; i<NUM_CASES; i++) {
+            final List<String> acc = new ArrayList<>();
+            for (int j=random.nextInt(3); j>=0; j--) {
+                acc.add(entries.get(random.nextInt(entries.size())).romaji);
+            }
+            final List<String> rej = Collections.singletonList(entries.get(random.nextInt(entries.size())).romaji);
+            accepted.add(acc);
+            rejected.add(rej);
+            matchers[i] = new AnswerMatcher(acc, rej);
+            final String target = acc.get(0);
+            switch (i % 4) {
+                case 0:
+                    answers[i] = target;
+                    break;
+                case 1:
+                case 2:
+                    answers[i] = addTypo(target, random);
+                    break;
+                default:
+                    answers[i] = entries.get(random.nextInt(entries.size())).romaji;
+                    break;
+            }
+        }
+    }
+
+    private static String addTypo(final String s, final Random random) {
+        final int pos = random.nextInt(s.length());
+        switch (random.nextInt(3)) {
+            case 0:
+                return s.substring(0, pos) + s.substring(pos + 1);
+            case 1:
+                return s.substring(0, pos) + (char) ('a' + random.nextInt(26)) + s.substring(pos);
+            default:
+                if (pos + 1 >= s.length()) {
+                    return s + 'e';
+                }
+                return s.substring(0, pos) + s.charAt(pos + 1) + s.charAt(pos) + s.substring(pos + 2);
+        }
+    }
+
+    /**
+     * The original implementation, that cleans and scores every candidate from scratch.
+     *
+     * @param bh the black hole
+     */
+    @Benchmark
+    public void fuzzyMatching(final Blackhole bh) {
+        for (int i=0; i<NUM_CASES; i++) {
+            bh.consume(FuzzyMatching.matches(answers[i], accepted.get(i), rejected.get(i), CloseEnoughAction.ACCEPT_WITH_TOAST));
+        }
+    }
+
+    /**
+     * The cached matcher, when the subject is already in the cache.
+     *
+     * @param bh the black hole
+     */
+    @Benchmark
+    public void answerMatcherWarm(final Blackhole bh) {
+        for (int i=0; i<NUM_CASES; i++) {
+            bh.consume(matchers[i].matches(answers[i], CloseEnoughAction.ACCEPT_WITH_TOAST));
+        }
+    }
+
+    /**
+     * The cached matcher, when it has to be built first.
+     *
+     * @param bh the black hole
+     */
+    @Benchmark
+    public void answerMatcherCold(final Blackhole bh) {
+        for (int i=0; i<NUM_CASES; i++) {
+            bh.consume(new AnswerMatcher(accepted.get(i), rejected.get(i)).matches(answers[i], CloseEnoughAction.ACCEPT_WITH_TOAST));
+        }
+    }
+}
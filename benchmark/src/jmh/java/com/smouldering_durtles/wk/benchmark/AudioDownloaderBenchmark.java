@@ -0,0 +1,167 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.benchmark;
+
+import com.smouldering_durtles.wk.util.AudioDownloader;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.Nullable;
+
+import okhttp3.OkHttpClient;
+
+/**
+ * Benchmark for downloading a batch of audio files, one at a time against the downloader's thread
+ * pool. The files come from a local HTTP server with a fixed latency per request, so the numbers
+ * show how much of that latency the pool hides, not real network timings.
+ */
+@State(Scope.Benchmark)
+@OperationsPerInvocation(AudioDownloaderBenchmark.NUM_FILES)
+public class AudioDownloaderBenchmark {
+    static final int NUM_FILES = 20;
+    private static final int FILE_SIZE = 32 * 1024;
+    private static final int NUM_THREADS = 4;
+    private static final long LATENCY = 20;
+
+    private final byte[] data = new byte[FILE_SIZE];
+    private final List<AudioDownloader.Item> items = new ArrayList<>();
+    private @Nullable HttpServer server = null;
+    private @Nullable ExecutorService executor = null;
+    private @Nullable AudioDownloader downloader = null;
+    private @Nullable File dir = null;
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        try {
+            Thread.sleep(LATENCY);
+            exchange.getResponseHeaders().set("Content-Type", "audio/mpeg");
+            exchange.sendResponseHeaders(200, data.length);
+            try (final OutputStream os = exchange.getResponseBody()) {
+                os.write(data);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Start the server and the downloader.
+     *
+     * @throws IOException if the server or the directory can't be created
+     */
+    @Setup
+    public void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/audio/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        executor = Executors.newFixedThreadPool(NUM_THREADS);
+        downloader = new AudioDownloader(new OkHttpClient(), executor);
+        dir = Files.createTempDirectory("audio").toFile();
+        items.clear();
+        for (int i=0; i<NUM_FILES; i++) {
+            items.add(new AudioDownloader.Item("http://127.0.0.1:" + server.getAddress().getPort() + "/audio/" + i + ".mp3",
+                    new File(dir, i + ".mp3")));
+        }
+    }
+
+    /**
+     * Remove the files of the previous invocation, so every invocation downloads all of them.
+     */
+    @Setup(Level.Invocation)
+    public void clean() {
+        for (final AudioDownloader.Item item: items) {
+            //noinspection ResultOfMethodCallIgnored
+            item.getTarget().delete();
+        }
+    }
+
+    /**
+     * Stop the server and the downloader, and remove the directory.
+     */
+    @TearDown
+    public void tearDown() {
+        clean();
+        if (dir != null) {
+            //noinspection ResultOfMethodCallIgnored
+            dir.delete();
+            dir = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        downloader = null;
+    }
+
+    /**
+     * The old way: download the files one after the other.
+     *
+     * @return the number of files downloaded
+     * @throws IOException on download errors
+     */
+    @Benchmark
+    public int oneAtATime() throws IOException {
+        if (downloader == null) {
+            return 0;
+        }
+        int count = 0;
+        for (final AudioDownloader.Item item: items) {
+            if (downloader.download(item.getUrl(), item.getTarget())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Download the files on the downloader's pool.
+     *
+     * @return the number of files downloaded
+     */
+    @Benchmark
+    public int pooled() {
+        if (downloader == null) {
+            return 0;
+        }
+        return downloader.downloadAll(items, () -> true).getNumDownloaded();
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.smouldering_durtles.wk.benchmark;
+
+import com.smouldering_durtles.wk.util.AudioFileIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Locale;
+
+import javax.annotation.Nullable;
+
+/**
+ * Benchmark for the audio file checks of a level scan, on a temporary directory laid out like the
+ * audio directory: a File.exists() call per candidate file, against lookups in the index. The
+ * one-time directory scan that fills the index is measured separately. The numbers depend heavily
+ * on the file system and its caches, so they show the shape of the difference, not real device
+ * timings.
+ */
+@State(Scope.Benchmark)
+public class AudioFileIndexBenchmark {
+    static final int NUM_LEVELS = 60;
+    static final int FILES_PER_LEVEL = 200;
+    static final int NUM_FILES = NUM_LEVELS * FILES_PER_LEVEL;
+
+    private final String[][] mp3Names = new String[NUM_LEVELS + 1][FILES_PER_LEVEL];
+    private final String[][] oggNames = new String[NUM_LEVELS + 1][FILES_PER_LEVEL];
+    private @Nullable File audioDirectory = null;
+    private @Nullable AudioFileIndex index = null;
+
+    private static void deleteRecursively(final File file) {
+        final @Nullable File[] children = file.listFiles();
+        if (children != null) {
+            for (final File child: children) {
+                deleteRecursively(child);
+            }
+        }
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+
+    /**
+     * Create the audio directory, with three out of four files present, and fill the index.
+     *
+     * @throws IOException if the files can't be created
+     */
+    @Setup
+    public void setup() throws IOException {
+        final File directory = Files.createTempDirectory("pronunciation-audio").toFile();
+        audioDirectory = directory;
+        for (int level=1; level<=NUM_LEVELS; level++) {
+            final File levelDirectory = new File(directory, Integer.toString(level));
+            //noinspection ResultOfMethodCallIgnored
+            levelDirectory.mkdirs();
+            for (int i=0; i<FILES_PER_LEVEL; i++) {
+                mp3Names[level][i] = String.format(Locale.ROOT, "%d.mp3", level * 1000 + i);
+                oggNames[level][i] = String.format(Locale.ROOT, "%d.ogg", level * 1000 + i);
+                if (i % 4 != 0) {
+                    Files.write(new File(levelDirectory, mp3Names[level][i]).toPath(), new byte[] {1, 2, 3});
+                }
+            }
+        }
+        index = new AudioFileIndex(null);
+        index.exists(directory, 0, "");
+    }
+
+    /**
+     * Delete the audio directory.
+     */
+    @TearDown
+    public void tearDown() {
+        if (audioDirectory != null) {
+            deleteRecursively(audioDirectory);
+            audioDirectory = null;
+        }
+        index = null;
+    }
+
+    /**
+     * The old way: check each candidate file on storage.
+     *
+     * @return the number of files present
+     */
+    @Benchmark
+    @OperationsPerInvocation(NUM_FILES)
+    public int fileExists() {
+        if (audioDirectory == null) {
+            return 0;
+        }
+        int numPresent = 0;
+        for (int level=1; level<=NUM_LEVELS; level++) {
+            final File levelDirectory = new File(audioDirectory, Integer.toString(level));
+            for (int i=0; i<FILES_PER_LEVEL; i++) {
+                if (new File(levelDirectory, mp3Names[level][i]).exists() || new File(levelDirectory, oggNames[level][i]).exists()) {
+                    numPresent++;
+                }
+            }
+        }
+        return numPresent;
+    }
+
+    /**
+     * Look each candidate file up in the index.
+     *
+     * @return the number of files present
+     */
+    @Benchmark
+    @OperationsPerInvocation(NUM_FILES)
+    public int indexed() {
+        if (audioDirectory == null || index == null) {
+            return 0;
+        }
+        int numPresent = 0;
+        for (int level=1; level<=NUM_LEVELS; level++) {
+            for (int i=0; i<FILES_PER_LEVEL; i++) {
+                if (index.exists(audioDirectory, level, mp3Names[level][i]) || index.exists(audioDirectory, level, oggNames[level][i])) {
+                    numPresent++;
+                }
+            }
+        }
+        return numPresent;
+    }
+
+    /**
+     * Build a new index, which scans the whole audio directory on the first lookup.
+     *
+     * @return the result of the first lookup
+     */
+    @Benchmark
+    public boolean scan() {
+        if (audioDirectory == null) {
+            return false;
+        }
+        return new AudioFileIndex(null).exists(audioDirectory, 1, mp3Names[1][1]);
+    }
+}
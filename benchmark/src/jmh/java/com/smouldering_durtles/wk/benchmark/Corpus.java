@@ -0,0 +1,225 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.smouldering_durtles.wk.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smouldering_durtles.wk.util.KanaUtil;
+import com.smouldering_durtles.wk.util.PseudoIme;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * Benchmark input, generated from the reference data that ships with the app and the repository.
+ *
+ * <p>
+ *     The vocabulary comes from reference-data/compiled/pitch_info.json, and the readings for it from
+ *     reference-data/weblio_pitch_info.json. Readings are turned into romaji with a plain
+ *     Hepburn table, and only words whose romaji are turned back into the same kana by the
+ *     pseudo-IME are kept. The JSON files don't have English meanings, so the romaji stand in
+ *     for Latin-script answers as well.
+ * </p>
+ */
+final class Corpus {
+    private static final String[] KANA = {
+            "キャ", "キュ", "キョ", "シャ", "シュ", "ショ", "チャ", "チュ", "チョ", "ニャ", "ニュ", "ニョ",
+            "ヒャ", "ヒュ", "ヒョ", "ミャ", "ミュ", "ミョ", "リャ", "リュ", "リョ", "ギャ", "ギュ", "ギョ",
+            "ジャ", "ジュ", "ジョ", "ビャ", "ビュ", "ビョ", "ピャ", "ピュ", "ピョ", "ファ", "フィ", "フェ", "フォ",
+            "ア", "イ", "ウ", "エ", "オ", "カ", "キ", "ク", "ケ", "コ", "サ", "シ", "ス", "セ", "ソ",
+            "タ", "チ", "ツ", "テ", "ト", "ナ", "ニ", "ヌ", "ネ", "ノ", "ハ", "ヒ", "フ", "ヘ", "ホ",
+            "マ", "ミ", "ム", "メ", "モ", "ヤ", "ユ", "ヨ", "ラ", "リ", "ル", "レ", "ロ", "ワ", "ヲ",
+            "ガ", "ギ", "グ", "ゲ", "ゴ", "ザ", "ジ", "ズ", "ゼ", "ゾ", "ダ", "ヂ", "ヅ", "デ", "ド",
+            "バ", "ビ", "ブ", "ベ", "ボ", "パ", "ピ", "プ", "ペ", "ポ", "ン", "ー"
+    };
+    private static final String[] ROMAJI = {
+            "kya", "kyu", "kyo", "sha", "shu", "sho", "cha", "chu", "cho", "nya", "nyu", "nyo",
+            "hya", "hyu", "hyo", "mya", "myu", "myo", "rya", "ryu", "ryo", "gya", "gyu", "gyo",
+            "ja", "ju", "jo", "bya", "byu", "byo", "pya", "pyu", "pyo", "fa", "fi", "fe", "fo",
+            "a", "i", "u", "e", "o", "ka", "ki", "ku", "ke", "ko", "sa", "shi", "su", "se", "so",
+            "ta", "chi", "tsu", "te", "to", "na", "ni", "nu", "ne", "no", "ha", "hi", "fu", "he", "ho",
+            "ma", "mi", "mu", "me", "mo", "ya", "yu", "yo", "ra", "ri", "ru", "re", "ro", "wa", "wo",
+            "ga", "gi", "gu", "ge", "go", "za", "ji", "zu", "ze", "zo", "da", "di", "du", "de", "do",
+            "ba", "bi", "bu", "be", "bo", "pa", "pi", "pu", "pe", "po", "nn", "-"
+    };
+
+    private static final Map<String, String> TABLE = new HashMap<>();
+
+    private static @Nullable Corpus instance = null;
+
+    private final List<Entry> entries;
+
+    /**
+     * One vocabulary item.
+     */
+    static final class Entry {
+        final String characters;
+        final String katakana;
+        final String hiragana;
+        final String romaji;
+
+        private Entry(final String characters, final String katakana, final String hiragana, final String romaji) {
+            this.characters = characters;
+            this.katakana = katakana;
+            this.hiragana = hiragana;
+            this.romaji = romaji;
+        }
+    }
+
+    static {
+        for (int i=0; i<KANA.length; i++) {
+            TABLE.put(KANA[i], ROMAJI[i]);
+        }
+    }
+
+    private Corpus(final List<Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Get the corpus, loading it on first use.
+     *
+     * @return the corpus
+     */
+    static synchronized Corpus get() {
+        if (instance == null) {
+            instance = load();
+        }
+        return instance;
+    }
+
+    /**
+     * The vocabulary, in the order of the source file.
+     *
+     * @return the list
+     */
+    List<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Get the root directory of the repository, from the wk.rootDir system property that the
+     * build passes in, or by looking around the working directory.
+     *
+     * @return the directory
+     */
+    static File getRootDir() {
+        final @Nullable String property = System.getProperty("wk.rootDir");
+        if (property != null) {
+            return new File(property);
+        }
+        final File cwd = new File("").getAbsoluteFile();
+        if (new File(cwd, "reference-data").isDirectory()) {
+            return cwd;
+        }
+        return cwd.getParentFile();
+    }
+
+    private static Corpus load() {
+        final File root = getRootDir();
+        final ObjectMapper mapper = new ObjectMapper();
+        try {
+            final JsonNode vocab = mapper.readTree(new File(root, "reference-data/compiled/pitch_info.json"));
+            final JsonNode readings = mapper.readTree(new File(root, "reference-data/weblio_pitch_info.json"));
+            final Map<String, Entry> result = new LinkedHashMap<>();
+            final Iterator<String> names = vocab.fieldNames();
+            while (names.hasNext()) {
+                final String characters = names.next();
+                final @Nullable JsonNode list = readings.get(characters);
+                if (list == null) {
+                    continue;
+                }
+                for (final JsonNode item: list) {
+                    final JsonNode reading = item.get(0);
+                    if (reading == null || !reading.isTextual()) {
+                        continue;
+                    }
+                    final String katakana = reading.asText();
+                    final @Nullable String romaji = toRomaji(katakana);
+                    if (romaji == null) {
+                        continue;
+                    }
+                    final String hiragana = KanaUtil.convertKatakanaToHiragana(katakana);
+                    if (!PseudoIme.simulateInput(romaji).equals(hiragana)) {
+                        continue;
+                    }
+                    result.put(characters, new Entry(characters, katakana, hiragana, romaji));
+                    break;
+                }
+            }
+            if (result.size() < 100) {
+                throw new IllegalStateException("Corpus is too small, check the location of the reference data: " + root);
+            }
+            return new Corpus(new ArrayList<>(result.values()));
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Convert a Katakana reading to romaji as it would be typed into the pseudo-IME.
+     *
+     * @param katakana the reading
+     * @return the romaji, or null if the reading contains something the table doesn't cover
+     */
+    private static @Nullable String toRomaji(final String katakana) {
+        final StringBuilder sb = new StringBuilder();
+        boolean doubleNext = false;
+        int i = 0;
+        while (i < katakana.length()) {
+            if (katakana.charAt(i) == 'ッ') {
+                doubleNext = true;
+                i++;
+                continue;
+            }
+            @Nullable String romaji = null;
+            if (i + 1 < katakana.length()) {
+                romaji = TABLE.get(katakana.substring(i, i+2));
+            }
+            if (romaji != null) {
+                i += 2;
+            }
+            else {
+                romaji = TABLE.get(katakana.substring(i, i+1));
+                i++;
+            }
+            if (romaji == null) {
+                return null;
+            }
+            if (doubleNext) {
+                if ("aiueon-".indexOf(romaji.charAt(0)) >= 0) {
+                    return null;
+                }
+                sb.append(romaji.charAt(0));
+                doubleNext = false;
+            }
+            sb.append(romaji);
+        }
+        return doubleNext ? null : sb.toString();
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.smouldering_durtles.wk.benchmark;
+
+import com.smouldering_durtles.wk.util.FontCoverage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import javax.annotation.Nullable;
+
+/**
+ * Benchmarks for the glyph coverage of a bundled font: parsing the cmap out of the font file,
+ * reading the stored coverage index, and the coverage check that runs for the characters of
+ * every session item.
+ */
+@State(Scope.Benchmark)
+public class FontCoverageBenchmark {
+    static final int NUM_LOOKUPS = 0xA000 - 0x3000;
+
+    private byte[] font = new byte[0];
+    private byte[] index = new byte[0];
+    private @Nullable FontCoverage coverage = null;
+
+    /**
+     * Load the font file and build its coverage and index.
+     *
+     * @throws IOException if the font can't be read
+     */
+    @Setup
+    public void setup() throws IOException {
+        font = Files.readAllBytes(new File(Corpus.getRootDir(), "app/src/main/res/font/kosugi_maru_regular.ttf").toPath());
+        coverage = FontCoverage.parse(new ByteArrayInputStream(font));
+        if (coverage == null) {
+            throw new IllegalStateException("No usable cmap");
+        }
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        coverage.write(os);
+        index = os.toByteArray();
+    }
+
+    /**
+     * Parse the cmap out of the font file, as is done the first time a font is used.
+     *
+     * @return the coverage
+     * @throws IOException if the font can't be parsed
+     */
+    @Benchmark
+    public @Nullable FontCoverage parseFont() throws IOException {
+        return FontCoverage.parse(new ByteArrayInputStream(font));
+    }
+
+    /**
+     * Read the stored index, as is done when the font hasn't changed since the index was written.
+     *
+     * @return the coverage
+     * @throws IOException if the index can't be read
+     */
+    @Benchmark
+    public @Nullable FontCoverage readIndex() throws IOException {
+        return FontCoverage.read(new ByteArrayInputStream(index));
+    }
+
+    /**
+     * Check the coverage of every code point in the kana and CJK blocks.
+     *
+     * @param bh the black hole
+     */
+    @Benchmark
+    @OperationsPerInvocation(NUM_LOOKUPS)
+    public void lookup(final Blackhole bh) {
+        if (coverage == null) {
+            return;
+        }
+        for (int c=0x3000; c<0xA000; c++) {
+            bh.consume(coverage.contains(c));
+        }
+    }
+}
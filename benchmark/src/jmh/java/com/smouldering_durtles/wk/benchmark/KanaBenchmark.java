@@ -0,0 +1,97 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.smouldering_durtles.wk.benchmark;
+
+import com.smouldering_durtles.wk.util.KanaUtil;
+import com.smouldering_durtles.wk.util.PseudoIme;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+
+/**
+ * Benchmarks for the kana input and conversion code that runs on every keystroke of a reading answer.
+ */
+@State(Scope.Benchmark)
+@OperationsPerInvocation(KanaBenchmark.NUM_WORDS)
+public class KanaBenchmark {
+    static final int NUM_WORDS = 1024;
+
+    private final String[] romaji = new String[NUM_WORDS];
+    private final String[] katakana = new String[NUM_WORDS];
+
+    /**
+     * Take the first words of the corpus.
+     */
+    @Setup
+    public void setup() {
+        final List<Corpus.Entry> entries = Corpus.get().getEntries();
+        for (int i=0; i<NUM_WORDS; i++) {
+            final Corpus.Entry entry = entries.get(i % entries.size());
+            romaji[i] = entry.romaji;
+            katakana[i] = entry.katakana;
+        }
+    }
+
+    /**
+     * Convert a whole word at once.
+     *
+     * @param bh the black hole
+     */
+    @Benchmark
+    public void simulateInput(final Blackhole bh) {
+        for (int i=0; i<NUM_WORDS; i++) {
+            bh.consume(PseudoIme.simulateInput(romaji[i]));
+        }
+    }
+
+    /**
+     * Type a word one key at a time, running the IME after each key like the text watcher does.
+     *
+     * @param bh the black hole
+     */
+    @Benchmark
+    public void fixupPerKeystroke(final Blackhole bh) {
+        for (int i=0; i<NUM_WORDS; i++) {
+            final PseudoIme.DummyEditable editable = new PseudoIme.DummyEditable("");
+            final String word = romaji[i];
+            for (int j=0; j<word.length(); j++) {
+                editable.append(word.charAt(j));
+                PseudoIme.fixup(editable, editable.length() - 1, editable.length());
+            }
+            bh.consume(editable.toString());
+        }
+    }
+
+    /**
+     * Katakana to Hiragana conversion.
+     *
+     * @param bh the black hole
+     */
+    @Benchmark
+    public void convertKatakanaToHiragana(final Blackhole bh) {
+        for (int i=0; i<NUM_WORDS; i++) {
+            bh.consume(KanaUtil.convertKatakanaToHiragana(katakana[i]));
+        }
+    }
+}
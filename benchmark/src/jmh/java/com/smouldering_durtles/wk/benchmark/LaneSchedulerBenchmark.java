@@ -0,0 +1,217 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.smouldering_durtles.wk.benchmark;
+
+import com.smouldering_durtles.wk.enums.TaskLane;
+import com.smouldering_durtles.wk.util.LaneScheduler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.Nullable;
+
+/**
+ * Benchmark for the time from submitting a session report until it has been sent, while a long
+ * bulk task is running: everything in one queue like before, against the separate lanes. The
+ * tasks are simulated by fixed delays, so the numbers show the shape of the difference, not real
+ * network timings.
+ */
+@State(Scope.Benchmark)
+public class LaneSchedulerBenchmark {
+    private static final long BULK_NANOS = 5_000_000;
+    private static final long REPORT_NANOS = 100_000;
+
+    /**
+     * A task that takes a fixed time and removes itself from the queue when done.
+     */
+    private static final class FakeTask implements LaneScheduler.Task {
+        private final FakeQueue queue;
+        private final long id;
+        private final TaskLane lane;
+        private final int priority;
+        private final long nanos;
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        private FakeTask(final FakeQueue queue, final TaskLane lane, final int priority, final long nanos) {
+            this.queue = queue;
+            id = queue.nextId.incrementAndGet();
+            this.lane = lane;
+            this.priority = priority;
+            this.nanos = nanos;
+        }
+
+        @Override
+        public boolean canRun() {
+            return true;
+        }
+
+        @Override
+        public boolean canRunConcurrently() {
+            return false;
+        }
+
+        @Override
+        public void run() {
+            started.countDown();
+            LockSupport.parkNanos(nanos);
+            queue.remove(this);
+            finished.countDown();
+        }
+    }
+
+    /**
+     * The in-memory queue. In single-lane mode, every task goes into the sync lane, like the old
+     * single task queue.
+     */
+    private static final class FakeQueue implements LaneScheduler.Queue {
+        private final boolean singleLane;
+        private final AtomicLong nextId = new AtomicLong(0);
+        private final List<FakeTask> tasks = new ArrayList<>();
+
+        private FakeQueue(final boolean singleLane) {
+            this.singleLane = singleLane;
+        }
+
+        private synchronized FakeTask add(final TaskLane lane, final int priority, final long nanos) {
+            final FakeTask task = new FakeTask(this, lane, priority, nanos);
+            tasks.add(task);
+            return task;
+        }
+
+        private synchronized void remove(final FakeTask task) {
+            tasks.remove(task);
+        }
+
+        private synchronized List<Long> getIds(final TaskLane lane, final int maxCount, final Comparator<FakeTask> order) {
+            final List<FakeTask> candidates = new ArrayList<>();
+            for (final FakeTask task: tasks) {
+                if ((singleLane ? TaskLane.SYNC : task.lane) == lane) {
+                    candidates.add(task);
+                }
+            }
+            candidates.sort(order);
+            final List<Long> result = new ArrayList<>();
+            for (int i=0; i<candidates.size() && i<maxCount; i++) {
+                result.add(candidates.get(i).id);
+            }
+            return result;
+        }
+
+        @Override
+        public List<Long> getNextIds(final TaskLane lane, final int maxCount) {
+            return getIds(lane, maxCount, (o1, o2) -> o1.priority != o2.priority
+                    ? Integer.compare(o1.priority, o2.priority) : Long.compare(o1.id, o2.id));
+        }
+
+        @Override
+        public List<Long> getOldestIds(final TaskLane lane, final int maxCount) {
+            return getIds(lane, maxCount, (o1, o2) -> Long.compare(o1.id, o2.id));
+        }
+
+        @Override
+        public synchronized @Nullable LaneScheduler.Task load(final long id) {
+            for (final FakeTask task: tasks) {
+                if (task.id == id) {
+                    return task;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void onError(final Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private final FakeQueue singleQueue = new FakeQueue(true);
+    private final FakeQueue laneQueue = new FakeQueue(false);
+    private final LaneScheduler singleScheduler = new LaneScheduler(singleQueue, 8);
+    private final LaneScheduler laneScheduler = new LaneScheduler(laneQueue, 8);
+
+    /**
+     * Start a long bulk task in both schedulers, and wait until it is running.
+     *
+     * @throws InterruptedException if interrupted while waiting for the task
+     */
+    @Setup(Level.Invocation)
+    public void startBulkTask() throws InterruptedException {
+        final FakeTask single = singleQueue.add(TaskLane.BULK, 1, BULK_NANOS);
+        final FakeTask lanes = laneQueue.add(TaskLane.BULK, 1, BULK_NANOS);
+        singleScheduler.schedule();
+        laneScheduler.schedule();
+        single.started.await();
+        lanes.started.await();
+    }
+
+    /**
+     * Let both schedulers finish their work.
+     *
+     * @throws InterruptedException if interrupted while waiting for the schedulers
+     */
+    @TearDown(Level.Invocation)
+    public void awaitIdle() throws InterruptedException {
+        singleScheduler.awaitIdle();
+        laneScheduler.awaitIdle();
+    }
+
+    /**
+     * Submit a report and wait until it has been sent.
+     *
+     * @param queue the queue
+     * @param scheduler the scheduler for the queue
+     * @throws InterruptedException if interrupted while waiting for the report
+     */
+    private static void submitReport(final FakeQueue queue, final LaneScheduler scheduler) throws InterruptedException {
+        final FakeTask report = queue.add(TaskLane.INTERACTIVE, 15, REPORT_NANOS);
+        scheduler.schedule();
+        report.finished.await();
+    }
+
+    /**
+     * The old way: the report waits in the same queue as the bulk task.
+     *
+     * @throws InterruptedException if interrupted while waiting for the report
+     */
+    @Benchmark
+    public void singleQueue() throws InterruptedException {
+        submitReport(singleQueue, singleScheduler);
+    }
+
+    /**
+     * The report goes into the interactive lane, next to the bulk task.
+     *
+     * @throws InterruptedException if interrupted while waiting for the report
+     */
+    @Benchmark
+    public void lanes() throws InterruptedException {
+        submitReport(laneQueue, laneScheduler);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.benchmark;
+
+import com.smouldering_durtles.wk.db.model.LogRecord;
+import com.smouldering_durtles.wk.util.LogPipeline;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+/**
+ * Benchmark for the asynchronous log pipeline behind DbLogger, against the old synchronous logging
+ * that formatted each record and wrote it in its own transaction on the calling thread. The
+ * database is simulated by a sink with a fixed cost per transaction and per row, so the numbers
+ * show the shape of the difference, not real SQLite timings.
+ */
+@State(Scope.Benchmark)
+@OperationsPerInvocation(LogPipelineBenchmark.NUM_RECORDS)
+public class LogPipelineBenchmark {
+    static final int NUM_RECORDS = 256;
+    private static final long TRANSACTION_COST_NANOS = 50_000;
+    private static final long ROW_COST_NANOS = 2_000;
+    private static final String FORMAT = "%s fetched %d items from %s";
+    private static final Object[] ARGS = {"GetAssignmentsTask", 42, "https://api.wanikani.com/v2/assignments?page_after_id=1234"};
+
+    private final LogPipeline.Sink sink = new LogPipeline.Sink() {
+        @Override
+        public void write(final List<LogRecord> records) {
+            final long end = System.nanoTime() + TRANSACTION_COST_NANOS + ROW_COST_NANOS * records.size();
+            //noinspection StatementWithEmptyBody
+            while (System.nanoTime() < end) {
+                //
+            }
+        }
+
+        @Override
+        public void maintain() {
+            //
+        }
+    };
+
+    private @Nullable LogPipeline pipeline = null;
+
+    /**
+     * Start the pipeline.
+     */
+    @Setup
+    public void setup() {
+        pipeline = new LogPipeline(sink, 1 << 16);
+        pipeline.start();
+    }
+
+    /**
+     * Stop the pipeline.
+     *
+     * @throws InterruptedException if interrupted while waiting for the flusher
+     */
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        if (pipeline != null) {
+            pipeline.stop();
+            pipeline = null;
+        }
+    }
+
+    /**
+     * The old way: format and write each record in its own transaction, on the calling thread.
+     */
+    @Benchmark
+    public void synchronous() {
+        for (int i=0; i<NUM_RECORDS; i++) {
+            final String message = String.format(FORMAT, ARGS);
+            final LogRecord record = new LogRecord();
+            record.timestamp = i;
+            record.tag = "ApiTask";
+            record.message = message;
+            record.length = message.length();
+            sink.write(Collections.singletonList(record));
+        }
+    }
+
+    /**
+     * The cost of a log call for the caller: queue the records and return.
+     */
+    @Benchmark
+    public void pipelineCaller() {
+        if (pipeline == null) {
+            return;
+        }
+        for (int i=0; i<NUM_RECORDS; i++) {
+            pipeline.log(i, "ApiTask", 20_000, FORMAT, ARGS);
+        }
+    }
+
+    /**
+     * Queue the records and wait until the flusher has formatted and written all of them.
+     */
+    @Benchmark
+    public void pipelineFlushed() {
+        if (pipeline == null) {
+            return;
+        }
+        for (int i=0; i<NUM_RECORDS; i++) {
+            pipeline.log(i, "ApiTask", 20_000, FORMAT, ARGS);
+        }
+        pipeline.flush(60_000);
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smouldering_durtles.wk.api.model.AuxiliaryMeaning;
+import com.smouldering_durtles.wk.api.model.ContextSentence;
+import com.smouldering_durtles.wk.api.model.Meaning;
+import com.smouldering_durtles.wk.api.model.PronunciationAudio;
+import com.smouldering_durtles.wk.api.model.PronunciationAudioMeta;
+import com.smouldering_durtles.wk.api.model.Reading;
+import com.smouldering_durtles.wk.db.PackedSubjectLists;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Benchmark for decoding the list columns of a subject: the packed blob against the JSON columns it
+ * replaces, on a synthetic corpus of vocab-sized subjects.
+ */
+@State(Scope.Benchmark)
+@OperationsPerInvocation(PackedSubjectListsBenchmark.NUM_SUBJECTS)
+public class PackedSubjectListsBenchmark {
+    static final int NUM_SUBJECTS = 1000;
+
+    private static final TypeReference<List<Meaning>> MEANINGS = new TypeReference<List<Meaning>>() {};
+    private static final TypeReference<List<AuxiliaryMeaning>> AUXILIARY_MEANINGS = new TypeReference<List<AuxiliaryMeaning>>() {};
+    private static final TypeReference<List<Reading>> READINGS = new TypeReference<List<Reading>>() {};
+    private static final TypeReference<List<Long>> IDS = new TypeReference<List<Long>>() {};
+    private static final TypeReference<List<String>> STRINGS = new TypeReference<List<String>>() {};
+    private static final TypeReference<List<ContextSentence>> CONTEXT_SENTENCES = new TypeReference<List<ContextSentence>>() {};
+    private static final TypeReference<List<PronunciationAudio>> AUDIOS = new TypeReference<List<PronunciationAudio>>() {};
+
+    private final ObjectMapper mapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final List<byte[]> packed = new ArrayList<>();
+    private final List<String[]> json = new ArrayList<>();
+
+    /**
+     * Build the corpus in both formats.
+     *
+     * @throws IOException if the JSON can't be written
+     */
+    @Setup
+    public void setup() throws IOException {
+        packed.clear();
+        json.clear();
+        for (int n=0; n<NUM_SUBJECTS; n++) {
+            final List<Meaning> meanings = new ArrayList<>();
+            for (int i=0; i<3; i++) {
+                final Meaning meaning = new Meaning();
+                meaning.setMeaning("meaning " + n + " variant " + i);
+                meaning.setPrimary(i == 0);
+                meaning.setAcceptedAnswer(i != 2);
+                meanings.add(meaning);
+            }
+            final AuxiliaryMeaning auxiliaryMeaning = new AuxiliaryMeaning();
+            auxiliaryMeaning.setMeaning("not " + n);
+            auxiliaryMeaning.setType(n % 2 == 0 ? "whitelist" : "blacklist");
+            final List<AuxiliaryMeaning> auxiliaryMeanings = Collections.singletonList(auxiliaryMeaning);
+            final List<Reading> readings = new ArrayList<>();
+            for (int i=0; i<2; i++) {
+                final Reading reading = new Reading();
+                reading.setReading("よみ" + n + "の" + i);
+                reading.setPrimary(i == 0);
+                reading.setAcceptedAnswer(true);
+                reading.setType(i == 0 ? "onyomi" : null);
+                readings.add(reading);
+            }
+            final List<Long> componentSubjectIds = Arrays.asList(440L + n % 50, 8761L + n, 12L);
+            final List<Long> amalgamationSubjectIds = new ArrayList<>();
+            for (int i=0; i<6; i++) {
+                amalgamationSubjectIds.add(2467L + n * 7L + i * 13L);
+            }
+            final List<Long> visuallySimilarSubjectIds = Collections.singletonList(1000L + n);
+            final List<String> partsOfSpeech = Arrays.asList("noun", "する verb");
+            final List<ContextSentence> contextSentences = new ArrayList<>();
+            for (int i=0; i<3; i++) {
+                final ContextSentence sentence = new ContextSentence();
+                sentence.setEnglish("This is example sentence number " + i + " for subject " + n + ".");
+                sentence.setJapanese("これは" + n + "の例文" + i + "です。");
+                contextSentences.add(sentence);
+            }
+            final List<PronunciationAudio> pronunciationAudios = new ArrayList<>();
+            for (int i=0; i<4; i++) {
+                final PronunciationAudio audio = new PronunciationAudio();
+                audio.setUrl("https://files.wanikani.com/" + n + "-" + i + "-audio.mp3");
+                audio.setContentType(i % 2 == 0 ? "audio/mpeg" : "audio/ogg");
+                final PronunciationAudioMeta metadata = new PronunciationAudioMeta();
+                metadata.setGender(i < 2 ? "female" : "male");
+                metadata.setPronunciation("よみ" + n);
+                metadata.setSourceId(20000L + n);
+                metadata.setVoiceActorId(1 + i / 2);
+                metadata.setVoiceActorName(i < 2 ? "Kyoko" : "Kenichi");
+                metadata.setVoiceDescription("Tokyo accent");
+                audio.setMetadata(metadata);
+                pronunciationAudios.add(audio);
+            }
+
+            packed.add(new PackedSubjectLists.Writer()
+                    .meanings(meanings)
+                    .auxiliaryMeanings(auxiliaryMeanings)
+                    .readings(readings)
+                    .componentSubjectIds(componentSubjectIds)
+                    .amalgamationSubjectIds(amalgamationSubjectIds)
+                    .visuallySimilarSubjectIds(visuallySimilarSubjectIds)
+                    .partsOfSpeech(partsOfSpeech)
+                    .contextSentences(contextSentences)
+                    .pronunciationAudios(pronunciationAudios)
+                    .toByteArray());
+            json.add(new String[] {
+                    mapper.writeValueAsString(meanings),
+                    mapper.writeValueAsString(auxiliaryMeanings),
+                    mapper.writeValueAsString(readings),
+                    mapper.writeValueAsString(componentSubjectIds),
+                    mapper.writeValueAsString(amalgamationSubjectIds),
+                    mapper.writeValueAsString(visuallySimilarSubjectIds),
+                    mapper.writeValueAsString(partsOfSpeech),
+                    mapper.writeValueAsString(contextSentences),
+                    mapper.writeValueAsString(pronunciationAudios)
+            });
+        }
+    }
+
+    /**
+     * The old way: one Jackson parse per list column.
+     *
+     * @param bh the blackhole
+     * @throws IOException on parse errors
+     */
+    @Benchmark
+    public void decodeJson(final Blackhole bh) throws IOException {
+        for (final String[] columns: json) {
+            bh.consume(mapper.readValue(columns[0], MEANINGS));
+            bh.consume(mapper.readValue(columns[1], AUXILIARY_MEANINGS));
+            bh.consume(mapper.readValue(columns[2], READINGS));
+            bh.consume(mapper.readValue(columns[3], IDS));
+            bh.consume(mapper.readValue(columns[4], IDS));
+            bh.consume(mapper.readValue(columns[5], IDS));
+            bh.consume(mapper.readValue(columns[6], STRINGS));
+            bh.consume(mapper.readValue(columns[7], CONTEXT_SENTENCES));
+            bh.consume(mapper.readValue(columns[8], AUDIOS));
+        }
+    }
+
+    /**
+     * Decode all lists from the packed blob.
+     *
+     * @param bh the blackhole
+     */
+    @Benchmark
+    public void decodePacked(final Blackhole bh) {
+        for (final byte[] data: packed) {
+            bh.consume(PackedSubjectLists.getMeanings(data));
+            bh.consume(PackedSubjectLists.getAuxiliaryMeanings(data));
+            bh.consume(PackedSubjectLists.getReadings(data));
+            bh.consume(PackedSubjectLists.getComponentSubjectIds(data));
+            bh.consume(PackedSubjectLists.getAmalgamationSubjectIds(data));
+            bh.consume(PackedSubjectLists.getVisuallySimilarSubjectIds(data));
+            bh.consume(PackedSubjectLists.getPartsOfSpeech(data));
+            bh.consume(PackedSubjectLists.getContextSentences(data));
+            bh.consume(PackedSubjectLists.getPronunciationAudios(data));
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.benchmark;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smouldering_durtles.wk.api.ApiCollectionPage;
+import com.smouldering_durtles.wk.api.PagePipeline;
+import com.smouldering_durtles.wk.api.model.WaniKaniEntity;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.Nullable;
+
+/**
+ * Benchmark for a full collection sync, fetching the pages one after the other against fetching
+ * the next page while the current one is processed. The network is simulated by a fixed delay per
+ * page and the database by a fixed cost per entity, so the numbers show the shape of the
+ * difference, not real network or SQLite timings.
+ */
+@State(Scope.Benchmark)
+@OperationsPerInvocation(PagePipelineBenchmark.NUM_PAGES)
+public class PagePipelineBenchmark {
+    static final int NUM_PAGES = 6;
+    private static final int PAGE_SIZE = 500;
+    private static final long NETWORK_DELAY_NANOS = 5_000_000;
+    private static final long ENTITY_COST_NANOS = 10_000;
+    private static final String BASE_URL = "https://api.wanikani.com/v2/assignments";
+
+    private final ObjectMapper mapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final List<byte[]> pages = new ArrayList<>();
+    private @Nullable ExecutorService executor = null;
+
+    /**
+     * Minimal assignment entity, the app's own model classes need the Android runtime.
+     */
+    @SuppressWarnings({"unused", "WeakerAccess"})
+    public static final class Assignment implements WaniKaniEntity {
+        public long id = 0;
+        public @Nullable String object = null;
+        public long subject_id = 0;
+        public int srs_stage = 0;
+
+        @Override
+        public void setId(final long id) {
+            this.id = id;
+        }
+
+        @Override
+        public void setObject(final @Nullable String object) {
+            this.object = object;
+        }
+    }
+
+    private static String assignmentPage(final int page) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("{\"object\":\"collection\",\"url\":\"").append(BASE_URL).append("\",");
+        sb.append("\"pages\":{\"per_page\":").append(PAGE_SIZE).append(",\"next_url\":");
+        if (page == NUM_PAGES - 1) {
+            sb.append("null");
+        }
+        else {
+            sb.append('"').append(BASE_URL).append("?page=").append(page + 1).append('"');
+        }
+        sb.append(",\"previous_url\":null},\"total_count\":").append(NUM_PAGES * PAGE_SIZE);
+        sb.append(",\"data_updated_at\":\"2023-04-01T12:00:00.000000Z\",\"data\":[");
+        for (int i=0; i<PAGE_SIZE; i++) {
+            final int id = page * PAGE_SIZE + i + 1;
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(String.format(Locale.ROOT, "{\"id\":%d,\"object\":\"assignment\","
+                            + "\"data_updated_at\":\"2023-03-01T10:00:00.000000Z\",\"data\":{"
+                            + "\"subject_id\":%d,\"srs_stage\":%d}}",
+                    id, 10000 + id, id % 9));
+        }
+        sb.append("]}");
+        return sb.toString();
+    }
+
+    /**
+     * Build the pages and start the fetch thread.
+     */
+    @Setup
+    public void setup() {
+        for (int i=0; i<NUM_PAGES; i++) {
+            pages.add(assignmentPage(i).getBytes(StandardCharsets.UTF_8));
+        }
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    /**
+     * Stop the fetch thread.
+     */
+    @TearDown
+    public void tearDown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        pages.clear();
+    }
+
+    private ApiCollectionPage<Assignment> fetch(final String url) throws IOException {
+        final int index = url.equals(BASE_URL) ? 0 : Integer.parseInt(url.substring(url.indexOf("?page=") + 6));
+        LockSupport.parkNanos(NETWORK_DELAY_NANOS);
+        return ApiCollectionPage.parse(new ByteArrayInputStream(pages.get(index)), mapper, Assignment.class);
+    }
+
+    private static void process(final ApiCollectionPage<Assignment> page, final Blackhole bh) {
+        final long end = System.nanoTime() + ENTITY_COST_NANOS * page.getEntities().size();
+        for (final Assignment assignment: page.getEntities()) {
+            bh.consume(assignment.subject_id);
+        }
+        //noinspection StatementWithEmptyBody
+        while (System.nanoTime() < end) {
+            //
+        }
+    }
+
+    /**
+     * The old way: fetch a page, process it, then fetch the next one.
+     *
+     * @param bh the blackhole
+     * @throws IOException on parse errors
+     */
+    @Benchmark
+    public void sequential(final Blackhole bh) throws IOException {
+        @Nullable String nextUrl = BASE_URL;
+        while (nextUrl != null) {
+            final ApiCollectionPage<Assignment> page = fetch(nextUrl);
+            process(page, bh);
+            nextUrl = page.getNextUrl();
+        }
+    }
+
+    /**
+     * Fetch the next page while the current one is processed.
+     *
+     * @param bh the blackhole
+     * @throws IOException on fetch errors
+     */
+    @Benchmark
+    public void pipelined(final Blackhole bh) throws IOException {
+        if (executor == null) {
+            return;
+        }
+        try (final PagePipeline<Assignment> pipeline = new PagePipeline<>(executor, this::fetch, BASE_URL)) {
+            while (pipeline.hasNext()) {
+                final @Nullable ApiCollectionPage<Assignment> page = pipeline.next();
+                if (page != null) {
+                    process(page, bh);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.benchmark;
+
+import com.smouldering_durtles.wk.util.PreparedPool;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.Nullable;
+
+/**
+ * Benchmark for the time from answering a question to the audio starting to play: preparing the
+ * player on demand, against taking it from a pool that prepared it while the question was shown.
+ * Preparing is simulated by a fixed delay, so the numbers show the shape of the difference, not
+ * real media player timings.
+ */
+@State(Scope.Benchmark)
+public class PreparedPoolBenchmark {
+    private static final int NUM_KEYS = 64;
+    private static final int CAPACITY = 4;
+    private static final long PREPARE_NANOS = 2_000_000;
+
+    private final PreparedPool.Preparer<String, String> preparer = new PreparedPool.Preparer<String, String>() {
+        @Override
+        public String prepare(final String key) {
+            return preparePlayer(key);
+        }
+
+        @Override
+        public void release(final String value) {
+            //
+        }
+    };
+
+    private final List<String> keys = new ArrayList<>();
+    private @Nullable ExecutorService executor = null;
+    private @Nullable PreparedPool<String, String> pool = null;
+    private int index = 0;
+
+    private static String preparePlayer(final String key) {
+        LockSupport.parkNanos(PREPARE_NANOS);
+        return "player:" + key;
+    }
+
+    /**
+     * Start the pool.
+     */
+    @Setup
+    public void setup() {
+        keys.clear();
+        for (int i=0; i<NUM_KEYS; i++) {
+            keys.add("q" + i);
+        }
+        executor = Executors.newSingleThreadExecutor();
+        pool = new PreparedPool<>(CAPACITY, executor, preparer);
+        index = 0;
+    }
+
+    /**
+     * Move to the next question, and give the pool the time the user spends on it to prepare the
+     * players for the upcoming questions.
+     *
+     * @throws InterruptedException if interrupted while waiting for the pool
+     */
+    @Setup(Level.Invocation)
+    public void nextQuestion() throws InterruptedException {
+        if (executor == null || pool == null) {
+            return;
+        }
+        index = (index + 1) % NUM_KEYS;
+        final List<String> wanted = new ArrayList<>(CAPACITY);
+        for (int i=0; i<CAPACITY; i++) {
+            wanted.add(keys.get((index + i) % NUM_KEYS));
+        }
+        pool.setWanted(wanted);
+        final CountDownLatch latch = new CountDownLatch(1);
+        executor.execute(latch::countDown);
+        latch.await();
+    }
+
+    /**
+     * Stop the pool.
+     */
+    @TearDown
+    public void tearDown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        pool = null;
+    }
+
+    /**
+     * The old way: prepare the player when it's needed.
+     *
+     * @return the player
+     */
+    @Benchmark
+    public String onDemand() {
+        return preparePlayer(keys.get(index));
+    }
+
+    /**
+     * Take the player from the pool, and only prepare one if it isn't there.
+     *
+     * @return the player
+     */
+    @Benchmark
+    public String pooled() {
+        final String key = keys.get(index);
+        final @Nullable String player = pool == null ? null : pool.take(key);
+        return player == null ? preparePlayer(key) : player;
+    }
+}
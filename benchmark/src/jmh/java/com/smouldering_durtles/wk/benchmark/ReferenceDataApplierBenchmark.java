@@ -0,0 +1,369 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.smouldering_durtles.wk.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smouldering_durtles.wk.db.ReferenceDataApplier;
+import com.smouldering_durtles.wk.model.ReferenceDataValues;
+import com.smouldering_durtles.wk.util.ReferencePack;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.Nullable;
+
+/**
+ * Benchmark for a full reload of the reference data into a subject table of ~9k rows in SQLite:
+ * the old way of comparing every row and updating each difference in its own implicit
+ * transaction, against ReferenceDataApplier computing the values in parallel and writing only
+ * the changed rows, one transaction per chunk. Both are measured on a fresh table, where every
+ * row changes, and on a table that is already up to date.
+ */
+@State(Scope.Benchmark)
+public class ReferenceDataApplierBenchmark {
+    private static final int NUM_KANJI = 2000;
+    private static final int NUM_VOCAB = 7000;
+    private static final int CHUNK_SIZE = 250;
+    private static final String UPDATE_SQL = "UPDATE subject SET frequency = ?, joyoGrade = ?, jlptLevel = ?,"
+            + " pitchInfo = ?, strokeData = ?, referenceDataHash = ? WHERE id = ?";
+
+    private final List<String> kanji = new ArrayList<>();
+    private final List<String> vocab = new ArrayList<>();
+    private @Nullable ReferencePack pack = null;
+    private @Nullable ExecutorService executor = null;
+
+    /**
+     * A subject row as the applier sees it.
+     */
+    private static final class PackSubject implements ReferenceDataApplier.StoredSubject {
+        private final long id;
+        private final boolean kanji;
+        private final String characters;
+        private final long referenceDataHash;
+
+        private PackSubject(final long id, final boolean kanji, final String characters, final long referenceDataHash) {
+            this.id = id;
+            this.kanji = kanji;
+            this.characters = characters;
+            this.referenceDataHash = referenceDataHash;
+        }
+
+        @Override
+        public long getReferenceDataHash() {
+            return referenceDataHash;
+        }
+    }
+
+    /**
+     * A subject table that is created anew for every invocation.
+     */
+    @State(Scope.Thread)
+    public static class FreshDatabase {
+        private @Nullable File file = null;
+        private @Nullable Connection connection = null;
+
+        /**
+         * Create the table.
+         *
+         * @param input the benchmark input
+         * @throws IOException if the database file can't be created
+         * @throws SQLException if the table can't be filled
+         */
+        @Setup(Level.Invocation)
+        public void setup(final ReferenceDataApplierBenchmark input) throws IOException, SQLException {
+            file = File.createTempFile("reference", ".db");
+            connection = input.createDatabase(file);
+        }
+
+        /**
+         * Close and delete the table.
+         *
+         * @throws SQLException if the database can't be closed
+         */
+        @TearDown(Level.Invocation)
+        public void tearDown() throws SQLException {
+            closeDatabase(connection, file);
+            connection = null;
+            file = null;
+        }
+    }
+
+    /**
+     * A subject table that already has the current reference data.
+     */
+    @State(Scope.Thread)
+    public static class AppliedDatabase {
+        private @Nullable File file = null;
+        private @Nullable Connection connection = null;
+
+        /**
+         * Create the table and apply the reference data to it.
+         *
+         * @param input the benchmark input
+         * @throws IOException if the database file can't be created
+         * @throws SQLException if the table can't be filled
+         */
+        @Setup
+        public void setup(final ReferenceDataApplierBenchmark input) throws IOException, SQLException {
+            file = File.createTempFile("reference", ".db");
+            connection = input.createDatabase(file);
+            input.applyChunked(connection);
+        }
+
+        /**
+         * Close and delete the table.
+         *
+         * @throws SQLException if the database can't be closed
+         */
+        @TearDown
+        public void tearDown() throws SQLException {
+            closeDatabase(connection, file);
+            connection = null;
+            file = null;
+        }
+    }
+
+    private static List<String> readKeys(final String name, final int max) throws IOException {
+        final List<String> keys = new ArrayList<>();
+        new ObjectMapper().readTree(new File(Corpus.getRootDir(), "reference-data/compiled/" + name))
+                .fieldNames().forEachRemaining(keys::add);
+        return keys.subList(0, Math.min(max, keys.size()));
+    }
+
+    /**
+     * Load the pack and the subject characters, and start the executor.
+     *
+     * @throws IOException if the reference data can't be read
+     */
+    @Setup
+    public void setup() throws IOException {
+        final File packFile = new File(Corpus.getRootDir(), "app/build/generated/referencePack/res/raw/reference_pack.bin");
+        try (final FileInputStream is = new FileInputStream(packFile)) {
+            pack = ReferencePack.open(is.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, is.getChannel().size()));
+        }
+        kanji.clear();
+        kanji.addAll(readKeys("kanjidic_freq.json", NUM_KANJI));
+        vocab.clear();
+        vocab.addAll(readKeys("pitch_info.json", NUM_VOCAB));
+        executor = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Stop the executor.
+     */
+    @TearDown
+    public void tearDown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private Connection createDatabase(final File file) throws SQLException {
+        final Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+        try (final Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE subject (id INTEGER PRIMARY KEY NOT NULL, object TEXT, characters TEXT,"
+                    + " frequency INTEGER NOT NULL DEFAULT 0, joyoGrade INTEGER NOT NULL DEFAULT 0, jlptLevel INTEGER NOT NULL DEFAULT 0,"
+                    + " pitchInfo TEXT, strokeData TEXT, referenceDataHash INTEGER NOT NULL DEFAULT 0)");
+        }
+        connection.setAutoCommit(false);
+        try (final PreparedStatement statement = connection.prepareStatement("INSERT INTO subject (id, object, characters) VALUES (?, ?, ?)")) {
+            long id = 1;
+            for (final String characters: kanji) {
+                statement.setLong(1, id++);
+                statement.setString(2, "kanji");
+                statement.setString(3, characters);
+                statement.executeUpdate();
+            }
+            for (final String characters: vocab) {
+                statement.setLong(1, id++);
+                statement.setString(2, "vocabulary");
+                statement.setString(3, characters);
+                statement.executeUpdate();
+            }
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+        return connection;
+    }
+
+    private static void closeDatabase(final @Nullable Connection connection, final @Nullable File file) throws SQLException {
+        if (connection != null) {
+            connection.close();
+        }
+        if (file != null && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    private ReferenceDataValues computeValues(final long id, final boolean isKanji, final String characters) {
+        if (pack == null) {
+            throw new IllegalStateException("Not set up");
+        }
+        if (isKanji) {
+            return new ReferenceDataValues(id, pack.getInt(ReferencePack.FREQUENCY, characters, 0),
+                    pack.getInt(ReferencePack.JOYO_GRADE, characters, 0), pack.getInt(ReferencePack.KANJI_JLPT_LEVEL, characters, 0),
+                    null, pack.getString(ReferencePack.STROKE_DATA, characters));
+        }
+        return new ReferenceDataValues(id, 0, 0, pack.getInt(ReferencePack.VOCAB_JLPT_LEVEL, characters, 0),
+                pack.getString(ReferencePack.PITCH_INFO, characters), null);
+    }
+
+    private static void setValues(final PreparedStatement statement, final ReferenceDataValues values, final long hash) throws SQLException {
+        statement.setInt(1, values.getFrequency());
+        statement.setInt(2, values.getJoyoGrade());
+        statement.setInt(3, values.getJlptLevel());
+        statement.setString(4, values.getPitchInfo());
+        statement.setString(5, values.getStrokeData());
+        statement.setLong(6, hash);
+        statement.setLong(7, values.getId());
+    }
+
+    private int applyPerRow(final @Nullable Connection connection) throws SQLException {
+        if (connection == null) {
+            throw new IllegalStateException("Not set up");
+        }
+        int numChanged = 0;
+        final List<Object[]> rows = new ArrayList<>();
+        try (final Statement statement = connection.createStatement();
+             final ResultSet rs = statement.executeQuery("SELECT id, object, characters, frequency, joyoGrade, jlptLevel, pitchInfo, strokeData FROM subject")) {
+            while (rs.next()) {
+                rows.add(new Object[] {rs.getLong(1), rs.getString(2), rs.getString(3), rs.getInt(4), rs.getInt(5), rs.getInt(6),
+                        rs.getString(7), rs.getString(8)});
+            }
+        }
+        try (final PreparedStatement update = connection.prepareStatement(UPDATE_SQL)) {
+            for (final Object[] row: rows) {
+                final ReferenceDataValues values = computeValues((Long) row[0], row[1].equals("kanji"), (String) row[2]);
+                if (values.getFrequency() != (Integer) row[3] || values.getJoyoGrade() != (Integer) row[4]
+                        || values.getJlptLevel() != (Integer) row[5] || !String.valueOf(values.getPitchInfo()).equals(String.valueOf(row[6]))
+                        || !String.valueOf(values.getStrokeData()).equals(String.valueOf(row[7]))) {
+                    setValues(update, values, 0);
+                    update.executeUpdate();
+                    numChanged++;
+                }
+            }
+        }
+        return numChanged;
+    }
+
+    private int applyChunked(final @Nullable Connection connection) throws SQLException {
+        if (connection == null || executor == null) {
+            throw new IllegalStateException("Not set up");
+        }
+        final List<PackSubject> subjects = new ArrayList<>();
+        try (final Statement statement = connection.createStatement();
+             final ResultSet rs = statement.executeQuery("SELECT id, object, characters, referenceDataHash FROM subject")) {
+            while (rs.next()) {
+                subjects.add(new PackSubject(rs.getLong(1), rs.getString(2).equals("kanji"), rs.getString(3), rs.getLong(4)));
+            }
+        }
+        try (final PreparedStatement update = connection.prepareStatement(UPDATE_SQL)) {
+            return new ReferenceDataApplier<PackSubject>(executor,
+                    subject -> computeValues(subject.id, subject.kanji, subject.characters), CHUNK_SIZE).apply(subjects,
+                    new ReferenceDataApplier.Target() {
+                        @Override
+                        public void write(final List<ReferenceDataValues> changes) {
+                            try {
+                                connection.setAutoCommit(false);
+                                for (final ReferenceDataValues values: changes) {
+                                    setValues(update, values, values.getHash());
+                                    update.executeUpdate();
+                                }
+                                connection.commit();
+                                connection.setAutoCommit(true);
+                            } catch (final SQLException e) {
+                                throw new IllegalStateException(e);
+                            }
+                        }
+
+                        @Override
+                        public void processed(final int count) {
+                            //
+                        }
+                    });
+        }
+    }
+
+    /**
+     * The old way, on a fresh table: compare every row and update each difference on its own.
+     *
+     * @param db the table
+     * @return the number of rows written
+     * @throws SQLException if the database access fails
+     */
+    @Benchmark
+    public int perRowFresh(final FreshDatabase db) throws SQLException {
+        return applyPerRow(db.connection);
+    }
+
+    /**
+     * The applier, on a fresh table.
+     *
+     * @param db the table
+     * @return the number of rows written
+     * @throws SQLException if the database access fails
+     */
+    @Benchmark
+    public int chunkedFresh(final FreshDatabase db) throws SQLException {
+        return applyChunked(db.connection);
+    }
+
+    /**
+     * The old way, on a table that is already up to date.
+     *
+     * @param db the table
+     * @return the number of rows written
+     * @throws SQLException if the database access fails
+     */
+    @Benchmark
+    public int perRowUnchanged(final AppliedDatabase db) throws SQLException {
+        return applyPerRow(db.connection);
+    }
+
+    /**
+     * The applier, on a table that is already up to date.
+     *
+     * @param db the table
+     * @return the number of rows written
+     * @throws SQLException if the database access fails
+     */
+    @Benchmark
+    public int chunkedUnchanged(final AppliedDatabase db) throws SQLException {
+        return applyChunked(db.connection);
+    }
+}
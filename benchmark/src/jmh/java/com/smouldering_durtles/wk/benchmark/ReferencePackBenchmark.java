@@ -0,0 +1,185 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.smouldering_durtles.wk.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smouldering_durtles.wk.util.ReferencePack;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * Benchmark for the reference data lookups: the memory-mapped pack that the app uses, against the
+ * JSON maps it used to build on first use. The pack is the one the app build generates, so the
+ * jmh task depends on :app:compileReferencePack.
+ */
+@State(Scope.Benchmark)
+public class ReferencePackBenchmark {
+    private static final String[] INT_FILES = {
+            "kanjidic_freq.json", "wikipedia_joyo_grades.json", "kanji_jlpt_levels.json", "vocab_jlpt_levels.json"};
+    private static final int[] INT_SECTIONS = {
+            ReferencePack.FREQUENCY, ReferencePack.JOYO_GRADE, ReferencePack.KANJI_JLPT_LEVEL, ReferencePack.VOCAB_JLPT_LEVEL};
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final List<List<String>> keys = new ArrayList<>();
+    private final List<String> pitchKeys = new ArrayList<>();
+    private final List<Map<String, Integer>> maps = new ArrayList<>();
+    private final Map<String, JsonNode> pitchMap = new HashMap<>();
+    private @Nullable ReferencePack pack = null;
+
+    private static File getCompiled(final String name) {
+        return new File(Corpus.getRootDir(), "reference-data/compiled/" + name);
+    }
+
+    private static File getPackFile() {
+        return new File(Corpus.getRootDir(), "app/build/generated/referencePack/res/raw/reference_pack.bin");
+    }
+
+    private static List<String> readKeys(final ObjectMapper mapper, final String name) throws IOException {
+        final List<String> result = new ArrayList<>();
+        mapper.readTree(getCompiled(name)).fieldNames().forEachRemaining(result::add);
+        return result;
+    }
+
+    /**
+     * Read the keys to look up, and load both the JSON maps and the pack.
+     *
+     * @throws IOException if the reference data can't be read
+     */
+    @Setup
+    public void setup() throws IOException {
+        for (final String name: INT_FILES) {
+            keys.add(readKeys(mapper, name));
+        }
+        pitchKeys.addAll(readKeys(mapper, "pitch_info.json"));
+        maps.addAll(loadJsonMaps());
+        pitchMap.putAll(loadPitchMap());
+        pack = mapPack();
+    }
+
+    private List<Map<String, Integer>> loadJsonMaps() throws IOException {
+        final List<Map<String, Integer>> result = new ArrayList<>();
+        for (final String name: INT_FILES) {
+            final Map<String, Integer> map = new HashMap<>();
+            final Map<String, Integer> source = mapper.readValue(getCompiled(name), new TypeReference<Map<String, Integer>>() {});
+            for (final Map.Entry<String, Integer> entry: source.entrySet()) {
+                map.put(entry.getKey().intern(), entry.getValue());
+            }
+            result.add(map);
+        }
+        return result;
+    }
+
+    private Map<String, JsonNode> loadPitchMap() throws IOException {
+        final Map<String, JsonNode> result = new HashMap<>();
+        final Iterator<Map.Entry<String, JsonNode>> fields = mapper.readTree(getCompiled("pitch_info.json")).fields();
+        while (fields.hasNext()) {
+            final Map.Entry<String, JsonNode> entry = fields.next();
+            result.put(entry.getKey().intern(), entry.getValue());
+        }
+        return result;
+    }
+
+    private static ReferencePack mapPack() throws IOException {
+        try (final FileInputStream is = new FileInputStream(getPackFile())) {
+            return ReferencePack.open(is.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, is.getChannel().size()));
+        }
+    }
+
+    /**
+     * Parse the JSON files into maps, as ReferenceDataUtil did on first use.
+     *
+     * @param bh the black hole
+     * @throws IOException if the reference data can't be read
+     */
+    @Benchmark
+    public void loadJson(final Blackhole bh) throws IOException {
+        bh.consume(loadJsonMaps());
+        bh.consume(loadPitchMap());
+    }
+
+    /**
+     * Map and open the pack.
+     *
+     * @param bh the black hole
+     * @throws IOException if the pack can't be read
+     */
+    @Benchmark
+    public void openPack(final Blackhole bh) throws IOException {
+        bh.consume(mapPack());
+    }
+
+    /**
+     * Look up every key of every table in the JSON maps.
+     *
+     * @param bh the black hole
+     */
+    @Benchmark
+    public void lookupJson(final Blackhole bh) {
+        for (int i=0; i<INT_FILES.length; i++) {
+            final Map<String, Integer> map = maps.get(i);
+            for (final String key: keys.get(i)) {
+                bh.consume(map.get(key));
+            }
+        }
+        for (final String key: pitchKeys) {
+            bh.consume(pitchMap.get(key));
+        }
+    }
+
+    /**
+     * Look up every key of every table in the pack. Pitch info comes out of the pack as JSON text,
+     * so it is parsed here to make the result comparable with the JSON maps.
+     *
+     * @param bh the black hole
+     * @throws IOException if a pitch info entry can't be parsed
+     */
+    @Benchmark
+    public void lookupPack(final Blackhole bh) throws IOException {
+        if (pack == null) {
+            return;
+        }
+        for (int i=0; i<INT_FILES.length; i++) {
+            for (final String key: keys.get(i)) {
+                bh.consume(pack.getInt(INT_SECTIONS[i], key, 0));
+            }
+        }
+        for (final String key: pitchKeys) {
+            final @Nullable String json = pack.getString(ReferencePack.PITCH_INFO, key);
+            if (json != null) {
+                bh.consume(mapper.readTree(json));
+            }
+        }
+    }
+}
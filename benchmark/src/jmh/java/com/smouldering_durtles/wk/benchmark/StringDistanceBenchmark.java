@@ -0,0 +1,83 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.smouldering_durtles.wk.benchmark;
+
+import com.smouldering_durtles.wk.util.OptimalStringAlignmentDistance;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmarks for the OSA edit distance, over random pairs of romaji readings from the corpus.
+ */
+@State(Scope.Benchmark)
+@OperationsPerInvocation(StringDistanceBenchmark.NUM_PAIRS)
+public class StringDistanceBenchmark {
+    static final int NUM_PAIRS = 1024;
+
+    private final String[] left = new String[NUM_PAIRS];
+    private final String[] right = new String[NUM_PAIRS];
+    private int[] rows = new int[0];
+
+    /**
+     * Pick the pairs, with a fixed seed so every run sees the same input.
+     */
+    @Setup
+    public void setup() {
+        final List<Corpus.Entry> entries = Corpus.get().getEntries();
+        final Random random = new Random(2);
+        int maxLength = 0;
+        for (int i=0; i<NUM_PAIRS; i++) {
+            left[i] = entries.get(random.nextInt(entries.size())).romaji;
+            right[i] = entries.get(random.nextInt(entries.size())).romaji;
+            maxLength = Math.max(maxLength, right[i].length());
+        }
+        rows = new int[3 * (maxLength + 1)];
+    }
+
+    /**
+     * The full distance.
+     *
+     * @param bh the black hole
+     */
+    @Benchmark
+    public void getDistance(final Blackhole bh) {
+        for (int i=0; i<NUM_PAIRS; i++) {
+            bh.consume(OptimalStringAlignmentDistance.getDistance(left[i], right[i]));
+        }
+    }
+
+    /**
+     * The distance with a cutoff, as used by the answer matcher.
+     *
+     * @param bh the black hole
+     */
+    @Benchmark
+    public void getBoundedDistance(final Blackhole bh) {
+        for (int i=0; i<NUM_PAIRS; i++) {
+            bh.consume(OptimalStringAlignmentDistance.getBoundedDistance(left[i], right[i], 3, rows));
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.smouldering_durtles.wk.benchmark;
+
+import com.smouldering_durtles.wk.util.SubjectSearchQuery;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Random;
+
+import javax.annotation.Nullable;
+
+/**
+ * Benchmark for the ranked subject search. The matching and ranking of the search are done in SQL,
+ * so this runs the generated queries against an in-memory SQLite database with the same tables as
+ * the app. Building the query text is included in the measurement.
+ */
+@State(Scope.Benchmark)
+@OperationsPerInvocation(SubjectSearchBenchmark.NUM_QUERIES)
+public class SubjectSearchBenchmark {
+    static final int NUM_QUERIES = 32;
+    private static final int MAX_HITS = 1000;
+
+    private final String[] queries = new String[NUM_QUERIES];
+    private @Nullable Connection connection = null;
+
+    /**
+     * Create and fill the database, and pick a mix of queries: romaji prefixes that go through the
+     * full-text index, Japanese text that needs a scan, and two-word queries.
+     *
+     * @throws SQLException on database errors
+     */
+    @Setup
+    public void setup() throws SQLException {
+        final List<Corpus.Entry> entries = Corpus.get().getEntries();
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (final Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE subject (id INTEGER PRIMARY KEY NOT NULL, object TEXT, hiddenAt INTEGER NOT NULL)");
+            statement.execute("CREATE VIRTUAL TABLE subject_search USING FTS4(characters TEXT NOT NULL, slug TEXT NOT NULL,"
+                    + " primaryMeaning TEXT NOT NULL, meanings TEXT NOT NULL, readings TEXT NOT NULL, body TEXT NOT NULL,"
+                    + " notes TEXT NOT NULL, synonyms TEXT NOT NULL, tokenize=unicode61)");
+        }
+
+        final Random random = new Random(4);
+        connection.setAutoCommit(false);
+        try (final PreparedStatement subject = connection.prepareStatement("INSERT INTO subject VALUES (?, 'vocabulary', 0)");
+             final PreparedStatement search = connection.prepareStatement("INSERT INTO subject_search (rowid, characters, slug,"
+                     + " primaryMeaning, meanings, readings, body, notes, synonyms) VALUES (?, ?, ?, ?, ?, ?, ?, '', '')")) {
+            for (int i=0; i<entries.size(); i++) {
+                final Corpus.Entry entry = entries.get(i);
+                subject.setLong(1, i + 1);
+                subject.executeUpdate();
+                final StringBuilder body = new StringBuilder();
+                for (int j=0; j<20; j++) {
+                    body.append(entries.get(random.nextInt(entries.size())).romaji).append(' ');
+                }
+                search.setLong(1, i + 1);
+                search.setString(2, entry.characters);
+                search.setString(3, entry.characters);
+                search.setString(4, entry.romaji);
+                search.setString(5, entry.romaji);
+                search.setString(6, entry.hiragana);
+                search.setString(7, body.toString());
+                search.executeUpdate();
+            }
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+
+        for (int i=0; i<NUM_QUERIES; i++) {
+            final Corpus.Entry entry = entries.get(random.nextInt(entries.size()));
+            switch (i % 4) {
+                case 0:
+                    queries[i] = entry.romaji.substring(0, Math.min(3, entry.romaji.length()));
+                    break;
+                case 1:
+                    queries[i] = entry.romaji;
+                    break;
+                case 2:
+                    queries[i] = entry.characters.substring(0, 1);
+                    break;
+                default:
+                    queries[i] = entry.romaji + " " + entries.get(random.nextInt(entries.size())).romaji.substring(0, 2);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Close the database.
+     *
+     * @throws SQLException on database errors
+     */
+    @TearDown
+    public void tearDown() throws SQLException {
+        if (connection != null) {
+            connection.close();
+            connection = null;
+        }
+    }
+
+    /**
+     * Build and run the queries, reading all hits.
+     *
+     * @param bh the black hole
+     * @throws SQLException on database errors
+     */
+    @Benchmark
+    public void search(final Blackhole bh) throws SQLException {
+        if (connection == null) {
+            return;
+        }
+        for (int i=0; i<NUM_QUERIES; i++) {
+            final @Nullable SubjectSearchQuery query = SubjectSearchQuery.build(queries[i], MAX_HITS);
+            if (query == null) {
+                continue;
+            }
+            try (final PreparedStatement statement = connection.prepareStatement(query.getSql())) {
+                final Object[] args = query.getArgs();
+                for (int j=0; j<args.length; j++) {
+                    statement.setObject(j + 1, args[j]);
+                }
+                try (final ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        bh.consume(rs.getLong(1));
+                        bh.consume(rs.getInt(2));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2019-2020 Ernst Jan Plugge <rmc@dds.nl>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.smouldering_durtles.wk.benchmark;
+
+import com.smouldering_durtles.wk.util.ApiTimestamps;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+
+/**
+ * Benchmark for parsing API timestamps, which happens for several fields of every entity in a sync.
+ * This is the parsing done by TextUtil.parseTimestampFromApi().
+ */
+@State(Scope.Benchmark)
+@OperationsPerInvocation(TimestampBenchmark.NUM_TIMESTAMPS)
+public class TimestampBenchmark {
+    static final int NUM_TIMESTAMPS = 1024;
+
+    private final String[] timestamps = new String[NUM_TIMESTAMPS];
+
+    /**
+     * Generate timestamps in the format the API uses, with a fixed seed so every run sees the same input.
+     */
+    @Setup
+    public void setup() {
+        final Random random = new Random(3);
+        for (int i=0; i<NUM_TIMESTAMPS; i++) {
+            timestamps[i] = String.format("20%02d-%02d-%02dT%02d:%02d:%02d.%06dZ",
+                    17 + random.nextInt(10), 1 + random.nextInt(12), 1 + random.nextInt(28),
+                    random.nextInt(24), random.nextInt(60), random.nextInt(60), random.nextInt(1000000));
+        }
+    }
+
+    /**
+     * Parse the timestamps.
+     *
+     * @param bh the black hole
+     */
+    @Benchmark
+    public void parse(final Blackhole bh) {
+        for (int i=0; i<NUM_TIMESTAMPS; i++) {
+            bh.consume(ApiTimestamps.parse(timestamps[i]));
+        }
+    }
+}
@@ -4,9 +4,9 @@ import sys
 import os
 import json
 
-respath = "../app/src/main/res/raw"
+outpath = "compiled"
 freq_input_file = "kanjidic-freq.txt"
-freq_output_file = os.path.join(respath, "kanjidic_freq.json")
+freq_output_file = os.path.join(outpath, "kanjidic_freq.json")
 
 data = {}
 for line in open(freq_input_file, "rb"):
@@ -5,9 +5,9 @@ import os
 import json
 import BeautifulSoup
 
-respath = "../app/src/main/res/raw"
-kanji_jlpt_output_file = os.path.join(respath, "kanji_jlpt_levels.json")
-vocab_jlpt_output_file = os.path.join(respath, "vocab_jlpt_levels.json")
+outpath = "compiled"
+kanji_jlpt_output_file = os.path.join(outpath, "kanji_jlpt_levels.json")
+vocab_jlpt_output_file = os.path.join(outpath, "vocab_jlpt_levels.json")
 
 def soup_text(o):
   if o is None: return None
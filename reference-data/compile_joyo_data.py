@@ -5,9 +5,9 @@ import os
 import json
 import BeautifulSoup
 
-respath = "../app/src/main/res/raw"
+outpath = "compiled"
 joyo_input_file = os.path.join("download", "joyo-grades.html")
-joyo_output_file = os.path.join(respath, "wikipedia_joyo_grades.json")
+joyo_output_file = os.path.join(outpath, "wikipedia_joyo_grades.json")
 
 def soup_text(o):
   if o is None: return None
@@ -4,10 +4,10 @@ import sys
 import os
 import json
 
-respath = "../app/src/main/res/raw"
+outpath = "compiled"
 userscript_input_file = os.path.join("download", "pitch_info_userscript.js")
 weblio_input_file = "weblio_pitch_info.json"
-pitch_info_output_file = os.path.join(respath, "pitch_info.json")
+pitch_info_output_file = os.path.join(outpath, "pitch_info.json")
 
 table = open(userscript_input_file, "rb").read()
 p1 = table.find("var vocabTable = {")
@@ -0,0 +1,87 @@
+#!/usr/bin/python
+
+import sys
+import os
+import json
+import struct
+
+# Packs the output of the other compile_*.py scripts into the single binary file that
+# the app memory-maps at runtime. See ReferencePack.java for the layout. The app build
+# runs this as its compileReferencePack task, with the pack file as the only argument.
+# Every section is required: if one of the input files is missing, no pack is written.
+
+if len(sys.argv) != 2:
+  sys.stderr.write("usage: %s <output file>\n" % sys.argv[0])
+  sys.exit(2)
+
+inpath = "compiled"
+pack_output_file = sys.argv[1]
+
+MAGIC = 0x574b5250
+VERSION = 1
+KIND_INT = 0
+KIND_STRING = 1
+
+# (section id, kind, input file)
+sections = [
+  (1, KIND_INT, "kanjidic_freq.json"),
+  (2, KIND_INT, "wikipedia_joyo_grades.json"),
+  (3, KIND_INT, "kanji_jlpt_levels.json"),
+  (4, KIND_INT, "vocab_jlpt_levels.json"),
+  (5, KIND_STRING, "pitch_info.json"),
+  (6, KIND_STRING, "stroke_data.json"),
+]
+
+def encode_value(kind, value):
+  if kind == KIND_INT:
+    return int(value)
+  s = json.dumps(value, separators=(',', ':'), ensure_ascii=False)
+  return s.encode('utf-8')
+
+missing = [os.path.join(inpath, fn) for section_id, kind, fn in sections if not os.path.exists(os.path.join(inpath, fn))]
+if missing:
+  for fullfn in missing:
+    sys.stderr.write("error: %s not found, run the compile_*.py script that writes it first\n" % fullfn)
+  sys.exit(1)
+
+loaded = []
+for section_id, kind, fn in sections:
+  fullfn = os.path.join(inpath, fn)
+  data = json.load(open(fullfn, "rb"))
+  entries = sorted((k.encode('utf-8'), encode_value(kind, v)) for k, v in data.items())
+  loaded.append((section_id, kind, entries))
+
+offset = 12 + 16 * len(loaded)
+directory = []
+blobs = []
+for section_id, kind, entries in loaded:
+  count = len(entries)
+  table_size = (count + 1) * 4 + (count if kind == KIND_INT else count + 1) * 4
+  pos = offset + table_size
+  key_offsets = []
+  for key, value in entries:
+    key_offsets.append(pos)
+    pos += len(key)
+  key_offsets.append(pos)
+  if kind == KIND_INT:
+    values = [value for key, value in entries]
+    value_blob = b''
+  else:
+    values = []
+    for key, value in entries:
+      values.append(pos)
+      pos += len(value)
+    values.append(pos)
+    value_blob = b''.join(value for key, value in entries)
+  directory.append(struct.pack(">iiii", section_id, kind, count, offset))
+  blobs.append(struct.pack(">%di" % len(key_offsets), *key_offsets))
+  blobs.append(struct.pack(">%di" % len(values), *values))
+  blobs.append(b''.join(key for key, value in entries))
+  blobs.append(value_blob)
+  offset = pos
+
+fo = open(pack_output_file, "wb")
+fo.write(struct.pack(">iii", MAGIC, VERSION, len(loaded)))
+fo.write(b''.join(directory))
+fo.write(b''.join(blobs))
+fo.close()
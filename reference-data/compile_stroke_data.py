@@ -15,9 +15,9 @@ def codepoint2unicode(codepoint):
 
 re_text_transform = re.compile(r'^matrix\(([-0-9\. ]+)\)$')
 
-respath = "../app/src/main/res/raw"
+outpath = "compiled"
 stroke_input_dir = "download/kanji"
-stroke_output_file = os.path.join(respath, "stroke_data.json")
+stroke_output_file = os.path.join(outpath, "stroke_data.json")
 
 data = {}
 for fn in os.listdir(stroke_input_dir):